@@ -83,7 +83,7 @@ public class OCamlParameterNameHints implements InlayParameterHintsProvider {
                 Project project = element.getProject();
                 GlobalSearchScope scope = GlobalSearchScope.allScope(project);
                 String valQName = ((PsiValImpl) resolvedElement).getQualifiedName();
-                Collection<PsiLet> elements = LetFqnIndex.getElements(valQName.hashCode(), project, scope);
+                Collection<PsiLet> elements = LetFqnIndex.getElements(valQName, project, scope);
                 Optional<PsiLet> first = elements.stream().findFirst();
                 if (first.isPresent()) {
                     resolvedElement = first.get();
@@ -0,0 +1,42 @@
+package com.ocaml.ide.profiler;
+
+import com.intellij.icons.AllIcons;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.fileChooser.FileChooserFactory;
+import com.intellij.openapi.fileChooser.FileSaverDescriptor;
+import com.intellij.openapi.project.DumbAwareAction;
+import com.intellij.openapi.ui.Messages;
+import com.intellij.openapi.vfs.VirtualFileWrapper;
+import com.ocaml.OCamlBundle;
+import com.or.lang.core.psi.reference.ResolveProfiler;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Save the latency histograms of the resolution phases in a json file.
+ */
+public class ExportResolveProfileAction extends DumbAwareAction {
+    public static final String ACTION_ID = "ocaml.profiler.resolve.export";
+
+    public ExportResolveProfileAction() {
+        getTemplatePresentation().setIcon(AllIcons.ToolbarDecorator.Export);
+    }
+
+    @Override
+    public void actionPerformed(@NotNull AnActionEvent e) {
+        FileSaverDescriptor descriptor = new FileSaverDescriptor(OCamlBundle.message("profiler.resolve.export.title"), "", "json");
+        VirtualFileWrapper wrapper = FileChooserFactory.getInstance().createSaveFileDialog(descriptor, e.getProject()).save("resolve-profile.json");
+        if (wrapper == null) {
+            return;
+        }
+
+        try {
+            Files.writeString(wrapper.getFile().toPath(), ResolveProfiler.toJson(ResolveProfiler.getAll()), StandardCharsets.UTF_8);
+        } catch (IOException ex) {
+            Messages.showErrorDialog(e.getProject(), ex.getMessage(), OCamlBundle.message("profiler.resolve.export.title"));
+        }
+    }
+}
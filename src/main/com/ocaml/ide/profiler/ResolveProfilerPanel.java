@@ -0,0 +1,136 @@
+package com.ocaml.ide.profiler;
+
+import com.intellij.icons.AllIcons;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.actionSystem.*;
+import com.intellij.openapi.project.DumbAwareAction;
+import com.intellij.openapi.ui.SimpleToolWindowPanel;
+import com.intellij.ui.ScrollPaneFactory;
+import com.intellij.ui.table.JBTable;
+import com.ocaml.OCamlBundle;
+import com.or.lang.core.psi.reference.ResolveProfiler;
+import org.jetbrains.annotations.NotNull;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The latency histograms of the resolution phases, one row per kind of reference and phase.
+ * The table is refreshed every few seconds while it is visible.
+ */
+public class ResolveProfilerPanel extends SimpleToolWindowPanel implements Disposable {
+    private static final int REFRESH_DELAY = 2_000;
+
+    private final HistogramTableModel myModel = new HistogramTableModel();
+    private final Timer myTimer;
+
+    public ResolveProfilerPanel() {
+        super(false, true);
+
+        JBTable table = new JBTable(myModel);
+        table.setAutoCreateRowSorter(true);
+        setContent(ScrollPaneFactory.createScrollPane(table));
+
+        DefaultActionGroup group = new DefaultActionGroup();
+        group.add(new DumbAwareAction(OCamlBundle.message("profiler.resolve.refresh"), null, AllIcons.Actions.Refresh) {
+            @Override
+            public void actionPerformed(@NotNull AnActionEvent e) {
+                myModel.refresh();
+            }
+        });
+        group.add(new DumbAwareAction(OCamlBundle.message("profiler.resolve.reset"), null, AllIcons.Actions.GC) {
+            @Override
+            public void actionPerformed(@NotNull AnActionEvent e) {
+                for (ResolveProfiler profiler : ResolveProfiler.getAll()) {
+                    profiler.reset();
+                }
+                myModel.refresh();
+            }
+        });
+        AnAction exportAction = ActionManager.getInstance().getAction(ExportResolveProfileAction.ACTION_ID);
+        if (exportAction != null) {
+            group.add(exportAction);
+        }
+
+        ActionToolbar toolbar = ActionManager.getInstance().createActionToolbar(ActionPlaces.TOOLWINDOW_CONTENT, group, false);
+        toolbar.setTargetComponent(table);
+        setToolbar(toolbar.getComponent());
+
+        myTimer = new Timer(REFRESH_DELAY, e -> {
+            if (isShowing()) {
+                myModel.refresh();
+            }
+        });
+        myTimer.start();
+        myModel.refresh();
+    }
+
+    @Override
+    public void dispose() {
+        myTimer.stop();
+    }
+
+    static final class HistogramTableModel extends AbstractTableModel {
+        private static final String[] BUCKETS = ResolveProfiler.getBucketNames();
+        private final List<Object[]> myRows = new ArrayList<>();
+
+        void refresh() {
+            myRows.clear();
+            for (ResolveProfiler profiler : ResolveProfiler.getAll()) {
+                for (ResolveProfiler.Histogram histogram : profiler.getHistograms()) {
+                    Object[] row = new Object[5 + BUCKETS.length];
+                    row[0] = profiler.getName();
+                    row[1] = histogram.getPhase();
+                    row[2] = histogram.getCount();
+                    row[3] = histogram.getMean() / 1_000;
+                    row[4] = histogram.getMax() / 1_000;
+                    for (int i = 0; i < BUCKETS.length; i++) {
+                        row[5 + i] = histogram.getBucket(i);
+                    }
+                    myRows.add(row);
+                }
+            }
+            fireTableDataChanged();
+        }
+
+        @Override
+        public int getRowCount() {
+            return myRows.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return 5 + BUCKETS.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            switch (column) {
+                case 0:
+                    return OCamlBundle.message("profiler.resolve.column.reference");
+                case 1:
+                    return OCamlBundle.message("profiler.resolve.column.phase");
+                case 2:
+                    return OCamlBundle.message("profiler.resolve.column.count");
+                case 3:
+                    return OCamlBundle.message("profiler.resolve.column.mean");
+                case 4:
+                    return OCamlBundle.message("profiler.resolve.column.max");
+                default:
+                    return BUCKETS[column - 5];
+            }
+        }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            return column < 2 ? String.class : Long.class;
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            return myRows.get(row)[column];
+        }
+    }
+}
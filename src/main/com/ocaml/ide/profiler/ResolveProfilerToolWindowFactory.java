@@ -0,0 +1,23 @@
+package com.ocaml.ide.profiler;
+
+import com.intellij.openapi.project.DumbAware;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.wm.ToolWindow;
+import com.intellij.openapi.wm.ToolWindowFactory;
+import com.intellij.ui.content.Content;
+import com.intellij.ui.content.ContentFactory;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Tool window with the latency histograms of the resolution of the references.
+ */
+public class ResolveProfilerToolWindowFactory implements ToolWindowFactory, DumbAware {
+
+    @Override
+    public void createToolWindowContent(@NotNull Project project, @NotNull ToolWindow window) {
+        ResolveProfilerPanel panel = new ResolveProfilerPanel();
+        Content content = ContentFactory.SERVICE.getInstance().createContent(panel, "", false);
+        content.setDisposer(panel);
+        window.getContentManager().addContent(content);
+    }
+}
@@ -26,11 +26,19 @@ public class OCamlSettings implements PersistentStateComponent<OCamlSettings> {
      */
     public String outputFolderName = "out/";
 
+    /**
+     * Maximum duration of the resolution of a reference, in milliseconds (0 for no limit).
+     * When it is exceeded, the resolution returns the best result found so far.
+     * Edited in the OCaml project settings, or in .idea/ocaml.xml.
+     */
+    public int resolveTimeBudget = 1000;
+
     @Override public @Nullable OCamlSettings getState() {
         return this;
     }
 
     @Override public void loadState(@NotNull OCamlSettings state) {
         outputFolderName = state.outputFolderName;
+        resolveTimeBudget = state.resolveTimeBudget;
     }
 }
\ No newline at end of file
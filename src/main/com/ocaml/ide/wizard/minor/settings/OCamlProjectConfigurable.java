@@ -39,6 +39,7 @@ public class OCamlProjectConfigurable implements Configurable {
     private final SdkListConfigurable mySdkConfigurable;
     private JPanel myMainPanel;
     private JTextField myCompilerOutput;
+    private JSpinner myResolveTimeBudget;
     private JTabbedPane myTabs;
     private JPanel mySdksPanel;
     private JPanel mySdkPanel;
@@ -73,6 +74,7 @@ public class OCamlProjectConfigurable implements Configurable {
 
         // On File selected
         myCompilerOutput.setText(mySettings.outputFolderName);
+        myResolveTimeBudget.setModel(new SpinnerNumberModel(mySettings.resolveTimeBudget, 0, 60_000, 100));
 
         // load sdk configurable
         mySdkConfigurable = new SdkListConfigurable(this);
@@ -105,7 +107,8 @@ public class OCamlProjectConfigurable implements Configurable {
                 || (selectedSdk != null && myProjectSdk != null &&
                 selectedSdk.getName().equals(myProjectSdk.getName()));
         boolean locationSame = myCompilerOutput.getText().equals(mySettings.outputFolderName);
-        return !projectSdkSame || !locationSame || mySdkConfigurable.isModified();
+        boolean resolveTimeBudgetSame = ((Number) myResolveTimeBudget.getValue()).intValue() == mySettings.resolveTimeBudget;
+        return !projectSdkSame || !locationSame || !resolveTimeBudgetSame || mySdkConfigurable.isModified();
     }
 
     @Override public void apply() throws ConfigurationException {
@@ -130,6 +133,7 @@ public class OCamlProjectConfigurable implements Configurable {
         myOCamlSdkComboBox.reloadModel();
 
         mySettings.outputFolderName = myCompilerOutput.getText();
+        mySettings.resolveTimeBudget = ((Number) myResolveTimeBudget.getValue()).intValue();
     }
 
     @Override public void disposeUIResources() {
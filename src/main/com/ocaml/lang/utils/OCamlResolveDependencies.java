@@ -2,21 +2,26 @@ package com.ocaml.lang.utils;
 
 import com.intellij.openapi.roots.ModuleRootManager;
 import com.intellij.openapi.util.Pair;
-import com.intellij.openapi.vfs.VfsUtil;
+import com.intellij.openapi.vfs.VfsUtilCore;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
 import com.intellij.psi.PsiManager;
 import com.intellij.psi.PsiWhiteSpace;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.search.GlobalSearchScopesCore;
 import com.ocaml.ide.files.OCamlFileType;
 import com.ocaml.ide.files.OCamlInterfaceFileType;
+import com.or.ide.search.FileModuleIndexService;
 import com.or.lang.OCamlTypes;
+import com.or.lang.core.ORUtil;
 import com.or.lang.core.psi.PsiInclude;
 import com.or.lang.core.psi.PsiOpen;
 import com.or.lang.core.psi.PsiUpperSymbol;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
-import java.util.HashMap;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -66,15 +71,28 @@ public class OCamlResolveDependencies {
         // small optimisation
         if (dependencies.isEmpty()) return Set.of();
 
-        Set<Pair<String, VirtualFile>> deps = new HashSet<>();
-        // look into every source folder
-        HashMap<String, Pair<String, VirtualFile>> potential = new HashMap<>();
-
         // may not be in a source folder
-        for (VirtualFile root : moduleRootManager.getContentRoots()) {
-            exploreFolder(root, root, potential, deps, dependencies);
+        VirtualFile[] contentRoots = moduleRootManager.getContentRoots();
+        GlobalSearchScope scope = GlobalSearchScopesCore.directoriesScope(file.getProject(), true, contentRoots);
+        FileModuleIndexService indexService = FileModuleIndexService.getService();
+
+        Set<Pair<String, VirtualFile>> deps = new HashSet<>();
+        for (String dependency : dependencies) {
+            // the file module index is using the module name (hello_world.ml -> Hello_world),
+            // for a path (open Foo.Bar), the file module is the first name
+            int dot = dependency.indexOf('.');
+            String fileModuleName = ORUtil.fileNameToModuleName(dot < 0 ? dependency : dependency.substring(0, dot));
+            Collection<VirtualFile> files = indexService.getFiles(fileModuleName, scope);
+            for (VirtualFile f : files) {
+                // we are adding the interface instead of the source, if we have the .mli
+                if (OCamlFileType.isFile(f.getPath()) && hasInterface(f, files)) continue;
+                String relativePath = getRelativePath(f, contentRoots);
+                if (relativePath != null) {
+                    deps.add(new Pair<>(relativePath, f));
+                }
+            }
         }
-        deps.addAll(potential.values());
+
         // there is no dependency graph
         // they should be sorted by dependency
         // is it needed trough? (we are using -c)
@@ -88,29 +106,21 @@ public class OCamlResolveDependencies {
         return psiDeps;
     }
 
-    private static void exploreFolder(@NotNull VirtualFile f, VirtualFile originalRoot, HashMap<String, Pair<String, VirtualFile>> potential, Set<Pair<String, VirtualFile>> deps, Set<String> dependencies) {
-        if (f.isDirectory()) {
-            for (VirtualFile root : VfsUtil.getChildren(f)) {
-                exploreFolder(root, originalRoot, potential, deps, dependencies);
-            }
-        } else {
-            // is in the list of dependencies?
-            if (!dependencies.contains(f.getNameWithoutExtension())) return;
-            // yes
-            // fix 98: using the parent of the root
-            Pair<String, VirtualFile> pair = new Pair<>(VfsUtil.getRelativePath(f, originalRoot), f);
-            // do we have the .mli?
-            if (OCamlInterfaceFileType.isFile(f.getPath())) {
-                String s = OCamlFileType.fromInterface(f.getPath());
-                // remove the source
-                potential.remove(s);
-                // we are adding the interface instead
-                deps.add(pair);
-            } else if (OCamlFileType.isFile(f.getPath())) {
-                // ensured that we do not have the .mli already in
-                // (should not happen since they are sorted alphabetically but, ...)
-                potential.put(f.getPath(), pair);
+    private static boolean hasInterface(@NotNull VirtualFile source, @NotNull Collection<VirtualFile> files) {
+        String interfacePath = OCamlInterfaceFileType.fromSource(source.getPath());
+        for (VirtualFile f : files) {
+            if (f.getPath().equals(interfacePath)) return true;
+        }
+        return false;
+    }
+
+    // fix 98: using the content root that contains the file
+    private static @Nullable String getRelativePath(@NotNull VirtualFile f, VirtualFile @NotNull [] contentRoots) {
+        for (VirtualFile root : contentRoots) {
+            if (VfsUtilCore.isAncestor(root, f, true)) {
+                return VfsUtilCore.getRelativePath(f, root);
             }
         }
+        return null;
     }
 }
@@ -1,5 +1,6 @@
 package com.ocaml.sdk;
 
+import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.projectRoots.*;
 import com.intellij.openapi.roots.OrderRootType;
 import com.intellij.openapi.roots.ui.configuration.projectRoot.SdkDownload;
@@ -11,6 +12,7 @@ import com.ocaml.OCamlBundle;
 import com.ocaml.icons.OCamlIcons;
 import com.ocaml.sdk.doc.OCamlSdkAdditionalData;
 import com.ocaml.sdk.doc.OCamlSdkAdditionalDataConfigurable;
+import com.ocaml.sdk.index.OCamlSdkIndexBundleService;
 import com.ocaml.sdk.providers.utils.InvalidHomeError;
 import com.ocaml.sdk.utils.OCamlSdkHomeManager;
 import com.ocaml.sdk.utils.OCamlSdkRootsManager;
@@ -73,6 +75,8 @@ public class OCamlSdkType extends SdkType implements SdkDownload {
         for (String source : sources) {
             addSources(source, sdkHomeFile, sdkModificator);
         }
+        // use the pre-built index of the sources, if any (reading all the sources to check the content hash)
+        ApplicationManager.getApplication().executeOnPooledThread(() -> OCamlSdkIndexBundleService.getInstance().load(sdkHomeFile));
     }
 
     private static void addSources(String sourceName, File sdkHomeFile, SdkModificator sdkModificator) {
@@ -0,0 +1,95 @@
+package com.ocaml.sdk.cmi;
+
+import com.or.ide.search.ModuleExport;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Render the signature of a compiled interface as the text of an interface file (.mli), parsed by
+ * {@link OCamlCmiService} to resolve the declarations of a library installed without its sources.
+ * <p>
+ * Only the names and the types of the values are known: the types are declared without their parameters,
+ * and the functors and the classes without their signatures.
+ */
+public final class OCamlCmiDecompiler {
+
+    private static final String INDENT = "  ";
+
+    private OCamlCmiDecompiler() {
+    }
+
+    public static @NotNull String decompile(@NotNull OCamlCmiReader.CompiledInterface compiledInterface) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("(* Decompiled from the compiled interface of ").append(compiledInterface.getModuleName()).append(" *)\n\n");
+        appendSignature(compiledInterface.getModuleName(), compiledInterface.getExports(), "", sb);
+        return sb.toString();
+    }
+
+    private static void appendSignature(@NotNull String qname, @NotNull Map<String, List<ModuleExport>> map, @NotNull String indent, @NotNull StringBuilder sb) {
+        List<ModuleExport> exports = map.get(qname);
+        if (exports == null) {
+            return;
+        }
+
+        for (int i = 0; i < exports.size(); i++) {
+            ModuleExport export = exports.get(i);
+            String name = export.getName();
+            switch (export.getKind()) {
+                case VAL:
+                    sb.append(indent).append("val ").append(toIdentifier(name)).append(" : ").append(export.getSignature()).append("\n");
+                    break;
+                case EXTERNAL:
+                    sb.append(indent).append("external ").append(toIdentifier(name)).append(" : ").append(export.getSignature()).append(" = \"\"\n");
+                    break;
+                case TYPE: {
+                    sb.append(indent).append("type ").append(name);
+                    // the constructors of the type are following it
+                    String separator = " = ";
+                    while (i + 1 < exports.size() && exports.get(i + 1).getKind() == ModuleExport.Kind.VARIANT && name.equals(exports.get(i + 1).getSignature())) {
+                        i++;
+                        sb.append(separator).append(exports.get(i).getName());
+                        separator = " | ";
+                    }
+                    sb.append("\n");
+                    break;
+                }
+                case EXCEPTION:
+                    sb.append(indent).append("exception ").append(name).append("\n");
+                    break;
+                case MODULE: {
+                    String moduleQName = export.getSignature();
+                    String alias = getAlias(map.get(moduleQName));
+                    if (alias == null) {
+                        sb.append(indent).append("module ").append(name).append(" : sig\n");
+                        appendSignature(moduleQName, map, indent + INDENT, sb);
+                        sb.append(indent).append("end\n");
+                    } else {
+                        sb.append(indent).append("module ").append(name).append(" = ").append(alias).append("\n");
+                    }
+                    break;
+                }
+                case FUNCTOR:
+                    sb.append(indent).append("module ").append(name).append(" : sig end\n");
+                    break;
+                case CLASS:
+                    sb.append(indent).append("class ").append(name).append(" : object end\n");
+                    break;
+                default:
+                    // extension constructors, includes and aliases of the module itself
+                    break;
+            }
+        }
+    }
+
+    private static @Nullable String getAlias(@Nullable List<ModuleExport> exports) {
+        return exports != null && exports.size() == 1 && exports.get(0).getKind() == ModuleExport.Kind.ALIAS ? exports.get(0).getName() : null;
+    }
+
+    private static @NotNull String toIdentifier(@NotNull String name) {
+        char first = name.isEmpty() ? ' ' : name.charAt(0);
+        return Character.isLetter(first) || first == '_' ? name : "( " + name + " )";
+    }
+}
@@ -0,0 +1,452 @@
+package com.ocaml.sdk.cmi;
+
+import com.ocaml.sdk.cmi.OCamlMarshalReader.Block;
+import com.or.ide.search.ModuleExport;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Read the exported signature of a compiled interface (.cmi), or of the interface embedded at the
+ * beginning of a typed tree (.cmti). The file starts with the magic number of the cmi format, followed by
+ * the marshalled header of the interface: its module name and its signature (Types.signature).
+ * <p>
+ * The signature is converted to the export tables of the modules of the interface, the same data as
+ * {@link com.or.ide.search.index.ModuleExportIndex}. The layout of the types is selected with the version
+ * of the magic number (Caml1999I0xx), and the types are rendered like the toplevel does.
+ */
+public final class OCamlCmiReader {
+
+    public static final String CMI_MAGIC_PREFIX = "Caml1999I";
+    private static final int MAGIC_LENGTH = 12;
+    // Caml1999I034: OCaml 5.2, Type_abstract has an argument (the origin of the type)
+    private static final int VERSION_5_2 = 34;
+
+    // Types.signature_item
+    private static final int SIG_VALUE = 0;
+    private static final int SIG_TYPE = 1;
+    private static final int SIG_TYPEXT = 2;
+    private static final int SIG_MODULE = 3;
+    private static final int SIG_CLASS = 5;
+    // arity of the signature items before 4.08, when the visibility has been added at the end
+    private static final int[] SIG_ARITY = {2, 3, 3, 3, 2, 3, 3};
+    private static final long HIDDEN = 1;
+
+    // Types.module_type
+    private static final int MTY_SIGNATURE = 1;
+    private static final int MTY_FUNCTOR = 2;
+    private static final int MTY_ALIAS = 3;
+
+    // Types.type_kind, the tag of Type_variant: Type_record is the first block before 5.2, then Type_abstract
+    private static final int TYPE_VARIANT = 1;
+    private static final int TYPE_VARIANT_5_2 = 2;
+
+    private OCamlCmiReader() {
+    }
+
+    public static boolean isCompiledInterface(byte @NotNull [] content) {
+        if (content.length < MAGIC_LENGTH) return false;
+        String magic = new String(content, 0, CMI_MAGIC_PREFIX.length(), StandardCharsets.US_ASCII);
+        return CMI_MAGIC_PREFIX.equals(magic);
+    }
+
+    /**
+     * @return the version of the magic number, -1 if it can't be read
+     */
+    static int getMagicVersion(byte @NotNull [] content) {
+        String version = new String(content, CMI_MAGIC_PREFIX.length(), MAGIC_LENGTH - CMI_MAGIC_PREFIX.length(), StandardCharsets.US_ASCII);
+        try {
+            return Integer.parseInt(version);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Read the module name of the interface only, the signature is not decoded.
+     *
+     * @return null if the content is not a compiled interface
+     */
+    public static @Nullable String readModuleName(byte @NotNull [] content) throws IOException {
+        if (!isCompiledInterface(content)) return null;
+
+        OCamlMarshalReader reader = new OCamlMarshalReader(content, MAGIC_LENGTH);
+        reader.readHeader();
+        if (reader.readBlockStart() < 2) {
+            throw new IOException("Invalid interface header");
+        }
+        return getName(reader.readValue());
+    }
+
+    /**
+     * @return null if the content is not a compiled interface
+     */
+    public static @Nullable CompiledInterface read(byte @NotNull [] content) throws IOException {
+        if (!isCompiledInterface(content)) return null;
+
+        OCamlMarshalReader reader = new OCamlMarshalReader(content, MAGIC_LENGTH);
+        reader.readHeader();
+        Object header = reader.readValue();
+        if (!(header instanceof Block) || ((Block) header).getSize() < 2) {
+            throw new IOException("Invalid interface header");
+        }
+
+        String moduleName = getName(((Block) header).getField(0));
+        if (moduleName == null) {
+            throw new IOException("Invalid interface name");
+        }
+
+        int magicVersion = getMagicVersion(content);
+        // an unknown version is read with the layout of the latest one
+        int variantTag = magicVersion < 0 || VERSION_5_2 <= magicVersion ? TYPE_VARIANT_5_2 : TYPE_VARIANT;
+
+        Map<String, List<ModuleExport>> exports = new HashMap<>();
+        collectSignature(moduleName, ((Block) header).getField(1), variantTag, exports);
+        return new CompiledInterface(moduleName, exports);
+    }
+
+    private static void collectSignature(@NotNull String qname, @Nullable Object signature, int variantTag, @NotNull Map<String, List<ModuleExport>> map) {
+        List<ModuleExport> exports = map.computeIfAbsent(qname, k -> new ArrayList<>());
+
+        for (Object item : toList(signature)) {
+            if (!(item instanceof Block)) continue;
+            Block sigItem = (Block) item;
+            int tag = sigItem.getTag();
+            String name = getName(sigItem.getField(0));
+            if (name == null || isHidden(sigItem)) continue;
+
+            if (tag == SIG_VALUE) {
+                Block description = asBlock(sigItem.getField(1));
+                if (description == null) continue;
+                // val_kind: Val_reg is a constant, Val_prim is a block
+                boolean isExternal = description.getField(1) instanceof Block;
+                Object type = description.getField(0);
+                exports.add(new ModuleExport(name, isExternal ? ModuleExport.Kind.EXTERNAL : ModuleExport.Kind.VAL,
+                        new TypePrinter().print(type), TypePrinter.isArrow(type)));
+            } else if (tag == SIG_TYPE) {
+                exports.add(new ModuleExport(name, ModuleExport.Kind.TYPE, "", false));
+                // type_params, type_arity, type_kind
+                Block declaration = asBlock(sigItem.getField(1));
+                Block kind = declaration == null ? null : asBlock(declaration.getField(2));
+                if (kind != null && kind.getTag() == variantTag) {
+                    for (Object constructor : toList(kind.getField(0))) {
+                        Block constructorDeclaration = asBlock(constructor);
+                        String constructorName = constructorDeclaration == null ? null : getName(constructorDeclaration.getField(0));
+                        if (constructorName != null) {
+                            exports.add(new ModuleExport(constructorName, ModuleExport.Kind.VARIANT, name, false));
+                        }
+                    }
+                }
+            } else if (tag == SIG_TYPEXT) {
+                Block constructor = asBlock(sigItem.getField(1));
+                String typePath = constructor == null ? null : printPath(constructor.getField(0));
+                boolean isException = "exn".equals(typePath);
+                exports.add(new ModuleExport(name, isException ? ModuleExport.Kind.EXCEPTION : ModuleExport.Kind.VARIANT, isException ? "" : typePath, false));
+            } else if (tag == SIG_MODULE) {
+                collectModule(qname, name, sigItem, variantTag, exports, map);
+            } else if (tag == SIG_CLASS) {
+                exports.add(new ModuleExport(name, ModuleExport.Kind.CLASS, "", false));
+            }
+        }
+    }
+
+    private static void collectModule(@NotNull String qname, @NotNull String name, @NotNull Block sigItem, int variantTag, @NotNull List<ModuleExport> exports, @NotNull Map<String, List<ModuleExport>> map) {
+        String moduleQName = qname + "." + name;
+
+        // the presence of the module is before the declaration since 4.10
+        Block declaration = null;
+        for (int i = 1; i < sigItem.getSize() && declaration == null; i++) {
+            declaration = asBlock(sigItem.getField(i));
+        }
+        Block moduleType = declaration == null ? null : asBlock(declaration.getField(0));
+        int moduleTypeTag = moduleType == null ? -1 : moduleType.getTag();
+
+        exports.add(new ModuleExport(name, moduleTypeTag == MTY_FUNCTOR ? ModuleExport.Kind.FUNCTOR : ModuleExport.Kind.MODULE, moduleQName, false));
+
+        if (moduleTypeTag == MTY_SIGNATURE) {
+            collectSignature(moduleQName, moduleType.getField(0), variantTag, map);
+        } else if (moduleTypeTag == MTY_ALIAS) {
+            // the presence of the alias is before the path in 4.04-4.07
+            for (int i = 0; i < moduleType.getSize(); i++) {
+                String path = printPath(moduleType.getField(i));
+                if (path != null) {
+                    map.computeIfAbsent(moduleQName, k -> new ArrayList<>()).add(new ModuleExport(path, ModuleExport.Kind.ALIAS, "", false));
+                    break;
+                }
+            }
+        }
+    }
+
+    private static boolean isHidden(@NotNull Block sigItem) {
+        int tag = sigItem.getTag();
+        return tag < SIG_ARITY.length && SIG_ARITY[tag] < sigItem.getSize() && Long.valueOf(HIDDEN).equals(sigItem.getField(sigItem.getSize() - 1));
+    }
+
+    /**
+     * The name of an identifier (Ident.t): a record before 4.08, a variant after, the name is always the first string.
+     */
+    static @Nullable String getName(@Nullable Object ident) {
+        if (ident instanceof String) {
+            return (String) ident;
+        }
+        if (ident instanceof Block) {
+            Block block = (Block) ident;
+            for (int i = 0; i < block.getSize(); i++) {
+                if (block.getField(i) instanceof String) {
+                    return (String) block.getField(i);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Path.t: Pident, Pdot, Papply
+     */
+    static @Nullable String printPath(@Nullable Object path) {
+        Block block = asBlock(path);
+        if (block == null) return null;
+
+        switch (block.getTag()) {
+            case 0:
+                return getName(block.getField(0));
+            case 1: {
+                String prefix = printPath(block.getField(0));
+                Object name = block.getField(1);
+                return prefix == null || !(name instanceof String) ? null : prefix + "." + name;
+            }
+            case 2: {
+                String functor = printPath(block.getField(0));
+                String argument = printPath(block.getField(1));
+                return functor == null || argument == null ? null : functor + "(" + argument + ")";
+            }
+            default:
+                return printPath(block.getField(0));
+        }
+    }
+
+    static @Nullable Block asBlock(@Nullable Object value) {
+        return value instanceof Block && ((Block) value).getSize() > 0 ? (Block) value : null;
+    }
+
+    static @NotNull List<Object> toList(@Nullable Object list) {
+        List<Object> result = new ArrayList<>();
+        Object cell = list;
+        while (cell instanceof Block && ((Block) cell).getSize() == 2) {
+            result.add(((Block) cell).getField(0));
+            cell = ((Block) cell).getField(1);
+        }
+        return result;
+    }
+
+    /**
+     * Render a type expression (Types.type_expr) like the toplevel does.
+     */
+    static final class TypePrinter {
+        private static final int TVAR = 0;
+        private static final int TARROW = 1;
+        private static final int TTUPLE = 2;
+        private static final int TCONSTR = 3;
+        private static final int TOBJECT = 4;
+        private static final int TFIELD = 5;
+        private static final int TLINK = 6;
+        private static final int TSUBST = 7;
+        private static final int TVARIANT = 8;
+        private static final int TUNIVAR = 9;
+        private static final int TPOLY = 10;
+        private static final int TPACKAGE = 11;
+
+        private static final int MAX_DEPTH = 30;
+
+        // precedences
+        private static final int TOP = 0;
+        private static final int ARROW_ARGUMENT = 1;
+        private static final int TUPLE_ELEMENT = 2;
+        private static final int CONSTRUCTOR_ARGUMENT = 3;
+
+        private final Map<Block, String> myVariables = new IdentityHashMap<>();
+
+        @NotNull String print(@Nullable Object type) {
+            StringBuilder sb = new StringBuilder();
+            print(type, TOP, 0, sb);
+            return sb.toString();
+        }
+
+        static boolean isArrow(@Nullable Object type) {
+            Block desc = getDescription(type);
+            if (desc != null && desc.getTag() == TPOLY) {
+                desc = getDescription(desc.getField(0));
+            }
+            return desc != null && desc.getTag() == TARROW;
+        }
+
+        /**
+         * The type_expr is a record, its first field is the description of the type: follow the links.
+         */
+        private static @Nullable Block getDescription(@Nullable Object type) {
+            Object current = type;
+            for (int i = 0; i < MAX_DEPTH; i++) {
+                Block typeExpr = asBlock(current);
+                if (typeExpr == null) return null;
+                Block desc = asBlock(typeExpr.getField(0));
+                if (desc == null || (desc.getTag() != TLINK && desc.getTag() != TSUBST)) {
+                    return desc;
+                }
+                current = desc.getField(0);
+            }
+            return null;
+        }
+
+        private void print(@Nullable Object type, int precedence, int depth, @NotNull StringBuilder sb) {
+            if (depth > MAX_DEPTH) {
+                sb.append("...");
+                return;
+            }
+
+            Block desc = getDescription(type);
+            if (desc == null) {
+                sb.append("_");
+                return;
+            }
+
+            switch (desc.getTag()) {
+                case TVAR:
+                case TUNIVAR:
+                    printVariable(type, desc.getField(0), sb);
+                    break;
+                case TARROW:
+                    printArrow(desc, precedence, depth, sb);
+                    break;
+                case TTUPLE: {
+                    List<Object> elements = toList(desc.getField(0));
+                    boolean parenthesis = precedence >= TUPLE_ELEMENT;
+                    if (parenthesis) sb.append("(");
+                    for (int i = 0; i < elements.size(); i++) {
+                        if (i > 0) sb.append(" * ");
+                        print(elements.get(i), TUPLE_ELEMENT, depth + 1, sb);
+                    }
+                    if (parenthesis) sb.append(")");
+                    break;
+                }
+                case TCONSTR: {
+                    List<Object> arguments = toList(desc.getField(1));
+                    if (arguments.size() == 1) {
+                        print(arguments.get(0), CONSTRUCTOR_ARGUMENT, depth + 1, sb);
+                        sb.append(" ");
+                    } else if (arguments.size() > 1) {
+                        sb.append("(");
+                        for (int i = 0; i < arguments.size(); i++) {
+                            if (i > 0) sb.append(", ");
+                            print(arguments.get(i), TOP, depth + 1, sb);
+                        }
+                        sb.append(") ");
+                    }
+                    String path = printPath(desc.getField(0));
+                    sb.append(path == null ? "_" : path);
+                    break;
+                }
+                case TOBJECT:
+                case TFIELD:
+                    sb.append("< .. >");
+                    break;
+                case TVARIANT:
+                    sb.append("[ .. ]");
+                    break;
+                case TPOLY:
+                    print(desc.getField(0), precedence, depth + 1, sb);
+                    break;
+                case TPACKAGE: {
+                    String path = printPath(desc.getField(0));
+                    sb.append("(module ").append(path == null ? "_" : path).append(")");
+                    break;
+                }
+                default:
+                    sb.append("_");
+            }
+        }
+
+        private void printArrow(@NotNull Block desc, int precedence, int depth, @NotNull StringBuilder sb) {
+            boolean parenthesis = precedence >= ARROW_ARGUMENT;
+            if (parenthesis) sb.append("(");
+
+            // label: a string before 4.03 ("" or "?name"), a variant after (Nolabel, Labelled, Optional)
+            Object label = desc.getField(0);
+            Object argument = desc.getField(1);
+            String labelName = null;
+            boolean isOptional = false;
+            if (label instanceof String) {
+                String labelText = (String) label;
+                isOptional = labelText.startsWith("?");
+                labelName = labelText.isEmpty() ? null : isOptional ? labelText.substring(1) : labelText;
+            } else if (label instanceof Block && ((Block) label).getField(0) instanceof String) {
+                labelName = (String) ((Block) label).getField(0);
+                isOptional = ((Block) label).getTag() == 1;
+            }
+
+            if (labelName != null) {
+                sb.append(isOptional ? "?" : "").append(labelName).append(":");
+                if (isOptional) {
+                    // the type of an optional argument is an option
+                    Block argumentDesc = getDescription(argument);
+                    if (argumentDesc != null && argumentDesc.getTag() == TCONSTR) {
+                        List<Object> arguments = toList(argumentDesc.getField(1));
+                        String path = printPath(argumentDesc.getField(0));
+                        if (arguments.size() == 1 && path != null && (path.equals("option") || path.endsWith(".option"))) {
+                            argument = arguments.get(0);
+                        }
+                    }
+                }
+            }
+
+            print(argument, ARROW_ARGUMENT, depth + 1, sb);
+            sb.append(" -> ");
+            print(desc.getField(2), TOP, depth + 1, sb);
+
+            if (parenthesis) sb.append(")");
+        }
+
+        private void printVariable(@Nullable Object type, @Nullable Object name, @NotNull StringBuilder sb) {
+            // string option
+            Block some = asBlock(name);
+            if (some != null && some.getField(0) instanceof String) {
+                sb.append("'").append(some.getField(0));
+                return;
+            }
+
+            Block typeExpr = asBlock(type);
+            if (typeExpr == null) {
+                sb.append("'_");
+                return;
+            }
+            String variable = myVariables.computeIfAbsent(typeExpr, k -> {
+                int index = myVariables.size();
+                return index < 26 ? String.valueOf((char) ('a' + index)) : "a" + index;
+            });
+            sb.append("'").append(variable);
+        }
+    }
+
+    public static final class CompiledInterface {
+        private final @NotNull String myModuleName;
+        private final @NotNull Map<String, List<ModuleExport>> myExports;
+
+        CompiledInterface(@NotNull String moduleName, @NotNull Map<String, List<ModuleExport>> exports) {
+            myModuleName = moduleName;
+            myExports = exports;
+        }
+
+        public @NotNull String getModuleName() {
+            return myModuleName;
+        }
+
+        /**
+         * @return the export tables of the modules of the interface, by qualified name
+         */
+        public @NotNull Map<String, List<ModuleExport>> getExports() {
+            return myExports;
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.ocaml.sdk.cmi;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiFileFactory;
+import com.intellij.psi.PsiManager;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.testFramework.LightVirtualFile;
+import com.intellij.util.Processor;
+import com.intellij.util.containers.ContainerUtil;
+import com.intellij.util.indexing.FileBasedIndex;
+import com.ocaml.ide.files.OCamlInterfaceFileType;
+import com.or.ide.files.FileBase;
+import com.or.ide.search.FileModuleIndexService;
+import com.or.ide.search.ModuleExport;
+import com.or.ide.search.index.CompiledModuleIndex;
+import com.or.ide.search.index.CompiledSymbolIndex;
+import com.or.lang.core.psi.PsiQualifiedPathElement;
+import com.or.utils.Log;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Decode the signatures of the compiled interfaces found with the {@link CompiledModuleIndex}.
+ * <p>
+ * A signature is decoded the first time it is needed, and cached until the file is modified
+ * (the cache is using soft references, a large switch is not kept in memory).
+ * <p>
+ * The decoded signatures are used by the completion, and by the resolution of the modules installed without
+ * their sources: the signature is rendered as an interface file ({@link OCamlCmiDecompiler}), its psi elements
+ * are the declarations of the module. A decompiled file is cached on the compiled file until it changes.
+ */
+public final class OCamlCmiService {
+    private static final Log LOG = Log.create("index.compiled");
+
+    private final Map<VirtualFile, CachedInterface> myCache = ContainerUtil.createConcurrentWeakKeySoftValueMap();
+    private final AtomicInteger myDecodeCount = new AtomicInteger();
+    private final AtomicInteger myHitCount = new AtomicInteger();
+
+    public static @NotNull OCamlCmiService getInstance() {
+        return ApplicationManager.getApplication().getService(OCamlCmiService.class);
+    }
+
+    /**
+     * Process the export tables of a module found in the compiled interfaces in scope.
+     */
+    public void processExports(@NotNull String qname, @NotNull GlobalSearchScope scope, @NotNull Consumer<List<ModuleExport>> consumer) {
+        String moduleName = qname.split("\\.", 2)[0];
+        for (VirtualFile file : getFiles(moduleName, scope)) {
+            OCamlCmiReader.CompiledInterface compiledInterface = getInterface(file);
+            if (compiledInterface != null) {
+                List<ModuleExport> exports = compiledInterface.getExports().get(qname);
+                if (exports != null) {
+                    consumer.accept(exports);
+                }
+            }
+        }
+    }
+
+    /**
+     * Find the declarations of a name in the compiled interfaces in scope, at any depth. The compiled interfaces
+     * of the modules that have sources are ignored: the declarations of their sources are found by the stub indexes.
+     */
+    public <T extends PsiQualifiedPathElement> @NotNull Collection<T> findElements(@NotNull Project project, @NotNull String name, @NotNull GlobalSearchScope scope, @NotNull Class<T> kind) {
+        Collection<VirtualFile> files = FileBasedIndex.getInstance().getContainingFiles(CompiledSymbolIndex.NAME, name, scope);
+        if (files.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<T> result = new ArrayList<>();
+        for (VirtualFile file : deduplicate(files)) {
+            OCamlCmiReader.CompiledInterface compiledInterface = getInterface(file);
+            if (compiledInterface == null || !FileModuleIndexService.getService().getFiles(compiledInterface.getModuleName(), scope).isEmpty()) {
+                continue;
+            }
+
+            FileBase decompiledFile = getDecompiledFile(project, file);
+            if (decompiledFile != null) {
+                for (T element : PsiTreeUtil.findChildrenOfType(decompiledFile, kind)) {
+                    if (name.equals(element.getName())) {
+                        result.add(element);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the interface file rendered from a compiled interface, null if it can't be decoded
+     */
+    public @Nullable FileBase getDecompiledFile(@NotNull Project project, @NotNull VirtualFile file) {
+        PsiFile compiledFile = PsiManager.getInstance(project).findFile(file);
+        if (compiledFile == null) {
+            return null;
+        }
+        return CachedValuesManager.getCachedValue(compiledFile, () -> CachedValueProvider.Result.create(decompile(project, file), file));
+    }
+
+    private @Nullable FileBase decompile(@NotNull Project project, @NotNull VirtualFile file) {
+        OCamlCmiReader.CompiledInterface compiledInterface = getInterface(file);
+        if (compiledInterface == null) {
+            return null;
+        }
+
+        String text = OCamlCmiDecompiler.decompile(compiledInterface);
+        PsiFile psiFile = PsiFileFactory.getInstance(project).createFileFromText(compiledInterface.getModuleName() + ".mli", OCamlInterfaceFileType.INSTANCE, text);
+        VirtualFile virtualFile = psiFile.getVirtualFile();
+        if (virtualFile instanceof LightVirtualFile) {
+            ((LightVirtualFile) virtualFile).setWritable(false);
+        }
+        return psiFile instanceof FileBase ? (FileBase) psiFile : null;
+    }
+
+    /**
+     * Process the names of the modules of the compiled interfaces in scope, without decoding them.
+     */
+    public void processModuleNames(@NotNull GlobalSearchScope scope, @NotNull Processor<String> processor) {
+        FileBasedIndex.getInstance().processAllKeys(CompiledModuleIndex.NAME, processor, scope, null);
+    }
+
+    /**
+     * The .cmi and the .cmti of a module have the same interface: only one of them is returned (the .cmi).
+     */
+    @NotNull
+    Collection<VirtualFile> getFiles(@NotNull String moduleName, @NotNull GlobalSearchScope scope) {
+        return deduplicate(FileBasedIndex.getInstance().getContainingFiles(CompiledModuleIndex.NAME, moduleName, scope));
+    }
+
+    private static @NotNull Collection<VirtualFile> deduplicate(@NotNull Collection<VirtualFile> files) {
+        if (files.size() < 2) {
+            return files;
+        }
+
+        Map<String, VirtualFile> result = new HashMap<>();
+        for (VirtualFile file : files) {
+            VirtualFile parent = file.getParent();
+            String key = (parent == null ? "" : parent.getPath()) + "/" + file.getNameWithoutExtension();
+            VirtualFile previous = result.get(key);
+            if (previous == null || CompiledModuleIndex.CMI_EXTENSION.equals(file.getExtension())) {
+                result.put(key, file);
+            }
+        }
+        return result.values();
+    }
+
+    /**
+     * @return null if the file can't be decoded
+     */
+    public @Nullable OCamlCmiReader.CompiledInterface getInterface(@NotNull VirtualFile file) {
+        long stamp = file.getModificationStamp();
+        CachedInterface cached = myCache.get(file);
+        if (cached != null && cached.myStamp == stamp) {
+            myHitCount.incrementAndGet();
+            return cached.myInterface;
+        }
+
+        OCamlCmiReader.CompiledInterface compiledInterface = null;
+        long start = System.currentTimeMillis();
+        try {
+            compiledInterface = OCamlCmiReader.read(file.contentsToByteArray());
+        } catch (IOException e) {
+            LOG.debug("Can't decode " + file.getPath() + ": " + e.getMessage());
+        }
+        myDecodeCount.incrementAndGet();
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Decoded " + file.getPath() + " in " + (System.currentTimeMillis() - start) + "ms");
+        }
+
+        myCache.put(file, new CachedInterface(stamp, compiledInterface));
+        return compiledInterface;
+    }
+
+    public int getDecodeCount() {
+        return myDecodeCount.get();
+    }
+
+    public int getHitCount() {
+        return myHitCount.get();
+    }
+
+    private static final class CachedInterface {
+        private final long myStamp;
+        private final @Nullable OCamlCmiReader.CompiledInterface myInterface;
+
+        CachedInterface(long stamp, @Nullable OCamlCmiReader.CompiledInterface compiledInterface) {
+            myStamp = stamp;
+            myInterface = compiledInterface;
+        }
+    }
+}
@@ -0,0 +1,371 @@
+package com.ocaml.sdk.cmi;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Read a value written with the OCaml Marshal module (output_value), see runtime/intern.c.
+ * <p>
+ * The values are decoded as: {@link Long} for the integers, {@link String} for the strings,
+ * {@link Double} for the floats, double[] for the float arrays, and {@link Block} for the other blocks
+ * (a constant constructor is an integer). Shared values are decoded once, and the same Java object
+ * is returned for each reference. The nested blocks are read with an explicit stack: the lists of a large
+ * signature are not limited by the depth of the Java stack.
+ * <p>
+ * The compressed format (OCaml 5.1+ compiled with zstd) is not supported.
+ */
+public final class OCamlMarshalReader {
+
+    private static final int MAGIC_SMALL = 0x8495A6BE;
+    private static final int MAGIC_BIG = 0x8495A6BF;
+
+    private static final int PREFIX_SMALL_BLOCK = 0x80;
+    private static final int PREFIX_SMALL_INT = 0x40;
+    private static final int PREFIX_SMALL_STRING = 0x20;
+    private static final int CODE_INT8 = 0x0;
+    private static final int CODE_INT16 = 0x1;
+    private static final int CODE_INT32 = 0x2;
+    private static final int CODE_INT64 = 0x3;
+    private static final int CODE_SHARED8 = 0x4;
+    private static final int CODE_SHARED16 = 0x5;
+    private static final int CODE_SHARED32 = 0x6;
+    private static final int CODE_DOUBLE_ARRAY32_LITTLE = 0x7;
+    private static final int CODE_BLOCK32 = 0x8;
+    private static final int CODE_STRING8 = 0x9;
+    private static final int CODE_STRING32 = 0xA;
+    private static final int CODE_DOUBLE_BIG = 0xB;
+    private static final int CODE_DOUBLE_LITTLE = 0xC;
+    private static final int CODE_DOUBLE_ARRAY8_BIG = 0xD;
+    private static final int CODE_DOUBLE_ARRAY8_LITTLE = 0xE;
+    private static final int CODE_DOUBLE_ARRAY32_BIG = 0xF;
+    private static final int CODE_CUSTOM = 0x12;
+    private static final int CODE_BLOCK64 = 0x13;
+    private static final int CODE_SHARED64 = 0x14;
+    private static final int CODE_STRING64 = 0x15;
+    private static final int CODE_DOUBLE_ARRAY64_BIG = 0x16;
+    private static final int CODE_DOUBLE_ARRAY64_LITTLE = 0x17;
+    private static final int CODE_CUSTOM_LEN = 0x18;
+    private static final int CODE_CUSTOM_FIXED = 0x19;
+
+    private static final int DOUBLE_ARRAY_TAG = 254;
+    // a block with fields, they are read next
+    private static final Object PENDING_BLOCK = new Object();
+
+    private final byte[] myData;
+    private int myPos;
+    private final List<Object> myObjects = new ArrayList<>();
+    private final Deque<PendingBlock> myPendingBlocks = new ArrayDeque<>();
+
+    public OCamlMarshalReader(byte @NotNull [] data, int offset) {
+        myData = data;
+        myPos = offset;
+    }
+
+    public int getPosition() {
+        return myPos;
+    }
+
+    /**
+     * Read the header of a marshalled value, must be called before reading the value.
+     */
+    public void readHeader() throws IOException {
+        int magic = readInt32();
+        if (magic == MAGIC_SMALL) {
+            readInt32(); // data length
+            readInt32(); // number of objects
+            readInt32(); // size 32
+            readInt32(); // size 64
+        } else if (magic == MAGIC_BIG) {
+            readInt32(); // reserved
+            readInt64(); // data length
+            readInt64(); // number of objects
+            readInt64(); // size 64
+        } else {
+            throw new IOException("Unsupported marshal format: " + Integer.toHexString(magic));
+        }
+        myObjects.clear();
+        myPendingBlocks.clear();
+    }
+
+    /**
+     * Read the size of a block, without reading its fields: they can be read one by one with {@link #readValue()}.
+     * Used to read the beginning of a value only.
+     *
+     * @return -1 if the next value is not a block
+     */
+    public int readBlockStart() throws IOException {
+        int code = peek();
+        if (code >= PREFIX_SMALL_BLOCK) {
+            myPos++;
+            int size = (code >> 4) & 0x7;
+            if (size > 0) {
+                myObjects.add(null);
+            }
+            return size;
+        }
+        if (code == CODE_BLOCK32) {
+            myPos++;
+            long header = readInt32() & 0xFFFFFFFFL;
+            int size = (int) (header >>> 10);
+            if (size > 0) {
+                myObjects.add(null);
+            }
+            return size;
+        }
+        return -1;
+    }
+
+    /**
+     * Read a value and all its fields.
+     */
+    public @Nullable Object readValue() throws IOException {
+        int depth = myPendingBlocks.size();
+        while (true) {
+            Object value = readItem();
+            if (value == PENDING_BLOCK) {
+                continue;
+            }
+
+            // fill the blocks that are waiting for this value
+            while (myPendingBlocks.size() > depth) {
+                PendingBlock pending = myPendingBlocks.peek();
+                pending.myFields[pending.myIndex++] = value;
+                if (pending.myIndex < pending.myFields.length) {
+                    break;
+                }
+                myPendingBlocks.pop();
+                value = pending.myBlock;
+            }
+            if (myPendingBlocks.size() == depth) {
+                return value;
+            }
+        }
+    }
+
+    /**
+     * Read a single code: a block with fields is pushed on the pending blocks.
+     */
+    private @Nullable Object readItem() throws IOException {
+        int code = readUInt8();
+        if (code >= PREFIX_SMALL_BLOCK) {
+            return readBlock(code & 0xF, (code >> 4) & 0x7);
+        }
+        if (code >= PREFIX_SMALL_INT) {
+            return (long) (code & 0x3F);
+        }
+        if (code >= PREFIX_SMALL_STRING) {
+            return readString(code & 0x1F);
+        }
+
+        switch (code) {
+            case CODE_INT8:
+                return (long) (byte) readUInt8();
+            case CODE_INT16:
+                return (long) (short) ((readUInt8() << 8) | readUInt8());
+            case CODE_INT32:
+                return (long) readInt32();
+            case CODE_INT64:
+                return readInt64();
+            case CODE_SHARED8:
+                return getShared(readUInt8());
+            case CODE_SHARED16:
+                return getShared((readUInt8() << 8) | readUInt8());
+            case CODE_SHARED32:
+                return getShared(readInt32() & 0xFFFFFFFFL);
+            case CODE_SHARED64:
+                return getShared(readInt64());
+            case CODE_BLOCK32: {
+                long header = readInt32() & 0xFFFFFFFFL;
+                return readBlock((int) (header & 0xFF), toSize(header >>> 10));
+            }
+            case CODE_BLOCK64: {
+                long header = readInt64();
+                return readBlock((int) (header & 0xFF), toSize(header >>> 10));
+            }
+            case CODE_STRING8:
+                return readString(readUInt8());
+            case CODE_STRING32:
+                return readString(toSize(readInt32() & 0xFFFFFFFFL));
+            case CODE_STRING64:
+                return readString(toSize(readInt64()));
+            case CODE_DOUBLE_BIG:
+            case CODE_DOUBLE_LITTLE: {
+                Double value = readDouble(code == CODE_DOUBLE_LITTLE);
+                myObjects.add(value);
+                return value;
+            }
+            case CODE_DOUBLE_ARRAY8_BIG:
+            case CODE_DOUBLE_ARRAY8_LITTLE:
+                return readDoubleArray(readUInt8(), code == CODE_DOUBLE_ARRAY8_LITTLE);
+            case CODE_DOUBLE_ARRAY32_BIG:
+            case CODE_DOUBLE_ARRAY32_LITTLE:
+                return readDoubleArray(toSize(readInt32() & 0xFFFFFFFFL), code == CODE_DOUBLE_ARRAY32_LITTLE);
+            case CODE_DOUBLE_ARRAY64_BIG:
+            case CODE_DOUBLE_ARRAY64_LITTLE:
+                return readDoubleArray(toSize(readInt64()), code == CODE_DOUBLE_ARRAY64_LITTLE);
+            case CODE_CUSTOM:
+            case CODE_CUSTOM_LEN:
+            case CODE_CUSTOM_FIXED:
+                return readCustom(code);
+            default:
+                throw new IOException("Unsupported marshal code: " + code + " at " + (myPos - 1));
+        }
+    }
+
+    private @NotNull Object readBlock(int tag, int size) throws IOException {
+        if (size == 0) {
+            // atom, not shared
+            return new Block(tag, new Object[0]);
+        }
+        if (tag == DOUBLE_ARRAY_TAG) {
+            throw new IOException("Unexpected float array block at " + myPos);
+        }
+
+        Object[] fields = new Object[size];
+        Block block = new Block(tag, fields);
+        // the block is registered before its fields, they can reference it
+        myObjects.add(block);
+        myPendingBlocks.push(new PendingBlock(block, fields));
+        return PENDING_BLOCK;
+    }
+
+    private @NotNull String readString(int length) throws IOException {
+        ensureAvailable(length);
+        String value = new String(myData, myPos, length, StandardCharsets.UTF_8);
+        myPos += length;
+        myObjects.add(value);
+        return value;
+    }
+
+    private double @NotNull [] readDoubleArray(int length, boolean littleEndian) throws IOException {
+        double[] values = new double[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = readDouble(littleEndian);
+        }
+        myObjects.add(values);
+        return values;
+    }
+
+    private double readDouble(boolean littleEndian) throws IOException {
+        long bits = readInt64();
+        return Double.longBitsToDouble(littleEndian ? Long.reverseBytes(bits) : bits);
+    }
+
+    /**
+     * Only the custom blocks of the standard library for the boxed integers are supported.
+     */
+    private @NotNull Object readCustom(int code) throws IOException {
+        StringBuilder identifier = new StringBuilder();
+        for (int c = readUInt8(); c != 0; c = readUInt8()) {
+            identifier.append((char) c);
+        }
+        if (code == CODE_CUSTOM_LEN) {
+            readInt32(); // size 32
+            readInt64(); // size 64
+        }
+
+        Long value;
+        switch (identifier.toString()) {
+            case "_j":
+                value = readInt64();
+                break;
+            case "_i":
+                value = (long) readInt32();
+                break;
+            case "_n":
+                value = readUInt8() == 1 ? (long) readInt32() : readInt64();
+                break;
+            default:
+                throw new IOException("Unsupported custom block: " + identifier);
+        }
+        myObjects.add(value);
+        return value;
+    }
+
+    private @Nullable Object getShared(long offset) throws IOException {
+        long index = myObjects.size() - offset;
+        if (index < 0 || index >= myObjects.size()) {
+            throw new IOException("Invalid shared reference: " + offset + " at " + myPos);
+        }
+        return myObjects.get((int) index);
+    }
+
+    private int peek() throws IOException {
+        ensureAvailable(1);
+        return myData[myPos] & 0xFF;
+    }
+
+    private int readUInt8() throws IOException {
+        ensureAvailable(1);
+        return myData[myPos++] & 0xFF;
+    }
+
+    private int readInt32() throws IOException {
+        ensureAvailable(4);
+        int value = ((myData[myPos] & 0xFF) << 24) | ((myData[myPos + 1] & 0xFF) << 16) | ((myData[myPos + 2] & 0xFF) << 8) | (myData[myPos + 3] & 0xFF);
+        myPos += 4;
+        return value;
+    }
+
+    private long readInt64() throws IOException {
+        long high = readInt32() & 0xFFFFFFFFL;
+        long low = readInt32() & 0xFFFFFFFFL;
+        return (high << 32) | low;
+    }
+
+    private void ensureAvailable(int length) throws IOException {
+        if (length < 0 || myPos + length > myData.length) {
+            throw new IOException("Unexpected end of marshalled data at " + myPos);
+        }
+    }
+
+    private int toSize(long size) throws IOException {
+        if (size < 0 || size > myData.length) {
+            throw new IOException("Invalid size: " + size + " at " + myPos);
+        }
+        return (int) size;
+    }
+
+    private static final class PendingBlock {
+        private final @NotNull Block myBlock;
+        private final Object @NotNull [] myFields;
+        private int myIndex;
+
+        PendingBlock(@NotNull Block block, Object @NotNull [] fields) {
+            myBlock = block;
+            myFields = fields;
+        }
+    }
+
+    /**
+     * A structured OCaml value: a tuple, a record, or a constructor with arguments.
+     */
+    public static final class Block {
+        private final int myTag;
+        private final Object @NotNull [] myFields;
+
+        public Block(int tag, Object @NotNull [] fields) {
+            myTag = tag;
+            myFields = fields;
+        }
+
+        public int getTag() {
+            return myTag;
+        }
+
+        public int getSize() {
+            return myFields.length;
+        }
+
+        public @Nullable Object getField(int index) {
+            return index < myFields.length ? myFields[index] : null;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.ocaml.sdk.index;
+
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.util.io.DataInputOutputUtil;
+import com.or.ide.search.ModuleExport;
+import com.or.ide.search.index.ModuleExportIndex;
+import com.ocaml.sdk.utils.OCamlSdkRootsManager;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * A pre-built index of the sources of an OCaml SDK.
+ * <p>
+ * For each source file (path relative to the SDK home), the bundle is storing its module name
+ * and the export tables of its modules (the data of {@link ModuleExportIndex}).
+ * A bundle is identified by the version of the SDK and the content hash of its sources,
+ * it is built with the "buildSdkIndexBundle" gradle task.
+ *
+ * @see OCamlSdkIndexBundleService
+ */
+public final class OCamlSdkIndexBundle {
+
+    /** bumped when the format of the bundle, or the data of the index, is changing **/
+    static final int FORMAT_VERSION = 1 + ModuleExportIndex.VERSION;
+    public static final String EXTENSION = ".ocamlindex";
+
+    private final @NotNull String myVersion;
+    private final @NotNull String myContentHash;
+    private final @NotNull Map<String, BundledFile> myFiles;
+
+    public OCamlSdkIndexBundle(@NotNull String version, @NotNull String contentHash, @NotNull Map<String, BundledFile> files) {
+        myVersion = version;
+        myContentHash = contentHash;
+        myFiles = files;
+    }
+
+    public @NotNull String getVersion() {
+        return myVersion;
+    }
+
+    public @NotNull String getContentHash() {
+        return myContentHash;
+    }
+
+    /**
+     * @return the files of the bundle, by path relative to the SDK home
+     */
+    public @NotNull Map<String, BundledFile> getFiles() {
+        return myFiles;
+    }
+
+    public static @NotNull String getFileName(@NotNull String version, @NotNull String contentHash) {
+        return "ocaml-" + version + "-" + contentHash + EXTENSION;
+    }
+
+    //
+    // Sources
+    //
+
+    /**
+     * @return the OCaml source files of the SDK, by path relative to the SDK home (sorted)
+     */
+    public static @NotNull SortedMap<String, File> listSources(@NotNull File sdkHome) {
+        SortedMap<String, File> sources = new TreeMap<>();
+        for (String sourceFolder : OCamlSdkRootsManager.getSourcesFolders(sdkHome.getPath())) {
+            File root = new File(sdkHome, sourceFolder);
+            FileUtil.processFilesRecursively(root, file -> {
+                String name = file.getName();
+                if (file.isFile() && (name.endsWith(".ml") || name.endsWith(".mli"))) {
+                    String relativePath = FileUtil.getRelativePath(sdkHome, file);
+                    if (relativePath != null) {
+                        sources.put(FileUtil.toSystemIndependentName(relativePath), file);
+                    }
+                }
+                return true;
+            });
+        }
+        return sources;
+    }
+
+    /**
+     * The content hash is a SHA-256 of the relative paths and the contents of the sources.
+     */
+    public static @NotNull String computeContentHash(@NotNull SortedMap<String, File> sources) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+
+        for (Map.Entry<String, File> entry : sources.entrySet()) {
+            digest.update(entry.getKey().getBytes(StandardCharsets.UTF_8));
+            digest.update(Files.readAllBytes(entry.getValue().toPath()));
+        }
+
+        StringBuilder sb = new StringBuilder();
+        byte[] bytes = digest.digest();
+        // 16 bytes are enough to identify the sources
+        for (int i = 0; i < 16; i++) {
+            sb.append(String.format("%02x", bytes[i]));
+        }
+        return sb.toString();
+    }
+
+    //
+    // Serialization
+    //
+
+    public void write(@NotNull File file) throws IOException {
+        FileUtil.createParentDirs(file);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            DataInputOutputUtil.writeINT(out, FORMAT_VERSION);
+            out.writeUTF(myVersion);
+            out.writeUTF(myContentHash);
+            DataInputOutputUtil.writeINT(out, myFiles.size());
+            for (Map.Entry<String, BundledFile> entry : myFiles.entrySet()) {
+                BundledFile bundledFile = entry.getValue();
+                out.writeUTF(entry.getKey());
+                out.writeUTF(bundledFile.getModuleName());
+                out.writeBoolean(bundledFile.isInterface());
+                DataInputOutputUtil.writeINT(out, bundledFile.getExports().size());
+                for (Map.Entry<String, List<ModuleExport>> exports : bundledFile.getExports().entrySet()) {
+                    out.writeUTF(exports.getKey());
+                    ModuleExportIndex.EXTERNALIZER.save(out, exports.getValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * @return null if the bundle has been created with another format
+     */
+    public static @Nullable OCamlSdkIndexBundle read(@NotNull File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (DataInputOutputUtil.readINT(in) != FORMAT_VERSION) return null;
+            String version = in.readUTF();
+            String contentHash = in.readUTF();
+            int filesCount = DataInputOutputUtil.readINT(in);
+            Map<String, BundledFile> files = new HashMap<>(filesCount);
+            for (int i = 0; i < filesCount; i++) {
+                String relativePath = in.readUTF();
+                String moduleName = in.readUTF();
+                boolean isInterface = in.readBoolean();
+                int exportsCount = DataInputOutputUtil.readINT(in);
+                Map<String, List<ModuleExport>> exports = new HashMap<>(exportsCount);
+                for (int j = 0; j < exportsCount; j++) {
+                    String qname = in.readUTF();
+                    exports.put(qname, ModuleExportIndex.EXTERNALIZER.read(in));
+                }
+                files.put(relativePath, new BundledFile(moduleName, isInterface, exports));
+            }
+            return new OCamlSdkIndexBundle(version, contentHash, files);
+        }
+    }
+
+    public static final class BundledFile {
+        private final @NotNull String myModuleName;
+        private final boolean myIsInterface;
+        private final @NotNull Map<String, List<ModuleExport>> myExports;
+
+        public BundledFile(@NotNull String moduleName, boolean isInterface, @NotNull Map<String, List<ModuleExport>> exports) {
+            myModuleName = moduleName;
+            myIsInterface = isInterface;
+            myExports = exports;
+        }
+
+        public @NotNull String getModuleName() {
+            return myModuleName;
+        }
+
+        public boolean isInterface() {
+            return myIsInterface;
+        }
+
+        /**
+         * @return the export tables of the modules of the file, by qualified name
+         */
+        public @NotNull Map<String, List<ModuleExport>> getExports() {
+            return myExports;
+        }
+    }
+}
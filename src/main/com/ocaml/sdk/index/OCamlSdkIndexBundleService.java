@@ -0,0 +1,294 @@
+package com.ocaml.sdk.index;
+
+import com.intellij.ide.plugins.IdeaPluginDescriptor;
+import com.intellij.ide.plugins.PluginManagerCore;
+import com.intellij.ide.util.PropertiesComponent;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.extensions.PluginId;
+import com.intellij.openapi.projectRoots.ProjectJdkTable;
+import com.intellij.openapi.projectRoots.Sdk;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.util.PathUtil;
+import com.intellij.util.containers.ContainerUtil;
+import com.intellij.util.indexing.FileBasedIndex;
+import com.ocaml.sdk.OCamlSdkType;
+import com.ocaml.sdk.utils.OCamlSdkVersionManager;
+import com.or.ide.search.FileModuleData;
+import com.or.ide.search.ModuleExport;
+import com.or.utils.Log;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Load the pre-built index bundles of the OCaml SDKs.
+ * <p>
+ * A bundle is loaded in the background when the SDK is set up ({@link OCamlSdkType#addSources(File, com.intellij.openapi.projectRoots.SdkModificator)}).
+ * The sources it covers are excluded by the input filters of {@link com.or.ide.search.index.FileModuleIndex} and
+ * {@link com.or.ide.search.index.ModuleExportIndex}, and are reindexed to drop their data: their keys are only answered
+ * from the bundle. The bundle file of an SDK is remembered, it is read again (without hashing the sources) before the first
+ * query or the first indexing of the next sessions; the content hash is checked in the background, the bundle is unloaded
+ * and its sources are indexed again if it doesn't match.
+ * Bundles are searched in the "bundles" folder of the plugin, and in the folder
+ * given by the system property {@link #BUNDLES_DIR_PROPERTY} (default: "ocaml/sdk-bundles" in the IDE system folder).
+ * <p>
+ * The stub indexes are managed by the platform and are still built for the SDK sources.
+ */
+public final class OCamlSdkIndexBundleService {
+    private static final Log LOG = Log.create("index.bundle");
+
+    public static final String BUNDLES_DIR_PROPERTY = "ocaml.sdk.bundles.dir";
+    private static final String PLUGIN_ID = "intellij-ocaml";
+    // + SDK home path -> path of the bundle file loaded for this SDK
+    private static final String LOADED_BUNDLE_KEY = "ocaml.sdk.bundle.";
+
+    // SDK home path -> bundle
+    private final Map<String, LoadedBundle> myBundles = new ConcurrentHashMap<>();
+    // sources of the loaded bundles, excluded from the indexes
+    private final Set<VirtualFile> myCoveredFiles = ConcurrentHashMap.newKeySet();
+    // SDK home path that have been checked
+    private final Set<String> myCheckedHomes = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean myInitialized = new AtomicBoolean();
+
+    public static @NotNull OCamlSdkIndexBundleService getInstance() {
+        return ApplicationManager.getApplication().getService(OCamlSdkIndexBundleService.class);
+    }
+
+    /**
+     * Load the bundle of an SDK, if there is one with the same version and the same content hash.
+     *
+     * @return true if a bundle is loaded for this SDK
+     */
+    public boolean load(@NotNull File sdkHome) {
+        String homePath = FileUtil.toSystemIndependentName(sdkHome.getAbsolutePath());
+        if (!myCheckedHomes.add(homePath)) {
+            return myBundles.containsKey(homePath);
+        }
+
+        VirtualFile home = LocalFileSystem.getInstance().findFileByPath(homePath);
+        if (home == null) return false;
+
+        long start = System.currentTimeMillis();
+        try {
+            String version = OCamlSdkVersionManager.parse(homePath);
+            SortedMap<String, File> sources = OCamlSdkIndexBundle.listSources(sdkHome);
+            if (sources.isEmpty()) return false;
+            String contentHash = OCamlSdkIndexBundle.computeContentHash(sources);
+
+            String fileName = OCamlSdkIndexBundle.getFileName(version, contentHash);
+            for (File bundlesDir : getBundlesDirs()) {
+                File bundleFile = new File(bundlesDir, fileName);
+                if (!bundleFile.isFile()) continue;
+
+                OCamlSdkIndexBundle bundle = OCamlSdkIndexBundle.read(bundleFile);
+                if (bundle != null && version.equals(bundle.getVersion()) && contentHash.equals(bundle.getContentHash())) {
+                    publish(homePath, home, bundle);
+                    PropertiesComponent.getInstance().setValue(LOADED_BUNDLE_KEY + homePath, bundleFile.getPath());
+                    LOG.info("SDK index bundle loaded for " + homePath + " (" + bundle.getFiles().size() + " files) in " + (System.currentTimeMillis() - start) + "ms");
+                    return true;
+                }
+            }
+            LOG.debug("No SDK index bundle for " + homePath + ", expected " + fileName);
+        } catch (IOException e) {
+            LOG.warn("Can't load SDK index bundle for " + homePath, e);
+        }
+
+        return false;
+    }
+
+    private void publish(@NotNull String homePath, @NotNull VirtualFile home, @NotNull OCamlSdkIndexBundle bundle) {
+        LoadedBundle loadedBundle = new LoadedBundle(home, bundle);
+        myBundles.put(homePath, loadedBundle);
+        myCoveredFiles.addAll(loadedBundle.mySources);
+        // the input filters now exclude these sources: their data is dropped at the next query
+        for (VirtualFile source : loadedBundle.mySources) {
+            FileBasedIndex.getInstance().requestReindex(source);
+        }
+    }
+
+    private void unload(@NotNull String homePath) {
+        PropertiesComponent.getInstance().unsetValue(LOADED_BUNDLE_KEY + homePath);
+        LoadedBundle loadedBundle = myBundles.remove(homePath);
+        Collection<VirtualFile> sources;
+        if (loadedBundle != null) {
+            myCoveredFiles.removeAll(loadedBundle.mySources);
+            sources = loadedBundle.mySources;
+        } else {
+            // excluded in a previous session by a bundle that can't be read anymore
+            sources = new ArrayList<>();
+            LocalFileSystem localFileSystem = LocalFileSystem.getInstance();
+            for (File source : OCamlSdkIndexBundle.listSources(new File(homePath)).values()) {
+                ContainerUtil.addIfNotNull(sources, localFileSystem.findFileByIoFile(source));
+            }
+        }
+        for (VirtualFile source : sources) {
+            FileBasedIndex.getInstance().requestReindex(source);
+        }
+    }
+
+    private static @NotNull List<File> getBundlesDirs() {
+        List<File> dirs = new ArrayList<>();
+
+        IdeaPluginDescriptor plugin = PluginManagerCore.getPlugin(PluginId.getId(PLUGIN_ID));
+        if (plugin != null) {
+            dirs.add(plugin.getPluginPath().resolve("bundles").toFile());
+        }
+
+        String property = System.getProperty(BUNDLES_DIR_PROPERTY);
+        dirs.add(property == null ? new File(PathManager.getSystemPath(), "ocaml/sdk-bundles") : new File(property));
+
+        return dirs;
+    }
+
+    private void ensureInitialized() {
+        if (!myInitialized.compareAndSet(false, true)) return;
+
+        // SDKs registered in a previous session: the remembered bundles are read now, because their sources are
+        // already excluded from the indexes. Hashing the sources is never done in the caller thread.
+        List<String> homePaths = new ArrayList<>();
+        for (Sdk sdk : ProjectJdkTable.getInstance().getSdksOfType(OCamlSdkType.getInstance())) {
+            String homePath = sdk.getHomePath();
+            if (homePath != null) {
+                homePaths.add(FileUtil.toSystemIndependentName(homePath));
+            }
+        }
+        List<String> previousHomePaths = new ArrayList<>();
+        for (String homePath : homePaths) {
+            String bundlePath = PropertiesComponent.getInstance().getValue(LOADED_BUNDLE_KEY + homePath);
+            VirtualFile home = LocalFileSystem.getInstance().findFileByPath(homePath);
+            if (bundlePath != null && home != null) {
+                try {
+                    OCamlSdkIndexBundle bundle = OCamlSdkIndexBundle.read(new File(bundlePath));
+                    if (bundle != null) {
+                        LoadedBundle loadedBundle = new LoadedBundle(home, bundle);
+                        myBundles.put(homePath, loadedBundle);
+                        myCoveredFiles.addAll(loadedBundle.mySources);
+                    }
+                } catch (IOException e) {
+                    LOG.warn("Can't read SDK index bundle " + bundlePath, e);
+                }
+                previousHomePaths.add(homePath);
+            }
+        }
+
+        if (!homePaths.isEmpty()) {
+            ApplicationManager.getApplication().executeOnPooledThread(() -> {
+                for (String homePath : homePaths) {
+                    LoadedBundle previous = myBundles.get(homePath);
+                    if (previous != null && !isUpToDate(homePath, previous.myBundle)) {
+                        LOG.info("SDK index bundle of " + homePath + " is outdated");
+                        unload(homePath);
+                        previous = null;
+                    } else if (previous == null && previousHomePaths.contains(homePath)) {
+                        unload(homePath);
+                    }
+                    if (previous == null) {
+                        load(new File(homePath));
+                    } else {
+                        myCheckedHomes.add(homePath);
+                    }
+                }
+            });
+        }
+    }
+
+    private static boolean isUpToDate(@NotNull String homePath, @NotNull OCamlSdkIndexBundle bundle) {
+        try {
+            SortedMap<String, File> sources = OCamlSdkIndexBundle.listSources(new File(homePath));
+            return bundle.getVersion().equals(OCamlSdkVersionManager.parse(homePath))
+                    && bundle.getContentHash().equals(OCamlSdkIndexBundle.computeContentHash(sources));
+        } catch (IOException e) {
+            LOG.warn("Can't check SDK index bundle of " + homePath, e);
+            return false;
+        }
+    }
+
+    /**
+     * Used by the input filters of the indexes: the loaded bundles are answering for these files.
+     *
+     * @return true if the file is a source of an SDK that has a bundle
+     */
+    public boolean isCovered(@NotNull VirtualFile file) {
+        ensureInitialized();
+        return !myCoveredFiles.isEmpty() && myCoveredFiles.contains(file);
+    }
+
+    /**
+     * Process the export tables of a module found in the bundles of the SDKs in scope.
+     * The consumer is receiving true when the exports are coming from an interface file.
+     */
+    public void processExports(@NotNull String qname, @NotNull GlobalSearchScope scope, @NotNull BiConsumer<Boolean, List<ModuleExport>> consumer) {
+        ensureInitialized();
+        int dotIndex = qname.indexOf('.');
+        String moduleName = dotIndex < 0 ? qname : qname.substring(0, dotIndex);
+        for (LoadedBundle loadedBundle : myBundles.values()) {
+            Map<String, OCamlSdkIndexBundle.BundledFile> files = loadedBundle.myFilesPerModule.get(moduleName);
+            if (files != null && loadedBundle.isInScope(scope)) {
+                for (OCamlSdkIndexBundle.BundledFile bundledFile : files.values()) {
+                    List<ModuleExport> exports = bundledFile.getExports().get(qname);
+                    if (exports != null) {
+                        consumer.accept(bundledFile.isInterface(), exports);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Process the file modules of the bundles of the SDKs in scope, with the same data as the FileModuleIndex.
+     */
+    public void processFileModules(@NotNull String moduleName, @NotNull GlobalSearchScope scope, @NotNull Consumer<FileModuleData> consumer) {
+        ensureInitialized();
+        for (LoadedBundle loadedBundle : myBundles.values()) {
+            Map<String, OCamlSdkIndexBundle.BundledFile> files = loadedBundle.myFilesPerModule.get(moduleName);
+            if (files != null && loadedBundle.isInScope(scope)) {
+                for (Map.Entry<String, OCamlSdkIndexBundle.BundledFile> entry : files.entrySet()) {
+                    String path = loadedBundle.myHome.getPath() + "/" + entry.getKey();
+                    String fullname = FileUtil.getNameWithoutExtension(PathUtil.getFileName(path));
+                    consumer.accept(new FileModuleData(path, fullname, "", moduleName, true, entry.getValue().isInterface(), false));
+                }
+            }
+        }
+    }
+
+    private static final class LoadedBundle {
+        private final @NotNull VirtualFile myHome;
+        private final @NotNull OCamlSdkIndexBundle myBundle;
+        // module name -> relative path -> file
+        private final @NotNull Map<String, Map<String, OCamlSdkIndexBundle.BundledFile>> myFilesPerModule = new HashMap<>();
+        private final @NotNull List<VirtualFile> mySources = new ArrayList<>();
+        private @Nullable VirtualFile mySample;
+
+        LoadedBundle(@NotNull VirtualFile home, @NotNull OCamlSdkIndexBundle bundle) {
+            myHome = home;
+            myBundle = bundle;
+            for (Map.Entry<String, OCamlSdkIndexBundle.BundledFile> entry : bundle.getFiles().entrySet()) {
+                myFilesPerModule.computeIfAbsent(entry.getValue().getModuleName(), k -> new HashMap<>()).put(entry.getKey(), entry.getValue());
+                ContainerUtil.addIfNotNull(mySources, home.findFileByRelativePath(entry.getKey()));
+            }
+            mySample = ContainerUtil.getFirstItem(mySources);
+        }
+
+        /**
+         * All the sources of an SDK are in the same scope, a single file is tested
+         */
+        boolean isInScope(@NotNull GlobalSearchScope scope) {
+            if (mySample == null || !mySample.isValid()) {
+                String relativePath = ContainerUtil.getFirstItem(myBundle.getFiles().keySet());
+                mySample = relativePath == null ? null : myHome.findFileByRelativePath(relativePath);
+            }
+            return mySample != null && scope.contains(mySample);
+        }
+    }
+}
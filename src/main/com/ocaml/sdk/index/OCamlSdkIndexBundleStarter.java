@@ -0,0 +1,85 @@
+package com.ocaml.sdk.index;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ApplicationStarter;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.project.ProjectManager;
+import com.intellij.openapi.util.Computable;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiFileFactory;
+import com.ocaml.ide.files.OCamlFileType;
+import com.ocaml.ide.files.OCamlInterfaceFileType;
+import com.ocaml.sdk.utils.OCamlSdkVersionManager;
+import com.or.ide.files.FileBase;
+import com.or.ide.search.index.ModuleExportIndex;
+import com.or.utils.Log;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * Headless command, used by the "buildSdkIndexBundle" gradle task, to pre-build the index bundle of an SDK.
+ * <pre>ocaml-sdk-bundle &lt;sdk home&gt; &lt;output folder&gt;</pre>
+ */
+public class OCamlSdkIndexBundleStarter implements ApplicationStarter {
+    private static final Log LOG = Log.create("index.bundle");
+
+    @Override public String getCommandName() {
+        return "ocaml-sdk-bundle";
+    }
+
+    @Override public void main(@NotNull List<String> args) {
+        int exitCode = 0;
+        if (args.size() != 3) {
+            LOG.warn("Usage: " + getCommandName() + " <sdk home> <output folder>");
+            exitCode = 1;
+        } else {
+            try {
+                File bundleFile = build(new File(args.get(1)), new File(args.get(2)));
+                LOG.info("SDK index bundle created: " + bundleFile);
+            } catch (IOException e) {
+                LOG.error("Can't create the SDK index bundle of " + args.get(1), e);
+                exitCode = 1;
+            }
+        }
+        System.exit(exitCode);
+    }
+
+    public static @NotNull File build(@NotNull File sdkHome, @NotNull File outputDir) throws IOException {
+        String version = OCamlSdkVersionManager.parse(sdkHome.getAbsolutePath());
+        SortedMap<String, File> sources = OCamlSdkIndexBundle.listSources(sdkHome);
+        String contentHash = OCamlSdkIndexBundle.computeContentHash(sources);
+
+        Project project = ProjectManager.getInstance().getDefaultProject();
+        PsiFileFactory psiFileFactory = PsiFileFactory.getInstance(project);
+
+        Map<String, OCamlSdkIndexBundle.BundledFile> files = new HashMap<>();
+        for (Map.Entry<String, File> entry : sources.entrySet()) {
+            File source = entry.getValue();
+            String text = FileUtil.loadFile(source, StandardCharsets.UTF_8);
+            boolean isInterface = source.getName().endsWith(".mli");
+
+            OCamlSdkIndexBundle.BundledFile bundledFile = ApplicationManager.getApplication().runReadAction((Computable<OCamlSdkIndexBundle.BundledFile>) () -> {
+                PsiFile psiFile = psiFileFactory.createFileFromText(source.getName(), isInterface ? OCamlInterfaceFileType.INSTANCE : OCamlFileType.INSTANCE, text);
+                if (!(psiFile instanceof FileBase)) return null;
+                FileBase fileBase = (FileBase) psiFile;
+                return new OCamlSdkIndexBundle.BundledFile(fileBase.getModuleName(), isInterface, ModuleExportIndex.collectFileExports(fileBase));
+            });
+
+            if (bundledFile != null) {
+                files.put(entry.getKey(), bundledFile);
+            }
+        }
+
+        File bundleFile = new File(outputDir, OCamlSdkIndexBundle.getFileName(version, contentHash));
+        new OCamlSdkIndexBundle(version, contentHash, files).write(bundleFile);
+        return bundleFile;
+    }
+}
@@ -7,6 +7,7 @@ import com.ocaml.ide.files.FileHelper;
 import com.or.ide.files.FileBase;
 import com.or.ide.files.OclFile;
 import com.or.ide.files.OclInterfaceFile;
+import com.or.ide.search.ModuleExport;
 import com.or.lang.core.psi.*;
 import com.or.lang.core.psi.impl.PsiFakeModule;
 import org.jetbrains.annotations.NotNull;
@@ -23,6 +24,31 @@ public class IconProvider extends com.intellij.ide.IconProvider {
         return isInterface ? OCamlIcons.Nodes.OCL_FILE_MODULE_INTERFACE : OCamlIcons.Nodes.OCL_FILE_MODULE;
     }
 
+    public static @Nullable Icon getExportIcon(@NotNull ModuleExport export) {
+        switch (export.getKind()) {
+            case MODULE:
+                return OCamlIcons.Nodes.INNER_MODULE;
+            case FUNCTOR:
+                return OCamlIcons.Nodes.FUNCTOR;
+            case TYPE:
+                return OCamlIcons.Nodes.TYPE;
+            case VARIANT:
+                return OCamlIcons.Nodes.VARIANT;
+            case LET:
+                return export.isFunction() ? OCamlIcons.Nodes.FUNCTION : OCamlIcons.Nodes.LET;
+            case VAL:
+                return OCamlIcons.Nodes.VAL;
+            case EXTERNAL:
+                return OCamlIcons.Nodes.EXTERNAL;
+            case CLASS:
+                return OCamlIcons.Nodes.CLASS;
+            case EXCEPTION:
+                return OCamlIcons.Nodes.EXCEPTION;
+            default:
+                return null;
+        }
+    }
+
     @Nullable
     @Override
     public Icon getIcon(@NotNull PsiElement psiElement, int flags) {
@@ -7,6 +7,7 @@ import com.intellij.psi.PsiPolyVariantReference;
 import com.intellij.psi.PsiReference;
 import com.intellij.psi.ResolveResult;
 import com.or.ide.files.FileBase;
+import com.or.ide.search.InterfacePairingService;
 import com.or.lang.core.psi.PsiLowerSymbol;
 import com.or.lang.core.psi.PsiUpperSymbol;
 import org.jetbrains.annotations.Nullable;
@@ -15,19 +16,24 @@ public class ORGotoDeclarationHandler extends GotoDeclarationHandlerBase {
     public @Nullable static PsiElement resolveInterface(@Nullable PsiReference reference) {
         if (reference instanceof PsiPolyVariantReference) {
             ResolveResult[] resolveResults = ((PsiPolyVariantReference) reference).multiResolve(false);
-            if (resolveResults.length == 1) {
-                return resolveResults[0].getElement();
-            } else if (resolveResults.length > 1) {
-                // Look into other resolved elements to find an equivalent interface if one exist
-                for (ResolveResult resolved : resolveResults) {
-                    PsiElement element = resolved.getElement();
-                    FileBase file = element == null ? null : (FileBase) element.getContainingFile();
+            if (resolveResults.length > 0) {
+                PsiElement element = resolveResults[0].getElement();
+                // An implementation is paired with its declaration in the interface if one exist
+                PsiElement interfaceElement = element == null ? null : InterfacePairingService.getInstance(element.getProject()).findInterface(element);
+                if (interfaceElement != null) {
+                    return interfaceElement;
+                }
+
+                // Look into other resolved elements to find an equivalent interface
+                for (int i = 1; i < resolveResults.length; i++) {
+                    PsiElement resolved = resolveResults[i].getElement();
+                    FileBase file = resolved == null ? null : (FileBase) resolved.getContainingFile();
                     if (file != null && file.isInterface()) {
-                        return element;
+                        return resolved;
                     }
                 }
 
-                return resolveResults[0].getElement();
+                return element;
             }
         }
 
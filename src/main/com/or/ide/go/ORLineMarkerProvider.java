@@ -4,160 +4,72 @@ import com.intellij.codeInsight.daemon.RelatedItemLineMarkerInfo;
 import com.intellij.codeInsight.daemon.RelatedItemLineMarkerProvider;
 import com.intellij.codeInsight.navigation.NavigationGutterIconBuilder;
 import com.intellij.openapi.editor.markup.GutterIconRenderer;
-import com.intellij.openapi.project.Project;
-import com.intellij.psi.PsiDirectory;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
 import com.intellij.psi.PsiQualifiedNamedElement;
-import com.intellij.psi.search.GlobalSearchScope;
 import com.ocaml.icons.OCamlIcons;
-import com.ocaml.ide.files.OCamlFileType;
-import com.ocaml.ide.files.OCamlInterfaceFileType;
 import com.or.ide.files.FileBase;
-import com.or.ide.search.index.*;
-import com.or.lang.core.ORUtil;
+import com.or.ide.search.DependencyScopeService;
+import com.or.ide.search.InterfacePairingService;
 import com.or.lang.core.psi.*;
-import com.or.lang.core.psi.impl.*;
-import com.or.utils.Joiner;
+import com.or.lang.core.psi.impl.PsiDeconstruction;
+import com.or.lang.core.psi.impl.PsiLowerIdentifier;
+import com.or.lang.core.psi.impl.PsiUpperIdentifier;
 import org.jetbrains.annotations.NotNull;
-import org.jetbrains.annotations.Nullable;
 
-import java.util.Collection;
-import java.util.Collections;
-import java.util.List;
-import java.util.function.Predicate;
+import java.util.*;
 
 public class ORLineMarkerProvider extends RelatedItemLineMarkerProvider {
-    private static final @NotNull Predicate<PsiElement> PSI_IMPL_PREDICATE = psiElement -> {
-        FileBase psiFile = (FileBase) psiElement.getContainingFile();
-        return !psiFile.isInterface() /*&& Platform.isSourceFile(psiFile) --> Not working with webstorm for ex */;
-    };
-    private static final @NotNull Predicate<PsiElement> PSI_INTF_PREDICATE = psiElement -> {
-        FileBase psiFile = (FileBase) psiElement.getContainingFile();
-        return psiFile.isInterface() /*&& Platform.isSourceFile(psiFile) --> Not working with webstorm for ex */;
-    };
-
+    /**
+     * The related declarations of all the elements are found in one batch: the related file is found once,
+     * and each distinct declaration of the file is looked up once in its declarations.
+     */
     @Override
-    protected void collectNavigationMarkers(@NotNull PsiElement element, @NotNull Collection<? super RelatedItemLineMarkerInfo<?>> result) {
-        PsiElement parent = element.getParent();
-        if (parent instanceof PsiDeconstruction) {
-            parent = parent.getParent();
+    public void collectNavigationMarkers(@NotNull List<? extends PsiElement> elements, @NotNull Collection<? super RelatedItemLineMarkerInfo<?>> result, boolean forNavigation) {
+        if (elements.isEmpty() || !(elements.get(0).getContainingFile() instanceof FileBase)) {
+            return;
         }
+        FileBase file = (FileBase) elements.get(0).getContainingFile();
 
-        Project project = element.getProject();
-        GlobalSearchScope scope = GlobalSearchScope.allScope(project);
-        FileBase containingFile = (FileBase) element.getContainingFile();
-        boolean isInterface = containingFile.isInterface();
-
-        if (element instanceof PsiLowerIdentifier) {
-            if (parent instanceof PsiLet) {
-                String qNameLet = ((PsiLetImpl) parent).getQualifiedName();
-                if (((PsiLet) parent).isDeconstruction()) {
-                    qNameLet = Joiner.join(".", ORUtil.getQualifiedPath(parent)) + "." + element.getText();
-                }
-                final String qName = qNameLet;
-
-                Collection<PsiVal> vals = ValFqnIndex.getElements(qName.hashCode(), project, scope);
-                vals.stream()
-                        .filter(isInterface ? PSI_IMPL_PREDICATE : PSI_INTF_PREDICATE)
-                        .findFirst()
-                        .ifPresentOrElse(psiVal ->
-                                        result.add(createGutterIcon(element, isInterface, "method", (FileBase) psiVal.getContainingFile(), psiVal))
-                                , () -> {
-                                    Collection<PsiLet> lets = LetFqnIndex.getElements(qName.hashCode(), project, scope);
-                                    lets.stream()
-                                            .filter(isInterface ? PSI_IMPL_PREDICATE : PSI_INTF_PREDICATE)
-                                            .findFirst()
-                                            .ifPresent(psiLet ->
-                                                    result.add(createGutterIcon(element, isInterface, "method", (FileBase) psiLet.getContainingFile(), psiLet))
-                                            );
-                                });
-            } else if (parent instanceof PsiExternal) {
-                String externalQName = ((PsiExternalImpl) parent).getQualifiedName();
-                Collection<PsiExternal> elements = ExternalFqnIndex.getElements(externalQName.hashCode(), project, scope);
-                elements.stream()
-                        .filter(isInterface ? PSI_IMPL_PREDICATE : PSI_INTF_PREDICATE)
-                        .findFirst()
-                        .ifPresent(psiTarget ->
-                                result.add(createGutterIcon(element, isInterface, "method", (FileBase) psiTarget.getContainingFile(), psiTarget))
-                        );
-            } else if (parent instanceof PsiValImpl) {
-                String valQName = ((PsiValImpl) parent).getQualifiedName();
-                Collection<PsiLet> elements = LetFqnIndex.getElements(valQName.hashCode(), project, scope);
-                elements.stream()
-                        .filter(PSI_IMPL_PREDICATE)
-                        .findFirst()
-                        .ifPresent(psiTarget ->
-                                result.add(createGutterIcon(element, isInterface, "method", (FileBase) psiTarget.getContainingFile(), psiTarget))
-                        );
-            } else {
-                if (parent instanceof PsiType) {
-                    String valQName = ((PsiTypeImpl) parent).getQualifiedName();
-                    Collection<PsiType> elements = TypeFqnIndex.getElements(valQName.hashCode(), project, scope);
-                    elements.stream()
-                            .filter(isInterface ? PSI_IMPL_PREDICATE : PSI_INTF_PREDICATE)
-                            .findFirst()
-                            .ifPresent(psiTarget ->
-                                    result.add(createGutterIcon(element, isInterface, "type", (FileBase) psiTarget.getContainingFile(), psiTarget))
-                            );
-                } else if (parent instanceof PsiKlass) {
-                    String qName = ((PsiKlassImpl) parent).getQualifiedName();
-                    Collection<PsiKlass> elements = KlassFqnIndex.getElements(qName.hashCode(), project, scope);
-                    elements.stream()
-                            .filter(isInterface ? PSI_IMPL_PREDICATE : PSI_INTF_PREDICATE)
-                            .findFirst()
-                            .ifPresent(psiTarget ->
-                                    result.add(createGutterIcon(element, isInterface, "class", (FileBase) psiTarget.getContainingFile(), psiTarget))
-                            );
-                }
+        List<PsiElement> identifiers = new ArrayList<>();
+        for (PsiElement element : elements) {
+            if (isDeclarationIdentifier(element)) {
+                identifiers.add(element);
             }
-        } else if (element instanceof PsiUpperIdentifier) {
-            if (parent instanceof PsiInnerModule) {
-                extractRelatedExpressions(
-                        element.getFirstChild(),
-                        ((PsiInnerModule) parent).getQualifiedName(),
-                        result,
-                        containingFile,
-                        "module",
-                        PsiInnerModule.class);
-            } else if (parent instanceof PsiException) {
-                extractRelatedExpressions(
-                        element.getFirstChild(),
-                        ((PsiException) parent).getQualifiedName(),
-                        result,
-                        containingFile,
-                        "exception",
-                        PsiException.class);
+        }
+        if (identifiers.isEmpty()) {
+            return;
+        }
+
+        boolean isInterface = file.isInterface();
+        Map<PsiElement, PsiElement> relatedElements = InterfacePairingService.getInstance(file.getProject()).findRelated(file, identifiers, DependencyScopeService.getScope(file));
+        for (PsiElement identifier : identifiers) {
+            PsiElement related = relatedElements.get(identifier);
+            InterfacePairingService.Kind kind = InterfacePairingService.getKind(related);
+            if (kind != null && related instanceof PsiQualifiedNamedElement) {
+                result.add(createGutterIcon(identifier, isInterface, kind.getLabel(), (FileBase) related.getContainingFile(), (PsiQualifiedNamedElement) related));
             }
         }
     }
 
-    @SafeVarargs
-    private <T extends PsiQualifiedNamedElement> void extractRelatedExpressions(@Nullable PsiElement element,
-                                                                                @Nullable String qname,
-                                                                                @NotNull Collection<? super RelatedItemLineMarkerInfo<?>> result,
-                                                                                @NotNull FileBase containingFile,
-                                                                                @NotNull String method,
-                                                                                @NotNull Class<? extends T>... clazz) {
-        if (element == null) {
-            return;
-        }
+    @Override
+    protected void collectNavigationMarkers(@NotNull PsiElement element, @NotNull Collection<? super RelatedItemLineMarkerInfo<?>> result) {
+        collectNavigationMarkers(Collections.singletonList(element), result, true);
+    }
 
-        FileBase psiRelatedFile = findRelatedFile(containingFile);
-        if (psiRelatedFile != null) {
-            List<T> expressions = psiRelatedFile.getQualifiedExpressions(qname, clazz);
-            if (expressions.size() >= 1) {
-                // Get latest
-                T relatedElement = null;
-                for (T expression : expressions) {
-                    relatedElement = expression;
-                }
+    private static boolean isDeclarationIdentifier(@NotNull PsiElement element) {
+        PsiElement parent = element.getParent();
+        if (parent instanceof PsiDeconstruction) {
+            parent = parent.getParent();
+        }
 
-                if (relatedElement != null) {
-                    result.add(createGutterIcon(element, containingFile.isInterface(), method, psiRelatedFile, relatedElement));
-                }
-            }
+        if (element instanceof PsiLowerIdentifier) {
+            return parent instanceof PsiLet || parent instanceof PsiExternal || parent instanceof PsiVal || parent instanceof PsiType || parent instanceof PsiKlass;
+        }
+        if (element instanceof PsiUpperIdentifier) {
+            return parent instanceof PsiInnerModule || parent instanceof PsiException;
         }
+        return false;
     }
 
     private @NotNull <T extends PsiQualifiedNamedElement> RelatedItemLineMarkerInfo<PsiElement> createGutterIcon(@NotNull PsiElement psiSource, boolean isInterface, @NotNull String method, @NotNull FileBase relatedFile, T relatedElement) {
@@ -171,21 +83,6 @@ public class ORLineMarkerProvider extends RelatedItemLineMarkerProvider {
                 .setTooltipText(tooltip)
                 .setAlignment(GutterIconRenderer.Alignment.RIGHT)
                 .setTargets(Collections.singleton(relatedElement))
-                .createLineMarkerInfo(psiSource instanceof PsiLowerIdentifier ? psiSource.getFirstChild() : psiSource);
-    }
-
-    @Nullable
-    public FileBase findRelatedFile(@NotNull FileBase file) {
-        PsiDirectory directory = file.getParent();
-        if (directory != null) {
-            String filename = file.getVirtualFile().getNameWithoutExtension();
-
-            String relatedExtension;
-            relatedExtension = file.isInterface() ? OCamlFileType.INSTANCE.getDefaultExtension() : OCamlInterfaceFileType.INSTANCE.getDefaultExtension();
-
-            PsiFile relatedPsiFile = directory.findFile(filename + "." + relatedExtension);
-            return relatedPsiFile instanceof FileBase ? (FileBase) relatedPsiFile : null;
-        }
-        return null;
+                .createLineMarkerInfo(psiSource.getFirstChild());
     }
 }
@@ -0,0 +1,50 @@
+package com.or.ide.go;
+
+import com.intellij.navigation.ChooseByNameContributorEx;
+import com.intellij.navigation.NavigationItem;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.stubs.StubIndex;
+import com.intellij.psi.stubs.StubIndexKey;
+import com.intellij.util.Processor;
+import com.intellij.util.indexing.FindSymbolParameters;
+import com.intellij.util.indexing.IdFilter;
+import com.or.ide.search.index.IndexKeys;
+import com.or.lang.core.psi.PsiExternal;
+import com.or.lang.core.psi.PsiLet;
+import com.or.lang.core.psi.PsiType;
+import com.or.lang.core.psi.PsiVal;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+// Implements the goto symbol, for lets, vals, types and externals
+public class ORSymbolContributor implements ChooseByNameContributorEx {
+    @Override
+    public void processNames(@NotNull Processor<? super String> processor, @NotNull GlobalSearchScope scope, @Nullable IdFilter filter) {
+        StubIndex stubIndex = StubIndex.getInstance();
+        // the names are streamed: stop as soon as the processor is satisfied
+        boolean proceed = stubIndex.processAllKeys(IndexKeys.LETS, processor, scope, filter)
+                && stubIndex.processAllKeys(IndexKeys.VALS, processor, scope, filter)
+                && stubIndex.processAllKeys(IndexKeys.TYPES, processor, scope, filter);
+        if (proceed) {
+            stubIndex.processAllKeys(IndexKeys.EXTERNALS, processor, scope, filter);
+        }
+    }
+
+    @Override
+    public void processElementsWithName(@NotNull String name, @NotNull Processor<? super NavigationItem> processor, @NotNull FindSymbolParameters parameters) {
+        boolean proceed = processElements(IndexKeys.LETS, PsiLet.class, name, processor, parameters)
+                && processElements(IndexKeys.VALS, PsiVal.class, name, processor, parameters)
+                && processElements(IndexKeys.TYPES, PsiType.class, name, processor, parameters);
+        if (proceed) {
+            processElements(IndexKeys.EXTERNALS, PsiExternal.class, name, processor, parameters);
+        }
+    }
+
+    private static <T extends PsiElement> boolean processElements(@NotNull StubIndexKey<String, T> key, @NotNull Class<T> requiredClass, @NotNull String name,
+                                                                  @NotNull Processor<? super NavigationItem> processor, @NotNull FindSymbolParameters parameters) {
+        // not all the stub elements are navigation items (externals)
+        return StubIndex.getInstance().processElements(key, name, parameters.getProject(), parameters.getSearchScope(), parameters.getIdFilter(), requiredClass,
+                element -> !(element instanceof NavigationItem) || processor.process((NavigationItem) element));
+    }
+}
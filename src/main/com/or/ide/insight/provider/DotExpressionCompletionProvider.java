@@ -3,11 +3,16 @@ package com.or.ide.insight.provider;
 import com.intellij.codeInsight.completion.CompletionResultSet;
 import com.intellij.codeInsight.lookup.LookupElementBuilder;
 import com.or.lang.core.psi.PsiKlass;
+import com.intellij.openapi.project.Project;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiNamedElement;
+import com.intellij.psi.search.GlobalSearchScope;
 import com.intellij.psi.util.PsiTreeUtil;
 import com.intellij.util.PsiIconUtil;
+import com.or.ide.IconProvider;
 import com.or.ide.files.FileBase;
+import com.or.ide.search.DependencyScopeService;
+import com.or.ide.search.index.ModuleExportIndex;
 import com.or.lang.core.ORUtil;
 import com.or.lang.core.psi.*;
 import com.or.lang.core.psi.impl.PsiFunctorCall;
@@ -48,6 +53,22 @@ public class DotExpressionCompletionProvider {
             PsiElement resolvedElement = reference == null ? null : reference.resolveInterface();
             LOG.debug(" -> resolved to", resolvedElement);
 
+            // Use the export table of the module when it is indexed
+            String qname = null;
+            if (resolvedElement instanceof PsiUpperIdentifier) {
+                PsiElement resolvedParent = resolvedElement.getParent();
+                if (resolvedParent instanceof PsiInnerModule) {
+                    qname = ((PsiInnerModule) resolvedParent).getQualifiedName();
+                }
+            } else if (resolvedElement instanceof FileBase) {
+                qname = ((FileBase) resolvedElement).getModuleName();
+            }
+
+            if (qname != null && addExports(resultSet, qname, element)) {
+                LOG.trace(" -> exports of " + qname);
+                return;
+            }
+
             Collection<PsiNamedElement> expressions = new ArrayList<>();
             if (resolvedElement instanceof PsiUpperIdentifier) {
                 PsiElement resolvedParent = resolvedElement.getParent();
@@ -157,6 +178,17 @@ public class DotExpressionCompletionProvider {
         expressions.addAll(PsiTreeUtil.getStubChildrenOfTypeAsList(body, PsiException.class));
     }
 
+    // the declarations of the members are only searched when needed (documentation, navigation)
+    private static boolean addExports(@NotNull CompletionResultSet resultSet, @NotNull String qname, @NotNull PsiElement element) {
+        Project project = element.getProject();
+        GlobalSearchScope scope = DependencyScopeService.getScope(element);
+        return ModuleExportIndex.processExports(qname, project, scope, (moduleQName, export) ->
+                resultSet.addElement(
+                        LookupElementBuilder.create(new ModuleExportItem(project, scope, moduleQName, export), export.getName())
+                                .withTypeText(export.getSignature())
+                                .withIcon(IconProvider.getExportIcon(export))));
+    }
+
     private static void addExpressions(@NotNull CompletionResultSet resultSet, @NotNull Collection<PsiNamedElement> expressions, @Nullable ORLanguageProperties language) {
         for (PsiNamedElement expression : expressions) {
             if (!(expression instanceof PsiOpen) && !(expression instanceof PsiInclude) && !(expression instanceof PsiAnnotation)) {
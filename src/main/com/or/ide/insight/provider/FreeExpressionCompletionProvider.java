@@ -15,10 +15,13 @@ import com.intellij.psi.PsiNamedElement;
 import com.intellij.psi.search.GlobalSearchScope;
 import com.intellij.util.PsiIconUtil;
 import com.ocaml.icons.OCamlIcons;
+import com.ocaml.sdk.cmi.OCamlCmiService;
 import com.or.ide.IconProvider;
 import com.or.ide.files.FileBase;
+import com.or.ide.search.DependencyScopeService;
 import com.or.ide.search.FileModuleIndexService;
-import com.or.ide.search.index.ModuleFqnIndex;
+import com.or.ide.search.ModuleExport;
+import com.or.ide.search.index.ModuleExportIndex;
 import com.or.ide.search.index.ModuleTopLevelIndex;
 import com.or.lang.core.psi.*;
 import com.or.lang.core.signature.PsiSignatureUtil;
@@ -29,11 +32,9 @@ import com.or.utils.Platform;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.Set;
 
-import static com.or.lang.core.ExpressionFilterConstants.NO_FILTER;
-import static com.or.lang.core.psi.ExpressionScope.pub;
-
 public class FreeExpressionCompletionProvider {
     private static final Log LOG = Log.create("insight.free");
 
@@ -44,7 +45,7 @@ public class FreeExpressionCompletionProvider {
         LOG.debug("FREE expression completion");
 
         Project project = element.getProject();
-        GlobalSearchScope scope = GlobalSearchScope.allScope(project);
+        GlobalSearchScope scope = DependencyScopeService.getScope(element);
         FileBase containingFile = (FileBase) element.getContainingFile();
 
         // Add virtual namespaces
@@ -60,8 +61,10 @@ public class FreeExpressionCompletionProvider {
 
         // Add file modules (that are not a component and without namespaces)
         PsiManager psiManager = PsiManager.getInstance(project);
+        Set<String> fileModules = new HashSet<>();
         ModuleTopLevelIndex.processModules(project, scope, topModule -> {
             FileBase topModuleFile = (FileBase) topModule.getContainingFile();
+            fileModules.add(topModule.getModuleName());
             if (!topModuleFile.equals(containingFile)) {
                 VirtualFile virtualFile = topModuleFile.getVirtualFile();
                 PsiFile psiFile = psiManager.findFile(virtualFile);
@@ -72,31 +75,36 @@ public class FreeExpressionCompletionProvider {
             }
         });
 
+        // Add the modules of the libraries installed without their sources (not the internal modules of the wrapped libraries)
+        OCamlCmiService.getInstance().processModuleNames(scope, moduleName -> {
+            if (!moduleName.contains("__") && fileModules.add(moduleName)) {
+                resultSet.addElement(
+                        LookupElementBuilder.create(moduleName)
+                                .withTypeText("Compiled interface")
+                                .withIcon(OCamlIcons.Nodes.OCL_FILE_MODULE_INTERFACE));
+            }
+            return true;
+        });
+
         Set<String> paths = qnameFinder.extractPotentialPaths(element);
         paths.add("Pervasives");
         LOG.debug("potential paths", paths);
 
         // Add paths (opens and local opens for example)
+        String containingModuleName = containingFile.getModuleName();
         for (String path : paths) {
-            Collection<PsiModule> modulesFromQn = ModuleFqnIndex.getElements(path, project, scope);
-            for (PsiModule module : modulesFromQn) {
-                if (module.getContainingFile().equals(containingFile)) {
-                    // if the module is already the containing file, we do nothing,
-                    // local expressions will be added after
-                    continue;
-                }
-
-                Collection<PsiNamedElement> expressions = module.getExpressions(pub, NO_FILTER);
-                for (PsiNamedElement expression : expressions) {
-                    if (!(expression instanceof PsiAnnotation)) {
-                        resultSet.addElement(
-                                LookupElementBuilder.create(expression)
-                                        .withTypeText(PsiSignatureUtil.getSignature(expression, ORLanguageProperties.cast(element.getLanguage())))
-                                        .withIcon(PsiIconUtil.getProvidersIcon(expression, 0))
-                                        .withInsertHandler(FreeExpressionCompletionProvider::insertExpression));
-                    }
-                }
+            if (path.equals(containingModuleName) || path.startsWith(containingModuleName + ".")) {
+                // if the module is already the containing file, we do nothing,
+                // local expressions will be added after
+                continue;
             }
+
+            ModuleExportIndex.processExports(path, project, scope, (moduleQName, export) ->
+                    resultSet.addElement(
+                            LookupElementBuilder.create(new ModuleExportItem(project, scope, moduleQName, export), export.getName())
+                                    .withTypeText(export.getSignature())
+                                    .withIcon(IconProvider.getExportIcon(export))
+                                    .withInsertHandler(FreeExpressionCompletionProvider::insertExpression)));
         }
 
         // Add all local expressions
@@ -155,10 +163,10 @@ public class FreeExpressionCompletionProvider {
 
     private static void insertExpression(
             @NotNull InsertionContext insertionContext, @NotNull LookupElement element) {
-        PsiElement psiElement = element.getPsiElement();
-        if (psiElement instanceof PsiLet) {
-            PsiLet let = (PsiLet) psiElement;
-            if (let.isFunction()) {
+        Object lookupObject = element.getObject();
+        if (lookupObject instanceof ModuleExportItem) {
+            ModuleExport export = ((ModuleExportItem) lookupObject).getExport();
+            if (export.getKind() == ModuleExport.Kind.LET && export.isFunction()) {
                 insertionContext.setAddCompletionChar(false);
                 Editor editor = insertionContext.getEditor();
                 EditorModificationUtil.insertStringAtCaret(editor, "()");
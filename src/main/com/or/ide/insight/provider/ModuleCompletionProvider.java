@@ -10,6 +10,7 @@ import com.intellij.psi.util.PsiTreeUtil;
 import com.intellij.util.PsiIconUtil;
 import com.ocaml.icons.OCamlIcons;
 import com.or.ide.files.FileBase;
+import com.or.ide.search.DependencyScopeService;
 import com.or.ide.search.FileModuleIndexService;
 import com.or.ide.search.index.ModuleTopLevelIndex;
 import com.or.lang.core.ORUtil;
@@ -39,7 +40,7 @@ public class ModuleCompletionProvider {
         LOG.debug("MODULE expression completion");
 
         Project project = element.getProject();
-        GlobalSearchScope scope = GlobalSearchScope.allScope(project);
+        GlobalSearchScope scope = DependencyScopeService.getScope(element);
         PsiElement dotLeaf = PsiTreeUtil.prevVisibleLeaf(element);
         PsiElement previousElement = dotLeaf == null ? null : dotLeaf.getPrevSibling();
 
@@ -0,0 +1,165 @@
+package com.or.ide.insight.provider;
+
+import com.intellij.navigation.ItemPresentation;
+import com.intellij.navigation.NavigationItem;
+import com.intellij.navigation.PsiElementNavigationItem;
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.stubs.StubIndex;
+import com.ocaml.sdk.cmi.OCamlCmiService;
+import com.or.ide.files.FileBase;
+import com.or.ide.search.ModuleExport;
+import com.or.ide.search.index.*;
+import com.or.lang.core.psi.PsiException;
+import com.or.lang.core.psi.PsiQualifiedPathElement;
+import com.or.lang.core.psi.PsiVariantDeclaration;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Objects;
+
+/**
+ * The lookup object of a member of an export table: the completion only needs the name and the signature of the
+ * member, its declaration is searched in the qualified name indexes when it is needed (documentation, navigation).
+ */
+final class ModuleExportItem implements PsiElementNavigationItem {
+    private final Project myProject;
+    private final GlobalSearchScope myScope;
+    private final String myModuleQName;
+    private final ModuleExport myExport;
+    private volatile boolean myResolved = false;
+    private volatile PsiElement myTarget = null;
+
+    /**
+     * @param moduleQName the qualified name of the module that declares the member (an included or an aliased module)
+     */
+    ModuleExportItem(@NotNull Project project, @NotNull GlobalSearchScope scope, @NotNull String moduleQName, @NotNull ModuleExport export) {
+        myProject = project;
+        myScope = scope;
+        myModuleQName = moduleQName;
+        myExport = export;
+    }
+
+    @NotNull ModuleExport getExport() {
+        return myExport;
+    }
+
+    @Override
+    public @Nullable PsiElement getTargetElement() {
+        if (!myResolved) {
+            myTarget = findDeclaration();
+            myResolved = true;
+        }
+        PsiElement target = myTarget;
+        return target == null || !target.isValid() ? null : target;
+    }
+
+    private @Nullable PsiElement findDeclaration() {
+        String qName = myModuleQName + "." + myExport.getName();
+        Collection<? extends PsiQualifiedPathElement> elements;
+        switch (myExport.getKind()) {
+            case LET:
+                elements = LetFqnIndex.getElements(qName, myProject, myScope);
+                break;
+            case VAL:
+                elements = ValFqnIndex.getElements(qName, myProject, myScope);
+                break;
+            case EXTERNAL:
+                elements = ExternalFqnIndex.getElements(qName, myProject, myScope);
+                break;
+            case TYPE:
+                elements = TypeFqnIndex.getElements(qName, myProject, myScope);
+                break;
+            case CLASS:
+                elements = KlassFqnIndex.getElements(qName, myProject, myScope);
+                break;
+            case MODULE:
+            case FUNCTOR:
+                elements = ModuleFqnIndex.getElements(qName, myProject, myScope);
+                break;
+            case EXCEPTION:
+                elements = StubIndex.getElements(IndexKeys.EXCEPTIONS_FQN, qName, myProject, myScope, PsiException.class);
+                break;
+            case VARIANT:
+                elements = StubIndex.getElements(IndexKeys.VARIANTS_FQN, qName, myProject, myScope, PsiVariantDeclaration.class);
+                break;
+            default:
+                elements = Collections.emptyList();
+        }
+
+        if (elements.isEmpty()) {
+            // a library installed without its sources
+            elements = OCamlCmiService.getInstance().findElements(myProject, myExport.getName(), myScope, PsiQualifiedPathElement.class);
+        }
+
+        // the completion is using the interface of a module when it exists
+        PsiQualifiedPathElement result = null;
+        for (PsiQualifiedPathElement element : elements) {
+            if (qName.equals(element.getQualifiedName())) {
+                if (element.getContainingFile() instanceof FileBase && ((FileBase) element.getContainingFile()).isInterface()) {
+                    return element;
+                }
+                if (result == null) {
+                    result = element;
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public @NotNull String getName() {
+        return myExport.getName();
+    }
+
+    @Override
+    public @Nullable ItemPresentation getPresentation() {
+        PsiElement target = getTargetElement();
+        return target instanceof NavigationItem ? ((NavigationItem) target).getPresentation() : null;
+    }
+
+    @Override
+    public void navigate(boolean requestFocus) {
+        PsiElement target = getTargetElement();
+        if (target instanceof NavigationItem) {
+            ((NavigationItem) target).navigate(requestFocus);
+        }
+    }
+
+    @Override
+    public boolean canNavigate() {
+        PsiElement target = getTargetElement();
+        return target instanceof NavigationItem && ((NavigationItem) target).canNavigate();
+    }
+
+    @Override
+    public boolean canNavigateToSource() {
+        PsiElement target = getTargetElement();
+        return target instanceof NavigationItem && ((NavigationItem) target).canNavigateToSource();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        ModuleExportItem that = (ModuleExportItem) o;
+        return myModuleQName.equals(that.myModuleQName) && myExport.equals(that.myExport);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(myModuleQName, myExport);
+    }
+
+    @Override
+    public @NotNull String toString() {
+        return myModuleQName + "." + myExport.getName();
+    }
+}
@@ -0,0 +1,199 @@
+package com.or.ide.search;
+
+import com.dune.DuneLanguage;
+import com.dune.lang.core.psi.DuneTypes;
+import com.dune.lang.core.psi.PsiDuneField;
+import com.dune.lang.core.psi.PsiStanza;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.module.ModuleUtilCore;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ProjectRootManager;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
+import com.intellij.psi.search.FilenameIndex;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.search.GlobalSearchScopesCore;
+import com.intellij.psi.search.ProjectScope;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiModificationTracker;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.or.utils.Log;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The search scope of a file, computed from its declared dependencies instead of the whole project:
+ * <ul>
+ *     <li>when the directory of the file (or a parent) has a dune file, the directories of the dune libraries
+ *     of the project it depends on (transitively), from the <code>libraries</code> field of the nearest dune file</li>
+ *     <li>otherwise, the content of its module and the modules it depends on</li>
+ * </ul>
+ * The SDK and the libraries are always in scope. A file outside any module is using the whole project.
+ * <p>
+ * The dune libraries of the project and the scopes are cached until a dune file, the project roots or the vfs structure change.
+ */
+public class DependencyScopeService {
+    private static final Log LOG = Log.create("scope");
+    private static final String DUNE_FILENAME = "dune";
+    private static final Set<String> DEPENDENT_STANZAS = Set.of("library", "executable", "executables", "test", "tests");
+
+    private final Project myProject;
+
+    public DependencyScopeService(@NotNull Project project) {
+        myProject = project;
+    }
+
+    public static @NotNull DependencyScopeService getInstance(@NotNull Project project) {
+        return project.getService(DependencyScopeService.class);
+    }
+
+    /**
+     * @return the scope used to search the declarations visible from the element
+     */
+    public static @NotNull GlobalSearchScope getScope(@NotNull PsiElement element) {
+        return getInstance(element.getProject()).getScope(element.getContainingFile());
+    }
+
+    public @NotNull GlobalSearchScope getScope(@Nullable PsiFile file) {
+        VirtualFile virtualFile = file == null ? null : file.getOriginalFile().getVirtualFile();
+        VirtualFile directory = virtualFile == null ? null : virtualFile.getParent();
+        if (directory == null) {
+            return GlobalSearchScope.allScope(myProject);
+        }
+
+        Scopes scopes = getScopes();
+        GlobalSearchScope scope = scopes.myScopePerDirectory.get(directory);
+        if (scope == null) {
+            scope = computeScope(virtualFile, directory, scopes);
+            scopes.myScopePerDirectory.put(directory, scope);
+        }
+        return scope;
+    }
+
+    private @NotNull Scopes getScopes() {
+        return CachedValuesManager.getManager(myProject).getCachedValue(myProject, () -> CachedValueProvider.Result.create(
+                new Scopes(findDuneLibraries()),
+                PsiModificationTracker.getInstance(myProject).forLanguage(DuneLanguage.INSTANCE),
+                ProjectRootManager.getInstance(myProject),
+                VirtualFileManager.VFS_STRUCTURE_MODIFICATIONS));
+    }
+
+    private @NotNull GlobalSearchScope computeScope(@NotNull VirtualFile file, @NotNull VirtualFile directory, @NotNull Scopes scopes) {
+        Module module = ModuleUtilCore.findModuleForFile(file, myProject);
+        if (module == null) {
+            return GlobalSearchScope.allScope(myProject);
+        }
+
+        GlobalSearchScope librariesScope = ProjectScope.getLibrariesScope(myProject);
+
+        // dune stanzas: the nearest dune file is the one of the file, a missing libraries field is no dependencies
+        for (VirtualFile dir = directory; dir != null; dir = dir.getParent()) {
+            DuneDirectory duneDirectory = scopes.myDuneDirectories.get(dir);
+            if (duneDirectory != null) {
+                Set<VirtualFile> directories = new LinkedHashSet<>();
+                directories.add(dir);
+                collectDependencies(duneDirectory.myDependencies, scopes, directories, new HashSet<>());
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("Dune scope of " + directory.getPath() + ": " + directories.size() + " directories");
+                }
+                return GlobalSearchScopesCore.directoriesScope(myProject, true, directories.toArray(VirtualFile.EMPTY_ARRAY)).union(librariesScope);
+            }
+            if (!ProjectRootManager.getInstance(myProject).getFileIndex().isInContent(dir)) {
+                break;
+            }
+        }
+
+        // module content and its dependencies
+        return GlobalSearchScope.moduleWithDependenciesScope(module).union(librariesScope);
+    }
+
+    private static void collectDependencies(@NotNull Collection<String> libraryNames, @NotNull Scopes scopes, @NotNull Set<VirtualFile> directories, @NotNull Set<String> visited) {
+        for (String libraryName : libraryNames) {
+            if (visited.add(libraryName)) {
+                VirtualFile libraryDirectory = scopes.myDirectoryPerLibrary.get(libraryName);
+                if (libraryDirectory != null) {
+                    directories.add(libraryDirectory);
+                    DuneDirectory duneDirectory = scopes.myDuneDirectories.get(libraryDirectory);
+                    if (duneDirectory != null) {
+                        collectDependencies(duneDirectory.myDependencies, scopes, directories, visited);
+                    }
+                }
+            }
+        }
+    }
+
+    private @NotNull Map<VirtualFile, DuneDirectory> findDuneLibraries() {
+        Map<VirtualFile, DuneDirectory> result = new HashMap<>();
+        PsiManager psiManager = PsiManager.getInstance(myProject);
+
+        for (VirtualFile duneFile : FilenameIndex.getVirtualFilesByName(myProject, DUNE_FILENAME, GlobalSearchScope.projectScope(myProject))) {
+            PsiFile psiFile = psiManager.findFile(duneFile);
+            VirtualFile directory = duneFile.getParent();
+            if (psiFile == null || directory == null) {
+                continue;
+            }
+
+            DuneDirectory duneDirectory = new DuneDirectory();
+            for (PsiStanza stanza : PsiTreeUtil.getChildrenOfTypeAsList(psiFile, PsiStanza.class)) {
+                if (DEPENDENT_STANZAS.contains(stanza.getName())) {
+                    for (PsiDuneField field : PsiTreeUtil.findChildrenOfType(stanza, PsiDuneField.class)) {
+                        String fieldName = field.getName();
+                        if ("library".equals(stanza.getName()) && ("name".equals(fieldName) || "public_name".equals(fieldName))) {
+                            duneDirectory.myNames.addAll(getValues(field));
+                        } else if ("libraries".equals(fieldName)) {
+                            duneDirectory.myDependencies.addAll(getValues(field));
+                        }
+                    }
+                }
+            }
+            result.put(directory, duneDirectory);
+        }
+
+        return result;
+    }
+
+    // the atoms after the name of the field, (select ...) forms included
+    private static @NotNull List<String> getValues(@NotNull PsiDuneField field) {
+        List<String> values = new ArrayList<>();
+        PsiElement nameIdentifier = field.getNameIdentifier();
+        PsiElement item = nameIdentifier == null ? null : nameIdentifier.getNextSibling();
+        while (item != null) {
+            if (item.getNode().getElementType() == DuneTypes.ATOM) {
+                values.add(item.getText());
+            } else {
+                for (PsiElement leaf : PsiTreeUtil.collectElements(item, e -> e.getNode().getElementType() == DuneTypes.ATOM)) {
+                    values.add(leaf.getText());
+                }
+            }
+            item = item.getNextSibling();
+        }
+        return values;
+    }
+
+    private static final class DuneDirectory {
+        final Set<String> myNames = new HashSet<>();
+        final Set<String> myDependencies = new LinkedHashSet<>();
+    }
+
+    private static final class Scopes {
+        final Map<VirtualFile, DuneDirectory> myDuneDirectories;
+        final Map<String, VirtualFile> myDirectoryPerLibrary = new HashMap<>();
+        final Map<VirtualFile, GlobalSearchScope> myScopePerDirectory = new ConcurrentHashMap<>();
+
+        Scopes(@NotNull Map<VirtualFile, DuneDirectory> duneDirectories) {
+            myDuneDirectories = duneDirectories;
+            for (Map.Entry<VirtualFile, DuneDirectory> entry : duneDirectories.entrySet()) {
+                for (String name : entry.getValue().myNames) {
+                    myDirectoryPerLibrary.put(name, entry.getKey());
+                }
+            }
+        }
+    }
+}
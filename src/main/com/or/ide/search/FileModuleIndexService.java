@@ -2,10 +2,16 @@ package com.or.ide.search;
 
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.search.GlobalSearchScope;
 import com.intellij.util.indexing.FileBasedIndex;
+import com.ocaml.sdk.index.OCamlSdkIndexBundleService;
+import com.or.ide.search.index.FileModuleIndex;
 import com.or.ide.search.index.NamespaceIndex;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.ArrayList;
 import java.util.Collection;
 
 public class FileModuleIndexService {
@@ -23,4 +29,36 @@ public class FileModuleIndexService {
     public Collection<String> getNamespaces(@NotNull Project project) {
         return FileBasedIndex.getInstance().getAllKeys(m_nsIndex.getName(), project);
     }
+
+    /**
+     * Find the files (.ml and .mli) of a file module, with a single lookup in the file module index.
+     *
+     * @param moduleName the name of the file module (ie: Hello_world for hello_world.ml)
+     */
+    @NotNull
+    public Collection<VirtualFile> getFiles(@NotNull String moduleName, @NotNull GlobalSearchScope scope) {
+        OCamlSdkIndexBundleService bundleService = OCamlSdkIndexBundleService.getInstance();
+        Collection<VirtualFile> files = new ArrayList<>(FileBasedIndex.getInstance().getContainingFiles(FileModuleIndex.NAME, moduleName, scope));
+
+        // SDK sources covered by a bundle, not indexed
+        LocalFileSystem localFileSystem = LocalFileSystem.getInstance();
+        bundleService.processFileModules(moduleName, scope, data -> {
+            VirtualFile file = localFileSystem.findFileByPath(data.getPath());
+            if (file != null) {
+                files.add(file);
+            }
+        });
+
+        return files;
+    }
+
+    @NotNull
+    public Collection<FileModuleData> getFileModules(@NotNull String moduleName, @NotNull GlobalSearchScope scope) {
+        OCamlSdkIndexBundleService bundleService = OCamlSdkIndexBundleService.getInstance();
+        Collection<FileModuleData> result = new ArrayList<>(FileBasedIndex.getInstance().getValues(FileModuleIndex.NAME, moduleName, scope));
+
+        // SDK sources covered by a bundle, not indexed
+        bundleService.processFileModules(moduleName, scope, result::add);
+        return result;
+    }
 }
@@ -0,0 +1,328 @@
+package com.or.ide.search;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Pair;
+import com.intellij.openapi.util.text.NaturalComparator;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
+import com.intellij.psi.PsiTreeChangeAdapter;
+import com.intellij.psi.PsiTreeChangeEvent;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.util.ArrayUtil;
+import com.intellij.util.indexing.FileBasedIndex;
+import com.intellij.util.messages.MessageBusConnection;
+import com.or.ide.files.FileBase;
+import com.or.ide.search.index.IncludeDependencyIndex;
+import com.or.utils.Joiner;
+import com.or.utils.Log;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Include dependencies of the project: for an included path, the paths of the modules that include it.
+ * <p>
+ * The include relationships of each file are read from {@link IncludeDependencyIndex} and kept per file.
+ * A psi or a vfs change only marks the file as dirty: at the next request, the data of the dirty files is read again,
+ * and the dependencies are recomputed (in memory) only if an include has changed.
+ * A full rebuild is done the first time, and when the indexes have been rebuilt (exit of dumb mode).
+ * Like the {@link ModuleAliasGraph}, the dependencies are computed without a lock and published as an immutable state.
+ */
+public class IncludeDependencyService implements Disposable {
+    private static final Log LOG = Log.create("index.includes");
+
+    private final Project myProject;
+    private final AtomicReference<State> myState = new AtomicReference<>();
+    // Dirty state is updated from the listeners without waiting for a running rebuild
+    private final Set<VirtualFile> myDirtyFiles = ConcurrentHashMap.newKeySet();
+    private volatile boolean myFullRebuildNeeded = true;
+
+    // statistics
+    private final AtomicLong myRequestCount = new AtomicLong();
+    private final AtomicLong myHitCount = new AtomicLong();
+    private final AtomicLong myFullRebuildCount = new AtomicLong();
+    private final AtomicLong myFullRebuildTime = new AtomicLong();
+    private final AtomicLong myIncrementalRebuildCount = new AtomicLong();
+    private final AtomicLong myIncrementalRebuildTime = new AtomicLong();
+
+    public IncludeDependencyService(@NotNull Project project) {
+        myProject = project;
+
+        PsiManager.getInstance(project).addPsiTreeChangeListener(new PsiTreeChangeAdapter() {
+            @Override
+            public void childrenChanged(@NotNull PsiTreeChangeEvent event) {
+                markDirty(event.getFile());
+            }
+
+            @Override
+            public void childAdded(@NotNull PsiTreeChangeEvent event) {
+                markDirty(event.getFile());
+            }
+
+            @Override
+            public void childRemoved(@NotNull PsiTreeChangeEvent event) {
+                markDirty(event.getFile());
+            }
+
+            @Override
+            public void childReplaced(@NotNull PsiTreeChangeEvent event) {
+                markDirty(event.getFile());
+            }
+
+            @Override
+            public void childMoved(@NotNull PsiTreeChangeEvent event) {
+                markDirty(event.getFile());
+            }
+        }, this);
+
+        MessageBusConnection connection = project.getMessageBus().connect(this);
+        connection.subscribe(VirtualFileManager.VFS_CHANGES, new ProjectFilesListener(project, myDirtyFiles::add));
+        connection.subscribe(DumbService.DUMB_MODE, new DumbService.DumbModeListener() {
+            @Override
+            public void exitDumbMode() {
+                myFullRebuildNeeded = true;
+            }
+        });
+    }
+
+    public static @NotNull IncludeDependencyService getInstance(@NotNull Project project) {
+        return project.getService(IncludeDependencyService.class);
+    }
+
+    private void markDirty(@Nullable PsiFile file) {
+        VirtualFile virtualFile = file instanceof FileBase ? file.getVirtualFile() : null;
+        if (virtualFile != null) {
+            myDirtyFiles.add(virtualFile);
+        }
+    }
+
+    /**
+     * @return for an included path (ie: A.B), the qualified paths of the modules that include it
+     */
+    public @NotNull Map<String, Set<String[]>> getDependencies() {
+        myRequestCount.incrementAndGet();
+
+        State state = myState.get();
+        if (state != null && !myFullRebuildNeeded && myDirtyFiles.isEmpty()) {
+            myHitCount.incrementAndGet();
+            return state.myDependencies;
+        }
+
+        // computed without a lock: a concurrent request may compute the same state.
+        // changes that happen during the computation will be processed at next request
+        long start = System.nanoTime();
+        boolean fullRebuild = state == null || myFullRebuildNeeded;
+        myFullRebuildNeeded = false;
+        List<VirtualFile> dirtyFiles = new ArrayList<>(myDirtyFiles);
+        myDirtyFiles.removeAll(dirtyFiles);
+
+        State newState;
+        try {
+            newState = fullRebuild ? rebuildAll() : updateDirtyFiles(state, dirtyFiles);
+        } catch (RuntimeException e) {
+            // cancelled or index not ready
+            myDirtyFiles.addAll(dirtyFiles);
+            if (fullRebuild) {
+                myFullRebuildNeeded = true;
+            }
+            throw e;
+        }
+
+        if (newState == state) {
+            myHitCount.incrementAndGet();
+            return state.myDependencies;
+        }
+
+        if (!myState.compareAndSet(state, newState)) {
+            // another request has published its state first: it is adopted, and the files seen by this request
+            // are read again at the next one. A rebuild after a reindex can't be merged, it is done again
+            myDirtyFiles.addAll(dirtyFiles);
+            if (fullRebuild && state != null) {
+                myFullRebuildNeeded = true;
+            }
+            return myState.get().myDependencies;
+        }
+
+        long time = System.nanoTime() - start;
+        if (fullRebuild) {
+            myFullRebuildCount.incrementAndGet();
+            myFullRebuildTime.addAndGet(time);
+        } else {
+            myIncrementalRebuildCount.incrementAndGet();
+            myIncrementalRebuildTime.addAndGet(time);
+        }
+        if (LOG.isDebugEnabled()) {
+            LOG.debug((fullRebuild ? "Full" : "Incremental") + " rebuild in " + time / 1_000 + "µs, " + getStatistics());
+        }
+
+        return newState.myDependencies;
+    }
+
+    private @NotNull State rebuildAll() {
+        FileBasedIndex fileIndex = FileBasedIndex.getInstance();
+        GlobalSearchScope scope = GlobalSearchScope.allScope(myProject);
+
+        Map<VirtualFile, Map<String, List<String[]>>> includesPerFile = new HashMap<>();
+        Collection<String> keys = fileIndex.getAllKeys(IncludeDependencyIndex.NAME, myProject);
+        for (String key : keys) {
+            fileIndex.processValues(IncludeDependencyIndex.NAME, key, null, (file, value) -> {
+                includesPerFile.computeIfAbsent(file, k -> new HashMap<>()).put(key, value);
+                return true;
+            }, scope);
+        }
+
+        return new State(includesPerFile);
+    }
+
+    private @NotNull State updateDirtyFiles(@NotNull State state, @NotNull List<VirtualFile> dirtyFiles) {
+        FileBasedIndex fileIndex = FileBasedIndex.getInstance();
+
+        Map<VirtualFile, Map<String, List<String[]>>> includesPerFile = null;
+        for (VirtualFile dirtyFile : dirtyFiles) {
+            Map<String, List<String[]>> newIncludes = dirtyFile.isValid() ? fileIndex.getFileData(IncludeDependencyIndex.NAME, dirtyFile, myProject) : Collections.emptyMap();
+            Map<String, List<String[]>> oldIncludes = state.myIncludesPerFile.get(dirtyFile);
+            if (!sameIncludes(oldIncludes, newIncludes)) {
+                if (includesPerFile == null) {
+                    includesPerFile = new HashMap<>(state.myIncludesPerFile);
+                }
+                if (newIncludes.isEmpty()) {
+                    includesPerFile.remove(dirtyFile);
+                } else {
+                    includesPerFile.put(dirtyFile, newIncludes);
+                }
+            }
+        }
+
+        return includesPerFile == null ? state : new State(includesPerFile);
+    }
+
+    private static boolean sameIncludes(@Nullable Map<String, List<String[]>> oldIncludes, @NotNull Map<String, List<String[]>> newIncludes) {
+        if (oldIncludes == null) {
+            return newIncludes.isEmpty();
+        }
+        if (!oldIncludes.keySet().equals(newIncludes.keySet())) {
+            return false;
+        }
+
+        for (Map.Entry<String, List<String[]>> entry : newIncludes.entrySet()) {
+            List<String[]> oldPaths = oldIncludes.get(entry.getKey());
+            List<String[]> newPaths = entry.getValue();
+            if (oldPaths.size() != newPaths.size()) {
+                return false;
+            }
+            for (int i = 0; i < newPaths.size(); i++) {
+                if (!Arrays.equals(oldPaths.get(i), newPaths.get(i))) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    static @NotNull Map<String, Set<String[]>> computeDependencies(@NotNull Map<VirtualFile, Map<String, List<String[]>>> includesPerFile) {
+        Map<String, Set<Pair<String, String[]>>> topIncludedModules = new HashMap<>();
+        Map<String, Set<String[]>> dependencies = new HashMap<>();
+
+        for (Map<String, List<String[]>> fileIncludes : includesPerFile.values()) {
+            for (Map.Entry<String, List<String[]>> entry : fileIncludes.entrySet()) {
+                String includePath = entry.getKey();
+                String[] resolvedPath = includePath.split("\\.");
+                for (String[] includeQPath : entry.getValue()) {
+                    if (Arrays.equals(resolvedPath, includeQPath)) {
+                        // !? coq ?
+                        LOG.info("Equality with recursion found: [" + Joiner.join(".", includeQPath) + "]");
+                        continue;
+                    }
+
+                    Set<String[]> depPaths = dependencies.computeIfAbsent(includePath, k -> new TreeSet<>(ArrayUtil::lexicographicCompare));
+                    depPaths.add(includeQPath);
+
+                    String includeModuleName = includeQPath[0];
+
+                    Set<Pair<String, String[]>> alternatePaths = topIncludedModules.get(resolvedPath[0]);
+                    if (alternatePaths != null) {
+                        for (Pair<String, String[]> alternatePath : alternatePaths) {
+                            String alternateKey = alternatePath.first;
+                            Set<String[]> alternateDependencies = dependencies.get(alternateKey);
+                            String[] newPath = new String[alternatePath.second.length];
+                            System.arraycopy(alternatePath.second, 0, newPath, 0, alternatePath.second.length);
+                            newPath[0] = includeModuleName;
+                            alternateDependencies.add(newPath);
+                        }
+                    }
+
+                    Set<Pair<String, String[]>> topIncludes = topIncludedModules.computeIfAbsent(includeModuleName, k -> new TreeSet<>((o1, o2) -> {
+                        int compare = NaturalComparator.INSTANCE.compare(o1.first, o2.first);
+                        if (compare != 0) {
+                            return compare;
+                        }
+
+                        return ArrayUtil.lexicographicCompare(o1.second, o2.second);
+                    }));
+                    topIncludes.add(Pair.create(includePath, includeQPath));
+                }
+            }
+        }
+
+        return dependencies;
+    }
+
+    public long getRequestCount() {
+        return myRequestCount.get();
+    }
+
+    public long getHitCount() {
+        return myHitCount.get();
+    }
+
+    public long getFullRebuildCount() {
+        return myFullRebuildCount.get();
+    }
+
+    public long getFullRebuildTimeMs() {
+        return myFullRebuildTime.get() / 1_000_000;
+    }
+
+    public long getIncrementalRebuildCount() {
+        return myIncrementalRebuildCount.get();
+    }
+
+    public long getIncrementalRebuildTimeMs() {
+        return myIncrementalRebuildTime.get() / 1_000_000;
+    }
+
+    public @NotNull String getStatistics() {
+        long requestCount = myRequestCount.get();
+        long hitCount = myHitCount.get();
+        long hitRate = requestCount == 0 ? 0 : hitCount * 100 / requestCount;
+        State state = myState.get();
+        return "requests=" + requestCount + ", hits=" + hitCount + " (" + hitRate + "%)"
+                + ", full rebuilds=" + myFullRebuildCount + " (" + getFullRebuildTimeMs() + "ms)"
+                + ", incremental rebuilds=" + myIncrementalRebuildCount + " (" + getIncrementalRebuildTimeMs() + "ms)"
+                + ", files=" + (state == null ? 0 : state.myIncludesPerFile.size());
+    }
+
+    @Override
+    public void dispose() {
+    }
+
+    // immutable, published with a compare-and-set
+    private static final class State {
+        final Map<VirtualFile, Map<String, List<String[]>>> myIncludesPerFile;
+        final Map<String, Set<String[]>> myDependencies;
+
+        State(@NotNull Map<VirtualFile, Map<String, List<String[]>>> includesPerFile) {
+            myIncludesPerFile = includesPerFile;
+            myDependencies = Collections.unmodifiableMap(computeDependencies(includesPerFile));
+        }
+    }
+}
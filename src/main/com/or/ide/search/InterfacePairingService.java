@@ -0,0 +1,261 @@
+package com.or.ide.search;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.*;
+import com.intellij.psi.impl.source.PsiFileImpl;
+import com.intellij.psi.impl.source.StubbedSpine;
+import com.intellij.psi.search.FilenameIndex;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.stubs.StubElement;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.ocaml.ide.files.OCamlFileType;
+import com.ocaml.ide.files.OCamlInterfaceFileType;
+import com.or.ide.files.FileBase;
+import com.or.lang.core.ORUtil;
+import com.or.lang.core.psi.*;
+import com.or.lang.core.psi.impl.PsiDeconstruction;
+import com.or.lang.core.stub.*;
+import com.or.utils.Joiner;
+import com.or.utils.Log;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The pairing of the declarations of an implementation (.ml) with the declarations of its interface (.mli).
+ * <p>
+ * The declarations of a file are read once from its stubs: for each kind and qualified name, the position of the
+ * (last) declaration in the stub tree. Finding the counterpart of a declaration is then a lookup in the declarations
+ * of the related file, and the psi element is taken from its stubs.
+ * <p>
+ * The declarations are cached on the psi file, they are read again after a change of the file.
+ * They are computed without a lock: concurrent requests may compute the same declarations.
+ */
+public class InterfacePairingService {
+    private static final Log LOG = Log.create("search.pairing");
+
+    public enum Kind {
+        VALUE("v", "method"), TYPE("t", "type"), CLASS("c", "class"), MODULE("m", "module"), EXCEPTION("e", "exception");
+
+        private final String myPrefix;
+        private final String myLabel;
+
+        Kind(@NotNull String prefix, @NotNull String label) {
+            myPrefix = prefix;
+            myLabel = label;
+        }
+
+        public @NotNull String getLabel() {
+            return myLabel;
+        }
+
+        @NotNull String key(@NotNull String qName) {
+            return myPrefix + ":" + qName;
+        }
+    }
+
+    private final Project myProject;
+
+    // statistics
+    private final AtomicLong myRequestCount = new AtomicLong();
+    private final AtomicLong myComputeCount = new AtomicLong();
+
+    public InterfacePairingService(@NotNull Project project) {
+        myProject = project;
+    }
+
+    public static @NotNull InterfacePairingService getInstance(@NotNull Project project) {
+        return project.getService(InterfacePairingService.class);
+    }
+
+    /**
+     * @return the kind of declaration of a psi element, or null if the element can't be paired
+     */
+    public static @Nullable Kind getKind(@Nullable PsiElement element) {
+        if (element instanceof PsiLet || element instanceof PsiVal || element instanceof PsiExternal) {
+            return Kind.VALUE;
+        }
+        if (element instanceof PsiType) {
+            return Kind.TYPE;
+        }
+        if (element instanceof PsiKlass) {
+            return Kind.CLASS;
+        }
+        if (element instanceof PsiInnerModule) {
+            return Kind.MODULE;
+        }
+        if (element instanceof PsiException) {
+            return Kind.EXCEPTION;
+        }
+        return null;
+    }
+
+    /**
+     * @param element a declaration, or the identifier of a declaration
+     * @return the declaration (the let of a deconstructed name), or null if the element can't be paired
+     */
+    private static @Nullable PsiElement getDeclaration(@NotNull PsiElement element) {
+        if (getKind(element) != null) {
+            return element;
+        }
+        PsiElement parent = element.getParent();
+        if (parent instanceof PsiDeconstruction) {
+            parent = parent.getParent();
+        }
+        return getKind(parent) != null ? parent : null;
+    }
+
+    private static @Nullable String getQualifiedName(@NotNull PsiElement element, @NotNull PsiElement declaration) {
+        return element.getParent() instanceof PsiDeconstruction
+                ? Joiner.join(".", ORUtil.getQualifiedPath(declaration)) + "." + element.getText()
+                : ((PsiQualifiedNamedElement) declaration).getQualifiedName();
+    }
+
+    /**
+     * @param element a declaration, or the identifier of a declaration
+     * @return the same declaration in the related file: the interface of an implementation or the implementation of an interface
+     */
+    public @Nullable PsiElement findRelated(@NotNull PsiElement element, @NotNull GlobalSearchScope scope) {
+        PsiFile file = element.getContainingFile();
+        return file instanceof FileBase ? findRelated((FileBase) file, Collections.singletonList(element), scope).get(element) : null;
+    }
+
+    /**
+     * The related declarations of many elements of a file: the related file and its declarations are found once,
+     * and each distinct declaration is looked up once.
+     *
+     * @param elements declarations, or identifiers of declarations, of the file (other elements are ignored)
+     * @return the related declaration of each element that has one
+     */
+    public @NotNull Map<PsiElement, PsiElement> findRelated(@NotNull FileBase file, @NotNull Collection<? extends PsiElement> elements, @NotNull GlobalSearchScope scope) {
+        FileBase relatedFile = findRelatedFile(file, scope);
+        if (relatedFile == null) {
+            return Collections.emptyMap();
+        }
+
+        Map<String, Integer> declarations = getDeclarations(relatedFile);
+        StubbedSpine spine = ((PsiFileImpl) relatedFile).getStubbedSpine();
+
+        Map<String, PsiElement> relatedByKey = new HashMap<>();
+        Map<PsiElement, PsiElement> result = new HashMap<>();
+        for (PsiElement element : elements) {
+            PsiElement declaration = getDeclaration(element);
+            Kind kind = getKind(declaration);
+            String qName = kind == null ? null : getQualifiedName(element, declaration);
+            if (qName == null) {
+                continue;
+            }
+
+            String key = kind.key(qName);
+            PsiElement related;
+            if (relatedByKey.containsKey(key)) {
+                related = relatedByKey.get(key);
+            } else {
+                Integer stubIndex = declarations.get(key);
+                related = stubIndex != null && stubIndex < spine.getStubCount() ? spine.getStubPsi(stubIndex) : null;
+                if (getKind(related) != kind) {
+                    related = null;
+                }
+                relatedByKey.put(key, related);
+            }
+
+            if (related != null) {
+                result.put(element, related);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * @param element a resolved element: a file, a declaration or the identifier of a declaration
+     * @return the element itself if it is in an interface, its declaration in the interface, or null if there is none
+     */
+    public @Nullable PsiElement findInterface(@NotNull PsiElement element) {
+        PsiFile file = element.getContainingFile();
+        if (!(file instanceof FileBase)) {
+            return null;
+        }
+        if (((FileBase) file).isInterface()) {
+            return element;
+        }
+
+        GlobalSearchScope scope = DependencyScopeService.getScope(file);
+        if (element instanceof FileBase) {
+            return findRelatedFile((FileBase) element, scope);
+        }
+        return findRelated(element, scope);
+    }
+
+    /**
+     * @return the interface of an implementation, or the implementation of an interface: the file with the same name,
+     * in the same directory if it exists
+     */
+    public @Nullable FileBase findRelatedFile(@NotNull FileBase file, @NotNull GlobalSearchScope scope) {
+        VirtualFile virtualFile = file.getVirtualFile();
+        if (virtualFile == null) {
+            return null;
+        }
+
+        String relatedExtension = file.isInterface() ? OCamlFileType.INSTANCE.getDefaultExtension() : OCamlInterfaceFileType.INSTANCE.getDefaultExtension();
+        String relatedName = virtualFile.getNameWithoutExtension() + "." + relatedExtension;
+
+        VirtualFile parent = virtualFile.getParent();
+        VirtualFile relatedFile = parent == null ? null : parent.findChild(relatedName);
+        if (relatedFile == null) {
+            Iterator<VirtualFile> candidates = FilenameIndex.getVirtualFilesByName(myProject, relatedName, scope).iterator();
+            relatedFile = candidates.hasNext() ? candidates.next() : null;
+        }
+
+        PsiFile relatedPsiFile = relatedFile == null ? null : PsiManager.getInstance(myProject).findFile(relatedFile);
+        return relatedPsiFile instanceof FileBase ? (FileBase) relatedPsiFile : null;
+    }
+
+    private @NotNull Map<String, Integer> getDeclarations(@NotNull FileBase file) {
+        myRequestCount.incrementAndGet();
+        return CachedValuesManager.getCachedValue(file, () -> {
+            long start = System.nanoTime();
+            Map<String, Integer> declarations = computeDeclarations(file);
+            myComputeCount.incrementAndGet();
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Declarations of " + file.getName() + " computed in " + (System.nanoTime() - start) / 1_000 + "µs, " + getStatistics());
+            }
+            return CachedValueProvider.Result.create(declarations, file);
+        });
+    }
+
+    // A declaration that is shadowed by a later one in the same module is not visible from outside
+    static @NotNull Map<String, Integer> computeDeclarations(@NotNull FileBase file) {
+        Map<String, Integer> declarations = new HashMap<>();
+
+        List<StubElement<?>> stubs = ((PsiFileImpl) file).calcStubTree().getPlainList();
+        for (int i = 0; i < stubs.size(); i++) {
+            StubElement<?> stub = stubs.get(i);
+            if (stub instanceof PsiLetStub) {
+                for (String qName : ((PsiLetStub) stub).getQualifiedNames()) {
+                    declarations.put(Kind.VALUE.key(qName), i);
+                }
+            } else if (stub instanceof PsiValStub || stub instanceof PsiExternalStub) {
+                declarations.put(Kind.VALUE.key(((PsiQualifiedNameStub<?>) stub).getQualifiedName()), i);
+            } else if (stub instanceof PsiTypeStub) {
+                declarations.put(Kind.TYPE.key(((PsiTypeStub) stub).getQualifiedName()), i);
+            } else if (stub instanceof PsiKlassStub) {
+                declarations.put(Kind.CLASS.key(((PsiKlassStub) stub).getQualifiedName()), i);
+            } else if (stub instanceof PsiModuleStub) {
+                declarations.put(Kind.MODULE.key(((PsiModuleStub) stub).getQualifiedName()), i);
+            } else if (stub instanceof PsiExceptionStub) {
+                declarations.put(Kind.EXCEPTION.key(((PsiExceptionStub) stub).getQualifiedName()), i);
+            }
+        }
+
+        return declarations;
+    }
+
+    public @NotNull String getStatistics() {
+        return "requests=" + myRequestCount + ", computations=" + myComputeCount;
+    }
+}
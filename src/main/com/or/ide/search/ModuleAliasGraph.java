@@ -0,0 +1,356 @@
+package com.or.ide.search;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
+import com.intellij.psi.PsiTreeChangeAdapter;
+import com.intellij.psi.PsiTreeChangeEvent;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.stubs.StubElement;
+import com.intellij.psi.stubs.StubIndex;
+import com.intellij.psi.stubs.StubTree;
+import com.intellij.util.ArrayUtil;
+import com.intellij.util.messages.MessageBusConnection;
+import com.or.ide.files.FileBase;
+import com.or.ide.search.index.IndexKeys;
+import com.or.lang.core.psi.PsiModule;
+import com.or.lang.core.stub.PsiModuleStub;
+import com.or.utils.Joiner;
+import com.or.utils.Log;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The module aliases of the project (module M = N), with their transitive closure: for a module qualified name,
+ * the chains of aliases that lead to a module that is not an alias.
+ * <p>
+ * The aliases are read from the stubs of the modules ({@link IndexKeys#MODULES_ALIASES}) and kept per file. Like the
+ * {@link IncludeDependencyService}, a psi or a vfs change only marks the file as dirty, and the closure
+ * is recomputed (in memory) at the next request only if an alias has changed.
+ * The closure is computed without a lock and published as an immutable state.
+ * A cycle of aliases (M = N, N = M) is cut where it is found.
+ */
+public class ModuleAliasGraph implements Disposable {
+    private static final Log LOG = Log.create("index.aliases");
+    private static final String[][] NO_CHAINS = new String[0][];
+
+    private final Project myProject;
+    private final AtomicReference<State> myState = new AtomicReference<>();
+    // Dirty state is updated from the listeners without waiting for a running rebuild
+    private final Set<VirtualFile> myDirtyFiles = ConcurrentHashMap.newKeySet();
+    private volatile boolean myFullRebuildNeeded = true;
+
+    // statistics
+    private final AtomicLong myRequestCount = new AtomicLong();
+    private final AtomicLong myRebuildCount = new AtomicLong();
+
+    public ModuleAliasGraph(@NotNull Project project) {
+        myProject = project;
+
+        PsiManager.getInstance(project).addPsiTreeChangeListener(new PsiTreeChangeAdapter() {
+            @Override
+            public void childrenChanged(@NotNull PsiTreeChangeEvent event) {
+                markDirty(event.getFile());
+            }
+
+            @Override
+            public void childAdded(@NotNull PsiTreeChangeEvent event) {
+                markDirty(event.getFile());
+            }
+
+            @Override
+            public void childRemoved(@NotNull PsiTreeChangeEvent event) {
+                markDirty(event.getFile());
+            }
+
+            @Override
+            public void childReplaced(@NotNull PsiTreeChangeEvent event) {
+                markDirty(event.getFile());
+            }
+
+            @Override
+            public void childMoved(@NotNull PsiTreeChangeEvent event) {
+                markDirty(event.getFile());
+            }
+        }, this);
+
+        MessageBusConnection connection = project.getMessageBus().connect(this);
+        connection.subscribe(VirtualFileManager.VFS_CHANGES, new ProjectFilesListener(project, myDirtyFiles::add));
+        connection.subscribe(DumbService.DUMB_MODE, new DumbService.DumbModeListener() {
+            @Override
+            public void exitDumbMode() {
+                myFullRebuildNeeded = true;
+            }
+        });
+    }
+
+    public static @NotNull ModuleAliasGraph getInstance(@NotNull Project project) {
+        return project.getService(ModuleAliasGraph.class);
+    }
+
+    private void markDirty(@Nullable PsiFile file) {
+        VirtualFile virtualFile = file instanceof FileBase ? file.getVirtualFile() : null;
+        if (virtualFile != null) {
+            myDirtyFiles.add(virtualFile);
+        }
+    }
+
+    /**
+     * @return the chains of aliases of a module (the module itself is not included), empty if the module is not an alias
+     */
+    public @NotNull String[][] getAliasChains(@NotNull String qName) {
+        String[][] chains = getGraph().myChains.get(qName);
+        return chains == null ? NO_CHAINS : chains;
+    }
+
+    /**
+     * @return the qualified name of the module at the end of the aliases, or null if the module is not an alias
+     */
+    public @Nullable String getCanonicalName(@NotNull String qName) {
+        String[][] chains = getGraph().myChains.get(qName);
+        if (chains == null || chains.length == 0) {
+            return null;
+        }
+        String[] chain = chains[0];
+        return chain[chain.length - 1];
+    }
+
+    /**
+     * @return the qualified paths of the modules that are an alias of a path starting with the module name
+     * (like {@link com.or.ide.search.index.ModuleAliasedIndex})
+     */
+    public @NotNull Collection<String[]> getAliasedBy(@NotNull String topModuleName) {
+        Collection<String[]> paths = getGraph().myAliasedBy.get(topModuleName);
+        return paths == null ? Collections.emptyList() : paths;
+    }
+
+    private @NotNull Graph getGraph() {
+        myRequestCount.incrementAndGet();
+
+        State state = myState.get();
+        if (state != null && !myFullRebuildNeeded && myDirtyFiles.isEmpty()) {
+            return state.myGraph;
+        }
+
+        // computed without a lock: a concurrent request may compute the same state.
+        // changes that happen during the computation will be processed at next request
+        long start = System.nanoTime();
+        boolean fullRebuild = state == null || myFullRebuildNeeded;
+        myFullRebuildNeeded = false;
+        List<VirtualFile> dirtyFiles = new ArrayList<>(myDirtyFiles);
+        myDirtyFiles.removeAll(dirtyFiles);
+
+        State newState;
+        try {
+            newState = fullRebuild ? rebuildAll() : updateDirtyFiles(state, dirtyFiles);
+        } catch (RuntimeException e) {
+            // cancelled or index not ready
+            myDirtyFiles.addAll(dirtyFiles);
+            if (fullRebuild) {
+                myFullRebuildNeeded = true;
+            }
+            throw e;
+        }
+
+        if (newState == state) {
+            return state.myGraph;
+        }
+
+        if (!myState.compareAndSet(state, newState)) {
+            // another request has published its state first: it is adopted, and the files seen by this request
+            // are read again at the next one. A rebuild after a reindex can't be merged, it is done again
+            myDirtyFiles.addAll(dirtyFiles);
+            if (fullRebuild && state != null) {
+                myFullRebuildNeeded = true;
+            }
+            return myState.get().myGraph;
+        }
+
+        myRebuildCount.incrementAndGet();
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Alias graph computed in " + (System.nanoTime() - start) / 1_000 + "µs, " + getStatistics());
+        }
+        return newState.myGraph;
+    }
+
+    private @NotNull State rebuildAll() {
+        GlobalSearchScope scope = GlobalSearchScope.allScope(myProject);
+
+        Map<VirtualFile, Map<String, String>> aliasesPerFile = new HashMap<>();
+        for (String qName : StubIndex.getInstance().getAllKeys(IndexKeys.MODULES_ALIASES, myProject)) {
+            for (PsiModule module : StubIndex.getElements(IndexKeys.MODULES_ALIASES, qName, myProject, scope, PsiModule.class)) {
+                // read from the stub
+                String alias = module.getAlias();
+                VirtualFile file = module.getContainingFile().getVirtualFile();
+                if (alias != null && file != null) {
+                    aliasesPerFile.computeIfAbsent(file, k -> new HashMap<>()).put(qName, alias);
+                }
+            }
+        }
+
+        return new State(aliasesPerFile);
+    }
+
+    private @NotNull State updateDirtyFiles(@NotNull State state, @NotNull List<VirtualFile> dirtyFiles) {
+        Map<VirtualFile, Map<String, String>> aliasesPerFile = null;
+        for (VirtualFile dirtyFile : dirtyFiles) {
+            Map<String, String> newAliases = getFileAliases(dirtyFile);
+            Map<String, String> oldAliases = state.myAliasesPerFile.get(dirtyFile);
+            if (!newAliases.equals(oldAliases == null ? Collections.emptyMap() : oldAliases)) {
+                if (aliasesPerFile == null) {
+                    aliasesPerFile = new HashMap<>(state.myAliasesPerFile);
+                }
+                if (newAliases.isEmpty()) {
+                    aliasesPerFile.remove(dirtyFile);
+                } else {
+                    aliasesPerFile.put(dirtyFile, newAliases);
+                }
+            }
+        }
+
+        return aliasesPerFile == null ? state : new State(aliasesPerFile);
+    }
+
+    // the stub tree is read from the stub index when the AST of the file is not loaded (getStubTree),
+    // otherwise it is built from the loaded AST
+    private @NotNull Map<String, String> getFileAliases(@NotNull VirtualFile file) {
+        PsiFile psiFile = file.isValid() ? PsiManager.getInstance(myProject).findFile(file) : null;
+        if (!(psiFile instanceof FileBase)) {
+            return Collections.emptyMap();
+        }
+
+        StubTree stubTree = ((FileBase) psiFile).getStubTree();
+        if (stubTree == null) {
+            stubTree = ((FileBase) psiFile).calcStubTree();
+        }
+
+        Map<String, String> aliases = new HashMap<>();
+        for (StubElement<?> stub : stubTree.getPlainList()) {
+            if (stub instanceof PsiModuleStub) {
+                String alias = ((PsiModuleStub) stub).getAlias();
+                if (alias != null) {
+                    aliases.put(((PsiModuleStub) stub).getQualifiedName(), alias);
+                }
+            }
+        }
+        return aliases;
+    }
+
+    static @NotNull Graph computeGraph(@NotNull Collection<Map<String, String>> aliasesPerFile) {
+        // the same module can be declared in an implementation and its interface
+        Map<String, Set<String>> edges = new HashMap<>();
+        Map<String, Map<String, String[]>> aliasedBy = new HashMap<>();
+        for (Map<String, String> fileAliases : aliasesPerFile) {
+            for (Map.Entry<String, String> entry : fileAliases.entrySet()) {
+                String qName = entry.getKey();
+                String alias = entry.getValue();
+                edges.computeIfAbsent(qName, k -> new LinkedHashSet<>()).add(alias);
+
+                int pos = alias.indexOf(".");
+                String topName = pos < 0 ? alias : alias.substring(0, pos);
+                aliasedBy.computeIfAbsent(topName, k -> new TreeMap<>()).put(qName, qName.split("\\."));
+            }
+        }
+
+        Map<String, String[][]> chains = new HashMap<>();
+        Set<String> visiting = new HashSet<>();
+        for (String qName : edges.keySet()) {
+            computeChains(qName, edges, chains, visiting);
+        }
+
+        Map<String, Collection<String[]>> aliasedByPaths = new HashMap<>();
+        for (Map.Entry<String, Map<String, String[]>> entry : aliasedBy.entrySet()) {
+            aliasedByPaths.put(entry.getKey(), Collections.unmodifiableCollection(entry.getValue().values()));
+        }
+
+        return new Graph(chains, aliasedByPaths);
+    }
+
+    // depth first, memoized: the chains of a module are computed once
+    private static @NotNull String[][] computeChains(@NotNull String qName, @NotNull Map<String, Set<String>> edges, @NotNull Map<String, String[][]> chains, @NotNull Set<String> visiting) {
+        String[][] result = chains.get(qName);
+        if (result != null) {
+            return result;
+        }
+
+        Set<String> aliases = edges.get(qName);
+        if (aliases == null) {
+            return NO_CHAINS;
+        }
+
+        visiting.add(qName);
+        List<String[]> moduleChains = new ArrayList<>();
+        for (String alias : aliases) {
+            if (visiting.contains(alias)) {
+                LOG.info("Cycle in module aliases: " + qName + " = " + alias);
+                continue;
+            }
+            String[][] aliasChains = computeChains(alias, edges, chains, visiting);
+            if (aliasChains.length == 0) {
+                moduleChains.add(new String[]{alias});
+            } else {
+                for (String[] aliasChain : aliasChains) {
+                    moduleChains.add(ArrayUtil.prepend(alias, aliasChain));
+                }
+            }
+        }
+        visiting.remove(qName);
+
+        result = moduleChains.toArray(NO_CHAINS);
+        chains.put(qName, result);
+        return result;
+    }
+
+    public @NotNull String getStatistics() {
+        State state = myState.get();
+        return "requests=" + myRequestCount + ", rebuilds=" + myRebuildCount + ", files=" + (state == null ? 0 : state.myAliasesPerFile.size())
+                + ", aliases=" + (state == null ? 0 : state.myGraph.myChains.size());
+    }
+
+    @Override
+    public void dispose() {
+    }
+
+    // immutable, published with a compare-and-set
+    private static final class State {
+        final Map<VirtualFile, Map<String, String>> myAliasesPerFile;
+        final Graph myGraph;
+
+        State(@NotNull Map<VirtualFile, Map<String, String>> aliasesPerFile) {
+            myAliasesPerFile = aliasesPerFile;
+            myGraph = computeGraph(aliasesPerFile.values());
+        }
+    }
+
+    static final class Graph {
+        final Map<String, String[][]> myChains;
+        final Map<String, Collection<String[]>> myAliasedBy;
+
+        Graph(@NotNull Map<String, String[][]> chains, @NotNull Map<String, Collection<String[]>> aliasedBy) {
+            myChains = chains;
+            myAliasedBy = aliasedBy;
+        }
+
+        @Override
+        public @NotNull String toString() {
+            StringBuilder sb = new StringBuilder();
+            for (Map.Entry<String, String[][]> entry : myChains.entrySet()) {
+                sb.append(entry.getKey()).append(" =");
+                for (String[] chain : entry.getValue()) {
+                    sb.append(" [").append(Joiner.join(" -> ", chain)).append("]");
+                }
+                sb.append("\n");
+            }
+            return sb.toString();
+        }
+    }
+}
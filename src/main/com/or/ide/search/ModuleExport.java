@@ -0,0 +1,77 @@
+package com.or.ide.search;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Objects;
+
+/**
+ * A member exported by a module, as stored in the export table of the module.
+ * An INCLUDE or an ALIAS is not a real member: its name is the qualified name of the module
+ * to include, and it is replaced by the members of that module when the table is read.
+ */
+public class ModuleExport {
+    public enum Kind {
+        MODULE, FUNCTOR, TYPE, VARIANT, LET, VAL, EXTERNAL, CLASS, EXCEPTION, INCLUDE, ALIAS
+    }
+
+    private final String m_name;
+    private final Kind m_kind;
+    private final String m_signature;
+    private final boolean m_isFunction;
+
+    public ModuleExport(@NotNull String name, @NotNull Kind kind, @NotNull String signature, boolean isFunction) {
+        m_name = name;
+        m_kind = kind;
+        m_signature = signature;
+        m_isFunction = isFunction;
+    }
+
+    @NotNull
+    public String getName() {
+        return m_name;
+    }
+
+    @NotNull
+    public Kind getKind() {
+        return m_kind;
+    }
+
+    @NotNull
+    public String getSignature() {
+        return m_signature;
+    }
+
+    public boolean isFunction() {
+        return m_isFunction;
+    }
+
+    public boolean isModuleReference() {
+        return m_kind == Kind.INCLUDE || m_kind == Kind.ALIAS;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        ModuleExport that = (ModuleExport) o;
+        return m_isFunction == that.m_isFunction
+                && m_name.equals(that.m_name)
+                && m_kind == that.m_kind
+                && m_signature.equals(that.m_signature);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(m_name, m_kind, m_signature, m_isFunction);
+    }
+
+    @NotNull
+    @Override
+    public String toString() {
+        return "ModuleExport{" + m_kind + " " + m_name + (m_signature.isEmpty() ? "" : ": " + m_signature) + '}';
+    }
+}
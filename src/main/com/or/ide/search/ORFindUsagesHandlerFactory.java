@@ -0,0 +1,55 @@
+package com.or.ide.search;
+
+import com.intellij.find.findUsages.FindUsagesHandler;
+import com.intellij.find.findUsages.FindUsagesHandlerFactory;
+import com.intellij.find.findUsages.FindUsagesOptions;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.usageView.UsageInfo;
+import com.intellij.util.Processor;
+import com.or.ide.files.FileBase;
+import com.or.lang.core.psi.impl.PsiLowerIdentifier;
+import com.or.lang.core.psi.impl.PsiUpperIdentifier;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The usages of an identifier are found with {@link ORUsagesSearcher} instead of the default references search.
+ */
+public class ORFindUsagesHandlerFactory extends FindUsagesHandlerFactory {
+    @Override
+    public boolean canFindUsages(@NotNull PsiElement element) {
+        return (element instanceof PsiUpperIdentifier || element instanceof PsiLowerIdentifier) && element.getContainingFile() instanceof FileBase;
+    }
+
+    @Override
+    public @Nullable FindUsagesHandler createFindUsagesHandler(@NotNull PsiElement element, boolean forHighlightUsages) {
+        // highlight usages is in the current file only, the default search is used
+        return forHighlightUsages ? null : new ORFindUsagesHandler(element);
+    }
+
+    static class ORFindUsagesHandler extends FindUsagesHandler {
+        ORFindUsagesHandler(@NotNull PsiElement element) {
+            super(element);
+        }
+
+        @Override
+        public boolean processElementUsages(@NotNull PsiElement element, @NotNull Processor<? super UsageInfo> processor, @NotNull FindUsagesOptions options) {
+            if (!(options.searchScope instanceof GlobalSearchScope)) {
+                return super.processElementUsages(element, processor, options);
+            }
+
+            if (options.isUsages) {
+                boolean completed = ORUsagesSearcher.processReferences(element, (GlobalSearchScope) options.searchScope, reference -> processor.process(new UsageInfo(reference)));
+                if (!completed) {
+                    return false;
+                }
+            }
+
+            // text occurrences
+            FindUsagesOptions textOptions = options.clone();
+            textOptions.isUsages = false;
+            return super.processElementUsages(element, processor, textOptions);
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.or.ide.search;
+
+import com.intellij.concurrency.JobLauncher;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.progress.EmptyProgressIndicator;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressIndicatorProvider;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.TextRange;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
+import com.intellij.psi.PsiNamedElement;
+import com.intellij.psi.PsiReference;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.search.PsiSearchHelper;
+import com.intellij.psi.search.UsageSearchContext;
+import com.intellij.util.Processor;
+import com.or.ide.files.FileBase;
+import com.or.lang.core.ORUtil;
+import com.or.lang.core.psi.reference.ORFileResolver;
+import com.or.utils.Log;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Find the references to an OCaml identifier.
+ * <ul>
+ *     <li>the candidate files are the files that contain the name in their code (words index),</li>
+ *     <li>a candidate file is kept only if it can reach the module of the identifier: it is the module itself,
+ *     or it contains the name of the module or of a module that includes or aliases it
+ *     (a qualified name, an open or an include are using that name),</li>
+ *     <li>the files are resolved in parallel, one non blocking read action per file (restarted after a write action),
+ *     and the references of a file are given to the processor as soon as the file is resolved.</li>
+ * </ul>
+ */
+public final class ORUsagesSearcher {
+    private static final Log LOG = Log.create("search.usages");
+    // modules opened by default, their names are not needed to reach them
+    private static final Set<String> OPENED_MODULES = Set.of("Stdlib", "Pervasives");
+    private static final int MAX_REACHABLE_MODULES = 1_000;
+
+    private ORUsagesSearcher() {
+    }
+
+    /**
+     * @return false if the processor has stopped the search
+     */
+    public static boolean processReferences(@NotNull PsiElement target, @NotNull GlobalSearchScope scope, @NotNull Processor<? super PsiReference> processor) {
+        long start = System.currentTimeMillis();
+
+        Project project = target.getProject();
+        String name = ReadAction.compute(() -> getName(target));
+        String moduleName = ReadAction.compute(() -> {
+            PsiFile file = target.getContainingFile();
+            return file instanceof FileBase ? ((FileBase) file).getModuleName() : null;
+        });
+        if (name == null || name.isEmpty()) {
+            return true;
+        }
+
+        PsiSearchHelper searchHelper = PsiSearchHelper.getInstance(project);
+        Set<VirtualFile> candidates = findFiles(searchHelper, scope, name);
+        int candidateCount = candidates.size();
+
+        if (moduleName != null && !OPENED_MODULES.contains(moduleName)) {
+            Set<VirtualFile> reachableFiles = new HashSet<>();
+            for (String reachableName : ReadAction.compute(() -> getReachableModuleNames(project, moduleName))) {
+                ProgressManager.checkCanceled();
+                reachableFiles.addAll(findFiles(searchHelper, scope, reachableName));
+            }
+            candidates.removeIf(file -> !reachableFiles.contains(file) && !moduleName.equals(ORUtil.fileNameToModuleName(file.getName())));
+        }
+
+        long endFilter = System.currentTimeMillis();
+
+        PsiManager psiManager = PsiManager.getInstance(project);
+        ProgressIndicator indicator = ProgressIndicatorProvider.getGlobalProgressIndicator();
+        boolean completed = JobLauncher.getInstance().invokeConcurrentlyUnderProgress(new ArrayList<>(candidates), indicator == null ? new EmptyProgressIndicator() : indicator,
+                file -> {
+                    List<PsiReference> references = computeReferences(() -> findReferences(psiManager.findFile(file), target, name));
+                    return ReadAction.compute(() -> processReferences(references, processor));
+                });
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Usages of " + name + " (" + moduleName + "): " + candidates.size() + "/" + candidateCount + " files, filter: "
+                    + (endFilter - start) + "ms, resolution: " + (System.currentTimeMillis() - endFilter) + "ms");
+        }
+
+        return completed;
+    }
+
+    private static @Nullable String getName(@NotNull PsiElement target) {
+        String name = target instanceof PsiNamedElement ? ((PsiNamedElement) target).getName() : null;
+        return name == null ? target.getText() : name;
+    }
+
+    private static @NotNull Set<VirtualFile> findFiles(@NotNull PsiSearchHelper searchHelper, @NotNull GlobalSearchScope scope, @NotNull String word) {
+        Set<VirtualFile> files = new HashSet<>();
+        ReadAction.run(() -> searchHelper.processCandidateFilesForText(scope, UsageSearchContext.IN_CODE, true, word, file -> {
+            files.add(file);
+            return true;
+        }));
+        return files;
+    }
+
+    /**
+     * The names of the modules that give access to a module: the module itself, the modules that include it
+     * and the modules that are an alias of it (transitively).
+     */
+    public static @NotNull Set<String> getReachableModuleNames(@NotNull Project project, @NotNull String moduleName) {
+        Map<String, Set<String[]>> includes = IncludeDependencyService.getInstance(project).getDependencies();
+        ModuleAliasGraph aliasGraph = ModuleAliasGraph.getInstance(project);
+
+        Set<String> result = new HashSet<>();
+        Deque<String> toVisit = new ArrayDeque<>();
+        toVisit.add(moduleName);
+        while (!toVisit.isEmpty() && result.size() < MAX_REACHABLE_MODULES) {
+            String name = toVisit.removeFirst();
+            if (!result.add(name)) {
+                continue;
+            }
+
+            for (Map.Entry<String, Set<String[]>> entry : includes.entrySet()) {
+                if (isInModule(entry.getKey(), name)) {
+                    for (String[] includerPath : entry.getValue()) {
+                        toVisit.add(includerPath[0]);
+                    }
+                }
+            }
+            for (String[] aliasPath : aliasGraph.getAliasedBy(name)) {
+                toVisit.add(aliasPath[0]);
+            }
+        }
+
+        return result;
+    }
+
+    private static boolean isInModule(@NotNull String qName, @NotNull String moduleName) {
+        return qName.startsWith(moduleName) && (qName.length() == moduleName.length() || qName.charAt(moduleName.length()) == '.');
+    }
+
+    // A write action cancels and restarts the resolution of a file, the references are given to the processor after it.
+    // A worker that already holds the read lock (the calling thread) can't start a non blocking read action.
+    private static @NotNull List<PsiReference> computeReferences(@NotNull Supplier<List<PsiReference>> finder) {
+        if (ApplicationManager.getApplication().isReadAccessAllowed()) {
+            return finder.get();
+        }
+        return ReadAction.nonBlocking(finder::get).executeSynchronously();
+    }
+
+    // The occurrences of the name are resolved together (see ORFileResolver)
+    private static @NotNull List<PsiReference> findReferences(@Nullable PsiFile file, @NotNull PsiElement target, @NotNull String name) {
+        if (!(file instanceof FileBase) || !target.isValid()) {
+            return Collections.emptyList();
+        }
+
+        List<PsiElement> occurrences = new ArrayList<>();
+        CharSequence text = file.getViewProvider().getContents();
+        int nameLength = name.length();
+        int offset = StringUtil.indexOf(text, name, 0);
+        while (0 <= offset) {
+            ProgressManager.checkCanceled();
+            int end = offset + nameLength;
+            if ((offset == 0 || !isIdentifierChar(text.charAt(offset - 1))) && (end == text.length() || !isIdentifierChar(text.charAt(end)))) {
+                PsiElement element = findReferenceElement(file, new TextRange(offset, end));
+                if (element != null) {
+                    occurrences.add(element);
+                }
+            }
+            offset = StringUtil.indexOf(text, name, end);
+        }
+
+        if (occurrences.isEmpty()) {
+            return Collections.emptyList();
+        }
+        ORFileResolver.prime(file, occurrences);
+
+        List<PsiReference> references = new ArrayList<>();
+        for (PsiElement occurrence : occurrences) {
+            ProgressManager.checkCanceled();
+            for (PsiReference reference : occurrence.getReferences()) {
+                if (reference.isReferenceTo(target)) {
+                    references.add(reference);
+                }
+            }
+        }
+
+        return references;
+    }
+
+    private static boolean processReferences(@NotNull List<PsiReference> references, @NotNull Processor<? super PsiReference> processor) {
+        for (PsiReference reference : references) {
+            if (reference.getElement().isValid() && !processor.process(reference)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static @Nullable PsiElement findReferenceElement(@NotNull PsiFile file, @NotNull TextRange range) {
+        PsiElement element = file.findElementAt(range.getStartOffset());
+        while (element != null && !(element instanceof PsiFile) && range.contains(element.getTextRange())) {
+            if (range.equals(element.getTextRange()) && element.getReference() != null) {
+                return element;
+            }
+            element = element.getParent();
+        }
+        return null;
+    }
+
+    private static boolean isIdentifierChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '\'';
+    }
+}
@@ -0,0 +1,30 @@
+package com.or.ide.search;
+
+import com.intellij.lang.cacheBuilder.DefaultWordsScanner;
+import com.intellij.psi.tree.TokenSet;
+import com.ocaml.lang.lexer.OCamlLexerAdapter;
+import com.or.lang.OCamlTypes;
+
+/**
+ * The words of an OCaml file in the id index, used to find the candidate files of a search.
+ * Module names, identifiers, variants and polymorphic variants are code words, comments and literals are separated
+ * (a search in code is not reading them). Literals are not scanned for file references.
+ */
+public class OclWordsScanner extends DefaultWordsScanner {
+    // the id index is rebuilt when the words of a file change
+    private static final int VERSION = 1;
+
+    private static final TokenSet IDENTIFIERS = TokenSet.create(OCamlTypes.UIDENT, OCamlTypes.LIDENT, OCamlTypes.VARIANT_NAME, OCamlTypes.POLY_VARIANT);
+    private static final TokenSet COMMENTS = TokenSet.create(OCamlTypes.SINGLE_COMMENT, OCamlTypes.MULTI_COMMENT, OCamlTypes.DOC_COMMENT);
+    private static final TokenSet LITERALS = TokenSet.create(OCamlTypes.FLOAT_VALUE, OCamlTypes.INT_VALUE, OCamlTypes.STRING_VALUE, OCamlTypes.CHAR_VALUE);
+
+    public OclWordsScanner() {
+        super(new OCamlLexerAdapter(), IDENTIFIERS, COMMENTS, LITERALS);
+        setMayHaveFileRefsInLiterals(false);
+    }
+
+    @Override
+    public int getVersion() {
+        return VERSION;
+    }
+}
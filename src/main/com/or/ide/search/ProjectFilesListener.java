@@ -0,0 +1,76 @@
+package com.or.ide.search;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ProjectFileIndex;
+import com.intellij.openapi.roots.ProjectRootManager;
+import com.intellij.openapi.vfs.VfsUtilCore;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileDeleteEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileMoveEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFilePropertyChangeEvent;
+import com.ocaml.ide.files.FileHelper;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Notify the ocaml files of the project content that are affected by vfs events: the file of the event, or the ocaml
+ * files of a directory. The files that are deleted, moved or renamed are notified before the event (when they are
+ * still valid), the others after it. Events outside the project content are ignored.
+ */
+class ProjectFilesListener implements BulkFileListener {
+    private final Project myProject;
+    private final Consumer<VirtualFile> myConsumer;
+
+    ProjectFilesListener(@NotNull Project project, @NotNull Consumer<VirtualFile> consumer) {
+        myProject = project;
+        myConsumer = consumer;
+    }
+
+    @Override
+    public void before(@NotNull List<? extends VFileEvent> events) {
+        for (VFileEvent event : events) {
+            if (event instanceof VFileDeleteEvent || event instanceof VFileMoveEvent || isRename(event)) {
+                processFile(event.getFile());
+            }
+        }
+    }
+
+    @Override
+    public void after(@NotNull List<? extends VFileEvent> events) {
+        for (VFileEvent event : events) {
+            if (!(event instanceof VFileDeleteEvent)) {
+                processFile(event.getFile());
+            }
+        }
+    }
+
+    private static boolean isRename(@NotNull VFileEvent event) {
+        return event instanceof VFilePropertyChangeEvent && ((VFilePropertyChangeEvent) event).isRename();
+    }
+
+    private void processFile(VirtualFile file) {
+        if (file == null || !file.isValid() || myProject.isDisposed()) {
+            return;
+        }
+
+        ProjectFileIndex fileIndex = ProjectRootManager.getInstance(myProject).getFileIndex();
+        if (!fileIndex.isInContent(file)) {
+            return;
+        }
+
+        if (file.isDirectory()) {
+            VfsUtilCore.iterateChildrenRecursively(file, fileIndex::isInContent, child -> {
+                if (!child.isDirectory() && FileHelper.isOCaml(child)) {
+                    myConsumer.accept(child);
+                }
+                return true;
+            });
+        } else if (FileHelper.isOCaml(file)) {
+            myConsumer.accept(file);
+        }
+    }
+}
@@ -1,12 +1,13 @@
 package com.or.ide.search;
 
+import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.project.Project;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.search.GlobalSearchScope;
-import com.intellij.psi.stubs.StubIndex;
-import com.intellij.util.CommonProcessors;
-import com.or.ide.search.index.IndexKeys;
+import com.intellij.util.containers.ContainerUtil;
+import com.ocaml.sdk.cmi.OCamlCmiService;
 import com.or.ide.search.index.ModuleFqnIndex;
+import com.or.ide.search.index.ModuleIndex;
 import com.or.lang.core.ORFileType;
 import com.or.lang.core.ORUtil;
 import com.or.lang.core.psi.PsiInnerModule;
@@ -15,13 +16,13 @@ import com.or.lang.core.psi.PsiQualifiedPathElement;
 import com.or.lang.core.psi.impl.PsiFunctorCall;
 import com.or.lang.utils.QNameFinder;
 import com.or.lang.utils.QNameFinderFactory;
+import com.or.lang.utils.QualifiedPathHelper;
 import com.or.utils.Joiner;
 import com.or.utils.Log;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
-import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 import static com.or.lang.core.ORFileType.*;
@@ -36,24 +37,24 @@ public final class PsiFinder {
 
     public @Nullable PsiQualifiedPathElement findModuleBack(@Nullable PsiElement root, @Nullable String path) {
         if (root != null && path != null) {
+            String[] segments = QualifiedPathHelper.split(path);
             PsiElement prev = ORUtil.prevSibling(root);
             PsiElement item = prev == null ? root.getParent() : prev;
-            while (item != null) {
+            while (item != null && segments.length > 0) {
+                ProgressManager.checkCanceled();
                 if (item instanceof PsiInnerModule) {
                     PsiInnerModule module = (PsiInnerModule) item;
                     String name = module.getModuleName();
                     String alias = module.getAlias();
-                    if (alias != null) {
+                    if (name != null && alias != null) {
                         // This is a local module alias, we'll need to replace it in final paths
-                        Pattern compile = Pattern.compile("(\\.?)(" + name + ")(\\.?)");
-                        String replace = "$1" + alias + "$3";
-                        path = compile.matcher(path).replaceFirst(replace);
-                    } else if (path.equals(name)) {
-                        return module;
-                    } else if (name != null && path.startsWith(name)) {
+                        segments = QualifiedPathHelper.replaceFirst(segments, name, QualifiedPathHelper.split(alias));
+                    } else if (name != null && name.equals(segments[0])) {
+                        if (segments.length == 1) {
+                            return module;
+                        }
                         // Follow module from top to bottom to find real module
-                        path = path.substring(name.length() + 1);
-                        return findModuleForward(module.getBody(), path);
+                        return findModuleForward(module.getBody(), QualifiedPathHelper.join(segments, 1));
                     }
                 }
                 prev = ORUtil.prevSibling(item);
@@ -69,6 +70,7 @@ public final class PsiFinder {
             PsiElement next = ORUtil.nextSibling(root);
             PsiElement item = next == null ? root.getFirstChild() : next;
             while (item != null) {
+                ProgressManager.checkCanceled();
                 if (item instanceof PsiInnerModule) {
                     PsiInnerModule module = (PsiInnerModule) item;
                     String name = module.getModuleName();
@@ -89,31 +91,7 @@ public final class PsiFinder {
     }
 
     public @NotNull Set<PsiModule> findModulesbyName(@NotNull String name, @NotNull ORFileType fileType) {
-        Set<PsiModule> result = new HashSet<>();
-
-        StubIndex.getInstance().processAllKeys(IndexKeys.MODULES,
-                myProject,
-                CommonProcessors.processAll(
-                        moduleName -> {
-                            if (name.equals(moduleName)) {
-                                PartitionedModules partitionedModules =
-                                        new PartitionedModules();
-
-                                if (fileType == interfaceOrImplementation
-                                        || fileType == both
-                                        || fileType == interfaceOnly) {
-                                    result.addAll(partitionedModules.getInterfaces());
-                                }
-
-                                if (fileType != interfaceOnly) {
-                                    if (fileType == both
-                                            || fileType == implementationOnly
-                                            || !partitionedModules.hasInterfaces()) {
-                                        result.addAll(partitionedModules.getImplementations());
-                                    }
-                                }
-                            }
-                        }));
+        Set<PsiModule> result = findModulesbyName(name, fileType, GlobalSearchScope.allScope(myProject));
 
         if (LOG.isTraceEnabled()) {
             LOG.trace(
@@ -129,6 +107,50 @@ public final class PsiFinder {
         return result;
     }
 
+    /**
+     * Find the modules of many names, with one exact key lookup per distinct name.
+     */
+    public @NotNull Map<String, Set<PsiModule>> findModulesbyNames(@NotNull Collection<String> names, @NotNull ORFileType fileType) {
+        Map<String, Set<PsiModule>> result = new HashMap<>();
+        GlobalSearchScope scope = GlobalSearchScope.allScope(myProject);
+
+        for (String name : names) {
+            ProgressManager.checkCanceled();
+            if (!result.containsKey(name)) {
+                result.put(name, findModulesbyName(name, fileType, scope));
+            }
+        }
+
+        return result;
+    }
+
+    private @NotNull Set<PsiModule> findModulesbyName(@NotNull String name, @NotNull ORFileType fileType, @NotNull GlobalSearchScope scope) {
+        Set<PsiModule> result = new HashSet<>();
+        List<PsiModule> modules = new ArrayList<>(ModuleIndex.getElements(name, myProject, scope));
+        // the modules of the libraries installed without their sources, their decompiled interfaces
+        modules.addAll(OCamlCmiService.getInstance().findElements(myProject, name, scope, PsiModule.class));
+        PartitionedModules partitionedModules = new PartitionedModules(modules);
+
+        if (fileType == interfaceOrImplementation
+                || fileType == both
+                || fileType == interfaceOnly) {
+            result.addAll(partitionedModules.getInterfaces());
+        }
+
+        if (fileType != interfaceOnly) {
+            if (fileType == both
+                    || fileType == implementationOnly
+                    || !partitionedModules.hasInterfaces()) {
+                result.addAll(partitionedModules.getImplementations());
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * @return the modules at the end of the aliases of the module (the last existing module of each chain of aliases)
+     */
     @NotNull
     public Set<PsiModule> findModuleAlias(@Nullable String qname) {
         if (qname == null) {
@@ -138,20 +160,12 @@ public final class PsiFinder {
         Set<PsiModule> result = new HashSet<>();
 
         GlobalSearchScope scope = GlobalSearchScope.allScope(myProject);
-        Collection<PsiModule> psiModules = ModuleFqnIndex.getElements(qname, myProject, scope);
-        for (PsiModule module : psiModules) {
-            String alias = module.getAlias();
-            if (alias != null) {
-                Collection<PsiModule> aliasModules = ModuleFqnIndex.getElements(alias, myProject, scope);
+        for (String[] chain : ModuleAliasGraph.getInstance(myProject).getAliasChains(qname)) {
+            for (int i = chain.length - 1; 0 <= i; i--) {
+                Collection<PsiModule> aliasModules = ModuleFqnIndex.getElements(chain[i], myProject, scope);
                 if (!aliasModules.isEmpty()) {
-                    for (PsiModule aliasModule : aliasModules) {
-                        Set<PsiModule> nextModuleAlias = findModuleAlias(aliasModule.getQualifiedName());
-                        if (nextModuleAlias.isEmpty()) {
-                            result.add(aliasModule);
-                        } else {
-                            result.addAll(nextModuleAlias);
-                        }
-                    }
+                    result.addAll(aliasModules);
+                    break;
                 }
             }
         }
@@ -170,6 +184,11 @@ public final class PsiFinder {
 
         // Try qn directly
         Collection<PsiModule> modules = ModuleFqnIndex.getElements(qname, myProject, scope);
+        if (modules.isEmpty()) {
+            // Maybe a module of a library installed without its sources
+            String name = qname.substring(qname.lastIndexOf('.') + 1);
+            modules = ContainerUtil.filter(OCamlCmiService.getInstance().findElements(myProject, name, scope, PsiModule.class), module -> qname.equals(module.getQualifiedName()));
+        }
 
         if (modules.isEmpty()) {
             // Qn not working, maybe because of aliases... try to navigate to each module
@@ -206,6 +225,7 @@ public final class PsiFinder {
         } else {
             // Qn returned something
             for (PsiModule module : modules) {
+                ProgressManager.checkCanceled();
                 String alias = resolveAlias ? module.getAlias() : null;
                 if (alias == null) {
                     // It's not an alias, but maybe it's a functor call that we must resolve if asked
@@ -217,6 +237,7 @@ public final class PsiFinder {
                         QNameFinder qnameFinder = QNameFinderFactory.getQNameFinder();
                         Set<String> potentialPaths = qnameFinder.extractPotentialPaths(functorCall);
                         for (String path : potentialPaths) {
+                            ProgressManager.checkCanceled();
                             modulesFromFunctor =
                                     findModulesFromQn(path + "." + functorName, true, fileType);
                         }
@@ -245,7 +266,14 @@ public final class PsiFinder {
         private final List<PsiModule> m_interfaces = new ArrayList<>();
         private final List<PsiModule> m_implementations = new ArrayList<>();
 
-        PartitionedModules() {
+        PartitionedModules(@NotNull Collection<PsiModule> modules) {
+            for (PsiModule module : modules) {
+                if (module.isInterface()) {
+                    m_interfaces.add(module);
+                } else {
+                    m_implementations.add(module);
+                }
+            }
         }
 
         public boolean hasInterfaces() {
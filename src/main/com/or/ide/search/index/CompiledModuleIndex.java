@@ -0,0 +1,73 @@
+package com.or.ide.search.index;
+
+import com.intellij.util.indexing.*;
+import com.intellij.util.io.EnumeratorStringDescriptor;
+import com.intellij.util.io.KeyDescriptor;
+import com.ocaml.sdk.cmi.OCamlCmiReader;
+import com.or.utils.Log;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.Collections;
+
+/**
+ * The compiled interfaces (.cmi and .cmti) keyed by the name of their module, used for the
+ * libraries that are installed without their sources. Only the name of the module is read when indexing,
+ * the signature is decoded when needed by {@link com.ocaml.sdk.cmi.OCamlCmiService}.
+ */
+public class CompiledModuleIndex extends ScalarIndexExtension<String> {
+
+    public static final ID<String, Void> NAME = ID.create("reason.module.compiled");
+    private static final int VERSION = 1;
+    private static final Log LOG = Log.create("index.compiled");
+
+    public static final String CMI_EXTENSION = "cmi";
+    public static final String CMTI_EXTENSION = "cmti";
+
+    @NotNull
+    @Override
+    public ID<String, Void> getName() {
+        return NAME;
+    }
+
+    @NotNull
+    @Override
+    public DataIndexer<String, Void, FileContent> getIndexer() {
+        return inputData -> {
+            try {
+                String moduleName = OCamlCmiReader.readModuleName(inputData.getContent());
+                if (moduleName != null) {
+                    return Collections.singletonMap(moduleName, null);
+                }
+            } catch (IOException e) {
+                LOG.debug("Can't read the module name of " + inputData.getFile().getPath() + ": " + e.getMessage());
+            }
+            return Collections.<String, Void>emptyMap();
+        };
+    }
+
+    @NotNull
+    @Override
+    public KeyDescriptor<String> getKeyDescriptor() {
+        return EnumeratorStringDescriptor.INSTANCE;
+    }
+
+    @NotNull
+    @Override
+    public FileBasedIndex.InputFilter getInputFilter() {
+        return file -> {
+            String extension = file.getExtension();
+            return CMI_EXTENSION.equals(extension) || CMTI_EXTENSION.equals(extension);
+        };
+    }
+
+    @Override
+    public boolean dependsOnFileContent() {
+        return true;
+    }
+
+    @Override
+    public int getVersion() {
+        return VERSION;
+    }
+}
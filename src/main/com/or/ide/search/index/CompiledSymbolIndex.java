@@ -0,0 +1,84 @@
+package com.or.ide.search.index;
+
+import com.intellij.util.indexing.*;
+import com.intellij.util.io.EnumeratorStringDescriptor;
+import com.intellij.util.io.KeyDescriptor;
+import com.ocaml.sdk.cmi.OCamlCmiReader;
+import com.or.ide.search.ModuleExport;
+import com.or.utils.Log;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The compiled interfaces (.cmi and .cmti) keyed by the names they declare (the module itself, values, types,
+ * constructors, exceptions, modules and classes), at any depth. Used to resolve a symbol to the declarations
+ * of the libraries installed without their sources, see {@link com.ocaml.sdk.cmi.OCamlCmiService#findElements}.
+ * The signature is decoded when indexing.
+ */
+public class CompiledSymbolIndex extends ScalarIndexExtension<String> {
+
+    public static final ID<String, Void> NAME = ID.create("reason.module.compiled.symbols");
+    private static final int VERSION = 1;
+    private static final Log LOG = Log.create("index.compiled");
+
+    @NotNull
+    @Override
+    public ID<String, Void> getName() {
+        return NAME;
+    }
+
+    @NotNull
+    @Override
+    public DataIndexer<String, Void, FileContent> getIndexer() {
+        return inputData -> {
+            try {
+                OCamlCmiReader.CompiledInterface compiledInterface = OCamlCmiReader.read(inputData.getContent());
+                if (compiledInterface != null) {
+                    Map<String, Void> map = new HashMap<>();
+                    map.put(compiledInterface.getModuleName(), null);
+                    for (List<ModuleExport> exports : compiledInterface.getExports().values()) {
+                        for (ModuleExport export : exports) {
+                            if (export.getKind() != ModuleExport.Kind.ALIAS && export.getKind() != ModuleExport.Kind.INCLUDE) {
+                                map.put(export.getName(), null);
+                            }
+                        }
+                    }
+                    return map;
+                }
+            } catch (IOException e) {
+                LOG.debug("Can't read the signature of " + inputData.getFile().getPath() + ": " + e.getMessage());
+            }
+            return Collections.<String, Void>emptyMap();
+        };
+    }
+
+    @NotNull
+    @Override
+    public KeyDescriptor<String> getKeyDescriptor() {
+        return EnumeratorStringDescriptor.INSTANCE;
+    }
+
+    @NotNull
+    @Override
+    public FileBasedIndex.InputFilter getInputFilter() {
+        return file -> {
+            String extension = file.getExtension();
+            return CompiledModuleIndex.CMI_EXTENSION.equals(extension) || CompiledModuleIndex.CMTI_EXTENSION.equals(extension);
+        };
+    }
+
+    @Override
+    public boolean dependsOnFileContent() {
+        return true;
+    }
+
+    @Override
+    public int getVersion() {
+        return VERSION;
+    }
+}
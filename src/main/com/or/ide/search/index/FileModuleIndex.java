@@ -1,12 +1,17 @@
 package com.or.ide.search.index;
 
+import com.intellij.openapi.util.io.FileUtilRt;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.util.PathUtil;
 import com.intellij.util.indexing.*;
 import com.intellij.util.io.DataExternalizer;
 import com.intellij.util.io.EnumeratorStringDescriptor;
+import com.intellij.util.io.IOUtil;
 import com.intellij.util.io.KeyDescriptor;
 import com.ocaml.ide.files.FileHelper;
 import com.ocaml.ide.files.OCamlFileType;
 import com.ocaml.ide.files.OCamlInterfaceFileType;
+import com.ocaml.sdk.index.OCamlSdkIndexBundleService;
 import com.or.ide.files.FileBase;
 import com.or.ide.search.FileModuleData;
 import com.or.utils.Log;
@@ -21,8 +26,8 @@ import java.util.Map;
 
 public class FileModuleIndex extends FileBasedIndexExtension<String, FileModuleData> {
 
-    private static final ID<String, FileModuleData> NAME = ID.create("reason.module.fileIndex");
-    private static final int VERSION = 1;
+    public static final ID<String, FileModuleData> NAME = ID.create("reason.module.fileIndex");
+    private static final int VERSION = 2;
     private static final Log LOG = Log.create("index.file");
 
     private static final DataExternalizer<FileModuleData> EXTERNALIZER = new FileModuleDataExternalizer();
@@ -74,8 +79,13 @@ public class FileModuleIndex extends FileBasedIndexExtension<String, FileModuleD
     @NotNull
     @Override
     public FileBasedIndex.InputFilter getInputFilter() {
-        return new DefaultFileTypeSpecificInputFilter(
-                OCamlFileType.INSTANCE, OCamlInterfaceFileType.INSTANCE);
+        return new DefaultFileTypeSpecificInputFilter(OCamlFileType.INSTANCE, OCamlInterfaceFileType.INSTANCE) {
+            @Override
+            public boolean acceptInput(@NotNull VirtualFile file) {
+                // the SDK sources covered by a bundle are answered by the bundle
+                return !OCamlSdkIndexBundleService.getInstance().isCovered(file);
+            }
+        };
     }
 
     @Override
@@ -84,28 +94,29 @@ public class FileModuleIndex extends FileBasedIndexExtension<String, FileModuleD
     }
 
     static final class FileModuleDataExternalizer implements DataExternalizer<FileModuleData> {
+        private static final int IS_OCAML = 1;
+        private static final int IS_INTERFACE = 2;
+        private static final int IS_COMPONENT = 4;
+
+        // The fullname is not written, it is computed from the path and the namespace
         @Override
         public void save(@NotNull DataOutput out, @NotNull FileModuleData value) throws IOException {
-            out.writeBoolean(value.isOCaml());
-            out.writeBoolean(value.isInterface());
-            out.writeBoolean(value.isComponent());
-            out.writeUTF(value.getPath());
-            out.writeUTF(value.getNamespace());
-            out.writeUTF(value.getModuleName());
-            out.writeUTF(value.getFullname());
+            out.writeByte((value.isOCaml() ? IS_OCAML : 0) | (value.isInterface() ? IS_INTERFACE : 0) | (value.isComponent() ? IS_COMPONENT : 0));
+            IOUtil.writeUTF(out, value.getPath());
+            IOUtil.writeUTF(out, value.getNamespace());
+            IOUtil.writeUTF(out, value.getModuleName());
         }
 
         @NotNull
         @Override
         public FileModuleData read(@NotNull DataInput in) throws IOException {
-            boolean isOCaml = in.readBoolean();
-            boolean isInterface = in.readBoolean();
-            boolean isComponent = in.readBoolean();
-            String path = in.readUTF();
-            String namespace = in.readUTF();
-            String moduleName = in.readUTF();
-            String fullname = in.readUTF();
-            return new FileModuleData(path, fullname, namespace, moduleName, isOCaml, isInterface, isComponent);
+            byte flags = in.readByte();
+            String path = IOUtil.readUTF(in);
+            String namespace = IOUtil.readUTF(in);
+            String moduleName = IOUtil.readUTF(in);
+            String filename = FileUtilRt.getNameWithoutExtension(PathUtil.getFileName(path));
+            String fullname = namespace.isEmpty() ? filename : filename + "-" + namespace;
+            return new FileModuleData(path, fullname, namespace, moduleName, (flags & IS_OCAML) != 0, (flags & IS_INTERFACE) != 0, (flags & IS_COMPONENT) != 0);
         }
     }
 }
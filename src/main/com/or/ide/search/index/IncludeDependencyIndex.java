@@ -0,0 +1,109 @@
+package com.or.ide.search.index;
+
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.util.indexing.*;
+import com.intellij.util.io.DataExternalizer;
+import com.intellij.util.io.DataInputOutputUtil;
+import com.intellij.util.io.EnumeratorStringDescriptor;
+import com.intellij.util.io.KeyDescriptor;
+import com.ocaml.ide.files.OCamlFileType;
+import com.ocaml.ide.files.OCamlInterfaceFileType;
+import com.or.lang.core.psi.PsiInclude;
+import com.or.utils.Joiner;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * The include relationships of a file: the key is the resolved path of the included module,
+ * the value is the list of qualified paths of the modules that include it.
+ * The data of a single file can be read with {@link FileBasedIndex#getFileData}, that's what
+ * {@link com.or.ide.search.IncludeDependencyService} is using to update its dependencies incrementally.
+ */
+public class IncludeDependencyIndex extends FileBasedIndexExtension<String, List<String[]>> {
+
+    public static final ID<String, List<String[]>> NAME = ID.create("reason.include.dependencies");
+    private static final int VERSION = 1;
+
+    private static final DataExternalizer<List<String[]>> EXTERNALIZER = new PathsExternalizer();
+
+    @Override
+    public @NotNull ID<String, List<String[]>> getName() {
+        return NAME;
+    }
+
+    @NotNull
+    @Override
+    public KeyDescriptor<String> getKeyDescriptor() {
+        return EnumeratorStringDescriptor.INSTANCE;
+    }
+
+    @NotNull
+    @Override
+    public DataIndexer<String, List<String[]>, FileContent> getIndexer() {
+        return inputData -> {
+            Map<String, List<String[]>> map = new HashMap<>();
+            for (PsiInclude include : PsiTreeUtil.findChildrenOfType(inputData.getPsiFile(), PsiInclude.class)) {
+                String[] resolvedPath = include.getResolvedPath();
+                String[] qualifiedPath = include.getQualifiedPath();
+                if (resolvedPath != null && qualifiedPath != null) {
+                    map.computeIfAbsent(Joiner.join(".", resolvedPath), k -> new ArrayList<>()).add(qualifiedPath);
+                }
+            }
+            return map;
+        };
+    }
+
+    @NotNull
+    @Override
+    public DataExternalizer<List<String[]>> getValueExternalizer() {
+        return EXTERNALIZER;
+    }
+
+    @Override
+    public int getVersion() {
+        return VERSION;
+    }
+
+    @NotNull
+    @Override
+    public FileBasedIndex.InputFilter getInputFilter() {
+        return new DefaultFileTypeSpecificInputFilter(OCamlFileType.INSTANCE, OCamlInterfaceFileType.INSTANCE);
+    }
+
+    @Override
+    public boolean dependsOnFileContent() {
+        return true;
+    }
+
+    static final class PathsExternalizer implements DataExternalizer<List<String[]>> {
+        @Override
+        public void save(@NotNull DataOutput out, @NotNull List<String[]> value) throws IOException {
+            DataInputOutputUtil.writeINT(out, value.size());
+            for (String[] path : value) {
+                DataInputOutputUtil.writeINT(out, path.length);
+                for (String name : path) {
+                    out.writeUTF(name == null ? "" : name);
+                }
+            }
+        }
+
+        @NotNull
+        @Override
+        public List<String[]> read(@NotNull DataInput in) throws IOException {
+            int size = DataInputOutputUtil.readINT(in);
+            List<String[]> paths = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                String[] path = new String[DataInputOutputUtil.readINT(in)];
+                for (int j = 0; j < path.length; j++) {
+                    path[j] = in.readUTF();
+                }
+                paths.add(path);
+            }
+            return paths;
+        }
+    }
+}
@@ -10,30 +10,31 @@ public class IndexKeys {
 
     public static final StubIndexKey<String, PsiFakeModule> MODULES_TOP_LEVEL = StubIndexKey.createIndexKey("reason.module.toplevel");
     public static final StubIndexKey<String, PsiModule> MODULES_COMP = StubIndexKey.createIndexKey("reason.module.comp");
-    public static final StubIndexKey<Integer, PsiModule> MODULES_COMP_FQN = StubIndexKey.createIndexKey("reason.module.comp.fqn");
+    public static final StubIndexKey<String, PsiModule> MODULES_COMP_FQN = StubIndexKey.createIndexKey("reason.module.comp.qname");
     public static final StubIndexKey<String, PsiModule> MODULES = StubIndexKey.createIndexKey("reason.module");
     public static final StubIndexKey<String, PsiModule> MODULES_ALIASED = StubIndexKey.createIndexKey("reason.module.aliased");
     public static final StubIndexKey<String, PsiModule> MODULES_ALIASES = StubIndexKey.createIndexKey("reason.module.aliases");
-    public static final StubIndexKey<Integer, PsiModule> MODULES_FQN = StubIndexKey.createIndexKey("reason.module.fqn");
-    public static final StubIndexKey<Integer, PsiKlass> CLASSES_FQN = StubIndexKey.createIndexKey("reason.class.fqn");
+    public static final StubIndexKey<String, PsiModule> MODULES_FQN = StubIndexKey.createIndexKey("reason.module.qname");
+    public static final StubIndexKey<String, PsiKlass> CLASSES_FQN = StubIndexKey.createIndexKey("reason.class.qname");
     public static final StubIndexKey<String, PsiVariantDeclaration> VARIANTS = StubIndexKey.createIndexKey("reason.variant");
-    public static final StubIndexKey<Integer, PsiVariantDeclaration> VARIANTS_FQN = StubIndexKey.createIndexKey("reason.variant.fqn");
+    public static final StubIndexKey<String, PsiVariantDeclaration> VARIANTS_FQN = StubIndexKey.createIndexKey("reason.variant.qname");
     public static final StubIndexKey<String, PsiLet> LETS = StubIndexKey.createIndexKey("reason.let");
-    public static final StubIndexKey<Integer, PsiLet> LETS_FQN = StubIndexKey.createIndexKey("reason.let.fqn");
+    public static final StubIndexKey<String, PsiLet> LETS_FQN = StubIndexKey.createIndexKey("reason.let.qname");
     public static final StubIndexKey<String, PsiVal> VALS = StubIndexKey.createIndexKey("reason.val");
-    public static final StubIndexKey<Integer, PsiVal> VALS_FQN = StubIndexKey.createIndexKey("reason.val.fqn");
+    public static final StubIndexKey<String, PsiVal> VALS_FQN = StubIndexKey.createIndexKey("reason.val.qname");
     public static final StubIndexKey<String, PsiExternal> EXTERNALS = StubIndexKey.createIndexKey("reason.external");
-    public static final StubIndexKey<Integer, PsiExternal> EXTERNALS_FQN = StubIndexKey.createIndexKey("reason.external.fqn");
+    public static final StubIndexKey<String, PsiExternal> EXTERNALS_FQN = StubIndexKey.createIndexKey("reason.external.qname");
     public static final StubIndexKey<String, PsiType> TYPES = StubIndexKey.createIndexKey("reason.type");
-    public static final StubIndexKey<Integer, PsiType> TYPES_FQN = StubIndexKey.createIndexKey("reason.type.fqn");
+    public static final StubIndexKey<String, PsiType> TYPES_FQN = StubIndexKey.createIndexKey("reason.type.qname");
     public static final StubIndexKey<String, PsiObjectField> OBJECT_FIELDS = StubIndexKey.createIndexKey("reason.object_field");
     public static final StubIndexKey<String, PsiRecordField> RECORD_FIELDS = StubIndexKey.createIndexKey("reason.record_field");
     public static final StubIndexKey<String, PsiException> EXCEPTIONS = StubIndexKey.createIndexKey("reason.exception");
-    public static final StubIndexKey<Integer, PsiException> EXCEPTIONS_FQN = StubIndexKey.createIndexKey("reason.exception.fqn");
+    public static final StubIndexKey<String, PsiException> EXCEPTIONS_FQN = StubIndexKey.createIndexKey("reason.exception.qname");
     public static final StubIndexKey<String, PsiParameter> PARAMETERS = StubIndexKey.createIndexKey("reason.parameter");
-    public static final StubIndexKey<Integer, PsiParameter> PARAMETERS_FQN = StubIndexKey.createIndexKey("reason.parameter.fqn");
+    public static final StubIndexKey<String, PsiParameter> PARAMETERS_FQN = StubIndexKey.createIndexKey("reason.parameter.qname");
     public static final StubIndexKey<String, PsiInclude> INCLUDES = StubIndexKey.createIndexKey("reason.include");
     public static final StubIndexKey<String, PsiOpen> OPENS = StubIndexKey.createIndexKey("reason.open");
+    public static final StubIndexKey<String, PsiQualifiedPathElement> LOWER_SYMBOLS = StubIndexKey.createIndexKey("reason.lower");
 
     private IndexKeys() {
     }
@@ -2,7 +2,7 @@ package com.or.ide.search.index;
 
 import com.intellij.openapi.project.Project;
 import com.intellij.psi.search.GlobalSearchScope;
-import com.intellij.psi.stubs.IntStubIndexExtension;
+import com.intellij.psi.stubs.StringStubIndexExtension;
 import com.intellij.psi.stubs.StubIndex;
 import com.intellij.psi.stubs.StubIndexKey;
 import com.or.lang.core.psi.PsiLet;
@@ -12,9 +12,9 @@ import org.jetbrains.annotations.Nullable;
 
 import java.util.Collection;
 
-public class LetFqnIndex extends IntStubIndexExtension<PsiLet> {
-    public static @NotNull Collection<PsiLet> getElements(int key, @NotNull Project project, @Nullable GlobalSearchScope scope) {
-        return StubIndex.getElements(IndexKeys.LETS_FQN, key, project, scope, PsiLet.class);
+public class LetFqnIndex extends StringStubIndexExtension<PsiLet> {
+    public static @NotNull Collection<PsiLet> getElements(@NotNull String qname, @NotNull Project project, @Nullable GlobalSearchScope scope) {
+        return StubIndex.getElements(IndexKeys.LETS_FQN, qname, project, scope, PsiLet.class);
     }
 
     @Override
@@ -23,7 +23,7 @@ public class LetFqnIndex extends IntStubIndexExtension<PsiLet> {
     }
 
     @Override
-    public @NotNull StubIndexKey<Integer, PsiLet> getKey() {
+    public @NotNull StubIndexKey<String, PsiLet> getKey() {
         return IndexKeys.LETS_FQN;
     }
 }
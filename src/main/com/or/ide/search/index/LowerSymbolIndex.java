@@ -0,0 +1,41 @@
+package com.or.ide.search.index;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.stubs.StringStubIndexExtension;
+import com.intellij.psi.stubs.StubIndex;
+import com.intellij.psi.stubs.StubIndexKey;
+import com.or.lang.core.psi.PsiQualifiedPathElement;
+import com.or.lang.core.stub.type.*;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
+
+/**
+ * All the declarations that can be referenced by a lower symbol (types, vals, lets, externals,
+ * record fields, object fields and parameters), indexed by their short name.
+ * The kind of each declaration is given by its psi class, and its path by its stub.
+ */
+public class LowerSymbolIndex extends StringStubIndexExtension<PsiQualifiedPathElement> {
+    public static @NotNull Collection<PsiQualifiedPathElement> getElements(@NotNull String key, @NotNull Project project, @Nullable GlobalSearchScope scope) {
+        return StubIndex.getElements(IndexKeys.LOWER_SYMBOLS, key, project, scope, PsiQualifiedPathElement.class);
+    }
+
+    @Override
+    public int getVersion() {
+        return super.getVersion()
+                + PsiTypeStubElementType.VERSION
+                + PsiValStubElementType.VERSION
+                + PsiLetStubElementType.VERSION
+                + PsiExternalStubElementType.VERSION
+                + PsiRecordFieldStubElementType.VERSION
+                + PsiObjectFieldStubElementType.VERSION
+                + PsiParameterStubElementType.VERSION;
+    }
+
+    @Override
+    public @NotNull StubIndexKey<String, PsiQualifiedPathElement> getKey() {
+        return IndexKeys.LOWER_SYMBOLS;
+    }
+}
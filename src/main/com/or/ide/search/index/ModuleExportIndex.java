@@ -0,0 +1,312 @@
+package com.or.ide.search.index;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.util.indexing.*;
+import com.intellij.util.io.DataExternalizer;
+import com.intellij.util.io.DataInputOutputUtil;
+import com.intellij.util.io.EnumeratorStringDescriptor;
+import com.intellij.util.io.KeyDescriptor;
+import com.ocaml.ide.files.FileHelper;
+import com.ocaml.ide.files.OCamlFileType;
+import com.ocaml.ide.files.OCamlInterfaceFileType;
+import com.ocaml.sdk.cmi.OCamlCmiService;
+import com.ocaml.sdk.index.OCamlSdkIndexBundleService;
+import com.or.ide.files.FileBase;
+import com.or.ide.search.ModuleExport;
+import com.or.ide.search.PsiFinder;
+import com.or.lang.core.psi.*;
+import com.or.lang.core.psi.impl.PsiDirective;
+import com.or.lang.core.psi.impl.PsiFakeModule;
+import com.or.lang.core.psi.impl.PsiFunctorCall;
+import com.or.lang.core.psi.impl.PsiFunctorResult;
+import com.or.lang.core.psi.impl.PsiLowerIdentifier;
+import com.or.lang.core.signature.PsiSignatureUtil;
+import com.or.lang.utils.ORLanguageProperties;
+import com.or.utils.Joiner;
+import com.or.utils.Log;
+import com.or.utils.Platform;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.*;
+import java.util.function.BiConsumer;
+
+/**
+ * The export table of all the modules (file modules, inner modules and functors), keyed by the qualified
+ * name of the module. An include or an alias can't be resolved when indexing a file, they are stored as
+ * module references and are flattened when reading the table with {@link #getExports}.
+ */
+public class ModuleExportIndex extends FileBasedIndexExtension<String, List<ModuleExport>> {
+
+    private static final ID<String, List<ModuleExport>> NAME = ID.create("reason.module.exports");
+    public static final int VERSION = 1;
+    private static final Log LOG = Log.create("index.exports");
+
+    public static final DataExternalizer<List<ModuleExport>> EXTERNALIZER = new ModuleExportsExternalizer();
+
+    /**
+     * Find the members of a module, with its includes and aliases replaced by the members of the referenced modules.
+     * When the module has an interface, only the members of the interface are returned.
+     *
+     * @return null if the module is not found in the index
+     */
+    public static @Nullable List<ModuleExport> getExports(@NotNull String qname, @NotNull Project project, @NotNull GlobalSearchScope scope) {
+        List<ModuleExport> result = new ArrayList<>();
+        return processExports(qname, project, scope, (moduleQName, export) -> result.add(export)) ? result : null;
+    }
+
+    /**
+     * Like {@link #getExports}, with the qualified name of the module that declares each member:
+     * the module itself, or the module that is included or aliased.
+     *
+     * @return false if the module is not found in the index
+     */
+    public static boolean processExports(@NotNull String qname, @NotNull Project project, @NotNull GlobalSearchScope scope, @NotNull BiConsumer<String, ModuleExport> consumer) {
+        return processExports(qname, project, scope, new HashSet<>(), consumer);
+    }
+
+    private static boolean processExports(@NotNull String qname, @NotNull Project project, @NotNull GlobalSearchScope scope, @NotNull Set<String> visited, @NotNull BiConsumer<String, ModuleExport> consumer) {
+        if (!visited.add(qname)) {
+            // cycle in includes/aliases
+            return false;
+        }
+
+        List<ModuleExport> interfaceExports = new ArrayList<>();
+        List<ModuleExport> implementationExports = new ArrayList<>();
+        boolean[] found = {false, false};
+        OCamlSdkIndexBundleService bundleService = OCamlSdkIndexBundleService.getInstance();
+        FileBasedIndex.getInstance().processValues(NAME, qname, null, (file, value) -> {
+            boolean isInterface = FileHelper.isInterface(file.getFileType());
+            found[isInterface ? 0 : 1] = true;
+            (isInterface ? interfaceExports : implementationExports).addAll(value);
+            return true;
+        }, scope);
+        // SDK sources covered by a bundle, not indexed
+        bundleService.processExports(qname, scope, (isInterface, value) -> {
+            found[isInterface ? 0 : 1] = true;
+            (isInterface ? interfaceExports : implementationExports).addAll(value);
+        });
+        if (!found[0] && !found[1]) {
+            // compiled interfaces, for the libraries installed without their sources
+            OCamlCmiService.getInstance().processExports(qname, scope, value -> {
+                found[0] = true;
+                interfaceExports.addAll(value);
+            });
+        }
+
+        if (!found[0] && !found[1]) {
+            return false;
+        }
+
+        for (ModuleExport export : found[0] ? interfaceExports : implementationExports) {
+            if (export.isModuleReference()) {
+                processExports(export.getName(), project, scope, visited, consumer);
+            } else {
+                consumer.accept(qname, export);
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public @NotNull ID<String, List<ModuleExport>> getName() {
+        return NAME;
+    }
+
+    @NotNull
+    @Override
+    public KeyDescriptor<String> getKeyDescriptor() {
+        return EnumeratorStringDescriptor.INSTANCE;
+    }
+
+    @NotNull
+    @Override
+    public DataIndexer<String, List<ModuleExport>, FileContent> getIndexer() {
+        return inputData -> {
+            FileBase psiFile = (FileBase) inputData.getPsiFile();
+            Map<String, List<ModuleExport>> map = collectFileExports(psiFile);
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("indexing " + Platform.getRelativePathToModule(psiFile) + ": " + map.keySet());
+            }
+            return map;
+        };
+    }
+
+    /**
+     * @return the export tables of all the modules of a file, by qualified name
+     */
+    public static @NotNull Map<String, List<ModuleExport>> collectFileExports(@NotNull FileBase file) {
+        Map<String, List<ModuleExport>> map = new HashMap<>();
+        PsiFinder psiFinder = file.getProject().getService(PsiFinder.class);
+        collectExports(psiFinder, file.getModuleName(), file.getFirstChild(), map);
+        return map;
+    }
+
+    private static void collectExports(@NotNull PsiFinder psiFinder, @NotNull String qname, @Nullable PsiElement firstChild, @NotNull Map<String, List<ModuleExport>> map) {
+        List<ModuleExport> exports = map.computeIfAbsent(qname, k -> new ArrayList<>());
+        PsiElement element = firstChild;
+        while (element != null) {
+            if (element instanceof PsiDirective) {
+                // add all elements found in a directive, can't be resolved
+                collectExports(psiFinder, qname, element.getFirstChild(), map);
+            } else if (element instanceof PsiInclude) {
+                String[] resolvedPath = ((PsiInclude) element).getResolvedPath();
+                String includedQName = resolvedPath == null ? ((PsiInclude) element).getIncludePath() : Joiner.join(".", resolvedPath);
+                exports.add(new ModuleExport(includedQName, ModuleExport.Kind.INCLUDE, "", false));
+            } else if (element instanceof PsiFunctor) {
+                PsiFunctor functor = (PsiFunctor) element;
+                String name = functor.getName();
+                if (name != null) {
+                    exports.add(new ModuleExport(name, ModuleExport.Kind.FUNCTOR, "", false));
+                    collectModuleExports(psiFinder, functor, map);
+                }
+            } else if (element instanceof PsiInnerModule) {
+                PsiInnerModule module = (PsiInnerModule) element;
+                String name = module.getName();
+                if (name != null) {
+                    exports.add(new ModuleExport(name, ModuleExport.Kind.MODULE, PsiSignatureUtil.getSignature(module, null), false));
+                    collectModuleExports(psiFinder, module, map);
+                }
+            } else if (element instanceof PsiLet) {
+                PsiLet let = (PsiLet) element;
+                if (!let.isPrivate()) {
+                    String signature = PsiSignatureUtil.getSignature(let, ORLanguageProperties.cast(let.getLanguage()));
+                    if (let.isDeconstruction()) {
+                        for (PsiElement deconstructedElement : let.getDeconstructedElements()) {
+                            if (deconstructedElement instanceof PsiLowerIdentifier) {
+                                exports.add(new ModuleExport(deconstructedElement.getText(), ModuleExport.Kind.LET, signature, false));
+                            }
+                        }
+                    } else {
+                        addNamedExport(let, ModuleExport.Kind.LET, signature, let.isFunction(), exports);
+                    }
+                }
+            } else if (element instanceof PsiVal) {
+                PsiVal val = (PsiVal) element;
+                addNamedExport(val, ModuleExport.Kind.VAL, PsiSignatureUtil.getSignature(val, ORLanguageProperties.cast(val.getLanguage())), val.isFunction(), exports);
+            } else if (element instanceof PsiExternal) {
+                PsiExternal external = (PsiExternal) element;
+                addNamedExport(external, ModuleExport.Kind.EXTERNAL, PsiSignatureUtil.getSignature(external, ORLanguageProperties.cast(external.getLanguage())), external.isFunction(), exports);
+            } else if (element instanceof PsiType) {
+                PsiType type = (PsiType) element;
+                String typeName = type.getName();
+                if (typeName != null) {
+                    exports.add(new ModuleExport(typeName, ModuleExport.Kind.TYPE, "", false));
+                    for (PsiVariantDeclaration variant : type.getVariants()) {
+                        addNamedExport(variant, ModuleExport.Kind.VARIANT, typeName, false, exports);
+                    }
+                }
+            } else if (element instanceof PsiKlass) {
+                addNamedExport((PsiKlass) element, ModuleExport.Kind.CLASS, "", false, exports);
+            } else if (element instanceof PsiException) {
+                addNamedExport((PsiException) element, ModuleExport.Kind.EXCEPTION, "", false, exports);
+            }
+
+            element = element.getNextSibling();
+        }
+    }
+
+    private static void collectModuleExports(@NotNull PsiFinder psiFinder, @NotNull PsiModule module, @NotNull Map<String, List<ModuleExport>> map) {
+        String qname = module.getQualifiedName();
+        if (qname == null || module instanceof PsiFakeModule) {
+            return;
+        }
+
+        String alias = module.getAlias();
+        if (alias == null) {
+            PsiFunctorCall functorCall = module.getFunctorCall();
+            if (functorCall != null) {
+                alias = functorCall.getFunctorName();
+            } else if (module instanceof PsiFunctor) {
+                PsiFunctorResult returnType = ((PsiFunctor) module).getReturnType();
+                PsiUpperSymbol returnModule = returnType == null ? null : returnType.getModuleType();
+                alias = returnModule == null ? null : returnModule.getText();
+            }
+        }
+
+        if (alias != null) {
+            // A local module can be referenced: use its qualified name if it exists
+            PsiQualifiedPathElement localModule = psiFinder.findModuleBack(module, alias);
+            String aliasQName = localModule == null ? alias : localModule.getQualifiedName();
+            map.computeIfAbsent(qname, k -> new ArrayList<>()).add(new ModuleExport(aliasQName, ModuleExport.Kind.ALIAS, "", false));
+        } else {
+            PsiElement body = module.getModuleType();
+            if (body == null) {
+                body = module.getBody();
+            }
+            collectExports(psiFinder, qname, body == null ? null : body.getFirstChild(), map);
+        }
+    }
+
+    private static void addNamedExport(@NotNull PsiQualifiedPathElement element, @NotNull ModuleExport.Kind kind, @NotNull String signature, boolean isFunction, @NotNull List<ModuleExport> exports) {
+        String name = element.getName();
+        if (name != null) {
+            exports.add(new ModuleExport(name, kind, signature, isFunction));
+        }
+    }
+
+    @NotNull
+    @Override
+    public DataExternalizer<List<ModuleExport>> getValueExternalizer() {
+        return EXTERNALIZER;
+    }
+
+    @Override
+    public int getVersion() {
+        return VERSION;
+    }
+
+    @NotNull
+    @Override
+    public FileBasedIndex.InputFilter getInputFilter() {
+        return new DefaultFileTypeSpecificInputFilter(OCamlFileType.INSTANCE, OCamlInterfaceFileType.INSTANCE) {
+            @Override
+            public boolean acceptInput(@NotNull VirtualFile file) {
+                // the SDK sources covered by a bundle are answered by the bundle
+                return !OCamlSdkIndexBundleService.getInstance().isCovered(file);
+            }
+        };
+    }
+
+    @Override
+    public boolean dependsOnFileContent() {
+        return true;
+    }
+
+    static final class ModuleExportsExternalizer implements DataExternalizer<List<ModuleExport>> {
+        private static final ModuleExport.Kind[] KINDS = ModuleExport.Kind.values();
+
+        @Override
+        public void save(@NotNull DataOutput out, @NotNull List<ModuleExport> value) throws IOException {
+            DataInputOutputUtil.writeINT(out, value.size());
+            for (ModuleExport export : value) {
+                out.writeByte(export.getKind().ordinal());
+                out.writeBoolean(export.isFunction());
+                out.writeUTF(export.getName());
+                out.writeUTF(export.getSignature());
+            }
+        }
+
+        @NotNull
+        @Override
+        public List<ModuleExport> read(@NotNull DataInput in) throws IOException {
+            int size = DataInputOutputUtil.readINT(in);
+            List<ModuleExport> exports = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                ModuleExport.Kind kind = KINDS[in.readByte()];
+                boolean isFunction = in.readBoolean();
+                String name = in.readUTF();
+                String signature = in.readUTF();
+                exports.add(new ModuleExport(name, kind, signature, isFunction));
+            }
+            return exports;
+        }
+    }
+}
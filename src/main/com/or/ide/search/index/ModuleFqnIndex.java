@@ -2,7 +2,7 @@ package com.or.ide.search.index;
 
 import com.intellij.openapi.project.Project;
 import com.intellij.psi.search.GlobalSearchScope;
-import com.intellij.psi.stubs.IntStubIndexExtension;
+import com.intellij.psi.stubs.StringStubIndexExtension;
 import com.intellij.psi.stubs.StubIndex;
 import com.intellij.psi.stubs.StubIndexKey;
 import com.or.lang.core.psi.PsiModule;
@@ -12,9 +12,9 @@ import org.jetbrains.annotations.Nullable;
 
 import java.util.Collection;
 
-public class ModuleFqnIndex extends IntStubIndexExtension<PsiModule> {
+public class ModuleFqnIndex extends StringStubIndexExtension<PsiModule> {
     public static @NotNull Collection<PsiModule> getElements(@NotNull String qname, @NotNull Project project, @Nullable GlobalSearchScope scope) {
-        return StubIndex.getElements(IndexKeys.MODULES_FQN, qname.hashCode(), project, scope, PsiModule.class);
+        return StubIndex.getElements(IndexKeys.MODULES_FQN, qname, project, scope, PsiModule.class);
     }
 
     @Override
@@ -23,7 +23,7 @@ public class ModuleFqnIndex extends IntStubIndexExtension<PsiModule> {
     }
 
     @Override
-    public @NotNull StubIndexKey<Integer, PsiModule> getKey() {
+    public @NotNull StubIndexKey<String, PsiModule> getKey() {
         return IndexKeys.MODULES_FQN;
     }
 }
@@ -2,7 +2,7 @@ package com.or.ide.search.index;
 
 import com.intellij.openapi.project.Project;
 import com.intellij.psi.search.GlobalSearchScope;
-import com.intellij.psi.stubs.IntStubIndexExtension;
+import com.intellij.psi.stubs.StringStubIndexExtension;
 import com.intellij.psi.stubs.StubIndex;
 import com.intellij.psi.stubs.StubIndexKey;
 import com.or.lang.core.psi.PsiVal;
@@ -12,9 +12,9 @@ import org.jetbrains.annotations.Nullable;
 
 import java.util.Collection;
 
-public class ValFqnIndex extends IntStubIndexExtension<PsiVal> {
-    public static @NotNull Collection<PsiVal> getElements(int key, @NotNull Project project, @Nullable GlobalSearchScope scope) {
-        return StubIndex.getElements(IndexKeys.VALS_FQN, key, project, scope, PsiVal.class);
+public class ValFqnIndex extends StringStubIndexExtension<PsiVal> {
+    public static @NotNull Collection<PsiVal> getElements(@NotNull String qname, @NotNull Project project, @Nullable GlobalSearchScope scope) {
+        return StubIndex.getElements(IndexKeys.VALS_FQN, qname, project, scope, PsiVal.class);
     }
 
     @Override
@@ -23,7 +23,7 @@ public class ValFqnIndex extends IntStubIndexExtension<PsiVal> {
     }
 
     @Override
-    public @NotNull StubIndexKey<Integer, PsiVal> getKey() {
+    public @NotNull StubIndexKey<String, PsiVal> getKey() {
         return IndexKeys.VALS_FQN;
     }
 }
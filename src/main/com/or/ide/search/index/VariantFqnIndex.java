@@ -1,12 +1,12 @@
 package com.or.ide.search.index;
 
-import com.intellij.psi.stubs.IntStubIndexExtension;
+import com.intellij.psi.stubs.StringStubIndexExtension;
 import com.intellij.psi.stubs.StubIndexKey;
 import com.or.lang.core.psi.PsiVariantDeclaration;
 import com.or.lang.core.stub.type.PsiVariantStubElementType;
 import org.jetbrains.annotations.NotNull;
 
-public class VariantFqnIndex extends IntStubIndexExtension<PsiVariantDeclaration> {
+public class VariantFqnIndex extends StringStubIndexExtension<PsiVariantDeclaration> {
 
     @Override
     public int getVersion() {
@@ -14,7 +14,7 @@ public class VariantFqnIndex extends IntStubIndexExtension<PsiVariantDeclaration
     }
 
     @Override
-    public @NotNull StubIndexKey<Integer, PsiVariantDeclaration> getKey() {
+    public @NotNull StubIndexKey<String, PsiVariantDeclaration> getKey() {
         return IndexKeys.VARIANTS_FQN;
     }
 }
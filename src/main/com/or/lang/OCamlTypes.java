@@ -3,6 +3,7 @@ package com.or.lang;
 import com.or.lang.core.stub.OclStubBasedElementTypes;
 import com.or.lang.core.type.ORCompositeElementType;
 import com.or.lang.core.type.ORCompositeType;
+import com.or.lang.core.type.ORReparseableElementType;
 import com.or.lang.core.type.ORTokenElementType;
 
 public interface OCamlTypes {
@@ -46,7 +47,7 @@ public interface OCamlTypes {
     ORCompositeType C_FUN_EXPR = new ORCompositeElementType("C_FUN_EXPR");
     ORCompositeType C_FUN_PARAMS = new ORCompositeElementType("C_FUN_PARAMS");
     ORCompositeType C_FUN_BODY = new ORCompositeElementType("C_FUN_BODY");
-    ORCompositeType C_FUNCTOR_BINDING = new ORCompositeElementType("C_FUNCTOR_BINDING");
+    ORCompositeType C_FUNCTOR_BINDING = new ORReparseableElementType("C_FUNCTOR_BINDING");
     ORCompositeType C_FUNCTOR_CALL = new ORCompositeElementType("C_FUNCTOR_CALL");
     ORCompositeType C_FUNCTOR_PARAMS = new ORCompositeElementType("C_FUNCTOR_PARAMS");
     ORCompositeType C_FUNCTOR_RESULT = new ORCompositeElementType("C_FUNCTOR_RESULT");
@@ -63,7 +64,7 @@ public interface OCamlTypes {
     ORCompositeType C_MACRO_EXPR = new ORCompositeElementType("C_MACRO_EXPR");
     ORCompositeType C_MACRO_NAME = new ORCompositeElementType("C_MACRO_NAME");
     ORCompositeType C_MACRO_RAW_BODY = new ORCompositeElementType("C_MACRO_RAW_BODY");
-    ORCompositeType C_MODULE_TYPE = new ORCompositeElementType("C_MODULE_TYPE");
+    ORCompositeType C_MODULE_TYPE = new ORReparseableElementType("C_MODULE_TYPE");
     ORCompositeType C_ML_INTERPOLATOR = new ORCompositeElementType("C_ML_INTERPOLATOR");
     ORCompositeType C_MATCH_EXPR = new ORCompositeElementType("C_MATCH_EXPR");
     ORCompositeType C_NAMED_PARAM = new ORCompositeElementType("C_NAMED_PARAM");
@@ -94,10 +95,10 @@ public interface OCamlTypes {
     ORCompositeType C_VARIANT_CONSTRUCTOR = new ORCompositeElementType("C_VARIANT_CONSTRUCTOR");
     ORCompositeType C_IF = new ORCompositeElementType("C_IF");
     ORCompositeType C_IF_THEN_SCOPE = new ORCompositeElementType("C_IF_THEN_SCOPE");
-    ORCompositeType C_SCOPED_EXPR = new ORCompositeElementType("C_SCOPED_EXPR");
+    ORCompositeType C_SCOPED_EXPR = new ORReparseableElementType("C_SCOPED_EXPR");
     ORCompositeType C_SWITCH_EXPR = new ORCompositeElementType("C_SWITCH_EXPR");
     ORCompositeType C_UPPER_SYMBOL = new ORCompositeElementType("C_UPPER_SYMBOL");
-    ORCompositeType C_STRUCT_EXPR = new ORCompositeElementType("C_STRUCT_EXPR");
+    ORCompositeType C_STRUCT_EXPR = new ORReparseableElementType("C_STRUCT_EXPR");
     ORCompositeType C_MIXIN_FIELD = new ORCompositeElementType("C_MIXIN_FIELD");
     ORCompositeType C_WHILE = new ORCompositeElementType("C_WHILE");
 
@@ -124,6 +124,11 @@ public class PsiExternalImpl extends PsiTokenStub<PsiExternal, PsiExternalStub>
 
             @Override
             public @Nullable String getLocationString() {
+                PsiExternalStub stub = getGreenStub();
+                if (stub != null) {
+                    return stub.getSignature();
+                }
+
                 PsiSignature signature = getSignature();
                 return signature == null ? null : signature.asText(ORLanguageProperties.cast(getLanguage()));
             }
@@ -270,6 +270,11 @@ public class PsiLetImpl extends PsiTokenStub<PsiLet, PsiLetStub> implements PsiL
 
             @Override
             public @Nullable String getLocationString() {
+                PsiLetStub stub = getGreenStub();
+                if (stub != null) {
+                    return stub.getSignature();
+                }
+
                 PsiSignature signature = hasInferredType() ? getInferredType() : getSignature();
                 return (signature == null ? null : signature.asText(ORLanguageProperties.cast(getLanguage())));
             }
@@ -106,6 +106,11 @@ public class PsiValImpl extends PsiTokenStub<PsiVal, PsiValStub> implements PsiV
 
             @Override
             public @Nullable String getLocationString() {
+                PsiValStub stub = getGreenStub();
+                if (stub != null) {
+                    return stub.getSignature();
+                }
+
                 PsiSignature signature = getSignature();
                 return signature == null ? null : signature.asText(ORLanguageProperties.cast(getLanguage()));
             }
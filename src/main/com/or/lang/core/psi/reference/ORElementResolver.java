@@ -1,19 +1,10 @@
 package com.or.lang.core.psi.reference;
 
 import com.intellij.openapi.Disposable;
+import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.project.Project;
-import com.intellij.openapi.util.Pair;
-import com.intellij.openapi.util.text.NaturalComparator;
-import com.intellij.psi.search.GlobalSearchScope;
-import com.intellij.psi.stubs.StubIndex;
-import com.intellij.psi.util.CachedValue;
-import com.intellij.psi.util.CachedValueProvider;
-import com.intellij.psi.util.CachedValuesManager;
-import com.intellij.psi.util.PsiModificationTracker;
-import com.intellij.util.ArrayUtil;
-import com.or.ide.search.index.IndexKeys;
-import com.or.ide.search.index.ModuleAliasedIndex;
-import com.or.lang.core.psi.PsiInclude;
+import com.or.ide.search.IncludeDependencyService;
+import com.or.ide.search.ModuleAliasGraph;
 import com.or.lang.core.psi.PsiModule;
 import com.or.lang.core.psi.PsiQualifiedPathElement;
 import com.or.lang.core.psi.PsiVariantDeclaration;
@@ -23,7 +14,7 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
-import java.util.stream.Stream;
+import java.util.function.Predicate;
 
 import static java.util.Collections.emptyList;
 
@@ -31,62 +22,9 @@ public class ORElementResolver implements Disposable {
     private static final Log LOG = Log.create("ref");
 
     private final Project myProject;
-    private final CachedValue<Map<String, Set<String[]>>> myCachedIncludeDependencies;
 
     ORElementResolver(@NotNull Project project) {
         myProject = project;
-        CachedValuesManager cachedValuesManager = CachedValuesManager.getManager(project);
-
-        myCachedIncludeDependencies = cachedValuesManager.createCachedValue(() -> {
-            Map<String, Set<Pair<String, String[]>>> topIncludedModules = new HashMap<>();
-            Map<String, Set<String[]>> dependencies = new HashMap<>();
-
-            StubIndex stubIndex = StubIndex.getInstance();
-            stubIndex.processAllKeys(IndexKeys.INCLUDES, myProject, includePath -> {
-                stubIndex.processElements(IndexKeys.INCLUDES, includePath, myProject, null, PsiInclude.class, psiInclude -> {
-                    String[] includeQPath = psiInclude.getQualifiedPath();
-                    String[] resolvedPath = psiInclude.getResolvedPath();
-                    if (Arrays.equals(resolvedPath, includeQPath)) {
-                        // !? coq ?
-                        LOG.info("Equality with recursion found: " + psiInclude + " [" + Joiner.join(".", includeQPath) + "] in " + psiInclude.getContainingFile().getVirtualFile());
-                        return true;
-                    }
-
-                    Set<String[]> depPaths = dependencies.computeIfAbsent(includePath, k -> new TreeSet<>(ArrayUtil::lexicographicCompare));
-                    depPaths.add(includeQPath);
-
-                    String includeModuleName = includeQPath[0];
-
-                    Set<Pair<String, String[]>> alternatePaths = topIncludedModules.get(resolvedPath[0]);
-                    if (alternatePaths != null) {
-                        for (Pair<String, String[]> alternatePath : alternatePaths) {
-                            String alternateKey = alternatePath.first;
-                            Set<String[]> alternateDependencies = dependencies.get(alternateKey);
-                            String[] newPath = new String[alternatePath.second.length];
-                            System.arraycopy(alternatePath.second, 0, newPath, 0, alternatePath.second.length);
-                            newPath[0] = includeModuleName;
-                            alternateDependencies.add(newPath);
-                        }
-                    }
-
-                    Set<Pair<String, String[]>> topIncludes = topIncludedModules.computeIfAbsent(includeModuleName, k -> new TreeSet<>((o1, o2) -> {
-                        int compare = NaturalComparator.INSTANCE.compare(o1.first, o2.first);
-                        if (compare != 0) {
-                            return compare;
-                        }
-
-                        return ArrayUtil.lexicographicCompare(o1.second, o2.second);
-                    }));
-                    topIncludes.add(Pair.create(includePath, includeQPath));
-
-                    return true;
-                });
-                return true;
-            });
-
-            return CachedValueProvider.Result.create(dependencies, PsiModificationTracker.MODIFICATION_COUNT);
-        });
-
     }
 
     @NotNull Resolutions getComputation() {
@@ -121,10 +59,16 @@ public class ORElementResolver implements Disposable {
 
     /*
      Note: performance is extremely important
+
+     The resolutions are indexed by top module and qualified name while they are added (to find duplicates),
+     and kept in a flat list for the weighting phase. Weights per level are stored in primitive arrays,
+     reused between updates.
      */
     private class ResolutionsImpl implements Resolutions {
-        private final Map<Integer, Integer> myWeightPerLevel = new HashMap<>();
         private final Map<String, Map<String, Resolution>> myResolutionsPerTopModule = new HashMap<>();
+        private final List<Resolution> myResolutions = new ArrayList<>();
+        private int[] myWeightPerLevel = new int[8]; // 0 if no weight for the level
+        private boolean[] myUpdatedLevels = new boolean[8]; // scratch buffer of updateWeight
 
         @Override
         public void add(@NotNull Collection<? extends PsiQualifiedPathElement> elements, boolean includeSource) {
@@ -133,6 +77,7 @@ public class ORElementResolver implements Disposable {
             }
 
             for (PsiQualifiedPathElement source : elements) {
+                ProgressManager.checkCanceled();
                 String sourceName = source.getName();
                 if (sourceName == null) {
                     continue;
@@ -141,62 +86,49 @@ public class ORElementResolver implements Disposable {
                 String sourceQName = source.getQualifiedName();
                 String[] sourcePath = source.getPath();
                 if (sourcePath != null) {
-                    // Add source name to the path in case of modules
-                    if (includeSource) {
-                        String[] newPath = new String[sourcePath.length + 1];
-                        System.arraycopy(sourcePath, 0, newPath, 0, sourcePath.length);
-                        newPath[sourcePath.length] = sourceName;
-                        sourcePath = newPath;
-                    }
+                    // Add source name to the path in case of modules (the path is not copied)
+                    int pathLength = sourcePath.length;
+                    String pathSourceName = includeSource ? sourceName : null;
                     // Remove type name in case of variants
                     if (source instanceof PsiVariantDeclaration) {
-                        String[] newPath = new String[sourcePath.length - 1];
-                        System.arraycopy(sourcePath, 0, newPath, 0, newPath.length);
-                        sourcePath = newPath;
+                        if (pathSourceName == null) {
+                            pathLength--;
+                        } else {
+                            pathSourceName = null;
+                        }
                     }
 
-                    String first = sourcePath[0];
-                    Map<String, Resolution> resolutionsPerQName = myResolutionsPerTopModule.get(first);
-                    //noinspection Java8MapApi
-                    if (resolutionsPerQName == null) {
-                        resolutionsPerQName = new HashMap<>();
-                        myResolutionsPerTopModule.put(first, resolutionsPerQName);
-                    }
+                    String first = 0 < pathLength ? sourcePath[0] : pathSourceName;
+                    Map<String, Resolution> resolutionsPerQName = getResolutionsPerQName(first);
 
                     // try to find duplicates
                     Resolution resolution = resolutionsPerQName.get(sourceQName);
                     if (resolution == null) {
-                        resolutionsPerQName.put(sourceQName, new Resolution(sourcePath, source));
+                        putResolution(resolutionsPerQName, sourceQName, new Resolution(sourcePath, pathLength, pathSourceName, source));
                     } else {
                         resolution.myElements.add(source);
                     }
                 } else if (includeSource) {
-                    Map<String, Resolution> resolutionsPerQName = myResolutionsPerTopModule.get(sourceName);
-                    //noinspection Java8MapApi
-                    if (resolutionsPerQName == null) {
-                        resolutionsPerQName = new HashMap<>();
-                        myResolutionsPerTopModule.put(sourceName, resolutionsPerQName);
-                    }
+                    Map<String, Resolution> resolutionsPerQName = getResolutionsPerQName(sourceName);
 
                     // try to find duplicates
                     Resolution resolution = resolutionsPerQName.get(sourceQName);
                     if (resolution == null) {
-                        resolutionsPerQName.put(sourceQName, new Resolution(new String[]{sourceName}, source));
+                        putResolution(resolutionsPerQName, sourceQName, new Resolution(null, 0, sourceName, source));
                     } else {
                         resolution.myElements.add(source);
                     }
                 }
             }
 
-            Project project = elements.iterator().next().getProject();
+            ModuleAliasGraph aliasGraph = ModuleAliasGraph.getInstance(myProject);
             List<Resolution> aliasResolutions = new ArrayList<>();
             for (Map.Entry<String, Map<String, Resolution>> entry : myResolutionsPerTopModule.entrySet()) {
                 String first = entry.getKey();
                 Collection<Resolution> resolutions = entry.getValue().values();
 
-                Collection<PsiModule> aliases = ModuleAliasedIndex.getElements(first, project, GlobalSearchScope.allScope(project));
-                for (PsiModule alias : aliases) {
-                    String[] aliasPath = alias.getQualifiedNameAsPath();
+                for (String[] aliasPath : aliasGraph.getAliasedBy(first)) {
+                    ProgressManager.checkCanceled();
                     for (Resolution resolution : resolutions) {
                         Resolution aliasResolution = Resolution.createAlternate(resolution, aliasPath);
                         aliasResolutions.add(aliasResolution);
@@ -205,28 +137,57 @@ public class ORElementResolver implements Disposable {
             }
 
             for (Resolution aliasResolution : aliasResolutions) {
-                String topModuleName = aliasResolution.getTopModuleName();
-                Map<String, Resolution> resolutionsPerQName = myResolutionsPerTopModule.get(topModuleName);
-                //noinspection Java8MapApi
-                if (resolutionsPerQName == null) {
-                    resolutionsPerQName = new HashMap<>();
-                    myResolutionsPerTopModule.put(topModuleName, resolutionsPerQName);
-                }
+                Map<String, Resolution> resolutionsPerQName = getResolutionsPerQName(aliasResolution.getTopModuleName());
 
                 PsiQualifiedPathElement aliasElement = aliasResolution.myElements.get(0);
                 String aliasQName = aliasResolution.joinPath() + (aliasElement instanceof PsiModule ? "" : "." + aliasElement.getName());
 
-                resolutionsPerQName.put(aliasQName, aliasResolution);
+                putResolution(resolutionsPerQName, aliasQName, aliasResolution);
+            }
+        }
+
+        private @NotNull Map<String, Resolution> getResolutionsPerQName(@NotNull String topModuleName) {
+            Map<String, Resolution> resolutionsPerQName = myResolutionsPerTopModule.get(topModuleName);
+            //noinspection Java8MapApi
+            if (resolutionsPerQName == null) {
+                resolutionsPerQName = new HashMap<>();
+                myResolutionsPerTopModule.put(topModuleName, resolutionsPerQName);
+            }
+            return resolutionsPerQName;
+        }
+
+        private void putResolution(@NotNull Map<String, Resolution> resolutionsPerQName, @NotNull String qName, @NotNull Resolution resolution) {
+            Resolution previous = resolutionsPerQName.put(qName, resolution);
+            if (previous != null) {
+                myResolutions.remove(previous);
+            }
+            myResolutions.add(resolution);
+        }
+
+        private void removeResolutions(@NotNull Predicate<Resolution> filter) {
+            if (myResolutions.removeIf(filter)) {
+                for (Map<String, Resolution> topModuleEntry : myResolutionsPerTopModule.values()) {
+                    topModuleEntry.values().removeIf(filter);
+                }
             }
         }
 
+        private int nextWeight(int level) {
+            if (myWeightPerLevel.length <= level) {
+                myWeightPerLevel = Arrays.copyOf(myWeightPerLevel, Math.max(level + 1, myWeightPerLevel.length * 2));
+                myUpdatedLevels = Arrays.copyOf(myUpdatedLevels, myWeightPerLevel.length);
+            }
+            return myWeightPerLevel[level] + 1;
+        }
+
         @Override
         public void addIncludesEquivalence() {
-            Map<String, Set<String[]>> cachedIncludes = myCachedIncludeDependencies.getValue();
+            Map<String, Set<String[]>> cachedIncludes = IncludeDependencyService.getInstance(myProject).getDependencies();
 
             List<Resolution> includeResolutions = new ArrayList<>();
 
             for (Map.Entry<String, Map<String, Resolution>> resolutionPerNameEntry : myResolutionsPerTopModule.entrySet()) {
+                ProgressManager.checkCanceled();
                 Map<String, Resolution> resolutions = resolutionPerNameEntry.getValue();
                 for (Map.Entry<String, Resolution> resolutionEntry : resolutions.entrySet()) {
                     String key = resolutionEntry.getKey();
@@ -237,13 +198,7 @@ public class ORElementResolver implements Disposable {
             }
 
             for (Resolution includeResolution : includeResolutions) {
-                String topModuleName = includeResolution.getTopModuleName();
-                Map<String, Resolution> resolutionsPerQName = myResolutionsPerTopModule.get(topModuleName);
-                //noinspection Java8MapApi
-                if (resolutionsPerQName == null) {
-                    resolutionsPerQName = new HashMap<>();
-                    myResolutionsPerTopModule.put(topModuleName, resolutionsPerQName);
-                }
+                Map<String, Resolution> resolutionsPerQName = getResolutionsPerQName(includeResolution.getTopModuleName());
 
                 PsiQualifiedPathElement includeElement = includeResolution.myElements.get(0);
                 String includeQName = includeResolution.joinPath() + (includeElement instanceof PsiModule ? "" : "." + includeElement.getName());
@@ -251,7 +206,7 @@ public class ORElementResolver implements Disposable {
                 // try to find duplicates
                 Resolution resolution = resolutionsPerQName.get(includeQName);
                 if (resolution == null) {
-                    resolutionsPerQName.put(includeQName, includeResolution);
+                    putResolution(resolutionsPerQName, includeQName, includeResolution);
                 } else {
                     resolution.myElements.add(includeElement);
                 }
@@ -293,104 +248,73 @@ public class ORElementResolver implements Disposable {
         }
 
         public void updateWeight(@Nullable String value, @Nullable Set<String> alternateNames) {
-            Map<Integer, Integer> newWeights = new HashMap<>();
-
-            for (Map<String, Resolution> topModuleEntry : myResolutionsPerTopModule.values()) {
-                for (Resolution resolution : topModuleEntry.values()) {
-                    String name = resolution.getCurrentName();
-                    if (name != null) {
-                        if (value == null || value.equals(name)) {
-                            int level = resolution.myLevel;
-                            Integer weight = myWeightPerLevel.get(level);
-                            int newWeight = weight == null ? 1 : weight + 1;
-                            resolution.updateCurrentWeight(newWeight);
-                            newWeights.put(level, newWeight);
-                        } else if (alternateNames != null) {
-                            for (String alternateName : alternateNames) {
-                                if (alternateName.equals(name)) {
-                                    int level = resolution.myLevel;
-                                    Integer weight = myWeightPerLevel.get(level);
-                                    int newWeight = weight == null ? 1 : weight + 1;
-                                    resolution.updateCurrentWeight(newWeight);
-                                    newWeights.put(level, newWeight);
-                                    break;
-                                }
-                            }
-                        }
-                    }
+            // all the resolutions of a level get the same new weight, the weights per level are updated at the end
+            boolean hasUpdates = false;
+            for (Resolution resolution : myResolutions) {
+                String name = resolution.getCurrentName();
+                if (name != null && (value == null || value.equals(name) || (alternateNames != null && alternateNames.contains(name)))) {
+                    int level = resolution.myLevel;
+                    resolution.updateCurrentWeight(nextWeight(level));
+                    myUpdatedLevels[level] = true;
+                    hasUpdates = true;
                 }
             }
 
-            myWeightPerLevel.putAll(newWeights);
+            if (hasUpdates) {
+                for (int level = 0; level < myUpdatedLevels.length; level++) {
+                    if (myUpdatedLevels[level]) {
+                        myWeightPerLevel[level]++;
+                        myUpdatedLevels[level] = false;
+                    }
+                }
+            }
         }
 
         public void udpateTerminalWeight(@NotNull String value) {
-            for (Map<String, Resolution> topModuleEntry : myResolutionsPerTopModule.values()) {
-                for (Resolution resolution : topModuleEntry.values()) {
-                    String name = resolution.getCurrentName();
-                    if (value.equals(name) && resolution.isLastLevel()) {
-                        // terminal
-                        int level = resolution.myLevel;
-                        Integer weight = myWeightPerLevel.get(level);
-                        int newWeight = weight == null ? 1 : weight + 1;
-                        resolution.updateCurrentWeight(newWeight);
-                        myWeightPerLevel.put(level, newWeight);
-                    }
+            for (Resolution resolution : myResolutions) {
+                String name = resolution.getCurrentName();
+                if (value.equals(name) && resolution.isLastLevel()) {
+                    // terminal
+                    int level = resolution.myLevel;
+                    int newWeight = nextWeight(level);
+                    resolution.updateCurrentWeight(newWeight);
+                    myWeightPerLevel[level] = newWeight;
                 }
             }
         }
 
         public void removeUpper() {
-            for (Map<String, Resolution> topModuleEntry : myResolutionsPerTopModule.values()) {
-                topModuleEntry.values().removeIf(resolution -> {
-                    String name = resolution.getCurrentName();
-                    return name != null && Character.isUpperCase(name.charAt(0));
-                });
-            }
+            removeResolutions(resolution -> {
+                String name = resolution.getCurrentName();
+                return name != null && Character.isUpperCase(name.charAt(0));
+            });
         }
 
         // all resolutions must be complete
         public void removeIfNotFound(@NotNull String value, @Nullable Set<String> alternateNames) {
-            for (Map<String, Resolution> topModuleEntry : myResolutionsPerTopModule.values()) {
-                topModuleEntry.values().removeIf(resolution -> {
-                    String currentName = resolution.getCurrentName();
-                    return !value.equals(currentName) && (alternateNames == null || !alternateNames.contains(currentName));
-                });
-            }
+            removeResolutions(resolution -> {
+                String currentName = resolution.getCurrentName();
+                return !value.equals(currentName) && (alternateNames == null || !alternateNames.contains(currentName));
+            });
         }
 
         public void removeIncomplete() {
-            for (Map<String, Resolution> topModuleEntry : myResolutionsPerTopModule.values()) {
-                topModuleEntry.values().removeIf(resolution -> !resolution.myIsComplete);
-            }
+            removeResolutions(resolution -> !resolution.myIsComplete);
         }
 
         public @NotNull Collection<PsiQualifiedPathElement> resolvedElements() {
-            List<Resolution> allResolutions = new ArrayList<>();
-
-            // flatten elements
-            for (Map<String, Resolution> topModuleEntry : myResolutionsPerTopModule.values()) {
-                allResolutions.addAll(topModuleEntry.values());
-            }
-
-            allResolutions.sort(Resolution::compareTo);
-
-            return allResolutions.isEmpty() ? emptyList() : allResolutions.get(0).myElements;
+            // sorted in place, the resolutions are not updated after that
+            myResolutions.sort(Resolution::compareTo);
+            return myResolutions.isEmpty() ? emptyList() : myResolutions.get(0).myElements;
         }
 
         public @NotNull List<PsiQualifiedPathElement> resolveAllElements() {
-            List<Resolution> allResolutions = new ArrayList<>();
-
-            // flatten elements
-            for (Map<String, Resolution> topModuleEntry : myResolutionsPerTopModule.values()) {
-                allResolutions.addAll(topModuleEntry.values());
-            }
-
-            allResolutions.sort(Resolution::compareTo);
+            myResolutions.sort(Resolution::compareTo);
 
             List<PsiQualifiedPathElement> l = new ArrayList<>();
-            Stream<List<PsiQualifiedPathElement>> stream = allResolutions.stream().map(resolution -> resolution.myElements);
-            stream.forEach(l::addAll);
+            for (Resolution resolution : myResolutions) {
+                l.addAll(resolution.myElements);
+            }
 
             return l;
         }
@@ -0,0 +1,165 @@
+package com.or.lang.core.psi.reference;
+
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ProjectRootManager;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiReference;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiModificationTracker;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.ocaml.sdk.cmi.OCamlCmiService;
+import com.or.ide.search.DependencyScopeService;
+import com.or.ide.search.index.ExceptionIndex;
+import com.or.ide.search.index.LowerSymbolIndex;
+import com.or.ide.search.index.ModuleIndex;
+import com.or.ide.search.index.VariantIndex;
+import com.or.lang.core.psi.*;
+import com.or.utils.Log;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The index lookups of the symbols of a file, shared by all the references of the file: the same names
+ * (x, map, List, ...) are used many times in a file, the indexes are only queried once per distinct name.
+ * The lookups are cached on the file until the PSI is modified. The declarations of the compiled interfaces
+ * of the libraries installed without their sources are found with {@link OCamlCmiService#findElements}.
+ * <p>
+ * A consumer that resolves all the symbols it visits (find usages) can prime the resolver: the symbols are grouped by name,
+ * the indexes are queried once per name, then each symbol is resolved and its results are cached on the element
+ * (see {@link ORMultiSymbolReference#resolveWithCache()}).
+ * The annotators and the line markers don't resolve the symbols of the file, they don't prime the resolver.
+ */
+public final class ORFileResolver {
+    private static final Log LOG = Log.create("ref.perf.batch");
+
+    private final @NotNull Project myProject;
+    private final @NotNull GlobalSearchScope myScope;
+    private final Map<String, Collection<PsiQualifiedPathElement>> myLowerElements = new ConcurrentHashMap<>();
+    private final Map<String, UpperElements> myUpperElements = new ConcurrentHashMap<>();
+
+    private ORFileResolver(@NotNull PsiFile file) {
+        myProject = file.getProject();
+        myScope = DependencyScopeService.getInstance(myProject).getScope(file);
+    }
+
+    public static @NotNull ORFileResolver getInstance(@NotNull PsiFile file) {
+        return CachedValuesManager.getCachedValue(file, () -> CachedValueProvider.Result.create(new ORFileResolver(file),
+                PsiModificationTracker.MODIFICATION_COUNT, ProjectRootManager.getInstance(file.getProject())));
+    }
+
+    /**
+     * Resolve all the symbols of the file.
+     */
+    public static void prime(@NotNull PsiFile file) {
+        prime(file, PsiTreeUtil.findChildrenOfAnyType(file, PsiLowerSymbol.class, PsiUpperSymbol.class));
+    }
+
+    /**
+     * Resolve the symbols found in the elements (other elements are ignored).
+     */
+    public static void prime(@NotNull PsiFile file, @NotNull Collection<? extends PsiElement> elements) {
+        long start = System.currentTimeMillis();
+
+        Map<String, List<PsiElement>> lowerSymbols = new HashMap<>();
+        Map<String, List<PsiElement>> upperSymbols = new HashMap<>();
+        for (PsiElement element : elements) {
+            if (element instanceof PsiLowerSymbol) {
+                lowerSymbols.computeIfAbsent(element.getText(), k -> new ArrayList<>()).add(element);
+            } else if (element instanceof PsiUpperSymbol) {
+                upperSymbols.computeIfAbsent(element.getText(), k -> new ArrayList<>()).add(element);
+            }
+        }
+
+        // One query per distinct name
+        ORFileResolver resolver = getInstance(file);
+        for (String name : lowerSymbols.keySet()) {
+            ProgressManager.checkCanceled();
+            resolver.getLowerElements(name);
+        }
+        for (String name : upperSymbols.keySet()) {
+            ProgressManager.checkCanceled();
+            resolver.getUpperElements(name);
+        }
+
+        long endIndexes = System.currentTimeMillis();
+
+        int count = resolveAll(lowerSymbols.values()) + resolveAll(upperSymbols.values());
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Primed " + file.getName() + " with " + count + " symbols (" + (lowerSymbols.size() + upperSymbols.size()) + " names) in "
+                    + (System.currentTimeMillis() - start) + "ms => id: " + (endIndexes - start) + "ms");
+        }
+    }
+
+    private static int resolveAll(@NotNull Collection<List<PsiElement>> symbolsByName) {
+        int count = 0;
+        for (List<PsiElement> symbols : symbolsByName) {
+            for (PsiElement symbol : symbols) {
+                ProgressManager.checkCanceled();
+                PsiReference reference = symbol.getReference();
+                if (reference instanceof ORMultiSymbolReference) {
+                    ((ORMultiSymbolReference<?>) reference).multiResolve(false);
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    @NotNull GlobalSearchScope getScope() {
+        return myScope;
+    }
+
+    @NotNull Collection<PsiQualifiedPathElement> getLowerElements(@NotNull String name) {
+        Collection<PsiQualifiedPathElement> elements = myLowerElements.get(name);
+        if (elements == null) {
+            elements = LowerSymbolIndex.getElements(name, myProject, myScope);
+            // the declarations of the libraries installed without their sources
+            elements = concat(elements, OCamlCmiService.getInstance().findElements(myProject, name, myScope, PsiQualifiedPathElement.class));
+            myLowerElements.putIfAbsent(name, elements);
+        }
+        return elements;
+    }
+
+    @NotNull UpperElements getUpperElements(@NotNull String name) {
+        UpperElements elements = myUpperElements.get(name);
+        if (elements == null) {
+            OCamlCmiService cmiService = OCamlCmiService.getInstance();
+            elements = new UpperElements(concat(ModuleIndex.getElements(name, myProject, myScope), cmiService.findElements(myProject, name, myScope, PsiModule.class)),
+                    concat(VariantIndex.getElements(name, myProject, myScope), cmiService.findElements(myProject, name, myScope, PsiVariantDeclaration.class)),
+                    concat(ExceptionIndex.getElements(name, myProject, myScope), cmiService.findElements(myProject, name, myScope, PsiException.class)));
+            myUpperElements.putIfAbsent(name, elements);
+        }
+        return elements;
+    }
+
+    /**
+     * The declarations of the compiled interfaces are added after the declarations of the sources.
+     */
+    private static <T> @NotNull Collection<T> concat(@NotNull Collection<T> elements, @NotNull Collection<T> compiledElements) {
+        if (compiledElements.isEmpty()) {
+            return elements;
+        }
+        List<T> result = new ArrayList<>(elements);
+        result.addAll(compiledElements);
+        return result;
+    }
+
+    static final class UpperElements {
+        final @NotNull Collection<PsiModule> myModules;
+        final @NotNull Collection<PsiVariantDeclaration> myVariants;
+        final @NotNull Collection<PsiException> myExceptions;
+
+        UpperElements(@NotNull Collection<PsiModule> modules, @NotNull Collection<PsiVariantDeclaration> variants, @NotNull Collection<PsiException> exceptions) {
+            myModules = modules;
+            myVariants = variants;
+            myExceptions = exceptions;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.or.lang.core.psi.reference;
+
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.tree.IElementType;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.or.lang.OCamlTypes;
+import com.or.lang.core.psi.*;
+import com.or.lang.core.psi.impl.PsiLocalOpen;
+import com.or.lang.core.psi.impl.PsiPatternMatch;
+import com.or.lang.core.psi.impl.PsiPatternMatchBody;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Resolution of a lower symbol in the lexical scope of its file, without the indexes.
+ * <p>
+ * From the symbol up to the file, the nearest binding of the name is found in:
+ * <ul>
+ *     <li>the <code>let ... in</code> declared before the symbol,</li>
+ *     <li>the parameters of the enclosing functions,</li>
+ *     <li>the pattern of the enclosing match cases.</li>
+ * </ul>
+ * A qualified symbol (A.x, r.x, o#x) or a top level let is not local: it is resolved with the indexes.
+ * A local open (<code>let open M in</code>, <code>M.( ... )</code>) or a local module can bring the name in scope:
+ * the search stops there, and the symbol is resolved with the indexes.
+ */
+final class ORLocalScopeResolver {
+
+    private ORLocalScopeResolver() {
+    }
+
+    static @Nullable PsiElement resolve(@NotNull PsiElement symbol, @NotNull String name) {
+        if (isQualified(symbol)) {
+            return null;
+        }
+
+        PsiElement child = symbol;
+        PsiElement item = symbol.getParent();
+        while (item != null && !(item instanceof PsiFile)) {
+            // let ... in, before the symbol
+            for (PsiElement sibling = child.getPrevSibling(); sibling != null; sibling = sibling.getPrevSibling()) {
+                if (sibling instanceof PsiOpen || (sibling instanceof PsiInnerModule && isLocal(sibling))) {
+                    return null;
+                }
+                if (sibling instanceof PsiLet && isLocal(sibling) && isDeclaring((PsiLet) sibling, name)) {
+                    return sibling;
+                }
+            }
+
+            if (item instanceof PsiLocalOpen) {
+                return null;
+            }
+
+            if (item instanceof PsiFunction && !(child instanceof PsiParameters)) {
+                for (PsiParameter parameter : ((PsiFunction) item).getParameters()) {
+                    if (name.equals(parameter.getName())) {
+                        return parameter;
+                    }
+                }
+            } else if (child instanceof PsiPatternMatchBody && item instanceof PsiPatternMatch) {
+                PsiElement binding = findPatternBinding((PsiPatternMatch) item, (PsiPatternMatchBody) child, name);
+                if (binding != null) {
+                    return binding;
+                }
+            }
+
+            child = item;
+            item = item.getParent();
+        }
+
+        return null;
+    }
+
+    private static boolean isQualified(@NotNull PsiElement symbol) {
+        PsiElement prevLeaf = PsiTreeUtil.prevVisibleLeaf(symbol);
+        IElementType prevType = prevLeaf == null ? null : prevLeaf.getNode().getElementType();
+        return prevType == OCamlTypes.DOT || prevType == OCamlTypes.SHARP || prevType == OCamlTypes.SHARPSHARP;
+    }
+
+    // let ... |>in<|, let module ... |>in<|
+    private static boolean isLocal(@NotNull PsiElement declaration) {
+        PsiElement next = PsiTreeUtil.skipWhitespacesAndCommentsForward(declaration);
+        return next != null && next.getNode().getElementType() == OCamlTypes.IN;
+    }
+
+    private static boolean isDeclaring(@NotNull PsiLet let, @NotNull String name) {
+        if (let.isDeconstruction()) {
+            for (PsiElement element : let.getDeconstructedElements()) {
+                if (name.equals(element.getText())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        return name.equals(let.getName());
+    }
+
+    // | Some x -> ..., the first occurrence of the name in the pattern; record labels are not bindings
+    private static @Nullable PsiElement findPatternBinding(@NotNull PsiPatternMatch match, @NotNull PsiPatternMatchBody body, @NotNull String name) {
+        for (PsiElement child = match.getFirstChild(); child != null && child != body; child = child.getNextSibling()) {
+            for (PsiLowerSymbol symbol : PsiTreeUtil.findChildrenOfType(child, PsiLowerSymbol.class)) {
+                if (isPatternBinding(match, symbol, name)) {
+                    return symbol;
+                }
+            }
+            if (child instanceof PsiLowerSymbol && isPatternBinding(match, child, name)) {
+                return child;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isPatternBinding(@NotNull PsiPatternMatch match, @NotNull PsiElement symbol, @NotNull String name) {
+        if (!name.equals(symbol.getText()) || isQualified(symbol) || isTypeAnnotation(match, symbol)) {
+            return false;
+        }
+        PsiElement nextLeaf = PsiTreeUtil.nextVisibleLeaf(symbol);
+        return nextLeaf == null || nextLeaf.getNode().getElementType() != OCamlTypes.EQ;
+    }
+
+    // (x |>:<| t): a colon before the symbol, in the same parenthesis of the pattern
+    private static boolean isTypeAnnotation(@NotNull PsiPatternMatch match, @NotNull PsiElement symbol) {
+        int depth = 0;
+        for (PsiElement leaf = PsiTreeUtil.prevVisibleLeaf(symbol); leaf != null && PsiTreeUtil.isAncestor(match, leaf, true); leaf = PsiTreeUtil.prevVisibleLeaf(leaf)) {
+            IElementType type = leaf.getNode().getElementType();
+            if (type == OCamlTypes.RPAREN) {
+                depth++;
+            } else if (type == OCamlTypes.LPAREN) {
+                if (depth == 0) {
+                    return false;
+                }
+                depth--;
+            } else if (depth == 0) {
+                if (type == OCamlTypes.COLON) {
+                    return true;
+                }
+                if (type == OCamlTypes.COMMA || type == OCamlTypes.PIPE || type == OCamlTypes.AS) {
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -1,21 +1,50 @@
 package com.or.lang.core.psi.reference;
 
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.util.ModificationTracker;
 import com.intellij.openapi.util.TextRange;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiPolyVariantReferenceBase;
 import com.intellij.psi.ResolveResult;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.ParameterizedCachedValue;
+import com.intellij.psi.util.ParameterizedCachedValueProvider;
+import com.intellij.psi.util.PsiModificationTracker;
 import com.or.ide.files.FileBase;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 public abstract class ORMultiSymbolReference<T extends PsiElement> extends PsiPolyVariantReferenceBase<T> {
+    private static final Key<ParameterizedCachedValue<ResolveResult[], ORMultiSymbolReference<?>>> RESOLVE_RESULTS = Key.create("reason.resolve.results");
+    private static final ParameterizedCachedValueProvider<ResolveResult[], ORMultiSymbolReference<?>> RESOLVER = reference -> {
+        reference.getCacheStatistics().miss();
+        ResolveResult[] resolveResults = reference.resolveWithoutCache();
+        // a partial result (time budget exhausted) is not kept
+        return CachedValueProvider.Result.create(resolveResults, reference.myIsPartialResult ? ModificationTracker.EVER_CHANGED : PsiModificationTracker.MODIFICATION_COUNT);
+    };
+
     protected final @Nullable String myReferenceName;
+    protected boolean myIsPartialResult = false;
 
     protected ORMultiSymbolReference(@NotNull T element) {
         super(element, TextRange.create(0, element.getTextLength()));
         myReferenceName = element.getText();
     }
 
+    /**
+     * The same element is resolved many times during a highlighting pass (annotators, line markers, parameter info, ...).
+     * A new reference is created each time, the results are cached on the element until the PSI is modified.
+     */
+    protected ResolveResult @NotNull [] resolveWithCache() {
+        getCacheStatistics().call();
+        return CachedValuesManager.getManager(myElement.getProject()).getParameterizedCachedValue(myElement, RESOLVE_RESULTS, RESOLVER, false, this);
+    }
+
+    protected abstract ResolveResult @NotNull [] resolveWithoutCache();
+
+    protected abstract @NotNull ResolveCacheStatistics getCacheStatistics();
+
     @Override
     public @Nullable PsiElement resolve() {
         ResolveResult[] resolveResults = multiResolve(false);
@@ -1,8 +1,9 @@
 package com.or.lang.core.psi.reference;
 
-import com.intellij.lang.ASTNode;
+import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.project.Project;
 import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
 import com.intellij.psi.PsiNamedElement;
 import com.intellij.psi.search.GlobalSearchScope;
 import com.intellij.psi.tree.IElementType;
@@ -11,8 +12,6 @@ import com.or.ide.search.index.ModuleAliasesIndex;
 import com.or.lang.OCamlTypes;
 import com.or.lang.core.ORUtil;
 import com.or.lang.core.psi.*;
-import com.or.lang.core.psi.impl.PsiFunctorCall;
-import com.or.lang.core.psi.impl.PsiLocalOpen;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.Collection;
@@ -26,107 +25,45 @@ public class ORReferenceAnalyzer {
     private ORReferenceAnalyzer() {
     }
 
-    // Walk through the file - from element up to the root - and extract instructions
-    static @NotNull Deque<PsiElement> createInstructions(@NotNull PsiElement sourceElement) {
-        boolean startPath = true;
-        PsiElement prevItem = ORUtil.prevSibling(sourceElement);
-        if ((sourceElement instanceof PsiUpperSymbol || sourceElement instanceof PsiLowerSymbol) && prevItem != null) {
-            IElementType prevType = prevItem.getNode().getElementType();
-            if (prevType == OCamlTypes.RIGHT_ARROW || prevType == OCamlTypes.PIPE_FORWARD || prevType == OCamlTypes.COMMA) {
-                // -> A.B   |> A.B
-                // we are no more in a path, skip path
-                prevItem = prevItem.getPrevSibling();
-                ASTNode prevItemNode = prevItem == null ? null : prevItem.getNode();
-                prevType = prevItemNode == null ? null : prevItemNode.getElementType();
-                while ((prevType == OCamlTypes.DOT || prevType == OCamlTypes.C_UPPER_SYMBOL || prevType == OCamlTypes.C_VARIANT || prevType == OCamlTypes.C_LOWER_SYMBOL)) {
-                    prevItem = prevItem.getPrevSibling();
-                    prevItemNode = prevItem == null ? null : prevItem.getNode();
-                    prevType = prevItemNode == null ? null : prevItemNode.getElementType();
-                }
-
-                // if LocalOpen found, it is still a path
-                if (prevType == OCamlTypes.LPAREN) {
-                    PsiElement parent = prevItem.getParent();
-                    startPath = parent instanceof PsiLocalOpen;
+    // Extract the instructions visible from the element (see ORScopeTable), then the path of the element
+    public static @NotNull Deque<PsiElement> createInstructions(@NotNull PsiElement sourceElement) {
+        PsiFile file = sourceElement.getContainingFile();
+        Deque<PsiElement> instructions = file == null ? new LinkedList<>() : ORScopeTable.getInstance(file).getInstructions(sourceElement);
+
+        if (sourceElement instanceof PsiUpperSymbol || sourceElement instanceof PsiLowerSymbol) {
+            // only add a local path
+            //   can be a real path from a record : a.b.c
+            //   or a simulated path from a js object field : a##b##c
+            Deque<PsiElement> path = new LinkedList<>();
+            PsiElement prevItem = ORUtil.prevSibling(sourceElement);
+            while (prevItem != null && !isPathBreak(prevItem) && (prevItem.getNode().getElementType() == OCamlTypes.DOT || prevItem.getNode().getElementType() == OCamlTypes.SHARPSHARP)) {
+                PsiElement item = ORUtil.prevSibling(prevItem);
+                if (item instanceof PsiUpperSymbol) {
+                    path.push(new ORUpperSymbolWithResolution(item));
+                } else if (item instanceof PsiLowerSymbol) {
+                    path.push(item);
                 } else {
-                    startPath = false;
-                }
-            }
-        }
-        PsiElement item = prevItem == null ? sourceElement.getParent() : prevItem;
-        Deque<PsiElement> instructions = new LinkedList<>();
-
-        while (item != null) {
-            if (item instanceof PsiUpperSymbol || item instanceof PsiLowerSymbol) {
-                // only add if it's from a local path
-                //   can be a real path from a record : a.b.c
-                //   or a simulated path from a js object field : a##b##c
-                IElementType nextSiblingNodeType = item.getNextSibling().getNode().getElementType();
-                if ((nextSiblingNodeType == OCamlTypes.DOT || nextSiblingNodeType == OCamlTypes.SHARPSHARP) && startPath) {
-                    instructions.push(item instanceof PsiUpperSymbol ? new ORUpperSymbolWithResolution(item) : item);
-                }
-            } else if (item instanceof PsiInnerModule) {
-                if (((PsiInnerModule) item).isFunctorCall()) {
-                    PsiFunctorCall functorCall = ORUtil.findImmediateFirstChildOfClass(item, PsiFunctorCall.class);
-                    if (functorCall != null) {
-                        instructions.push(functorCall);
-                        //instructions.push(new ORFakeModuleAlias(item, functorCall.getFunctorName()));
-                    }
-                } else {
-                    instructions.push(item);
-                }
-            } else if (item instanceof PsiOpen) {
-                instructions.push(item);
-            } else if (item instanceof PsiLet) {
-                instructions.push(item);
-            } else if (item instanceof PsiType) {
-                instructions.push(item);
-            } else if (item instanceof PsiTagStart) {
-                instructions.push(item);
-            } else if (item instanceof FileBase) {
-                instructions.push(item);
-                break;
-            }
-
-            prevItem = ORUtil.prevSibling(item);
-            if ((item instanceof PsiUpperSymbol || item instanceof PsiLowerSymbol) && prevItem != null) {
-                IElementType prevType = prevItem.getNode().getElementType();
-                if (prevType == OCamlTypes.RIGHT_ARROW || prevType == OCamlTypes.PIPE_FORWARD || prevType == OCamlTypes.COMMA) {
-                    // -> A.B   or   |> A.B
-                    // we are no more in a path, skip path
-                    prevItem = prevItem.getPrevSibling();
-                    prevType = prevItem == null ? null : prevItem.getNode().getElementType();
-                    while ((prevType == OCamlTypes.DOT || prevType == OCamlTypes.C_UPPER_SYMBOL || prevType == OCamlTypes.C_VARIANT || prevType == OCamlTypes.C_LOWER_SYMBOL)) {
-                        prevItem = prevItem.getPrevSibling();
-                        prevType = prevItem == null ? null : prevItem.getNode().getElementType();
-                    }
-
-                    // if LocalOpen found, it is still a path
-                    if (prevType == OCamlTypes.LPAREN) {
-                        PsiElement parent = prevItem.getParent();
-                        startPath = parent instanceof PsiLocalOpen;
-                    } else {
-                        startPath = false;
-                    }
+                    break;
                 }
-            } else if (prevItem == null && startPath) {
-                // if LPAREN, we need to analyze context: a localOpen is still part of the path
-                IElementType itemType = item.getNode().getElementType();
-                PsiElement parent = item.getParent();
-                startPath = itemType == OCamlTypes.LPAREN && parent instanceof PsiLocalOpen;
+                prevItem = ORUtil.prevSibling(item);
             }
-
-            item = prevItem == null ? item.getParent() : prevItem;
+            instructions.addAll(path);
         }
 
         return instructions;
     }
 
-    static @NotNull Deque<CodeInstruction> resolveInstructions(@NotNull Deque<PsiElement> instructions, @NotNull Project project) {
+    // -> A.B   |> A.B   , A.B  :: we are no more in a path
+    private static boolean isPathBreak(@NotNull PsiElement element) {
+        IElementType elementType = element.getNode().getElementType();
+        return elementType == OCamlTypes.RIGHT_ARROW || elementType == OCamlTypes.PIPE_FORWARD || elementType == OCamlTypes.COMMA;
+    }
+
+    static @NotNull Deque<CodeInstruction> resolveInstructions(@NotNull Deque<PsiElement> instructions, @NotNull Project project, @NotNull GlobalSearchScope scope) {
         Deque<CodeInstruction> resolvedInstructions = new LinkedList<>();
-        GlobalSearchScope scope = GlobalSearchScope.allScope(project);
 
         while (!instructions.isEmpty()) {
+            ProgressManager.checkCanceled();
             PsiElement psiElement = instructions.removeFirst();
 
             if (psiElement instanceof PsiUpperSymbol || psiElement instanceof ORUpperSymbolWithResolution) {
@@ -188,25 +125,11 @@ public class ORReferenceAnalyzer {
                 }
             } else if (psiElement instanceof PsiLowerSymbol) {
                 resolvedInstructions.push(new CodeInstruction(psiElement, psiElement.getText()));
+            } else if (psiElement instanceof ORLocalAlias) {
+                // module aliases are already resolved by the scope table
+                resolvedInstructions.push(new CodeInstruction(psiElement, null));
             } else if (psiElement instanceof PsiInnerModule) {
-                String alias = ((PsiInnerModule) psiElement).getAlias();
-                if (alias == null) {
-                    resolvedInstructions.push(new CodeInstruction(psiElement, ((PsiInnerModule) psiElement).getModuleName()));
-                } else {
-                    String[] aliasPath = alias.split("\\.");
-                    CodeInstruction localAlias = resolvedInstructions.stream().filter(instruction -> instruction.mySource instanceof ORLocalAlias && ((ORLocalAlias) instruction.mySource).isModuleName(aliasPath[0])).findFirst().orElse(null);
-                    if (localAlias == null) {
-                        PsiElement local = new ORLocalAlias(psiElement, alias);
-                        resolvedInstructions.push(new CodeInstruction(local, null));
-                    } else {
-                        int pos = alias.indexOf(".");
-                        if (0 <= pos) {
-                            String newAlias = ((ORLocalAlias) localAlias.mySource).myResolvedAlias + alias.substring(pos);
-                            PsiElement local = new ORLocalAlias(psiElement, newAlias);
-                            resolvedInstructions.push(new CodeInstruction(local, null));
-                        }
-                    }
-                }
+                resolvedInstructions.push(new CodeInstruction(psiElement, ((PsiInnerModule) psiElement).getModuleName()));
             } else if (psiElement instanceof PsiOpen) {
                 String[] tokens = ((PsiOpen) psiElement).getPath().split("\\.");
                 for (String token : tokens) {
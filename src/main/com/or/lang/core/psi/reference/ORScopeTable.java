@@ -0,0 +1,206 @@
+package com.or.lang.core.psi.reference;
+
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiRecursiveElementWalkingVisitor;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.or.ide.files.FileBase;
+import com.or.lang.OCamlTypes;
+import com.or.lang.core.ORUtil;
+import com.or.lang.core.psi.*;
+import com.or.lang.core.psi.impl.PsiFunctorCall;
+import com.or.lang.core.psi.impl.PsiLocalOpen;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * The scope entries of a file (modules, functor calls, opens, lets, types, tags and the paths of the local opens),
+ * grouped by parent and ordered by offset. It replaces the walk of the siblings and parents of an element:
+ * the entries visible from an element are found with a binary search at each level of its parents.
+ * <p>
+ * The table is cached on the file and rebuilt when the file changes. A module alias is resolved once,
+ * against the local aliases visible from the module.
+ */
+class ORScopeTable {
+    private static final Entry[] NO_ENTRIES = new Entry[0];
+
+    // parent -> entries, ordered by offset
+    private final Map<PsiElement, Entry[]> myEntries;
+
+    private ORScopeTable(@NotNull Map<PsiElement, Entry[]> entries) {
+        myEntries = entries;
+    }
+
+    static @NotNull ORScopeTable getInstance(@NotNull PsiFile file) {
+        return CachedValuesManager.getCachedValue(file, () -> CachedValueProvider.Result.create(build(file), file));
+    }
+
+    private static @NotNull ORScopeTable build(@NotNull PsiFile file) {
+        Map<PsiElement, List<Entry>> entries = new HashMap<>();
+
+        file.accept(new PsiRecursiveElementWalkingVisitor() {
+            @Override
+            public void visitElement(@NotNull PsiElement element) {
+                Entry entry = createEntry(element);
+                if (entry != null) {
+                    entries.computeIfAbsent(element.getParent(), k -> new ArrayList<>()).add(entry);
+                }
+                if (element instanceof PsiLocalOpen) {
+                    addLocalOpenPath((PsiLocalOpen) element, entries);
+                }
+                super.visitElement(element);
+            }
+        });
+
+        Map<PsiElement, Entry[]> result = new HashMap<>(entries.size());
+        for (Map.Entry<PsiElement, List<Entry>> parentEntries : entries.entrySet()) {
+            Entry[] sorted = parentEntries.getValue().toArray(NO_ENTRIES);
+            // the symbols of a local open are added after the elements that precede them
+            Arrays.sort(sorted, Comparator.comparingInt(entry -> entry.myOffset));
+            result.put(parentEntries.getKey(), sorted);
+        }
+
+        return new ORScopeTable(result);
+    }
+
+    private static @Nullable Entry createEntry(@NotNull PsiElement element) {
+        if (element instanceof PsiInnerModule) {
+            if (((PsiInnerModule) element).isFunctorCall()) {
+                PsiFunctorCall functorCall = ORUtil.findImmediateFirstChildOfClass(element, PsiFunctorCall.class);
+                return functorCall == null ? null : new Entry(element, functorCall, null);
+            }
+            return new Entry(element, element, null);
+        }
+        if (element instanceof PsiOpen || element instanceof PsiLet || element instanceof PsiType || element instanceof PsiTagStart) {
+            return new Entry(element, element, null);
+        }
+        return null;
+    }
+
+    // M1.M2.( ... ) :: M1 and M2 are only visible inside the local open
+    private static void addLocalOpenPath(@NotNull PsiLocalOpen localOpen, @NotNull Map<PsiElement, List<Entry>> entries) {
+        PsiElement prevItem = ORUtil.prevSibling(localOpen);
+        while (prevItem != null && (prevItem.getNode().getElementType() == OCamlTypes.DOT || prevItem.getNode().getElementType() == OCamlTypes.SHARPSHARP)) {
+            PsiElement symbol = ORUtil.prevSibling(prevItem);
+            if (!(symbol instanceof PsiUpperSymbol || symbol instanceof PsiLowerSymbol)) {
+                break;
+            }
+            PsiElement instruction = symbol instanceof PsiUpperSymbol ? new ORReferenceAnalyzer.ORUpperSymbolWithResolution(symbol) : symbol;
+            entries.computeIfAbsent(localOpen.getParent(), k -> new ArrayList<>()).add(new Entry(symbol, instruction, localOpen));
+            prevItem = ORUtil.prevSibling(symbol);
+        }
+    }
+
+    /**
+     * @return the instructions visible from the element, from the file down to the element (the path of the element is not included)
+     */
+    @NotNull Deque<PsiElement> getInstructions(@NotNull PsiElement sourceElement) {
+        Deque<PsiElement> instructions = new LinkedList<>();
+
+        PsiElement child = sourceElement;
+        PsiElement parent = sourceElement.getParent();
+        boolean includeChild = false;
+        while (parent != null) {
+            addVisibleEntries(parent, child, includeChild, instructions);
+            if (parent instanceof FileBase) {
+                instructions.addFirst(parent);
+                break;
+            }
+
+            // the parents are also visible
+            child = parent;
+            parent = parent.getParent();
+            includeChild = true;
+        }
+
+        return instructions;
+    }
+
+    private void addVisibleEntries(@NotNull PsiElement parent, @NotNull PsiElement child, boolean includeChild, @NotNull Deque<PsiElement> instructions) {
+        Entry[] entries = myEntries.get(parent);
+        if (entries == null) {
+            return;
+        }
+
+        int childOffset = child.getTextRange().getStartOffset();
+        for (int i = upperBound(entries, childOffset, includeChild) - 1; 0 <= i; i--) {
+            Entry entry = entries[i];
+            if (entry.myLocalOpen == null || entry.myLocalOpen == child) {
+                PsiElement instruction = getResolvedInstruction(entry);
+                if (instruction != null) {
+                    instructions.addFirst(instruction);
+                }
+            }
+        }
+    }
+
+    // number of entries before the offset
+    private static int upperBound(@NotNull Entry[] entries, int offset, boolean inclusive) {
+        int low = 0;
+        int high = entries.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int entryOffset = entries[mid].myOffset;
+            if (entryOffset < offset || (inclusive && entryOffset == offset)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * The alias of a module is resolved with the local aliases visible from the module.
+     */
+    private @Nullable PsiElement getResolvedInstruction(@NotNull Entry entry) {
+        if (!(entry.myInstruction instanceof PsiInnerModule)) {
+            return entry.myInstruction;
+        }
+
+        if (!entry.myIsResolved) {
+            PsiInnerModule module = (PsiInnerModule) entry.myInstruction;
+            String alias = module.getAlias();
+            PsiElement resolved = module;
+            if (alias != null) {
+                String[] aliasPath = alias.split("\\.");
+                ORReferenceAnalyzer.ORLocalAlias localAlias = null;
+                Iterator<PsiElement> visible = getInstructions(module).descendingIterator();
+                while (localAlias == null && visible.hasNext()) {
+                    PsiElement instruction = visible.next();
+                    if (instruction instanceof ORReferenceAnalyzer.ORLocalAlias && ((ORReferenceAnalyzer.ORLocalAlias) instruction).isModuleName(aliasPath[0])) {
+                        localAlias = (ORReferenceAnalyzer.ORLocalAlias) instruction;
+                    }
+                }
+
+                if (localAlias == null) {
+                    resolved = new ORReferenceAnalyzer.ORLocalAlias(module, alias);
+                } else {
+                    int pos = alias.indexOf(".");
+                    resolved = pos < 0 ? null : new ORReferenceAnalyzer.ORLocalAlias(module, localAlias.myResolvedAlias + alias.substring(pos));
+                }
+            }
+            entry.myResolvedInstruction = resolved;
+            entry.myIsResolved = true;
+        }
+
+        return entry.myResolvedInstruction;
+    }
+
+    private static final class Entry {
+        private final int myOffset;
+        private final @NotNull PsiElement myInstruction;
+        private final @Nullable PsiLocalOpen myLocalOpen;
+        private volatile boolean myIsResolved;
+        private @Nullable PsiElement myResolvedInstruction;
+
+        Entry(@NotNull PsiElement element, @NotNull PsiElement instruction, @Nullable PsiLocalOpen localOpen) {
+            myOffset = element.getTextRange().getStartOffset();
+            myInstruction = instruction;
+            myLocalOpen = localOpen;
+        }
+    }
+}
@@ -4,11 +4,10 @@ import com.intellij.lang.ASTNode;
 import com.intellij.openapi.project.Project;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.ResolveResult;
-import com.intellij.psi.search.GlobalSearchScope;
 import com.intellij.util.IncorrectOperationException;
 import com.ocaml.ide.files.FileHelper;
 import com.or.ide.files.FileBase;
-import com.or.ide.search.index.*;
+import com.or.ide.search.DependencyScopeService;
 import com.or.lang.core.ORCodeFactory;
 import com.or.lang.core.ORUtil;
 import com.or.lang.core.psi.*;
@@ -20,6 +19,8 @@ import com.or.utils.Platform;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Deque;
 import java.util.List;
@@ -27,6 +28,7 @@ import java.util.List;
 public class PsiLowerSymbolReference extends ORMultiSymbolReference<PsiLowerSymbol> implements FetchLastForStatement {
     private static final Log LOG = Log.create("ref.lower");
     private static final Log LOG_PERF = Log.create("ref.perf.lower");
+    public static final ResolveCacheStatistics CACHE_STATISTICS = new ResolveCacheStatistics();
     private @Nullable PsiElement symbol;
 
     public PsiLowerSymbolReference(@NotNull PsiLowerSymbol element) {
@@ -52,10 +54,36 @@ public class PsiLowerSymbolReference extends ORMultiSymbolReference<PsiLowerSymb
             return ResolveResult.EMPTY_ARRAY;
         }
 
-        long startAll = System.currentTimeMillis();
+        // The last element of a statement depends on the symbol, it is not cached
+        return symbol == null ? resolveWithCache() : resolve(symbol);
+    }
+
+    @Override
+    protected ResolveResult @NotNull [] resolveWithoutCache() {
+        return resolve(null);
+    }
+
+    @Override
+    protected @NotNull ResolveCacheStatistics getCacheStatistics() {
+        return CACHE_STATISTICS;
+    }
+
+    private ResolveResult @NotNull [] resolve(@Nullable PsiElement symbol) {
+        long startAll = System.nanoTime();
+        ResolveBudget budget = new ResolveBudget(myElement.getProject());
 
         LOG.debug("Find reference for lower symbol", myReferenceName);
 
+        // Most symbols are parameters or local bindings: the lexical scope is tried before the indexes
+        PsiElement localElement = symbol == null && myReferenceName != null ? ORLocalScopeResolver.resolve(myElement, myReferenceName) : null;
+        long endLocal = System.nanoTime();
+        if (localElement != null) {
+            ResolveProfiler.LOWER.record(new long[]{startAll, endLocal}, false);
+            if (LOG_PERF.isDebugEnabled()) {
+                LOG_PERF.debug("Local resolution of " + myReferenceName + " in " + (endLocal - startAll) / 1_000 + "µs, cache: " + CACHE_STATISTICS);
+            }
+            return new ResolveResult[]{new LowerResolveResult(localElement, myReferenceName)};
+        }
 
         // Gather instructions from element up to the file root
         Deque<PsiElement> instructions = ORReferenceAnalyzer.createInstructions(myElement);
@@ -64,36 +92,57 @@ public class PsiLowerSymbolReference extends ORMultiSymbolReference<PsiLowerSymb
             LOG.trace("  Instructions: ", Joiner.join(" -> ", instructions));
         }
 
-        long endInstructions = System.currentTimeMillis();
+        long endInstructions = System.nanoTime();
 
-        // Resolve aliases in the stack of instructions, this time from file down to element
-        Deque<CodeInstruction> resolvedInstructions = ORReferenceAnalyzer.resolveInstructions(instructions, myElement.getProject());
+        // Resolve aliases in the stack of instructions, this time from file down to element.
+        // Skipped when the time budget is exhausted: the paths are not weighted
+        Deque<CodeInstruction> resolvedInstructions = budget.checkpoint()
+                ? new ArrayDeque<>()
+                : ORReferenceAnalyzer.resolveInstructions(instructions, myElement.getProject(), DependencyScopeService.getScope(myElement));
 
         if (LOG.isTraceEnabled()) {
             LOG.trace("  Resolved instructions: " + Joiner.join(" -> ", resolvedInstructions));
         }
 
-        long endResolvedInstructions = System.currentTimeMillis();
+        long endResolvedInstructions = System.nanoTime();
 
         // Find all elements by name and create a list of paths
         Project project = myElement.getProject();
         ORElementResolver.Resolutions resolutions = project.getService(ORElementResolver.class).getComputation();
-        GlobalSearchScope scope = GlobalSearchScope.allScope(project);
 
-        Collection<PsiType> types = TypeIndex.getElements(myReferenceName, project, scope);
-        Collection<PsiVal> vals = ValIndex.getElements(myReferenceName, project, scope);
-        Collection<PsiLet> lets = LetIndex.getElements(myReferenceName, project, scope);
-        Collection<PsiExternal> externals = ExternalIndex.getElements(myReferenceName, project, scope);
-        Collection<PsiRecordField> recordFields = RecordFieldIndex.getElements(myReferenceName, project, scope);
-        Collection<PsiObjectField> objectFields = ObjectFieldIndex.getElements(myReferenceName, project, scope);
-        Collection<PsiParameter> parameters = ParameterIndex.getElements(myReferenceName, project, scope);
+        // One lookup for all kinds, elements are then dispatched by kind to keep the resolution order
+        List<PsiType> types = new ArrayList<>();
+        List<PsiVal> vals = new ArrayList<>();
+        List<PsiLet> lets = new ArrayList<>();
+        List<PsiExternal> externals = new ArrayList<>();
+        List<PsiRecordField> recordFields = new ArrayList<>();
+        List<PsiObjectField> objectFields = new ArrayList<>();
+        List<PsiParameter> parameters = new ArrayList<>();
+
+        for (PsiQualifiedPathElement element : ORFileResolver.getInstance(myElement.getContainingFile()).getLowerElements(myReferenceName)) {
+            if (element instanceof PsiType) {
+                types.add((PsiType) element);
+            } else if (element instanceof PsiVal) {
+                vals.add((PsiVal) element);
+            } else if (element instanceof PsiLet) {
+                lets.add((PsiLet) element);
+            } else if (element instanceof PsiExternal) {
+                externals.add((PsiExternal) element);
+            } else if (element instanceof PsiRecordField) {
+                recordFields.add((PsiRecordField) element);
+            } else if (element instanceof PsiObjectField) {
+                objectFields.add((PsiObjectField) element);
+            } else if (element instanceof PsiParameter) {
+                parameters.add((PsiParameter) element);
+            }
+        }
 
         if (LOG.isTraceEnabled()) {
             LOG.trace("  indexes: types=" + types.size() + ", vals=" + vals.size() + ", lets=" + lets.size() +
                     ", externals=" + externals.size() + ", fieds=" + (recordFields.size() + objectFields.size()) + ", params=" + parameters.size());
         }
 
-        long endIndexes = System.currentTimeMillis();
+        long endIndexes = System.nanoTime();
 
         resolutions.add(types, false);
         resolutions.add(vals, false);
@@ -103,15 +152,21 @@ public class PsiLowerSymbolReference extends ORMultiSymbolReference<PsiLowerSymb
         resolutions.add(objectFields, false);
         resolutions.add(parameters, false);
 
-        long endAddResolutions = System.currentTimeMillis();
+        long endAddResolutions = System.nanoTime();
 
-        resolutions.addIncludesEquivalence();
+        // Optional phases, skipped when the time budget is exhausted
+        if (!budget.checkpoint()) {
+            resolutions.addIncludesEquivalence();
+        }
 
-        long endIncludes = System.currentTimeMillis();
+        long endIncludes = System.nanoTime();
 
         // Now that everything is resolved, we can use the stack of instructions to add weight to the paths
 
         for (CodeInstruction instruction : resolvedInstructions) {
+            if (budget.checkpoint()) {
+                break;
+            }
             if (instruction.mySource instanceof FileBase) {
                 resolutions.udpateTerminalWeight(((FileBase) instruction.mySource).getModuleName());
             } else if (instruction.mySource instanceof PsiLowerSymbol) {
@@ -129,9 +184,12 @@ public class PsiLowerSymbolReference extends ORMultiSymbolReference<PsiLowerSymb
             }
         }
 
-        long endUpdateResolutions = System.currentTimeMillis();
+        long endUpdateResolutions = System.nanoTime();
 
-        resolutions.removeIncomplete();
+        // A partial result keeps the incomplete resolutions, sorted by their current weight
+        if (!budget.isExhausted()) {
+            resolutions.removeIncomplete();
+        }
         Collection<PsiQualifiedPathElement> sortedResult;
         if (symbol != null) {
             int max = symbol.getTextOffset();
@@ -155,7 +213,7 @@ public class PsiLowerSymbolReference extends ORMultiSymbolReference<PsiLowerSymb
                             + " [" + Platform.getRelativePathToModule(element.getContainingFile()) + "]"));
         }
 
-        long endSort = System.currentTimeMillis();
+        long endSort = System.nanoTime();
 
         ResolveResult[] resolveResults = new ResolveResult[sortedResult.size()];
         int i = 0;
@@ -164,17 +222,25 @@ public class PsiLowerSymbolReference extends ORMultiSymbolReference<PsiLowerSymb
             i++;
         }
 
-        long endAll = System.currentTimeMillis();
-        if (LOG_PERF.isDebugEnabled()) {
-            LOG_PERF.debug("Resolution of " + myReferenceName + " in " + (endAll - startAll) + "ms => " +
-                    " i:" + (endInstructions - startAll) + "," +
-                    " rI:" + (endResolvedInstructions - endInstructions) + "," +
-                    " id:" + (endIndexes - endResolvedInstructions) + "," +
-                    " aR:" + (endAddResolutions - endIndexes) + "," +
-                    " aI:" + (endIncludes - endAddResolutions) + "," +
-                    " uR:" + (endUpdateResolutions - endIncludes) + "," +
-                    " sort: " + (endSort - endUpdateResolutions) + ""
-            );
+        long endAll = System.nanoTime();
+        myIsPartialResult = budget.isExhausted();
+        ResolveProfiler.LOWER.record(new long[]{startAll, endLocal, endInstructions, endResolvedInstructions, endIndexes, endAddResolutions, endIncludes, endUpdateResolutions, endSort, endAll}, myIsPartialResult);
+        if (LOG_PERF.isDebugEnabled() || myIsPartialResult) {
+            String timings = "Resolution of " + myReferenceName + " in " + (endAll - startAll) / 1_000_000 + "ms => " +
+                    " l:" + (endLocal - startAll) / 1_000_000 + "," +
+                    " i:" + (endInstructions - endLocal) / 1_000_000 + "," +
+                    " rI:" + (endResolvedInstructions - endInstructions) / 1_000_000 + "," +
+                    " id:" + (endIndexes - endResolvedInstructions) / 1_000_000 + "," +
+                    " aR:" + (endAddResolutions - endIndexes) / 1_000_000 + "," +
+                    " aI:" + (endIncludes - endAddResolutions) / 1_000_000 + "," +
+                    " uR:" + (endUpdateResolutions - endIncludes) / 1_000_000 + "," +
+                    " sort: " + (endSort - endUpdateResolutions) / 1_000_000 + "," +
+                    " cache: " + CACHE_STATISTICS;
+            if (myIsPartialResult) {
+                LOG_PERF.info("Time budget of " + budget.getBudget() + "ms exceeded, partial result. " + timings);
+            } else {
+                LOG_PERF.debug(timings);
+            }
         }
 
         return resolveResults;
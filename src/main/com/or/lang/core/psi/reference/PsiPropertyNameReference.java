@@ -6,6 +6,7 @@ import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiPolyVariantReferenceBase;
 import com.intellij.psi.ResolveResult;
 import com.or.ide.files.FileBase;
+import com.or.ide.search.DependencyScopeService;
 import com.or.ide.search.index.LetIndex;
 import com.or.lang.core.psi.*;
 import com.or.lang.core.psi.impl.PsiLeafPropertyName;
@@ -52,7 +53,7 @@ public class PsiPropertyNameReference extends PsiPolyVariantReferenceBase<PsiLea
         }
 
         // Resolve aliases in the stack of instructions, this time from file down to element
-        Deque<CodeInstruction> resolvedInstructions = ORReferenceAnalyzer.resolveInstructions(instructions, myElement.getProject());
+        Deque<CodeInstruction> resolvedInstructions = ORReferenceAnalyzer.resolveInstructions(instructions, myElement.getProject(), DependencyScopeService.getScope(myElement));
 
         if (LOG.isTraceEnabled()) {
             LOG.trace("  Resolved instructions: " + Joiner.join(" -> ", resolvedInstructions));
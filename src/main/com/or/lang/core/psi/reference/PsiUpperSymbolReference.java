@@ -5,12 +5,9 @@ import com.intellij.openapi.project.Project;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiNameIdentifierOwner;
 import com.intellij.psi.ResolveResult;
-import com.intellij.psi.search.GlobalSearchScope;
 import com.intellij.util.IncorrectOperationException;
 import com.or.ide.files.FileBase;
-import com.or.ide.search.index.ExceptionIndex;
-import com.or.ide.search.index.ModuleIndex;
-import com.or.ide.search.index.VariantIndex;
+import com.or.ide.search.DependencyScopeService;
 import com.or.lang.core.ORCodeFactory;
 import com.or.lang.core.ORUtil;
 import com.or.lang.core.psi.*;
@@ -23,12 +20,14 @@ import com.or.utils.Platform;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.ArrayDeque;
 import java.util.Collection;
 import java.util.Deque;
 
 public class PsiUpperSymbolReference extends ORMultiSymbolReference<PsiUpperSymbol> {
     private static final Log LOG = Log.create("ref.upper");
     private static final Log LOG_PERF = Log.create("ref.perf.upper");
+    public static final ResolveCacheStatistics CACHE_STATISTICS = new ResolveCacheStatistics();
 
     public PsiUpperSymbolReference(@NotNull PsiUpperSymbol element) {
         super(element);
@@ -46,7 +45,18 @@ public class PsiUpperSymbolReference extends ORMultiSymbolReference<PsiUpperSymb
             return ResolveResult.EMPTY_ARRAY;
         }
 
-        long startAll = System.currentTimeMillis();
+        return resolveWithCache();
+    }
+
+    @Override
+    protected @NotNull ResolveCacheStatistics getCacheStatistics() {
+        return CACHE_STATISTICS;
+    }
+
+    @Override
+    protected ResolveResult @NotNull [] resolveWithoutCache() {
+        long startAll = System.nanoTime();
+        ResolveBudget budget = new ResolveBudget(myElement.getProject());
 
         LOG.debug("Find reference for upper symbol", myReferenceName);
 
@@ -58,47 +68,51 @@ public class PsiUpperSymbolReference extends ORMultiSymbolReference<PsiUpperSymb
             LOG.trace("  Instructions", Joiner.join(" -> ", instructions));
         }
 
-        long endInstructions = System.currentTimeMillis();
+        long endInstructions = System.nanoTime();
 
-        // Resolve aliases in the stack of instructions, this time from file down to element
-        Deque<CodeInstruction> resolvedInstructions = ORReferenceAnalyzer.resolveInstructions(instructions, myElement.getProject());
+        // Resolve aliases in the stack of instructions, this time from file down to element.
+        // Skipped when the time budget is exhausted: the paths are not weighted
+        Deque<CodeInstruction> resolvedInstructions = budget.checkpoint()
+                ? new ArrayDeque<>()
+                : ORReferenceAnalyzer.resolveInstructions(instructions, myElement.getProject(), DependencyScopeService.getScope(myElement));
 
         if (LOG.isTraceEnabled()) {
             LOG.trace("  Resolved instructions: " + Joiner.join(" -> ", resolvedInstructions));
         }
 
-        long endResolvedInstructions = System.currentTimeMillis();
+        long endResolvedInstructions = System.nanoTime();
 
         // Find all elements by name and create a list of paths
         Project project = myElement.getProject();
-        //Module module = Platform.getModule(project, myElement.getContainingFile().getVirtualFile());
-        //GlobalSearchScope scope = module == null ? GlobalSearchScope.projectScope(project) : GlobalSearchScope.moduleScope(module);
-        GlobalSearchScope scope = GlobalSearchScope.allScope(project);
+        // The index lookups are shared by all the symbols of the file with the same name
+        ORFileResolver.UpperElements elements = ORFileResolver.getInstance(myElement.getContainingFile()).getUpperElements(myReferenceName);
 
-        Collection<PsiModule> modules = ModuleIndex.getElements(myReferenceName, project, scope);
-        Collection<PsiVariantDeclaration> variants = VariantIndex.getElements(myReferenceName, project, scope);
-        Collection<PsiException> exceptions = ExceptionIndex.getElements(myReferenceName, project, scope);
-
-        long endIndexes = System.currentTimeMillis();
+        long endIndexes = System.nanoTime();
 
         ORElementResolver.Resolutions resolutions = project.getService(ORElementResolver.class).getComputation();
-        resolutions.add(modules, true);
-        resolutions.add(variants, false);
-        resolutions.add(exceptions, false);
+        resolutions.add(elements.myModules, true);
+        resolutions.add(elements.myVariants, false);
+        resolutions.add(elements.myExceptions, false);
 
         //if (LOG.isTraceEnabled()) {
         //    LOG.trace("  Resolutions", resolutions.myResolutions.values());
         //}
 
-        long endAddResolutions = System.currentTimeMillis();
+        long endAddResolutions = System.nanoTime();
 
-        resolutions.addIncludesEquivalence();
+        // Optional phases, skipped when the time budget is exhausted
+        if (!budget.checkpoint()) {
+            resolutions.addIncludesEquivalence();
+        }
 
-        long endAddIncludes = System.currentTimeMillis();
+        long endAddIncludes = System.nanoTime();
 
         // Now that everything is resolved, we can use the stack of instructions to add weight to the paths
 
         for (CodeInstruction instruction : resolvedInstructions) {
+            if (budget.checkpoint()) {
+                break;
+            }
             if (instruction.mySource instanceof FileBase) {
                 resolutions.udpateTerminalWeight(((FileBase) instruction.mySource).getModuleName());
             } else if (instruction.myValues != null) {
@@ -108,9 +122,12 @@ public class PsiUpperSymbolReference extends ORMultiSymbolReference<PsiUpperSymb
             }
         }
 
-        long endUpdateResolutions = System.currentTimeMillis();
+        long endUpdateResolutions = System.nanoTime();
 
-        resolutions.removeIncomplete();
+        // A partial result keeps the incomplete resolutions, sorted by their current weight
+        if (!budget.isExhausted()) {
+            resolutions.removeIncomplete();
+        }
         Collection<PsiQualifiedPathElement> sortedResult = resolutions.resolvedElements();
 
         if (LOG.isDebugEnabled()) {
@@ -119,7 +136,7 @@ public class PsiUpperSymbolReference extends ORMultiSymbolReference<PsiUpperSymb
                             + " [" + Platform.getRelativePathToModule(element.getContainingFile()) + "]"));
         }
 
-        long endSort = System.currentTimeMillis();
+        long endSort = System.nanoTime();
 
         ResolveResult[] resolveResults = new ResolveResult[sortedResult.size()];
 
@@ -130,17 +147,24 @@ public class PsiUpperSymbolReference extends ORMultiSymbolReference<PsiUpperSymb
             i++;
         }
 
-        long endAll = System.currentTimeMillis();
-        if (LOG_PERF.isDebugEnabled()) {
-            LOG_PERF.debug("Resolution of " + myReferenceName + " in " + (endAll - startAll) + "ms => " +
-                    " in: " + (endInstructions - startAll) + "ms," +
-                    " rI: " + (endResolvedInstructions - endInstructions) + "ms," +
-                    " id: " + (endIndexes - endResolvedInstructions) + "ms, " +
-                    " aR: " + (endAddResolutions - endIndexes) + "ms," +
-                    " aI: " + (endAddIncludes - endAddResolutions) + "ms," +
-                    " uR: " + (endUpdateResolutions - endAddIncludes) + "ms," +
-                    " sort: " + (endSort - endUpdateResolutions) + "ms"
-            );
+        long endAll = System.nanoTime();
+        myIsPartialResult = budget.isExhausted();
+        ResolveProfiler.UPPER.record(new long[]{startAll, endInstructions, endResolvedInstructions, endIndexes, endAddResolutions, endAddIncludes, endUpdateResolutions, endSort, endAll}, myIsPartialResult);
+        if (LOG_PERF.isDebugEnabled() || myIsPartialResult) {
+            String timings = "Resolution of " + myReferenceName + " in " + (endAll - startAll) / 1_000_000 + "ms => " +
+                    " in: " + (endInstructions - startAll) / 1_000_000 + "ms," +
+                    " rI: " + (endResolvedInstructions - endInstructions) / 1_000_000 + "ms," +
+                    " id: " + (endIndexes - endResolvedInstructions) / 1_000_000 + "ms, " +
+                    " aR: " + (endAddResolutions - endIndexes) / 1_000_000 + "ms," +
+                    " aI: " + (endAddIncludes - endAddResolutions) / 1_000_000 + "ms," +
+                    " uR: " + (endUpdateResolutions - endAddIncludes) / 1_000_000 + "ms," +
+                    " sort: " + (endSort - endUpdateResolutions) / 1_000_000 + "ms," +
+                    " cache: " + CACHE_STATISTICS;
+            if (myIsPartialResult) {
+                LOG_PERF.info("Time budget of " + budget.getBudget() + "ms exceeded, partial result. " + timings);
+            } else {
+                LOG_PERF.debug(timings);
+            }
         }
 
         return resolveResults;
@@ -14,50 +14,80 @@ import java.util.ArrayList;
 import java.util.List;
 
 class Resolution implements Comparable<Resolution> {
+    private static final String[] EMPTY_PATH = new String[0];
+    private static final int NO_WEIGHT = 0; // weights start at 1
+
     final List<PsiQualifiedPathElement> myElements = new ArrayList<>();
-    private final String[] myPath;
+    // the path is a view on an array (not copied): the first myPathLength items of myPath, then mySourceName if any
+    private final String @Nullable [] myPath;
+    private final int myPathLength;
+    private final @Nullable String mySourceName;
     int myLevel; // reverse order
     boolean myIsComplete = false;
-    Integer[] myWeights;
+    int[] myWeights;
     private String[] myAlternatePath;
 
     public Resolution(String @Nullable [] path, @NotNull PsiQualifiedPathElement element) {
-        myPath = path;
-        myLevel = path == null ? -1 : myPath.length - 1;
+        this(path, path == null ? 0 : path.length, null, element);
+    }
+
+    public Resolution(String @Nullable [] path, int pathLength, @Nullable String sourceName, @NotNull PsiQualifiedPathElement element) {
+        myPath = path == null && sourceName != null ? EMPTY_PATH : path;
+        myPathLength = pathLength;
+        mySourceName = sourceName;
+        myLevel = myPath == null ? -1 : getPathLength() - 1;
         myElements.add(element);
     }
 
     public Resolution(String @Nullable [] path, @NotNull List<PsiQualifiedPathElement> elements) {
+        this(path, path == null ? 0 : path.length, null, elements);
+    }
+
+    private Resolution(String @Nullable [] path, int pathLength, @Nullable String sourceName, @NotNull List<PsiQualifiedPathElement> elements) {
         myPath = path;
-        myLevel = path == null ? -1 : myPath.length - 1;
+        myPathLength = pathLength;
+        mySourceName = sourceName;
+        myLevel = path == null ? -1 : getPathLength() - 1;
         myElements.addAll(elements);
     }
 
     public static @NotNull Resolution createAlternate(@NotNull Resolution resolution, String @NotNull [] alternatePath) {
-        Resolution result = new Resolution(resolution.myPath, resolution.myElements);
-        int newPathLength = alternatePath.length + resolution.myPath.length;
+        Resolution result = new Resolution(resolution.myPath, resolution.myPathLength, resolution.mySourceName, resolution.myElements);
+        int newPathLength = alternatePath.length + resolution.getPathLength();
         result.myAlternatePath = alternatePath;
         result.myLevel = newPathLength - 2;
         return result;
     }
 
+    private int getPathLength() {
+        return mySourceName == null ? myPathLength : myPathLength + 1;
+    }
+
+    private @NotNull String getPathItem(int index) {
+        //noinspection ConstantConditions
+        return index < myPathLength ? myPath[index] : mySourceName;
+    }
+
     public @Nullable String getCurrentName() {
         if (0 <= myLevel) {
             boolean hasAlternate = myAlternatePath != null;
             int alternateLength = hasAlternate ? myAlternatePath.length : 0;
             boolean useAlternate = myLevel < alternateLength;
-            return useAlternate ? myAlternatePath[myLevel] : myPath[myLevel + (hasAlternate ? 1 - alternateLength : 0)];
+            return useAlternate ? myAlternatePath[myLevel] : getPathItem(myLevel + (hasAlternate ? 1 - alternateLength : 0));
         }
         return null;
     }
 
-    public @Nullable Integer getWeight(int level) {
-        return myWeights != null && 0 <= level && level < myPath.length ? myWeights[level] : null;
+    /**
+     * @return the weight of the level, or 0 if the level has no weight
+     */
+    public int getWeight(int level) {
+        return myWeights != null && 0 <= level && level < getPathLength() ? myWeights[level] : NO_WEIGHT;
     }
 
     public int getFirstWeight() {
-        Integer weight = myWeights == null ? null : myWeights[myWeights.length - 1];
-        return weight == null ? Integer.MAX_VALUE : weight;
+        int weight = myWeights == null ? NO_WEIGHT : myWeights[myWeights.length - 1];
+        return weight == NO_WEIGHT ? Integer.MAX_VALUE : weight;
     }
 
     public void updateCurrentWeight(int weight) {
@@ -67,8 +97,8 @@ class Resolution implements Comparable<Resolution> {
 
         if (myWeights == null) {
             int alternateLength = myAlternatePath != null ? myAlternatePath.length : 0;
-            int totalLength = myAlternatePath != null ? alternateLength + myPath.length - 1 : myPath.length;
-            myWeights = new Integer[totalLength];
+            int totalLength = myAlternatePath != null ? alternateLength + getPathLength() - 1 : getPathLength();
+            myWeights = new int[totalLength];
             myLevel = totalLength - 1;
         }
 
@@ -92,15 +122,15 @@ class Resolution implements Comparable<Resolution> {
     }
 
     public String getTopModuleName() {
-        return myAlternatePath == null ? myPath[0] : myAlternatePath[0];
+        return myAlternatePath == null ? getPathItem(0) : myAlternatePath[0];
     }
 
     @Override
     public @NotNull String toString() {
         StringBuilder sb = new StringBuilder();
         if (myPath != null) {
-            for (int i = 0; i < myPath.length; i++) {
-                String item = myPath[i];
+            for (int i = 0; i < getPathLength(); i++) {
+                String item = getPathItem(i);
                 if (i > 0) {
                     sb.append(", ");
                 }
@@ -121,11 +151,19 @@ class Resolution implements Comparable<Resolution> {
      */
 
     public @NotNull String joinPath() {
-        if (myAlternatePath == null) {
-            return Joiner.join(".", myPath);
+        StringBuilder sb = new StringBuilder();
+        int from = 0;
+        if (myAlternatePath != null) {
+            sb.append(Joiner.join(".", myAlternatePath)).append(".");
+            from = 1;
+        }
+        for (int i = from; i < getPathLength(); i++) {
+            if (from < i) {
+                sb.append(".");
+            }
+            sb.append(getPathItem(i));
         }
-
-        return Joiner.join(".", myAlternatePath) + "." + Joiner.joinFrom(".", myPath, 1);
+        return sb.toString();
     }
 
     @Override public int compareTo(@NotNull Resolution o) {
@@ -150,13 +188,13 @@ class Resolution implements Comparable<Resolution> {
         }
 
         // first level with a different weight
-        int r1Length = myPath.length;
+        int r1Length = getPathLength();
         int r1Level = r1Length - 1;
-        int oLength = o.myPath.length;
+        int oLength = o.getPathLength();
         int oLevel = oLength - 1;
-        Integer r1Weight = getWeight(r1Level);
-        Integer oWeight = o.getWeight(oLevel);
-        while (0 <= r1Level && 0 <= oLevel && r1Weight != null && r1Weight.equals(oWeight)) {
+        int r1Weight = getWeight(r1Level);
+        int oWeight = o.getWeight(oLevel);
+        while (0 <= r1Level && 0 <= oLevel && r1Weight != NO_WEIGHT && r1Weight == oWeight) {
             r1Level--;
             oLevel--;
             r1Weight = getWeight(r1Level);
@@ -171,7 +209,7 @@ class Resolution implements Comparable<Resolution> {
             return -1;
         }
 
-        int levels = Integer.compare(r1Weight == null ? Integer.MAX_VALUE : r1Weight, oWeight == null ? Integer.MAX_VALUE : oWeight);
+        int levels = Integer.compare(r1Weight == NO_WEIGHT ? Integer.MAX_VALUE : r1Weight, oWeight == NO_WEIGHT ? Integer.MAX_VALUE : oWeight);
         if (levels == 0) {
             if (isInterface() && !o.isInterface()) {
                 return 1;
@@ -185,19 +223,22 @@ class Resolution implements Comparable<Resolution> {
     }
 
     public String @NotNull [] augmentPath(@NotNull String @NotNull [] path) {
-        if (myAlternatePath == null && myPath.length == 1) {
+        int pathLength = getPathLength();
+        if (myAlternatePath == null && pathLength == 1) {
             return path;
         }
 
-        int totalLength = (myAlternatePath == null ? 1 : myAlternatePath.length) + myPath.length - 1;
+        int totalLength = (myAlternatePath == null ? 1 : myAlternatePath.length) + pathLength - 1;
         String[] newPath = new String[path.length + totalLength - 1];
 
         System.arraycopy(path, 0, newPath, 0, path.length);
-        if (myAlternatePath == null) {
-            System.arraycopy(myPath, 1, newPath, path.length, myPath.length - 1);
-        } else {
-            System.arraycopy(myAlternatePath, 1, newPath, path.length, myAlternatePath.length - 1);
-            System.arraycopy(myPath, 1, newPath, path.length + myAlternatePath.length - 1, myPath.length - 1);
+        int pos = path.length;
+        if (myAlternatePath != null) {
+            System.arraycopy(myAlternatePath, 1, newPath, pos, myAlternatePath.length - 1);
+            pos += myAlternatePath.length - 1;
+        }
+        for (int i = 1; i < pathLength; i++) {
+            newPath[pos++] = getPathItem(i);
         }
 
         return newPath;
@@ -0,0 +1,59 @@
+package com.or.lang.core.psi.reference;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Disposer;
+import com.ocaml.ide.settings.OCamlSettings;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.TestOnly;
+
+import java.util.function.LongSupplier;
+
+/**
+ * The time budget of a resolution (see {@link OCamlSettings#resolveTimeBudget}).
+ * <p>
+ * Each phase of a resolution is a checkpoint: the resolution is cancelled if the progress is cancelled (typing),
+ * and the optional phases are skipped once the budget is exhausted, to return a best-effort result.
+ */
+public final class ResolveBudget {
+    private static final LongSupplier SYSTEM_CLOCK = System::currentTimeMillis;
+    private static volatile LongSupplier ourClock = SYSTEM_CLOCK;
+
+    private final LongSupplier myClock = ourClock;
+    private final long myStart = myClock.getAsLong();
+    private final long myBudget;
+    private boolean myIsExhausted = false;
+
+    ResolveBudget(@NotNull Project project) {
+        myBudget = OCamlSettings.getInstance(project).resolveTimeBudget;
+    }
+
+    /**
+     * Replace the clock (in milliseconds) of the budgets until the disposable is disposed.
+     */
+    @TestOnly
+    public static void setClock(@NotNull LongSupplier clock, @NotNull Disposable parentDisposable) {
+        ourClock = clock;
+        Disposer.register(parentDisposable, () -> ourClock = SYSTEM_CLOCK);
+    }
+
+    /**
+     * @return true if the budget is exhausted: the remaining optional phases must be skipped
+     */
+    boolean checkpoint() {
+        ProgressManager.checkCanceled();
+        if (!myIsExhausted && 0 < myBudget && myBudget < myClock.getAsLong() - myStart) {
+            myIsExhausted = true;
+        }
+        return myIsExhausted;
+    }
+
+    boolean isExhausted() {
+        return myIsExhausted;
+    }
+
+    long getBudget() {
+        return myBudget;
+    }
+}
@@ -0,0 +1,34 @@
+package com.or.lang.core.psi.reference;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hits and misses of the resolve cache of a kind of reference, logged with the resolution timings.
+ */
+public final class ResolveCacheStatistics {
+    private final AtomicLong myCalls = new AtomicLong();
+    private final AtomicLong myMisses = new AtomicLong();
+
+    void call() {
+        myCalls.incrementAndGet();
+    }
+
+    void miss() {
+        myMisses.incrementAndGet();
+    }
+
+    public long getHitCount() {
+        return myCalls.get() - myMisses.get();
+    }
+
+    public long getMissCount() {
+        return myMisses.get();
+    }
+
+    @Override
+    public @NotNull String toString() {
+        return "hits: " + getHitCount() + ", misses: " + getMissCount();
+    }
+}
@@ -0,0 +1,188 @@
+package com.or.lang.core.psi.reference;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Latency histograms of the phases of the resolution of a kind of reference, aggregated over all the resolutions
+ * since the start of the IDE (or the last reset).
+ * <p>
+ * A resolution records the timestamps of the end of its phases (nanoseconds), the first timestamp is its start.
+ * The buckets of a histogram are powers of 10, from 10µs to 1s.
+ */
+public final class ResolveProfiler {
+    public static final ResolveProfiler LOWER = new ResolveProfiler("lower", PsiLowerSymbolReference.CACHE_STATISTICS,
+            "local", "instructions", "resolvedInstructions", "indexes", "addResolutions", "includes", "updateWeights", "sort");
+    public static final ResolveProfiler UPPER = new ResolveProfiler("upper", PsiUpperSymbolReference.CACHE_STATISTICS,
+            "instructions", "resolvedInstructions", "indexes", "addResolutions", "includes", "updateWeights", "sort");
+
+    public static final String TOTAL = "total";
+    private static final long[] BUCKET_LIMITS = {10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L, 1_000_000_000L};
+    private static final String[] BUCKET_NAMES = {"<10µs", "<100µs", "<1ms", "<10ms", "<100ms", "<1s", ">=1s"};
+
+    private final String myName;
+    private final ResolveCacheStatistics myCacheStatistics;
+    private final List<Histogram> myHistograms = new ArrayList<>();
+    private final AtomicLong myPartialCount = new AtomicLong();
+
+    private ResolveProfiler(@NotNull String name, @NotNull ResolveCacheStatistics cacheStatistics, @NotNull String... phases) {
+        myName = name;
+        myCacheStatistics = cacheStatistics;
+        for (String phase : phases) {
+            myHistograms.add(new Histogram(phase));
+        }
+        myHistograms.add(new Histogram(TOTAL));
+    }
+
+    public static @NotNull List<ResolveProfiler> getAll() {
+        return List.of(LOWER, UPPER);
+    }
+
+    /**
+     * @param timestamps the start of the resolution, then the end of each phase; a resolution that has ended
+     *                   early (local resolution) gives less timestamps, the missing phases are not recorded
+     */
+    void record(long @NotNull [] timestamps, boolean isPartial) {
+        int phaseCount = myHistograms.size() - 1;
+        int last = Math.min(timestamps.length - 1, phaseCount);
+        for (int i = 0; i < last; i++) {
+            myHistograms.get(i).add(timestamps[i + 1] - timestamps[i]);
+        }
+        myHistograms.get(phaseCount).add(timestamps[timestamps.length - 1] - timestamps[0]);
+        if (isPartial) {
+            myPartialCount.incrementAndGet();
+        }
+    }
+
+    public @NotNull String getName() {
+        return myName;
+    }
+
+    public @NotNull List<Histogram> getHistograms() {
+        return Collections.unmodifiableList(myHistograms);
+    }
+
+    public long getCount() {
+        return myHistograms.get(myHistograms.size() - 1).getCount();
+    }
+
+    public long getPartialCount() {
+        return myPartialCount.get();
+    }
+
+    public @NotNull ResolveCacheStatistics getCacheStatistics() {
+        return myCacheStatistics;
+    }
+
+    public static @NotNull String[] getBucketNames() {
+        return BUCKET_NAMES.clone();
+    }
+
+    public void reset() {
+        for (Histogram histogram : myHistograms) {
+            histogram.reset();
+        }
+        myPartialCount.set(0);
+    }
+
+    public static @NotNull String toJson(@NotNull List<ResolveProfiler> profilers) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\n  \"unit\": \"µs\",\n  \"buckets\": [");
+        for (int i = 0; i < BUCKET_NAMES.length; i++) {
+            sb.append(i == 0 ? "" : ", ").append('"').append(BUCKET_NAMES[i]).append('"');
+        }
+        sb.append("],\n  \"references\": {");
+        for (int p = 0; p < profilers.size(); p++) {
+            ResolveProfiler profiler = profilers.get(p);
+            sb.append(p == 0 ? "\n" : ",\n");
+            sb.append("    \"").append(profiler.myName).append("\": {\n");
+            sb.append("      \"count\": ").append(profiler.getCount()).append(",\n");
+            sb.append("      \"partial\": ").append(profiler.getPartialCount()).append(",\n");
+            sb.append("      \"cacheHits\": ").append(profiler.myCacheStatistics.getHitCount()).append(",\n");
+            sb.append("      \"cacheMisses\": ").append(profiler.myCacheStatistics.getMissCount()).append(",\n");
+            sb.append("      \"phases\": {");
+            for (int h = 0; h < profiler.myHistograms.size(); h++) {
+                Histogram histogram = profiler.myHistograms.get(h);
+                sb.append(h == 0 ? "\n" : ",\n");
+                sb.append("        \"").append(histogram.myPhase).append("\": {")
+                        .append("\"count\": ").append(histogram.getCount())
+                        .append(", \"mean\": ").append(histogram.getMean() / 1_000)
+                        .append(", \"max\": ").append(histogram.getMax() / 1_000)
+                        .append(", \"total\": ").append(histogram.getTotal() / 1_000)
+                        .append(", \"histogram\": [");
+                for (int b = 0; b < BUCKET_NAMES.length; b++) {
+                    sb.append(b == 0 ? "" : ", ").append(histogram.getBucket(b));
+                }
+                sb.append("]}");
+            }
+            sb.append("\n      }\n    }");
+        }
+        sb.append("\n  }\n}\n");
+        return sb.toString();
+    }
+
+    public static final class Histogram {
+        private final String myPhase;
+        private final AtomicLongArray myBuckets = new AtomicLongArray(BUCKET_NAMES.length);
+        private final AtomicLong myCount = new AtomicLong();
+        private final AtomicLong myTotal = new AtomicLong();
+        private final AtomicLong myMax = new AtomicLong();
+
+        Histogram(@NotNull String phase) {
+            myPhase = phase;
+        }
+
+        void add(long nanos) {
+            int bucket = 0;
+            while (bucket < BUCKET_LIMITS.length && BUCKET_LIMITS[bucket] <= nanos) {
+                bucket++;
+            }
+            myBuckets.incrementAndGet(bucket);
+            myCount.incrementAndGet();
+            myTotal.addAndGet(nanos);
+            myMax.accumulateAndGet(nanos, Math::max);
+        }
+
+        void reset() {
+            for (int i = 0; i < myBuckets.length(); i++) {
+                myBuckets.set(i, 0);
+            }
+            myCount.set(0);
+            myTotal.set(0);
+            myMax.set(0);
+        }
+
+        public @NotNull String getPhase() {
+            return myPhase;
+        }
+
+        public long getCount() {
+            return myCount.get();
+        }
+
+        /**
+         * @return total time in nanoseconds
+         */
+        public long getTotal() {
+            return myTotal.get();
+        }
+
+        public long getMean() {
+            long count = myCount.get();
+            return count == 0 ? 0 : myTotal.get() / count;
+        }
+
+        public long getMax() {
+            return myMax.get();
+        }
+
+        public long getBucket(int index) {
+            return myBuckets.get(index);
+        }
+    }
+}
@@ -1,7 +1,13 @@
 package com.or.lang.core.signature;
 
+import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.psi.PsiElement;
+import com.intellij.psi.StubBasedPsiElement;
+import com.intellij.psi.stubs.StubElement;
 import com.or.lang.core.psi.*;
+import com.or.lang.core.stub.PsiExternalStub;
+import com.or.lang.core.stub.PsiLetStub;
+import com.or.lang.core.stub.PsiValStub;
 import com.or.lang.utils.ORLanguageProperties;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -11,6 +17,18 @@ public final class PsiSignatureUtil {
     }
 
     public static @NotNull String getSignature(@Nullable PsiElement element, @Nullable ORLanguageProperties toLang) {
+        // The signature is stored in the stub, rendered in the language of the file: no need to load the AST
+        if (element instanceof StubBasedPsiElement && (toLang == null || toLang == ORLanguageProperties.cast(element.getLanguage()))) {
+            StubElement<?> stub = ((StubBasedPsiElement<?>) element).getStub();
+            if (stub instanceof PsiLetStub) {
+                return StringUtil.notNullize(((PsiLetStub) stub).getSignature());
+            } else if (stub instanceof PsiValStub) {
+                return StringUtil.notNullize(((PsiValStub) stub).getSignature());
+            } else if (stub instanceof PsiExternalStub) {
+                return StringUtil.notNullize(((PsiExternalStub) stub).getSignature());
+            }
+        }
+
         if (element instanceof PsiExternal) {
             PsiSignature signature = ((PsiExternal) element).getSignature();
             return signature == null ? "" : signature.asText(toLang);
@@ -27,4 +45,12 @@ public final class PsiSignatureUtil {
         }
         return "";
     }
+
+    /**
+     * @return the text of the signature to store in the stub of a let, a val or an external (null if no signature)
+     */
+    public static @Nullable String getStubSignature(@NotNull PsiElement element) {
+        String signature = getSignature(element, ORLanguageProperties.cast(element.getLanguage()));
+        return signature.isEmpty() ? null : signature;
+    }
 }
@@ -7,6 +7,7 @@ import com.intellij.util.io.StringRef;
 import com.or.lang.core.psi.PsiLet;
 import com.or.utils.Joiner;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.List;
 import java.util.stream.Collectors;
@@ -17,13 +18,15 @@ public class PsiLetStub extends NamedStubBase<PsiLet> {
     private final String myAlias;
     private final boolean myIsFunction;
     private final List<String> myDeconstructionNames;
+    private final String mySignature;
 
-    public PsiLetStub(StubElement parent, @NotNull IStubElementType elementType, String name, String[] path, String alias, boolean isFunction, @NotNull List<String> deconstructionNames) {
+    public PsiLetStub(StubElement parent, @NotNull IStubElementType elementType, String name, String[] path, String alias, boolean isFunction, @NotNull List<String> deconstructionNames, @Nullable String signature) {
         super(parent, elementType, name);
         myPath = path;
         myAlias = alias;
         myIsFunction = isFunction;
         myDeconstructionNames = deconstructionNames;
+        mySignature = signature;
 
         String joinedPath = Joiner.join(".", path);
         if (deconstructionNames.isEmpty()) {
@@ -33,12 +36,13 @@ public class PsiLetStub extends NamedStubBase<PsiLet> {
         }
     }
 
-    public PsiLetStub(StubElement parent, @NotNull IStubElementType elementType, StringRef name, String[] path, String alias, boolean isFunction, @NotNull List<String> deconstructionNames) {
+    public PsiLetStub(StubElement parent, @NotNull IStubElementType elementType, StringRef name, String[] path, String alias, boolean isFunction, @NotNull List<String> deconstructionNames, @Nullable String signature) {
         super(parent, elementType, name);
         myPath = path;
         myAlias = alias;
         myIsFunction = isFunction;
         myDeconstructionNames = deconstructionNames;
+        mySignature = signature;
 
         String joinedPath = Joiner.join(".", path);
         if (deconstructionNames.isEmpty()) {
@@ -72,4 +76,11 @@ public class PsiLetStub extends NamedStubBase<PsiLet> {
         return myQnames;
     }
 
+    /**
+     * @return the text of the signature, as rendered in the language of the file
+     */
+    public @Nullable String getSignature() {
+        return mySignature;
+    }
+
 }
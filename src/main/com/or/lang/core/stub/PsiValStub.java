@@ -9,18 +9,28 @@ import org.jetbrains.annotations.Nullable;
 
 public class PsiValStub extends PsiQualifiedNameStub<PsiVal> {
     private final boolean myIsFunction;
+    private final String mySignature;
 
-    public PsiValStub(@Nullable StubElement parent, @NotNull IStubElementType elementType, @Nullable String name, @NotNull String[] path, boolean isFunction) {
+    public PsiValStub(@Nullable StubElement parent, @NotNull IStubElementType elementType, @Nullable String name, @NotNull String[] path, boolean isFunction, @Nullable String signature) {
         super(parent, elementType, name, path);
         myIsFunction = isFunction;
+        mySignature = signature;
     }
 
-    public PsiValStub(@Nullable StubElement parent, @NotNull IStubElementType elementType, @Nullable StringRef name, @NotNull String[] path, boolean isFunction) {
+    public PsiValStub(@Nullable StubElement parent, @NotNull IStubElementType elementType, @Nullable StringRef name, @NotNull String[] path, boolean isFunction, @Nullable String signature) {
         super(parent, elementType, name, path);
         myIsFunction = isFunction;
+        mySignature = signature;
     }
 
     public boolean isFunction() {
         return myIsFunction;
     }
+
+    /**
+     * @return the text of the signature, as rendered in the language of the file
+     */
+    public @Nullable String getSignature() {
+        return mySignature;
+    }
 }
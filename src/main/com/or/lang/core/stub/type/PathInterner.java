@@ -0,0 +1,72 @@
+package com.or.lang.core.stub.type;
+
+import com.intellij.util.containers.ContainerUtil;
+import com.intellij.util.containers.Interner;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process-wide interner of the paths deserialized from the stubs.
+ * The same paths (and the same names, like Core or Std) are found in a lot of stubs:
+ * they share the same array and the same strings.
+ * <p>
+ * Paths returned by this interner are shared and must never be modified.
+ * <p>
+ * The hits and misses are only counted when the system property "ocaml.stubs.statistics" is set,
+ * the interner is called for each path of each deserialized stub.
+ */
+public final class PathInterner {
+    private static final Map<String, String[]> PATHS = ContainerUtil.createConcurrentWeakValueMap();
+    private static final Interner<String> NAMES = Interner.createWeakInterner();
+
+    private static final boolean STATISTICS = Boolean.getBoolean("ocaml.stubs.statistics");
+    private static final AtomicLong HITS = new AtomicLong();
+    private static final AtomicLong MISSES = new AtomicLong();
+
+    private PathInterner() {
+    }
+
+    /**
+     * @param joinedPath the path, with names separated by a dot
+     */
+    public static String @NotNull [] intern(@NotNull String joinedPath) {
+        String[] path = PATHS.get(joinedPath);
+        if (path != null) {
+            if (STATISTICS) {
+                HITS.incrementAndGet();
+            }
+            return path;
+        }
+
+        if (STATISTICS) {
+            MISSES.incrementAndGet();
+        }
+        String[] names = joinedPath.split("\\.", -1);
+        for (int i = 0; i < names.length; i++) {
+            names[i] = NAMES.intern(names[i]);
+        }
+
+        path = PATHS.putIfAbsent(NAMES.intern(joinedPath), names);
+        return path == null ? names : path;
+    }
+
+    public static int size() {
+        return PATHS.size();
+    }
+
+    /**
+     * @return the number of paths found in the interner, 0 if the statistics are not enabled
+     */
+    public static long getHits() {
+        return HITS.get();
+    }
+
+    /**
+     * @return the number of paths added to the interner, 0 if the statistics are not enabled
+     */
+    public static long getMisses() {
+        return MISSES.get();
+    }
+}
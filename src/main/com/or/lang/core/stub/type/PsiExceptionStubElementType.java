@@ -59,7 +59,7 @@ public class PsiExceptionStubElementType extends ORStubElementType<PsiExceptionS
         }
 
         String fqn = stub.getQualifiedName();
-        sink.occurrence(IndexKeys.EXCEPTIONS_FQN, fqn.hashCode());
+        sink.occurrence(IndexKeys.EXCEPTIONS_FQN, fqn);
     }
 
     @NotNull
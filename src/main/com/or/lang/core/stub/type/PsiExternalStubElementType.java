@@ -9,13 +9,14 @@ import com.intellij.util.io.StringRef;
 import com.or.ide.search.index.IndexKeys;
 import com.or.lang.core.psi.PsiExternal;
 import com.or.lang.core.psi.impl.PsiExternalImpl;
+import com.or.lang.core.signature.PsiSignatureUtil;
 import com.or.lang.core.stub.PsiExternalStub;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.IOException;
 
 public class PsiExternalStubElementType extends ORStubElementType<PsiExternalStub, PsiExternal> {
-    public static final int VERSION = 9;
+    public static final int VERSION = 11;
 
     public PsiExternalStubElementType() {
         super("C_EXTERNAL_DECLARATION");
@@ -34,13 +35,18 @@ public class PsiExternalStubElementType extends ORStubElementType<PsiExternalStu
     @NotNull
     public PsiExternalStub createStub(@NotNull PsiExternal psi, StubElement parentStub) {
         String[] path = psi.getPath();
-        return new PsiExternalStub(parentStub, this, psi.getName(), path == null ? EMPTY_PATH : path, psi.isFunction());
+        return new PsiExternalStub(parentStub, this, psi.getName(), path == null ? EMPTY_PATH : path, psi.isFunction(), PsiSignatureUtil.getStubSignature(psi));
     }
 
     public void serialize(@NotNull PsiExternalStub stub, @NotNull StubOutputStream dataStream) throws IOException {
         dataStream.writeName(stub.getName());
         SerializerUtil.writePath(dataStream, stub.getPath());
         dataStream.writeBoolean(stub.isFunction());
+        String signature = stub.getSignature();
+        dataStream.writeBoolean(signature != null);
+        if (signature != null) {
+            dataStream.writeUTFFast(signature);
+        }
     }
 
     @NotNull
@@ -48,14 +54,25 @@ public class PsiExternalStubElementType extends ORStubElementType<PsiExternalStu
         StringRef name = dataStream.readName();
         String[] path = SerializerUtil.readPath(dataStream);
         boolean isFunction = dataStream.readBoolean();
+        String signature = null;
+        boolean hasSignature = dataStream.readBoolean();
+        if (hasSignature) {
+            signature = dataStream.readUTFFast();
+        }
 
-        return new PsiExternalStub(parentStub, this, name, path, isFunction);
+        return new PsiExternalStub(parentStub, this, name, path, isFunction, signature);
     }
 
     public void indexStub(@NotNull PsiExternalStub stub, @NotNull IndexSink sink) {
         String name = stub.getName();
         if (name != null) {
             sink.occurrence(IndexKeys.EXTERNALS, name);
+            sink.occurrence(IndexKeys.LOWER_SYMBOLS, name);
+        }
+
+        String fqn = stub.getQualifiedName();
+        if (fqn != null) {
+            sink.occurrence(IndexKeys.EXTERNALS_FQN, fqn);
         }
     }
 
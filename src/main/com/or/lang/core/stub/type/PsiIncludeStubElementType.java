@@ -42,7 +42,7 @@ public class PsiIncludeStubElementType extends ORStubElementType<PsiIncludeStub,
     @Override
     public void serialize(@NotNull PsiIncludeStub stub, @NotNull StubOutputStream dataStream) throws IOException {
         dataStream.writeName(stub.getFileModule());
-        dataStream.writeUTFFast(stub.getIncludePath());
+        dataStream.writeName(stub.getIncludePath());
         SerializerUtil.writePath(dataStream, stub.getQualifiedPath());
         SerializerUtil.writePath(dataStream, stub.getResolvedPath());
     }
@@ -50,7 +50,7 @@ public class PsiIncludeStubElementType extends ORStubElementType<PsiIncludeStub,
     @Override
     public @NotNull PsiIncludeStub deserialize(@NotNull StubInputStream dataStream, StubElement parentStub) throws IOException {
         StringRef fileModule = dataStream.readName();
-        String includePath = dataStream.readUTFFast();
+        String includePath = dataStream.readNameString();
         String[] qualifiedPath = SerializerUtil.readPath(dataStream);
         String[] resolvedPath = SerializerUtil.readPath(dataStream);
         return new PsiIncludeStub(parentStub, this, fileModule, includePath, qualifiedPath, resolvedPath);
@@ -52,7 +52,7 @@ public class PsiKlassStubElementType extends ORStubElementType<PsiKlassStub, Psi
 
     public void indexStub(@NotNull PsiKlassStub stub, @NotNull IndexSink sink) {
         String fqn = stub.getQualifiedName();
-        sink.occurrence(IndexKeys.CLASSES_FQN, fqn.hashCode());
+        sink.occurrence(IndexKeys.CLASSES_FQN, fqn);
     }
 
     @NotNull
@@ -1,25 +1,36 @@
 package com.or.lang.core.stub.type;
 
 import com.intellij.lang.ASTNode;
+import com.intellij.lang.Language;
+import com.intellij.openapi.project.Project;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.stubs.IndexSink;
 import com.intellij.psi.stubs.StubElement;
 import com.intellij.psi.stubs.StubInputStream;
 import com.intellij.psi.stubs.StubOutputStream;
+import com.intellij.psi.tree.ICustomParsingType;
+import com.intellij.psi.tree.IReparseableElementTypeBase;
+import com.intellij.util.CharTable;
 import com.intellij.util.io.StringRef;
 import com.or.ide.search.index.IndexKeys;
 import com.or.lang.core.psi.PsiLet;
 import com.or.lang.core.psi.impl.PsiLetImpl;
 import com.or.lang.core.psi.impl.PsiLowerIdentifier;
+import com.or.lang.core.signature.PsiSignatureUtil;
 import com.or.lang.core.stub.PsiLetStub;
+import com.or.lang.parser.OclReparser;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
-public class PsiLetStubElementType extends ORStubElementType<PsiLetStub, PsiLet> {
-    public static final int VERSION = 14;
+/**
+ * A let declaration at the top of a file or of a module is parsed again alone when all the changes of a document are inside it.
+ */
+public class PsiLetStubElementType extends ORStubElementType<PsiLetStub, PsiLet> implements ICustomParsingType, IReparseableElementTypeBase {
+    public static final int VERSION = 16;
 
     public PsiLetStubElementType() {
         super("C_LET_DECLARATION");
@@ -46,7 +57,7 @@ public class PsiLetStubElementType extends ORStubElementType<PsiLetStub, PsiLet>
                 }
             }
         }
-        return new PsiLetStub(parentStub, this, psi.getName(), psi.getPath(), psi.getAlias(), psi.isFunction(), deconstructedNames);
+        return new PsiLetStub(parentStub, this, psi.getName(), psi.getPath(), psi.getAlias(), psi.isFunction(), deconstructedNames, PsiSignatureUtil.getStubSignature(psi));
     }
 
     public void serialize(@NotNull PsiLetStub stub, @NotNull StubOutputStream dataStream) throws IOException {
@@ -67,6 +78,12 @@ public class PsiLetStubElementType extends ORStubElementType<PsiLetStub, PsiLet>
         if (alias != null) {
             dataStream.writeUTFFast(stub.getAlias());
         }
+
+        String signature = stub.getSignature();
+        dataStream.writeBoolean(signature != null);
+        if (signature != null) {
+            dataStream.writeUTFFast(signature);
+        }
     }
 
     @NotNull
@@ -89,7 +106,13 @@ public class PsiLetStubElementType extends ORStubElementType<PsiLetStub, PsiLet>
             alias = dataStream.readUTFFast();
         }
 
-        return new PsiLetStub(parentStub, this, name, path, alias, isFunction, deconstructionNames);
+        String signature = null;
+        boolean hasSignature = dataStream.readBoolean();
+        if (hasSignature) {
+            signature = dataStream.readUTFFast();
+        }
+
+        return new PsiLetStub(parentStub, this, name, path, alias, isFunction, deconstructionNames, signature);
     }
 
     public void indexStub(@NotNull PsiLetStub stub, @NotNull IndexSink sink) {
@@ -100,19 +123,21 @@ public class PsiLetStubElementType extends ORStubElementType<PsiLetStub, PsiLet>
             String name = stub.getName();
             if (name != null) {
                 sink.occurrence(IndexKeys.LETS, name);
+                sink.occurrence(IndexKeys.LOWER_SYMBOLS, name);
             }
 
             String fqn = stub.getQualifiedName();
-            sink.occurrence(IndexKeys.LETS_FQN, fqn.hashCode());
+            sink.occurrence(IndexKeys.LETS_FQN, fqn);
         } else {
             // Deconstruction
 
             for (String name : deconstructionNames) {
                 sink.occurrence(IndexKeys.LETS, name);
+                sink.occurrence(IndexKeys.LOWER_SYMBOLS, name);
             }
 
             for (String fqn : stub.getQualifiedNames()) {
-                sink.occurrence(IndexKeys.LETS_FQN, fqn.hashCode());
+                sink.occurrence(IndexKeys.LETS_FQN, fqn);
             }
         }
     }
@@ -120,4 +145,25 @@ public class PsiLetStubElementType extends ORStubElementType<PsiLetStub, PsiLet>
     public @NotNull String getExternalId() {
         return getLanguage().getID() + "." + super.toString();
     }
+
+    @Override
+    public @Nullable ASTNode parse(@NotNull CharSequence text, @NotNull CharTable table) {
+        return OclReparser.parse(this, text);
+    }
+
+    @Override
+    public @Nullable ASTNode parseContents(@NotNull ASTNode chameleon) {
+        ASTNode node = OclReparser.parse(this, chameleon.getChars());
+        return node == null ? null : node.getFirstChildNode();
+    }
+
+    @Override
+    public boolean isParsable(@Nullable ASTNode parent, @NotNull CharSequence buffer, @NotNull Language fileLanguage, @NotNull Project project) {
+        return OclReparser.isReparseable(parent, buffer);
+    }
+
+    @Override
+    public boolean isValidReparse(@NotNull ASTNode oldNode, @NotNull ASTNode newNode) {
+        return OclReparser.isValidReparse(oldNode, newNode);
+    }
 }
@@ -84,10 +84,10 @@ public abstract class PsiModuleStubElementType extends ORStubElementType<PsiModu
             }
         }
 
-        int fqnHash = stub.getQualifiedName().hashCode();
-        sink.occurrence(IndexKeys.MODULES_FQN, fqnHash);
+        String fqn = stub.getQualifiedName();
+        sink.occurrence(IndexKeys.MODULES_FQN, fqn);
         if (stub.isComponent()) {
-            sink.occurrence(IndexKeys.MODULES_COMP_FQN, fqnHash);
+            sink.occurrence(IndexKeys.MODULES_COMP_FQN, fqn);
         }
     }
 
@@ -51,6 +51,7 @@ public class PsiObjectFieldStubElementType extends ORStubElementType<PsiObjectFi
         String name = stub.getName();
         if (name != null) {
             sink.occurrence(IndexKeys.OBJECT_FIELDS, name);
+            sink.occurrence(IndexKeys.LOWER_SYMBOLS, name);
         }
     }
 
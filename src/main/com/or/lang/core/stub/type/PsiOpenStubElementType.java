@@ -38,12 +38,12 @@ public class PsiOpenStubElementType extends ORStubElementType<PsiOpenStub, PsiOp
 
     @Override
     public void serialize(@NotNull PsiOpenStub stub, @NotNull StubOutputStream dataStream) throws IOException {
-        dataStream.writeUTFFast(stub.getOpenPath());
+        dataStream.writeName(stub.getOpenPath());
     }
 
     @Override
     public @NotNull PsiOpenStub deserialize(@NotNull StubInputStream dataStream, StubElement parentStub) throws IOException {
-        String openPath = dataStream.readUTFFast();
+        String openPath = dataStream.readNameString();
         return new PsiOpenStub(parentStub, this, openPath);
     }
 
@@ -52,6 +52,7 @@ public class PsiRecordFieldStubElementType extends ORStubElementType<PsiRecordFi
         String name = stub.getName();
         if (name != null) {
             sink.occurrence(IndexKeys.RECORD_FIELDS, name);
+            sink.occurrence(IndexKeys.LOWER_SYMBOLS, name);
         }
     }
 
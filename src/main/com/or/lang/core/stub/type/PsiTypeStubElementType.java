@@ -55,10 +55,11 @@ public class PsiTypeStubElementType extends ORStubElementType<PsiTypeStub, PsiTy
         String name = stub.getName();
         if (name != null) {
             sink.occurrence(IndexKeys.TYPES, name);
+            sink.occurrence(IndexKeys.LOWER_SYMBOLS, name);
         }
 
         String fqn = stub.getQualifiedName();
-        sink.occurrence(IndexKeys.TYPES_FQN, fqn.hashCode());
+        sink.occurrence(IndexKeys.TYPES_FQN, fqn);
     }
 
     @NotNull
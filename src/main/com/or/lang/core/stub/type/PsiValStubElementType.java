@@ -9,13 +9,14 @@ import com.intellij.util.io.StringRef;
 import com.or.ide.search.index.IndexKeys;
 import com.or.lang.core.psi.PsiVal;
 import com.or.lang.core.psi.impl.PsiValImpl;
+import com.or.lang.core.signature.PsiSignatureUtil;
 import com.or.lang.core.stub.PsiValStub;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.IOException;
 
 public class PsiValStubElementType extends ORStubElementType<PsiValStub, PsiVal> {
-    public static final int VERSION = 12;
+    public static final int VERSION = 14;
 
     public PsiValStubElementType() {
         super("C_VAL_DECLARATION");
@@ -33,13 +34,18 @@ public class PsiValStubElementType extends ORStubElementType<PsiValStub, PsiVal>
 
     @NotNull
     public PsiValStub createStub(@NotNull PsiVal psi, StubElement parentStub) {
-        return new PsiValStub(parentStub, this, psi.getName(), psi.getPath(), psi.isFunction());
+        return new PsiValStub(parentStub, this, psi.getName(), psi.getPath(), psi.isFunction(), PsiSignatureUtil.getStubSignature(psi));
     }
 
     public void serialize(@NotNull PsiValStub stub, @NotNull StubOutputStream dataStream) throws IOException {
         dataStream.writeName(stub.getName());
         SerializerUtil.writePath(dataStream, stub.getPath());
         dataStream.writeBoolean(stub.isFunction());
+        String signature = stub.getSignature();
+        dataStream.writeBoolean(signature != null);
+        if (signature != null) {
+            dataStream.writeUTFFast(signature);
+        }
     }
 
     @NotNull
@@ -47,18 +53,24 @@ public class PsiValStubElementType extends ORStubElementType<PsiValStub, PsiVal>
         StringRef name = dataStream.readName();
         String[] path = SerializerUtil.readPath(dataStream);
         boolean isFunction = dataStream.readBoolean();
+        String signature = null;
+        boolean hasSignature = dataStream.readBoolean();
+        if (hasSignature) {
+            signature = dataStream.readUTFFast();
+        }
 
-        return new PsiValStub(parentStub, this, name, path, isFunction);
+        return new PsiValStub(parentStub, this, name, path, isFunction, signature);
     }
 
     public void indexStub(@NotNull PsiValStub stub, @NotNull IndexSink sink) {
         String name = stub.getName();
         if (name != null) {
             sink.occurrence(IndexKeys.VALS, name);
+            sink.occurrence(IndexKeys.LOWER_SYMBOLS, name);
         }
 
         String fqn = stub.getQualifiedName();
-        sink.occurrence(IndexKeys.VALS_FQN, fqn.hashCode());
+        sink.occurrence(IndexKeys.VALS_FQN, fqn);
     }
 
     @NotNull
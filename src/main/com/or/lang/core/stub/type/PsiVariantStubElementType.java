@@ -55,7 +55,7 @@ public class PsiVariantStubElementType extends ORStubElementType<PsiVariantDecla
         }
 
         String fqn = stub.getQualifiedName();
-        sink.occurrence(IndexKeys.VARIANTS_FQN, fqn.hashCode());
+        sink.occurrence(IndexKeys.VARIANTS_FQN, fqn);
     }
 
     @NotNull
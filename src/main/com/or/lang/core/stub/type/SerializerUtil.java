@@ -11,26 +11,28 @@ public class SerializerUtil {
     private SerializerUtil() {
     }
 
-    static void writePath(@NotNull StubOutputStream dataStream, String @Nullable [] path) throws IOException {
-        if (path == null) {
-            dataStream.writeByte(0);
-        } else {
-            dataStream.writeByte(path.length);
-            for (String name : path) {
-                dataStream.writeUTFFast(name == null ? "" : name);
-            }
-        }
+    /**
+     * A path is written as a single name: it is stored once in the names enumerator of the stub storage,
+     * and the stub only contains its id. Paths like Core.Std.List are repeated in a lot of stubs.
+     */
+    public static void writePath(@NotNull StubOutputStream dataStream, String @Nullable [] path) throws IOException {
+        dataStream.writeName(path == null || path.length == 0 ? null : joinPath(path));
+    }
+
+    public static String @Nullable [] readPath(@NotNull StubInputStream dataStream) throws IOException {
+        String joinedPath = dataStream.readNameString();
+        return joinedPath == null ? null : PathInterner.intern(joinedPath);
     }
 
-    static String @Nullable [] readPath(@NotNull StubInputStream dataStream) throws IOException {
-        String[] path = null;
-        byte namesCount = dataStream.readByte();
-        if (namesCount > 0) {
-            path = new String[namesCount];
-            for (int i = 0; i < namesCount; i++) {
-                path[i] = dataStream.readUTFFast();
+    static @NotNull String joinPath(String @NotNull [] path) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < path.length; i++) {
+            if (i > 0) {
+                sb.append('.');
             }
+            String name = path[i];
+            sb.append(name == null ? "" : name);
         }
-        return path;
+        return sb.toString();
     }
 }
@@ -0,0 +1,43 @@
+package com.or.lang.core.type;
+
+import com.intellij.lang.ASTNode;
+import com.intellij.lang.Language;
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.tree.ICustomParsingType;
+import com.intellij.psi.tree.IReparseableElementTypeBase;
+import com.intellij.util.CharTable;
+import com.or.lang.parser.OclReparser;
+import org.jetbrains.annotations.NonNls;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A composite that is parsed again alone when all the changes of a document are inside it.
+ * It is built by the parser like any other composite, it is not lazy.
+ */
+public class ORReparseableElementType extends ORCompositeElementType implements ICustomParsingType, IReparseableElementTypeBase {
+    public ORReparseableElementType(@NotNull @NonNls String debugName) {
+        super(debugName);
+    }
+
+    @Override
+    public @Nullable ASTNode parse(@NotNull CharSequence text, @NotNull CharTable table) {
+        return OclReparser.parse(this, text);
+    }
+
+    @Override
+    public @Nullable ASTNode parseContents(@NotNull ASTNode chameleon) {
+        ASTNode node = OclReparser.parse(this, chameleon.getChars());
+        return node == null ? null : node.getFirstChildNode();
+    }
+
+    @Override
+    public boolean isParsable(@Nullable ASTNode parent, @NotNull CharSequence buffer, @NotNull Language fileLanguage, @NotNull Project project) {
+        return OclReparser.isReparseable(parent, buffer);
+    }
+
+    @Override
+    public boolean isValidReparse(@NotNull ASTNode oldNode, @NotNull ASTNode newNode) {
+        return OclReparser.isValidReparse(oldNode, newNode);
+    }
+}
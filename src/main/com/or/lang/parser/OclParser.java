@@ -2,17 +2,56 @@ package com.or.lang.parser;
 
 import com.intellij.lang.PsiBuilder;
 import com.intellij.psi.tree.IElementType;
+import com.intellij.psi.tree.TokenSet;
 import com.or.lang.OCamlTypes;
 import com.or.lang.core.type.ORTokenElementType;
 import com.or.lang.utils.CommonParser;
 import com.or.lang.utils.ParserScope;
 import com.or.lang.utils.ParserState;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import static com.intellij.codeInsight.completion.CompletionUtilCore.DUMMY_IDENTIFIER_TRIMMED;
 import static com.or.lang.utils.ParserScopeEnum.*;
 
 public class OclParser extends CommonParser {
+    private static final TokenSet LOOK_BEHIND_TOKENS = TokenSet.create(OCamlTypes.AND, OCamlTypes.COLON, OCamlTypes.DO, OCamlTypes.DOT,
+            OCamlTypes.ELSE, OCamlTypes.EQ, OCamlTypes.IN, OCamlTypes.LPAREN, OCamlTypes.OF, OCamlTypes.PIPE, OCamlTypes.QUESTION_MARK,
+            OCamlTypes.RIGHT_ARROW, OCamlTypes.SEMI, OCamlTypes.SIG, OCamlTypes.STAR, OCamlTypes.STRUCT, OCamlTypes.THEN, OCamlTypes.TRY,
+            OCamlTypes.TYPE, OCamlTypes.UIDENT, OCamlTypes.WITH);
+
+    @Override
+    protected boolean prepareReparse(@NotNull IElementType elementType, @Nullable IElementType firstTokenType, @NotNull ParserState state) {
+        if (elementType == OCamlTypes.C_LET_DECLARATION) {
+            // |>let<| x = ...
+            return firstTokenType == OCamlTypes.LET;
+        }
+        if (elementType == OCamlTypes.C_STRUCT_EXPR) {
+            // |>struct<| ... end
+            return firstTokenType == OCamlTypes.STRUCT;
+        }
+        if (elementType == OCamlTypes.C_SCOPED_EXPR && (firstTokenType == OCamlTypes.STRUCT || firstTokenType == OCamlTypes.SIG)) {
+            // module X = |>struct<| ...  OR  module type X = |>sig<| ...
+            state.markDummy().resolution(moduleBinding);
+            return true;
+        }
+        if (elementType == OCamlTypes.C_FUNCTOR_BINDING && firstTokenType == OCamlTypes.STRUCT) {
+            // module X (...) = |>struct<| ...
+            state.markDummy().resolution(functorNamedEq);
+            return true;
+        }
+        if (elementType == OCamlTypes.C_MODULE_TYPE && firstTokenType == OCamlTypes.SIG) {
+            // module M : |>sig<| ...
+            state.mark(OCamlTypes.C_MODULE_TYPE).updateScopeToken(OCamlTypes.SIG);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    protected @NotNull TokenSet getLookBehindTokens() {
+        return LOOK_BEHIND_TOKENS;
+    }
 
     @Override
     protected void parseFile(@NotNull PsiBuilder builder, @NotNull ParserState state) {
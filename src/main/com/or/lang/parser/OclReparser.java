@@ -0,0 +1,121 @@
+package com.or.lang.parser;
+
+import com.intellij.lang.ASTNode;
+import com.intellij.lang.PsiBuilder;
+import com.intellij.lang.PsiBuilderFactory;
+import com.intellij.lexer.Lexer;
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.util.Pair;
+import com.intellij.psi.TokenType;
+import com.intellij.psi.impl.source.tree.TreeUtil;
+import com.intellij.psi.tree.IElementType;
+import com.intellij.psi.tree.IFileElementType;
+import com.ocaml.lang.lexer.OCamlLexerAdapter;
+import com.or.lang.OCamlTypes;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Parse again, alone, an element that contains all the changes of a document: the let declarations at the top of a file
+ * or of a module, and the bodies of the modules (struct ... end) and of the module types (sig ... end).
+ * <p>
+ * The parser keeps a context in its state, an element parsed alone may not be parsed like in its file. A reparse is
+ * only valid if the old text parsed alone gives the old element back, and if the old and the new texts end in the same
+ * state: the tokens that follow the element are then parsed like before. Otherwise, the whole file is parsed again.
+ */
+public final class OclReparser {
+    private static final Key<String> SIGNATURE = Key.create("ocaml.reparse.signature");
+    private static final OclParserDefinition PARSER_DEFINITION = new OclParserDefinition();
+
+    private OclReparser() {
+    }
+
+    /**
+     * @param parent the parent of the element to parse again
+     * @param text   the new text of the element
+     */
+    public static boolean isReparseable(@Nullable ASTNode parent, @NotNull CharSequence text) {
+        // only the elements at the top of a file or of a module
+        for (ASTNode node = parent; node != null; node = node.getTreeParent()) {
+            IElementType type = node.getElementType();
+            if (!(type instanceof IFileElementType) && type != OCamlTypes.C_MODULE_DECLARATION
+                    && type != OCamlTypes.C_FUNCTOR_DECLARATION && !isModuleBody(node)) {
+                return false;
+            }
+        }
+
+        // the text can't end in a comment or in a string: the space added at its end must stay alone
+        Lexer lexer = new OCamlLexerAdapter();
+        lexer.start(text + " ");
+        IElementType lastTokenType = null;
+        while (lexer.getTokenType() != null) {
+            lastTokenType = lexer.getTokenType();
+            lexer.advance();
+        }
+
+        return lastTokenType == TokenType.WHITE_SPACE;
+    }
+
+    public static @Nullable ASTNode parse(@NotNull IElementType elementType, @NotNull CharSequence text) {
+        Pair<ASTNode, String> reparse = reparse(elementType, text);
+        if (reparse == null) {
+            return null;
+        }
+
+        reparse.first.putUserData(SIGNATURE, reparse.second);
+        return reparse.first;
+    }
+
+    public static boolean isValidReparse(@NotNull ASTNode oldNode, @NotNull ASTNode newNode) {
+        String signature = newNode.getUserData(SIGNATURE);
+        newNode.putUserData(SIGNATURE, null);
+        if (signature == null) {
+            return false;
+        }
+
+        // the tokens at the boundaries of the element must not change
+        if (!isWhiteSpaceOrNull(TreeUtil.prevLeaf(oldNode)) || !isWhiteSpaceOrNull(TreeUtil.nextLeaf(oldNode))) {
+            return false;
+        }
+
+        Pair<ASTNode, String> oldReparse = reparse(oldNode.getElementType(), oldNode.getChars());
+        return oldReparse != null && signature.equals(oldReparse.second) && isSameTree(oldNode, oldReparse.first);
+    }
+
+    private static @Nullable Pair<ASTNode, String> reparse(@NotNull IElementType elementType, @NotNull CharSequence text) {
+        PsiBuilder builder = PsiBuilderFactory.getInstance().createBuilder(PARSER_DEFINITION, new OCamlLexerAdapter(), text);
+        return new OclParser().reparse(elementType, builder);
+    }
+
+    private static boolean isModuleBody(@NotNull ASTNode node) {
+        IElementType type = node.getElementType();
+        if (type == OCamlTypes.C_SCOPED_EXPR || type == OCamlTypes.C_STRUCT_EXPR || type == OCamlTypes.C_FUNCTOR_BINDING || type == OCamlTypes.C_MODULE_TYPE) {
+            ASTNode firstChild = node.getFirstChildNode();
+            IElementType firstType = firstChild == null ? null : firstChild.getElementType();
+            return firstType == OCamlTypes.STRUCT || firstType == OCamlTypes.SIG;
+        }
+        return false;
+    }
+
+    private static boolean isWhiteSpaceOrNull(@Nullable ASTNode leaf) {
+        return leaf == null || leaf.getElementType() == TokenType.WHITE_SPACE;
+    }
+
+    private static boolean isSameTree(@NotNull ASTNode node1, @NotNull ASTNode node2) {
+        if (node1.getElementType() != node2.getElementType() || node1.getTextLength() != node2.getTextLength()) {
+            return false;
+        }
+
+        ASTNode child1 = node1.getFirstChildNode();
+        ASTNode child2 = node2.getFirstChildNode();
+        while (child1 != null && child2 != null) {
+            if (!isSameTree(child1, child2)) {
+                return false;
+            }
+            child1 = child1.getTreeNext();
+            child2 = child2.getTreeNext();
+        }
+
+        return child1 == null && child2 == null;
+    }
+}
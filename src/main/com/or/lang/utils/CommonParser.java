@@ -4,9 +4,13 @@ import com.intellij.lang.ASTNode;
 import com.intellij.lang.LightPsiParser;
 import com.intellij.lang.PsiBuilder;
 import com.intellij.lang.PsiParser;
+import com.intellij.openapi.util.Pair;
+import com.intellij.psi.impl.source.tree.TreeElement;
 import com.intellij.psi.tree.IElementType;
+import com.intellij.psi.tree.TokenSet;
 import com.or.lang.OCamlTypes;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import static com.intellij.lang.parser.GeneratedParserUtilBase.*;
 
@@ -56,5 +60,49 @@ public abstract class CommonParser implements PsiParser, LightPsiParser {
         exit_section_(builder, 0, m, elementType, true, true, TRUE_CONDITION);
     }
 
+    /**
+     * Parse alone the text of an element, in the state prepared by {@link #prepareReparse}.
+     *
+     * @return the element, detached from the parsed tree, and the signature of the state at the end of its text;
+     * null if the text isn't exactly one element of that type, or if a scope token is still opened at its end
+     */
+    public @Nullable Pair<ASTNode, String> reparse(@NotNull IElementType elementType, @NotNull PsiBuilder builder) {
+        PsiBuilder.Marker m = builder.mark();
+        ParserScope rootScope = ParserScope.markRoot(builder);
+
+        ParserState state = new ParserState(builder, rootScope);
+        if (!prepareReparse(elementType, builder.getTokenType(), state)) {
+            return null;
+        }
+        parseFile(builder, state);
+
+        boolean hasOpenedScopeToken = state.hasOpenedScopeToken();
+        String signature = state.getSignature(getLookBehindTokens());
+        state.clear();
+        rootScope.end();
+        m.done((IElementType) OCamlTypes.C_DUMMY);
+
+        ASTNode root = builder.getTreeBuilt();
+        ASTNode node = root.getFirstChildNode();
+        if (hasOpenedScopeToken || node == null || node != root.getLastChildNode() || node.getElementType() != elementType) {
+            return null;
+        }
+
+        ((TreeElement) node).rawRemove();
+        return Pair.create(node, signature);
+    }
+
     protected abstract void parseFile(PsiBuilder builder, ParserState parserState);
+
+    /**
+     * Prepare the state like it is when the parser meets the first token of an element that is parsed alone.
+     *
+     * @return false if that element can't be parsed alone
+     */
+    protected abstract boolean prepareReparse(@NotNull IElementType elementType, @Nullable IElementType firstTokenType, @NotNull ParserState state);
+
+    /**
+     * @return the tokens that the parser tests in {@link ParserState#previousElementType1} and {@link ParserState#previousElementType2}
+     */
+    protected abstract @NotNull TokenSet getLookBehindTokens();
 }
@@ -1,5 +1,6 @@
 package com.or.lang.utils;
 
+import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.util.PsiTreeUtil;
 import com.intellij.util.containers.ArrayListSet;
@@ -12,9 +13,6 @@ import org.jetbrains.annotations.Nullable;
 
 import java.util.List;
 import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 import static java.util.Collections.emptyList;
 
@@ -44,6 +42,7 @@ public class OclQNameFinder extends BaseQNameFinder {
         // Walk backward until top of the file is reached, trying to find local opens and opens/includes
         PsiElement item = sourceElement;
         while (item != null) {
+            ProgressManager.checkCanceled();
             if (100 < qualifiedNames.size()) {
                 break; // There must be a problem with the parser
             }
@@ -60,22 +59,16 @@ public class OclQNameFinder extends BaseQNameFinder {
                 String alias = module.getAlias();
                 if (alias != null) {
                     // This is a local module alias, we'll need to replace it in final paths
-                    Pattern compile = Pattern.compile("(\\.?)(" + module.getModuleName() + ")(\\.?)");
-                    String replace = "$1" + alias + "$3";
-                    resolvedQualifiedNames =
-                            resolvedQualifiedNames
-                                    .stream()
-                                    .map(
-                                            name -> {
-                                                Matcher matcher = compile.matcher(name);
-                                                if (matcher.find()) {
-                                                    return matcher.replaceAll(replace);
-                                                }
-                                                return name;
-                                            })
-                                    .collect(Collectors.toCollection(ArrayListSet::new));
-                    resolvedPath = compile.matcher(resolvedPath).replaceAll(replace);
-                    resolvedPathExtension = compile.matcher(resolvedPathExtension).replaceAll(replace);
+                    String moduleName = module.getModuleName();
+                    if (moduleName != null) {
+                        Set<String> replacedQualifiedNames = new ArrayListSet<>();
+                        for (String name : resolvedQualifiedNames) {
+                            replacedQualifiedNames.add(QualifiedPathHelper.replaceAll(name, moduleName, alias));
+                        }
+                        resolvedQualifiedNames = replacedQualifiedNames;
+                        resolvedPath = QualifiedPathHelper.replaceAll(resolvedPath, moduleName, alias);
+                        resolvedPathExtension = QualifiedPathHelper.replaceAll(resolvedPathExtension, moduleName, alias);
+                    }
                 }
 
                 if (path.equals(moduleQName)) {
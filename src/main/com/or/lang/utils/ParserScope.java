@@ -147,4 +147,11 @@ public class ParserScope {
     public boolean isDummy() {
         return m_isDummy;
     }
+
+    /**
+     * Everything the parser can test on a scope, to compare the states of two parsings.
+     */
+    @NotNull String getSignature() {
+        return m_compositeElementType + ":" + m_scopeTokenElementType + ":" + m_resolution + ":" + m_isComplete + ":" + m_isDummy + ":" + m_isStart;
+    }
 }
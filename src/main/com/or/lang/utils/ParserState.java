@@ -2,6 +2,7 @@ package com.or.lang.utils;
 
 import com.intellij.lang.PsiBuilder;
 import com.intellij.psi.tree.IElementType;
+import com.intellij.psi.tree.TokenSet;
 import com.intellij.util.ArrayUtil;
 import com.or.lang.OCamlTypes;
 import com.or.lang.core.type.ORCompositeType;
@@ -199,6 +200,29 @@ public class ParserState {
         return empty() ? null : scopes.pop();
     }
 
+    boolean hasOpenedScopeToken() {
+        for (ParserScope scope : m_composites) {
+            if (scope.hasScope()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The latest tokens the parser can look back at and the opened scopes: the tokens that follow two parsings
+     * with the same signature are parsed in the same way.
+     */
+    @NotNull String getSignature(@NotNull TokenSet lookBehindTokens) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(lookBehindTokens.contains(previousElementType2) ? previousElementType2 : "_").append(' ');
+        sb.append(lookBehindTokens.contains(previousElementType1) ? previousElementType1 : "_");
+        for (ParserScope scope : m_composites) {
+            sb.append(' ').append(scope.getSignature());
+        }
+        return sb.toString();
+    }
+
     void clear() {
         ParserScope scope = tryPop(m_composites);
         while (scope != null) {
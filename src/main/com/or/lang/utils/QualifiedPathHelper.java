@@ -0,0 +1,97 @@
+package com.or.lang.utils;
+
+import com.intellij.util.ArrayUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Qualified paths (A.B.c) manipulated as segments: a module alias is substituted only when a whole segment
+ * is equal to the module name, without compiling a regular expression.
+ */
+public class QualifiedPathHelper {
+
+    private QualifiedPathHelper() {
+    }
+
+    public static String @NotNull [] split(@NotNull String qName) {
+        if (qName.isEmpty()) {
+            return ArrayUtil.EMPTY_STRING_ARRAY;
+        }
+
+        List<String> segments = new ArrayList<>();
+        int start = 0;
+        int pos = qName.indexOf('.');
+        while (pos >= 0) {
+            segments.add(qName.substring(start, pos));
+            start = pos + 1;
+            pos = qName.indexOf('.', start);
+        }
+        segments.add(qName.substring(start));
+
+        return ArrayUtil.toStringArray(segments);
+    }
+
+    public static @NotNull String join(String @NotNull [] path, int from) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = from; i < path.length; i++) {
+            if (i > from) {
+                sb.append('.');
+            }
+            sb.append(path[i]);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Replace the first segment equal to the name with the segments of the alias.
+     *
+     * @return the same instance if no segment is equal to the name
+     */
+    public static String @NotNull [] replaceFirst(String @NotNull [] path, @NotNull String name, String @NotNull [] alias) {
+        for (int i = 0; i < path.length; i++) {
+            if (name.equals(path[i])) {
+                String[] result = new String[path.length - 1 + alias.length];
+                System.arraycopy(path, 0, result, 0, i);
+                System.arraycopy(alias, 0, result, i, alias.length);
+                System.arraycopy(path, i + 1, result, i + alias.length, path.length - i - 1);
+                return result;
+            }
+        }
+        return path;
+    }
+
+    /**
+     * Replace all the segments equal to the name with the alias.
+     *
+     * @return the same instance if no segment is equal to the name
+     */
+    public static @NotNull String replaceAll(@NotNull String qName, @NotNull String name, @NotNull String alias) {
+        int length = qName.length();
+        int nameLength = name.length();
+        if (nameLength == 0) {
+            return qName;
+        }
+
+        StringBuilder sb = null;
+        int copied = 0;
+        int pos = qName.indexOf(name);
+        while (pos >= 0) {
+            int end = pos + nameLength;
+            if ((pos == 0 || qName.charAt(pos - 1) == '.') && (end == length || qName.charAt(end) == '.')) {
+                if (sb == null) {
+                    sb = new StringBuilder(length + alias.length());
+                }
+                sb.append(qName, copied, pos).append(alias);
+                copied = end;
+            }
+            pos = qName.indexOf(name, end);
+        }
+
+        if (sb == null) {
+            return qName;
+        }
+        return sb.append(qName, copied, length).toString();
+    }
+}
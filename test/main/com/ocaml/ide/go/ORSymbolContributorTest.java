@@ -0,0 +1,58 @@
+package com.ocaml.ide.go;
+
+import com.intellij.navigation.NavigationItem;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.util.indexing.FindSymbolParameters;
+import com.ocaml.OCamlBaseTest;
+import com.or.ide.go.ORSymbolContributor;
+import com.or.lang.core.psi.PsiLet;
+import com.or.lang.core.psi.PsiVal;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+@SuppressWarnings("JUnit4AnnotatedMethodInJUnit3TestCase")
+public class ORSymbolContributorTest extends OCamlBaseTest {
+
+    @Test
+    public void testNestedModuleMember() {
+        myFixture.addFileToProject("a.ml", "let top = 1\nmodule M = struct\n  module N = struct let inner = 2 end\nend\n");
+        myFixture.addFileToProject("a.mli", "module M : sig\n  module N : sig val inner : int end\nend\n");
+
+        ORSymbolContributor contributor = new ORSymbolContributor();
+        Set<String> names = new HashSet<>();
+        contributor.processNames(name -> {
+            names.add(name);
+            return true;
+        }, GlobalSearchScope.allScope(getProject()), null);
+        assertContainsElements(names, "top", "inner");
+
+        List<NavigationItem> items = new ArrayList<>();
+        contributor.processElementsWithName("inner", item -> {
+            items.add(item);
+            return true;
+        }, FindSymbolParameters.wrap("inner", getProject(), false));
+
+        assertSize(2, items);
+        for (NavigationItem item : items) {
+            String qName = item instanceof PsiLet ? ((PsiLet) item).getQualifiedName() : ((PsiVal) item).getQualifiedName();
+            assertEquals("A.M.N.inner", qName);
+        }
+    }
+
+    @Test
+    public void testStopsWhenProcessorIsSatisfied() {
+        myFixture.addFileToProject("a.ml", "module M = struct let x = 1 end\nlet x = 2\n");
+
+        List<NavigationItem> items = new ArrayList<>();
+        new ORSymbolContributor().processElementsWithName("x", item -> {
+            items.add(item);
+            return false;
+        }, FindSymbolParameters.wrap("x", getProject(), false));
+
+        assertSize(1, items);
+    }
+}
@@ -0,0 +1,78 @@
+package com.ocaml.ide.insight;
+
+import com.intellij.codeInsight.lookup.LookupElement;
+import com.intellij.codeInsight.lookup.LookupElementPresentation;
+import com.intellij.psi.PsiElement;
+import com.ocaml.OCamlBaseTest;
+import com.or.lang.core.psi.PsiInnerModule;
+import com.or.lang.core.psi.PsiLet;
+import com.or.lang.core.psi.PsiQualifiedPathElement;
+import com.or.lang.core.psi.PsiVal;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+/**
+ * The members of a module after a dot are read from its export table, their declarations are found when needed.
+ */
+@SuppressWarnings("JUnit4AnnotatedMethodInJUnit3TestCase")
+public class DotExpressionCompletionTest extends OCamlBaseTest {
+
+    @Test
+    public void testExports() {
+        myFixture.addFileToProject("a.ml", "let x = 1\nlet f y = y\nmodule M = struct let z = 2 end\n");
+        myFixture.configureByText("b.ml", "let _ = A.<caret>");
+
+        LookupElement[] elements = myFixture.completeBasic();
+        assertNotNull(elements);
+        assertContainsElements(myFixture.getLookupElementStrings(), "x", "f", "M");
+
+        PsiElement declaration = find(elements, "x").getPsiElement();
+        assertInstanceOf(declaration, PsiLet.class);
+        assertEquals("A.x", ((PsiLet) declaration).getQualifiedName());
+
+        assertInstanceOf(find(elements, "M").getPsiElement(), PsiInnerModule.class);
+    }
+
+    @Test
+    public void testInterfaceDeclaration() {
+        myFixture.addFileToProject("a.ml", "let x = 1\n");
+        myFixture.addFileToProject("a.mli", "val x : int\nval w : string\n");
+        myFixture.configureByText("b.ml", "let _ = A.<caret>");
+
+        LookupElement[] elements = myFixture.completeBasic();
+        assertNotNull(elements);
+        LookupElement x = find(elements, "x");
+        assertInstanceOf(x.getPsiElement(), PsiVal.class);
+        assertEquals("int", typeText(x));
+    }
+
+    @Test
+    public void testIncludedMember() {
+        myFixture.addFileToProject("a.ml", "let x = 1\n");
+        myFixture.addFileToProject("b.ml", "include A\nlet y = 2\n");
+        myFixture.configureByText("c.ml", "let _ = B.<caret>");
+
+        LookupElement[] elements = myFixture.completeBasic();
+        assertNotNull(elements);
+        assertContainsElements(myFixture.getLookupElementStrings(), "x", "y");
+
+        // the declaration is in the included module
+        PsiElement declaration = find(elements, "x").getPsiElement();
+        assertEquals("A.x", ((PsiQualifiedPathElement) declaration).getQualifiedName());
+    }
+
+    private static @NotNull LookupElement find(LookupElement @NotNull [] elements, @NotNull String name) {
+        for (LookupElement element : elements) {
+            if (name.equals(element.getLookupString())) {
+                return element;
+            }
+        }
+        throw new AssertionError(name + " not found");
+    }
+
+    private static String typeText(@NotNull LookupElement element) {
+        LookupElementPresentation presentation = new LookupElementPresentation();
+        element.renderElement(presentation);
+        return presentation.getTypeText();
+    }
+}
@@ -0,0 +1,58 @@
+package com.ocaml.ide.search;
+
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.ocaml.OCamlBaseTest;
+import com.or.ide.search.DependencyScopeService;
+import org.junit.Test;
+
+@SuppressWarnings("JUnit4AnnotatedMethodInJUnit3TestCase")
+public class DependencyScopeServiceTest extends OCamlBaseTest {
+
+    @Test
+    public void testDuneLibraries() {
+        myFixture.addFileToProject("base/dune", "(library (name base))");
+        PsiFile base = myFixture.addFileToProject("base/base.ml", "let x = 1");
+        myFixture.addFileToProject("lib/dune", "(library (name lib) (libraries base))");
+        PsiFile lib = myFixture.addFileToProject("lib/lib.ml", "let y = Base.x");
+        myFixture.addFileToProject("other/dune", "(library (name other))");
+        PsiFile other = myFixture.addFileToProject("other/other.ml", "let z = 1");
+        myFixture.addFileToProject("bin/dune", "(executable (name main) (libraries lib unix))");
+        PsiFile main = myFixture.addFileToProject("bin/main.ml", "let _ = Lib.y");
+
+        GlobalSearchScope scope = DependencyScopeService.getScope(main);
+        assertTrue(scope.contains(main.getVirtualFile()));
+        assertTrue(scope.contains(lib.getVirtualFile()));
+        assertTrue(scope.contains(base.getVirtualFile())); // transitive
+        assertFalse(scope.contains(other.getVirtualFile()));
+
+        // the scope is cached per directory
+        assertSame(scope, DependencyScopeService.getScope(main));
+    }
+
+    @Test
+    public void testNearestDuneWithoutLibraries() {
+        myFixture.addFileToProject("dune", "(executable (name root) (libraries lib))");
+        myFixture.addFileToProject("lib/dune", "(library (name lib))");
+        PsiFile lib = myFixture.addFileToProject("lib/lib.ml", "let y = 1");
+        myFixture.addFileToProject("base/dune", "(library (name base))");
+        PsiFile base = myFixture.addFileToProject("base/base.ml", "let x = 1");
+        PsiFile other = myFixture.addFileToProject("base/other.ml", "let z = 1");
+
+        // the dune file of base has no dependencies, the libraries of the parent dune file are not used
+        GlobalSearchScope scope = DependencyScopeService.getScope(base);
+        assertTrue(scope.contains(other.getVirtualFile()));
+        assertFalse(scope.contains(lib.getVirtualFile()));
+    }
+
+    @Test
+    public void testWithoutDune() {
+        PsiFile a = myFixture.addFileToProject("src/a.ml", "let x = 1");
+        PsiFile b = myFixture.addFileToProject("other/b.ml", "let y = A.x");
+
+        // no libraries declared: the module and its dependencies
+        GlobalSearchScope scope = DependencyScopeService.getScope(b);
+        assertTrue(scope.contains(a.getVirtualFile()));
+        assertTrue(scope.contains(b.getVirtualFile()));
+    }
+}
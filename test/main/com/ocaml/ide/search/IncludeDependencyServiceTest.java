@@ -0,0 +1,53 @@
+package com.ocaml.ide.search;
+
+import com.ocaml.OCamlBaseTest;
+import com.or.ide.search.IncludeDependencyService;
+import com.or.utils.Joiner;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.Set;
+
+@SuppressWarnings("JUnit4AnnotatedMethodInJUnit3TestCase")
+public class IncludeDependencyServiceTest extends OCamlBaseTest {
+
+    @Test
+    public void testIncrementalUpdate() {
+        myFixture.addFileToProject("a.ml", "module B = struct let x = 1 end");
+        myFixture.addFileToProject("c.ml", "include A.B");
+
+        IncludeDependencyService service = IncludeDependencyService.getInstance(getProject());
+        Map<String, Set<String[]>> dependencies = service.getDependencies();
+        assertEquals("C", Joiner.join(",", dependencies.get("A.B"), p -> Joiner.join(".", p)));
+        assertEquals(1, service.getFullRebuildCount());
+
+        // no change: the dependencies are not computed again
+        service.getDependencies();
+        assertEquals(1, service.getFullRebuildCount());
+        assertEquals(1, service.getHitCount());
+
+        // a new file only updates its own entries
+        myFixture.addFileToProject("d.ml", "include A.B");
+        dependencies = service.getDependencies();
+        assertEquals("C,D", Joiner.join(",", dependencies.get("A.B"), p -> Joiner.join(".", p)));
+        assertEquals(1, service.getFullRebuildCount());
+        assertEquals(1, service.getIncrementalRebuildCount());
+    }
+
+    @Test
+    public void testNewDirectory() {
+        myFixture.addFileToProject("a.ml", "module B = struct let x = 1 end");
+        myFixture.addFileToProject("c.ml", "include A.B");
+
+        IncludeDependencyService service = IncludeDependencyService.getInstance(getProject());
+        service.getDependencies();
+        assertEquals(1, service.getFullRebuildCount());
+
+        // the files of a new directory are updated, the dependencies are not rebuilt
+        myFixture.addFileToProject("sub/d.ml", "include A.B");
+        Map<String, Set<String[]>> dependencies = service.getDependencies();
+        assertEquals("C,D", Joiner.join(",", dependencies.get("A.B"), p -> Joiner.join(".", p)));
+        assertEquals(1, service.getFullRebuildCount());
+        assertEquals(1, service.getIncrementalRebuildCount());
+    }
+}
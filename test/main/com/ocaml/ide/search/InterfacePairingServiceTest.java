@@ -0,0 +1,113 @@
+package com.ocaml.ide.search;
+
+import com.intellij.codeInsight.daemon.RelatedItemLineMarkerInfo;
+import com.intellij.psi.PsiDocumentManager;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.SyntaxTraverser;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.ocaml.OCamlBaseTest;
+import com.or.ide.files.FileBase;
+import com.or.ide.go.ORGotoDeclarationHandler;
+import com.or.ide.go.ORLineMarkerProvider;
+import com.or.ide.search.InterfacePairingService;
+import com.or.lang.core.psi.*;
+import com.or.lang.core.psi.impl.PsiLowerIdentifier;
+import com.or.lang.core.psi.impl.PsiUpperIdentifier;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@SuppressWarnings("JUnit4AnnotatedMethodInJUnit3TestCase")
+public class InterfacePairingServiceTest extends OCamlBaseTest {
+
+    @Test
+    public void testPairing() {
+        PsiFile intf = myFixture.addFileToProject("a.mli", "val x : int\ntype t\nexception E\nmodule M : sig val y : int end\n");
+        PsiFile impl = myFixture.addFileToProject("a.ml", "let x = 1\nlet x = 2\ntype t = int\nexception E\nmodule M = struct let y = 3 end\nlet z = 4\n");
+
+        InterfacePairingService service = InterfacePairingService.getInstance(getProject());
+        GlobalSearchScope scope = GlobalSearchScope.allScope(getProject());
+        assertEquals(intf, service.findRelatedFile((FileBase) impl, scope));
+        assertEquals(impl, service.findRelatedFile((FileBase) intf, scope));
+
+        // the last let is the visible one
+        PsiElement val = service.findRelated(findLower(impl, "x", 1), scope);
+        assertInstanceOf(val, PsiVal.class);
+        PsiElement let = service.findRelated(findLower(intf, "x", 0), scope);
+        assertInstanceOf(let, PsiLet.class);
+        assertEquals("2", ((PsiLet) let).getBinding().getText());
+
+        assertInstanceOf(service.findRelated(findLower(impl, "t", 0), scope), PsiType.class);
+        assertInstanceOf(service.findRelated(findUpper(impl, "E"), scope), PsiException.class);
+        assertInstanceOf(service.findRelated(findUpper(impl, "M"), scope), PsiInnerModule.class);
+        assertEquals("A.M.y", ((PsiVal) service.findRelated(findLower(impl, "y", 0), scope)).getQualifiedName());
+        assertNull(service.findRelated(findLower(impl, "z", 0), scope));
+    }
+
+    @Test
+    public void testIncrementalUpdate() {
+        myFixture.addFileToProject("a.mli", "val x : int\nval z : int\n");
+        myFixture.configureByText("a.ml", "let x = 1\n<caret>");
+        PsiFile impl = myFixture.getFile();
+
+        InterfacePairingService service = InterfacePairingService.getInstance(getProject());
+        GlobalSearchScope scope = GlobalSearchScope.allScope(getProject());
+        assertNotNull(service.findRelated(findLower(impl, "x", 0), scope));
+
+        // the implementation is read again after a change
+        myFixture.type("let z = 2\n");
+        PsiDocumentManager.getInstance(getProject()).commitAllDocuments();
+        assertNotNull(service.findRelated(findLower(myFixture.getFile(), "z", 0), scope));
+        assertNotNull(service.findRelated(findLower(myFixture.getFile(), "x", 0), scope));
+    }
+
+    @Test
+    public void testGotoPrefersInterface() {
+        myFixture.addFileToProject("a.mli", "val x : int\n");
+        myFixture.addFileToProject("a.ml", "let x = 1\n");
+        PsiElement element = configureCodeWithCaret("let _ = A.x(*caret*)");
+
+        PsiLowerSymbol symbol = PsiTreeUtil.getParentOfType(element, PsiLowerSymbol.class, false);
+        assertNotNull(symbol);
+        PsiElement target = ORGotoDeclarationHandler.resolveInterface(symbol.getReference());
+        assertNotNull(target);
+        assertTrue(((FileBase) target.getContainingFile()).isInterface());
+    }
+
+    @Test
+    public void testLineMarkersOfFile() {
+        myFixture.addFileToProject("a.mli", "val x : int\ntype t\nexception E\nmodule M : sig val y : int end\n");
+        PsiFile impl = myFixture.addFileToProject("a.ml", "let x = 1\nlet x = 2\ntype t = int\nexception E\nmodule M = struct let y = 3 end\nlet z = x\n");
+
+        List<PsiElement> elements = SyntaxTraverser.psiTraverser(impl).toList();
+        List<RelatedItemLineMarkerInfo<?>> markers = new ArrayList<>();
+        new ORLineMarkerProvider().collectNavigationMarkers(elements, markers, false);
+
+        // x (twice), t, E, M, y
+        assertSize(6, markers);
+    }
+
+    private static PsiLowerIdentifier findLower(PsiFile file, String name, int occurrence) {
+        int count = 0;
+        for (PsiLowerIdentifier identifier : PsiTreeUtil.findChildrenOfType(file, PsiLowerIdentifier.class)) {
+            if (name.equals(identifier.getText()) && count++ == occurrence) {
+                return identifier;
+            }
+        }
+        fail("No identifier " + name);
+        return null;
+    }
+
+    private static PsiUpperIdentifier findUpper(PsiFile file, String name) {
+        for (PsiUpperIdentifier identifier : PsiTreeUtil.findChildrenOfType(file, PsiUpperIdentifier.class)) {
+            if (name.equals(identifier.getText())) {
+                return identifier;
+            }
+        }
+        fail("No identifier " + name);
+        return null;
+    }
+}
@@ -0,0 +1,67 @@
+package com.ocaml.ide.search;
+
+import com.ocaml.OCamlBaseTest;
+import com.or.ide.search.ModuleAliasGraph;
+import com.or.ide.search.PsiFinder;
+import com.or.lang.core.psi.PsiModule;
+import com.or.utils.Joiner;
+import org.junit.Test;
+
+import java.util.Set;
+
+@SuppressWarnings("JUnit4AnnotatedMethodInJUnit3TestCase")
+public class ModuleAliasGraphTest extends OCamlBaseTest {
+
+    @Test
+    public void testTransitiveAliases() {
+        myFixture.addFileToProject("a.ml", "module M = B.N");
+        myFixture.addFileToProject("b.ml", "module N = C.O");
+        myFixture.addFileToProject("c.ml", "module O = struct let x = 1 end");
+
+        ModuleAliasGraph graph = ModuleAliasGraph.getInstance(getProject());
+        assertEquals("B.N -> C.O", Joiner.join(" -> ", graph.getAliasChains("A.M")[0]));
+        assertEquals("C.O", graph.getCanonicalName("A.M"));
+        assertNull(graph.getCanonicalName("C.O"));
+        assertEquals("A.M", Joiner.join(".", graph.getAliasedBy("B").iterator().next()));
+
+        Set<PsiModule> modules = new PsiFinder(getProject()).findModuleAlias("A.M");
+        assertSize(1, modules);
+        assertEquals("C.O", modules.iterator().next().getQualifiedName());
+    }
+
+    @Test
+    public void testCycle() {
+        myFixture.addFileToProject("a.ml", "module M = B.N");
+        myFixture.addFileToProject("b.ml", "module N = A.M");
+
+        ModuleAliasGraph graph = ModuleAliasGraph.getInstance(getProject());
+        assertNotNull(graph.getCanonicalName("A.M"));
+        assertNotNull(new PsiFinder(getProject()).findModuleAlias("A.M"));
+    }
+
+    @Test
+    public void testIncrementalUpdate() {
+        myFixture.addFileToProject("a.ml", "module M = B.N");
+        myFixture.addFileToProject("b.ml", "module N = struct end");
+
+        ModuleAliasGraph graph = ModuleAliasGraph.getInstance(getProject());
+        assertEquals("B.N", graph.getCanonicalName("A.M"));
+
+        // a new file only adds its own aliases
+        myFixture.addFileToProject("d.ml", "module P = A.M");
+        assertEquals("A.M -> B.N", Joiner.join(" -> ", graph.getAliasChains("D.P")[0]));
+        assertEquals("B.N", graph.getCanonicalName("D.P"));
+    }
+
+    @Test
+    public void testNewDirectory() {
+        myFixture.addFileToProject("b.ml", "module N = struct end");
+
+        ModuleAliasGraph graph = ModuleAliasGraph.getInstance(getProject());
+        assertNull(graph.getCanonicalName("A.M"));
+
+        // the files of a new directory are read with their aliases
+        myFixture.addFileToProject("sub/a.ml", "module M = B.N");
+        assertEquals("B.N", graph.getCanonicalName("A.M"));
+    }
+}
@@ -0,0 +1,84 @@
+package com.ocaml.ide.search;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.psi.stubs.StubIndex;
+import com.intellij.util.CommonProcessors;
+import com.ocaml.OCamlBaseTest;
+import com.or.ide.search.PsiFinder;
+import com.or.ide.search.index.IndexKeys;
+import com.or.lang.core.ORFileType;
+import com.or.lang.core.psi.PsiModule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The modules of a name were found by scanning all the keys of the module index.
+ * They are now found with an exact key lookup: this test is measuring both on a 50k modules index.
+ */
+@SuppressWarnings("JUnit4AnnotatedMethodInJUnit3TestCase")
+public class ModuleLookupBenchmarkTest extends OCamlBaseTest {
+    private static final Logger LOG = Logger.getInstance("ocaml.tests");
+
+    private static final int FILES = 500;
+    private static final int MODULES_PER_FILE = 100;
+    private static final int LOOKUPS = 1_000;
+
+    @Test
+    public void testLookupCost() {
+        for (int f = 0; f < FILES; f++) {
+            StringBuilder code = new StringBuilder();
+            for (int m = 0; m < MODULES_PER_FILE; m++) {
+                code.append("module M").append(f).append("_").append(m).append(" = struct end\n");
+            }
+            myFixture.addFileToProject("lib" + f + ".ml", code.toString());
+        }
+
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < LOOKUPS; i++) {
+            names.add("M" + (i * 7 % FILES) + "_" + (i % MODULES_PER_FILE));
+        }
+
+        PsiFinder finder = new PsiFinder(getProject());
+
+        // First lookup is triggering the indexing of the corpus
+        long startIndexing = System.nanoTime();
+        finder.findModulesbyName(names.get(0), ORFileType.both);
+        long endIndexing = System.nanoTime();
+
+        // Previous implementation: a scan of all the keys for each name
+        int scanned = 0;
+        for (int i = 0; i < LOOKUPS / 100; i++) {
+            String name = names.get(i);
+            CommonProcessors.CollectProcessor<String> processor = new CommonProcessors.CollectProcessor<>() {
+                @Override
+                protected boolean accept(String key) {
+                    return name.equals(key);
+                }
+            };
+            StubIndex.getInstance().processAllKeys(IndexKeys.MODULES, getProject(), processor);
+            scanned += processor.getResults().size();
+        }
+        long endScans = System.nanoTime();
+
+        int found = 0;
+        for (String name : names) {
+            found += finder.findModulesbyName(name, ORFileType.both).size();
+        }
+        long endLookups = System.nanoTime();
+
+        Map<String, Set<PsiModule>> batch = finder.findModulesbyNames(names, ORFileType.both);
+        long endBatch = System.nanoTime();
+
+        LOG.info("Modules by name, " + FILES * MODULES_PER_FILE + " modules, indexing: " + (endIndexing - startIndexing) / 1_000_000 + "ms"
+                + ", key scans: " + (endScans - endIndexing) / (LOOKUPS / 100) / 1_000 + "µs per name"
+                + ", exact lookups: " + (endLookups - endScans) / LOOKUPS / 1_000 + "µs per name"
+                + ", batch lookup: " + batch.size() + " names in " + (endBatch - endLookups) / 1_000_000 + "ms");
+
+        assertEquals(LOOKUPS / 100, scanned);
+        assertEquals(LOOKUPS, found);
+    }
+}
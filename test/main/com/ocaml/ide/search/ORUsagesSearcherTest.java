@@ -0,0 +1,67 @@
+package com.ocaml.ide.search;
+
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiReference;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.usageView.UsageInfo;
+import com.intellij.util.containers.ContainerUtil;
+import com.ocaml.OCamlBaseTest;
+import com.or.ide.search.ORUsagesSearcher;
+import com.or.lang.core.psi.impl.PsiLowerIdentifier;
+import org.junit.Test;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.TreeSet;
+
+@SuppressWarnings("JUnit4AnnotatedMethodInJUnit3TestCase")
+public class ORUsagesSearcherTest extends OCamlBaseTest {
+
+    @Test
+    public void testReachableFilesOnly() {
+        PsiFile a = myFixture.addFileToProject("a.ml", "let x = 1");
+        myFixture.addFileToProject("b.ml", "let y = A.x");
+        myFixture.addFileToProject("c.ml", "let x = 2\nlet z = x");
+        myFixture.addFileToProject("d.ml", "open A\nlet w = x");
+
+        PsiElement target = getLetName(a);
+        Set<String> files = ContainerUtil.newConcurrentSet();
+        ORUsagesSearcher.processReferences(target, GlobalSearchScope.allScope(getProject()), reference -> {
+            files.add(reference.getElement().getContainingFile().getName());
+            return true;
+        });
+
+        assertEquals("[b.ml, d.ml]", new TreeSet<>(files).toString());
+    }
+
+    @Test
+    public void testFindUsages() {
+        PsiFile a = myFixture.addFileToProject("a.ml", "let x = 1");
+        myFixture.addFileToProject("b.ml", "let y = A.x");
+        myFixture.addFileToProject("c.ml", "let x = 2\nlet z = x");
+
+        Collection<UsageInfo> usages = myFixture.findUsages(getLetName(a));
+        assertSize(1, usages);
+        PsiReference reference = usages.iterator().next().getReference();
+        assertNotNull(reference);
+        assertEquals("b.ml", reference.getElement().getContainingFile().getName());
+    }
+
+    @Test
+    public void testReachableModuleNames() {
+        myFixture.addFileToProject("a.ml", "module Inner = struct let x = 1 end");
+        myFixture.addFileToProject("b.ml", "include A");
+        myFixture.addFileToProject("c.ml", "module M = B.Inner");
+
+        Set<String> names = ORUsagesSearcher.getReachableModuleNames(getProject(), "A");
+        assertEquals("[A, B, C]", new TreeSet<>(names).toString());
+    }
+
+    private static PsiElement getLetName(PsiFile file) {
+        PsiLowerIdentifier nameIdentifier = PsiTreeUtil.findChildOfType(file, PsiLowerIdentifier.class);
+        assertNotNull(nameIdentifier);
+        return nameIdentifier;
+    }
+}
@@ -0,0 +1,32 @@
+package com.ocaml.ide.search;
+
+import com.ocaml.OCamlBaseTest;
+import com.or.ide.search.PsiFinder;
+import com.or.lang.core.ORFileType;
+import com.or.lang.core.psi.PsiModule;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@SuppressWarnings("JUnit4AnnotatedMethodInJUnit3TestCase")
+public class PsiFinderTest extends OCamlBaseTest {
+
+    @Test
+    public void testFindModulesByName() {
+        myFixture.addFileToProject("a.ml", "module Inner = struct end");
+        myFixture.addFileToProject("b.mli", "module Inner : sig end");
+        myFixture.addFileToProject("b.ml", "module Inner = struct end");
+
+        PsiFinder finder = new PsiFinder(getProject());
+        assertSize(3, finder.findModulesbyName("Inner", ORFileType.both));
+        assertSize(1, finder.findModulesbyName("Inner", ORFileType.interfaceOnly));
+        assertSize(2, finder.findModulesbyName("Inner", ORFileType.implementationOnly));
+        assertEmpty(finder.findModulesbyName("Unknown", ORFileType.both));
+
+        Map<String, Set<PsiModule>> modules = finder.findModulesbyNames(List.of("Inner", "Unknown", "Inner"), ORFileType.both);
+        assertSize(2, modules.keySet());
+        assertSize(3, modules.get("Inner"));
+    }
+}
@@ -0,0 +1,68 @@
+package com.ocaml.ide.search.index;
+
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiReference;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.ocaml.OCamlBaseTest;
+import com.or.ide.search.index.LowerSymbolIndex;
+import com.or.lang.core.psi.*;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The lets, vals and externals are in the same index, a key is shared by all the declarations with that name.
+ */
+@SuppressWarnings("JUnit4AnnotatedMethodInJUnit3TestCase")
+public class LowerSymbolIndexTest extends OCamlBaseTest {
+
+    @Test
+    public void testSharedKey() {
+        myFixture.addFileToProject("a.ml", "let length = 1");
+        myFixture.addFileToProject("b.mli", "val length : int");
+        myFixture.addFileToProject("c.ml", "external length : string -> int = \"%string_length\"");
+
+        Collection<PsiQualifiedPathElement> elements = LowerSymbolIndex.getElements("length", getProject(), GlobalSearchScope.allScope(getProject()));
+        Set<String> qNames = new HashSet<>();
+        for (PsiQualifiedPathElement element : elements) {
+            qNames.add(element.getQualifiedName());
+        }
+        assertSameElements(qNames, "A.length", "B.length", "C.length");
+        assertTrue(elements.stream().anyMatch(element -> element instanceof PsiLet));
+        assertTrue(elements.stream().anyMatch(element -> element instanceof PsiVal));
+        assertTrue(elements.stream().anyMatch(element -> element instanceof PsiExternal));
+    }
+
+    @Test
+    public void testResolveSharedKey() {
+        myFixture.addFileToProject("a.ml", "let length = 1");
+        myFixture.addFileToProject("b.mli", "val length : int");
+        myFixture.addFileToProject("c.ml", "external length : string -> int = \"%string_length\"");
+        PsiFile file = myFixture.configureByText("d.ml", "let _ = A.length\nlet _ = B.length\nlet _ = C.length\n");
+
+        // the path of the symbol selects the declaration among the elements of the key
+        assertInstanceOf(resolve(file, 0), PsiLet.class);
+        assertInstanceOf(resolve(file, 1), PsiVal.class);
+        assertInstanceOf(resolve(file, 2), PsiExternal.class);
+        assertEquals("C.length", ((PsiQualifiedPathElement) resolve(file, 2)).getQualifiedName());
+    }
+
+    private static @NotNull PsiElement resolve(@NotNull PsiFile file, int index) {
+        PsiLowerSymbol symbol = PsiTreeUtil.findChildrenOfType(file, PsiLowerSymbol.class).stream()
+                .filter(s -> "length".equals(s.getText()))
+                .skip(index)
+                .findFirst()
+                .orElse(null);
+        assertNotNull(symbol);
+        PsiReference reference = symbol.getReference();
+        assertNotNull(reference);
+        PsiElement resolved = PsiTreeUtil.getParentOfType(reference.resolve(), PsiQualifiedPathElement.class, false);
+        assertNotNull(resolved);
+        return resolved;
+    }
+}
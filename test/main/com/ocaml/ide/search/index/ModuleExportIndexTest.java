@@ -0,0 +1,79 @@
+package com.ocaml.ide.search.index;
+
+import com.intellij.psi.search.GlobalSearchScope;
+import com.ocaml.OCamlBaseTest;
+import com.or.ide.search.ModuleExport;
+import com.or.ide.search.index.ModuleExportIndex;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@SuppressWarnings("JUnit4AnnotatedMethodInJUnit3TestCase")
+public class ModuleExportIndexTest extends OCamlBaseTest {
+
+    @Test
+    public void testFileExports() {
+        myFixture.addFileToProject("a.ml", "let x = 1\nlet f y = y\nexternal e : int -> int = \"e\"\ntype t = Red | Green\nexception E\nmodule M = struct let z = 2 end\n");
+
+        GlobalSearchScope scope = GlobalSearchScope.allScope(getProject());
+        List<ModuleExport> exports = ModuleExportIndex.getExports("A", getProject(), scope);
+        assertNotNull(exports);
+        assertOrderedEquals(names(exports), "x", "f", "e", "t", "Red", "Green", "E", "M");
+        assertEquals(ModuleExport.Kind.VARIANT, exports.get(4).getKind());
+        assertEquals("t", exports.get(4).getSignature());
+        assertTrue(exports.get(1).isFunction());
+
+        List<ModuleExport> moduleExports = ModuleExportIndex.getExports("A.M", getProject(), scope);
+        assertNotNull(moduleExports);
+        assertOrderedEquals(names(moduleExports), "z");
+
+        assertNull(ModuleExportIndex.getExports("Unknown", getProject(), scope));
+    }
+
+    @Test
+    public void testInterfaceFirst() {
+        myFixture.addFileToProject("a.ml", "let x = 1\nlet hidden = 2\n");
+        myFixture.addFileToProject("a.mli", "val x : int\n");
+
+        List<ModuleExport> exports = ModuleExportIndex.getExports("A", getProject(), GlobalSearchScope.allScope(getProject()));
+        assertNotNull(exports);
+        assertSize(1, exports);
+        assertEquals(ModuleExport.Kind.VAL, exports.get(0).getKind());
+    }
+
+    @Test
+    public void testIncludesAndAliases() {
+        myFixture.addFileToProject("a.ml", "let x = 1\n");
+        myFixture.addFileToProject("b.ml", "include A\nlet y = 2\nmodule C = A\n");
+
+        GlobalSearchScope scope = GlobalSearchScope.allScope(getProject());
+        Map<String, String> declaringModules = new LinkedHashMap<>();
+        assertTrue(ModuleExportIndex.processExports("B", getProject(), scope, (moduleQName, export) -> declaringModules.put(export.getName(), moduleQName)));
+        assertEquals("{x=A, y=B, C=B}", declaringModules.toString());
+
+        List<ModuleExport> aliasExports = ModuleExportIndex.getExports("B.C", getProject(), scope);
+        assertNotNull(aliasExports);
+        assertOrderedEquals(names(aliasExports), "x");
+    }
+
+    @Test
+    public void testIncludeCycle() {
+        myFixture.addFileToProject("a.ml", "include B\nlet x = 1\n");
+        myFixture.addFileToProject("b.ml", "include A\nlet y = 2\n");
+
+        List<ModuleExport> exports = ModuleExportIndex.getExports("A", getProject(), GlobalSearchScope.allScope(getProject()));
+        assertNotNull(exports);
+        assertSameElements(names(exports), "y", "x");
+    }
+
+    private static List<String> names(List<ModuleExport> exports) {
+        List<String> names = new ArrayList<>();
+        for (ModuleExport export : exports) {
+            names.add(export.getName());
+        }
+        return names;
+    }
+}
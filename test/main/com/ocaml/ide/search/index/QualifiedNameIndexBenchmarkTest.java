@@ -0,0 +1,87 @@
+package com.ocaml.ide.search.index;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.ocaml.OCamlBaseTest;
+import com.or.ide.search.index.LetFqnIndex;
+import com.or.lang.core.psi.PsiLet;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The qualified name indexes were keyed with {@link String#hashCode()}, a lookup could return
+ * declarations from other qualified names. They are now keyed with the qualified name itself.
+ * This test is measuring, on a corpus of 100k declarations, the false positives that
+ * the hashed keys would have returned, and the cost of an exact lookup.
+ */
+@SuppressWarnings("JUnit4AnnotatedMethodInJUnit3TestCase")
+public class QualifiedNameIndexBenchmarkTest extends OCamlBaseTest {
+    private static final Logger LOG = Logger.getInstance("ocaml.tests");
+
+    private static final int FILES = 100;
+    private static final int MODULES_PER_FILE = 10;
+    private static final int LETS_PER_MODULE = 100;
+    private static final int LOOKUP_STEP = 10;
+
+    @Test
+    public void testLookupCostAndFalsePositives() {
+        List<String> qNames = new ArrayList<>();
+        for (int f = 0; f < FILES; f++) {
+            StringBuilder code = new StringBuilder();
+            for (int m = 0; m < MODULES_PER_FILE; m++) {
+                code.append("module M").append(m).append(" = struct\n");
+                for (int l = 0; l < LETS_PER_MODULE; l++) {
+                    code.append("  let v").append(l).append(" = ").append(l).append("\n");
+                    qNames.add("Lib" + f + ".M" + m + ".v" + l);
+                }
+                code.append("end\n");
+            }
+            myFixture.addFileToProject("lib" + f + ".ml", code.toString());
+        }
+
+        // False positives that a lookup with a hashed key would have returned
+        Map<Integer, Integer> hashBuckets = new HashMap<>();
+        for (String qName : qNames) {
+            hashBuckets.merge(qName.hashCode(), 1, Integer::sum);
+        }
+        long hashFalsePositives = 0;
+        for (String qName : qNames) {
+            hashFalsePositives += hashBuckets.get(qName.hashCode()) - 1;
+        }
+
+        GlobalSearchScope scope = GlobalSearchScope.allScope(getProject());
+
+        // First lookup is triggering the indexing of the corpus
+        long startIndexing = System.nanoTime();
+        LetFqnIndex.getElements(qNames.get(0), getProject(), scope);
+        long endIndexing = System.nanoTime();
+
+        int lookups = 0;
+        int found = 0;
+        long falsePositives = 0;
+        for (int i = 0; i < qNames.size(); i += LOOKUP_STEP) {
+            String qName = qNames.get(i);
+            for (PsiLet let : LetFqnIndex.getElements(qName, getProject(), scope)) {
+                if (qName.equals(let.getQualifiedName())) {
+                    found++;
+                } else {
+                    falsePositives++;
+                }
+            }
+            lookups++;
+        }
+        long endLookups = System.nanoTime();
+
+        LOG.info("Qualified name index, " + qNames.size() + " declarations, indexing: " + (endIndexing - startIndexing) / 1_000_000 + "ms"
+                + ", lookups: " + lookups + " in " + (endLookups - endIndexing) / 1_000_000 + "ms (" + (endLookups - endIndexing) / lookups / 1_000 + "µs per lookup)"
+                + ", false positives with hashed keys: " + hashFalsePositives + " (" + (100.0 * hashFalsePositives / qNames.size()) + "%)"
+                + ", false positives with string keys: " + falsePositives);
+
+        assertEquals(lookups, found);
+        assertEquals(0, falsePositives);
+    }
+}
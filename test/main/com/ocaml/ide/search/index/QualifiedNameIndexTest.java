@@ -0,0 +1,74 @@
+package com.ocaml.ide.search.index;
+
+import com.intellij.psi.search.GlobalSearchScope;
+import com.ocaml.OCamlBaseTest;
+import com.or.ide.search.index.ExternalFqnIndex;
+import com.or.ide.search.index.LetFqnIndex;
+import com.or.lang.core.psi.PsiExternal;
+import com.or.lang.core.psi.PsiLet;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The qualified name indexes were keyed with {@link String#hashCode()}, a lookup could return
+ * declarations from other qualified names. They are now keyed with the qualified name itself.
+ */
+@SuppressWarnings("JUnit4AnnotatedMethodInJUnit3TestCase")
+public class QualifiedNameIndexTest extends OCamlBaseTest {
+
+    @Test
+    public void testHashCollisionIsNotReturned() {
+        // "ax" and "bY" have the same hashCode, so both qualified names have the same hashCode
+        assertEquals("Collide.ax".hashCode(), "Collide.bY".hashCode());
+        myFixture.addFileToProject("collide.ml", "let ax = 1\nlet bY = 2\n");
+
+        GlobalSearchScope scope = GlobalSearchScope.allScope(getProject());
+        Collection<PsiLet> lets = LetFqnIndex.getElements("Collide.ax", getProject(), scope);
+        assertSize(1, lets);
+        assertEquals("ax", lets.iterator().next().getName());
+    }
+
+    @Test
+    public void testExactLookups() {
+        List<String> qNames = new ArrayList<>();
+        Set<Integer> hashes = new HashSet<>();
+        for (int f = 0; f < 5; f++) {
+            StringBuilder code = new StringBuilder();
+            for (int m = 0; m < 4; m++) {
+                code.append("module M").append(m).append(" = struct\n");
+                // "Aa" and "BB" have the same hashCode: the 8 names of a module have the same hashCode
+                for (int l = 0; l < 8; l++) {
+                    String name = "v" + ((l & 1) == 0 ? "Aa" : "BB") + ((l & 2) == 0 ? "Aa" : "BB") + ((l & 4) == 0 ? "Aa" : "BB");
+                    code.append("  let ").append(name).append(" = ").append(l).append("\n");
+                    String qName = "Lib" + f + ".M" + m + "." + name;
+                    qNames.add(qName);
+                    hashes.add(qName.hashCode());
+                }
+                code.append("end\n");
+            }
+            myFixture.addFileToProject("lib" + f + ".ml", code.toString());
+        }
+        assertSize(5 * 4, hashes);
+
+        GlobalSearchScope scope = GlobalSearchScope.allScope(getProject());
+        for (String qName : qNames) {
+            Collection<PsiLet> lets = LetFqnIndex.getElements(qName, getProject(), scope);
+            assertSize(1, lets);
+            assertEquals(qName, lets.iterator().next().getQualifiedName());
+        }
+    }
+
+    @Test
+    public void testExternal() {
+        myFixture.addFileToProject("ext.ml", "external length : string -> int = \"%string_length\"");
+
+        Collection<PsiExternal> externals = ExternalFqnIndex.getElements("Ext.length", getProject(), GlobalSearchScope.allScope(getProject()));
+        assertSize(1, externals);
+        assertEquals("length", externals.iterator().next().getName());
+    }
+}
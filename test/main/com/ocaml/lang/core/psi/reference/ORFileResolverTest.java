@@ -0,0 +1,36 @@
+package com.ocaml.lang.core.psi.reference;
+
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.ocaml.OCamlBaseTest;
+import com.or.lang.core.psi.PsiLowerSymbol;
+import com.or.lang.core.psi.PsiUpperSymbol;
+import com.or.lang.core.psi.reference.ORFileResolver;
+import com.or.lang.core.psi.reference.PsiLowerSymbolReference;
+import com.or.lang.core.psi.reference.PsiUpperSymbolReference;
+import org.junit.Test;
+
+@SuppressWarnings("JUnit4AnnotatedMethodInJUnit3TestCase")
+public class ORFileResolverTest extends OCamlBaseTest {
+
+    @Test
+    public void testPrimedSymbolsAreCached() {
+        PsiFile file = myFixture.configureByText("a.ml", "module M = struct let x = 1 end\n" +
+                "let y = M.x + M.x\n" +
+                "let z = M.x * y\n");
+
+        ORFileResolver.prime(file);
+
+        long lowerMisses = PsiLowerSymbolReference.CACHE_STATISTICS.getMissCount();
+        long upperMisses = PsiUpperSymbolReference.CACHE_STATISTICS.getMissCount();
+        for (PsiLowerSymbol symbol : PsiTreeUtil.findChildrenOfType(file, PsiLowerSymbol.class)) {
+            symbol.getReference().resolve();
+        }
+        for (PsiUpperSymbol symbol : PsiTreeUtil.findChildrenOfType(file, PsiUpperSymbol.class)) {
+            symbol.getReference().resolve();
+        }
+
+        assertEquals(lowerMisses, PsiLowerSymbolReference.CACHE_STATISTICS.getMissCount());
+        assertEquals(upperMisses, PsiUpperSymbolReference.CACHE_STATISTICS.getMissCount());
+    }
+}
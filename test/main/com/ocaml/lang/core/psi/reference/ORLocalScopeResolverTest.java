@@ -0,0 +1,108 @@
+package com.ocaml.lang.core.psi.reference;
+
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiReference;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.ocaml.OCamlBaseTest;
+import com.or.lang.core.psi.PsiLet;
+import com.or.lang.core.psi.PsiLowerSymbol;
+import com.or.lang.core.psi.PsiParameter;
+import org.junit.Test;
+
+@SuppressWarnings("JUnit4AnnotatedMethodInJUnit3TestCase")
+public class ORLocalScopeResolverTest extends OCamlBaseTest {
+
+    @Test
+    public void testParameter() {
+        PsiElement resolved = resolveLast("let x = 1\nlet f x y = x + y", "x");
+        assertInstanceOf(resolved.getParent(), PsiParameter.class);
+    }
+
+    @Test
+    public void testNestedFunctionParameter() {
+        PsiElement resolved = resolveLast("let f x = List.map (fun y -> x + y) [1]", "x");
+        assertInstanceOf(resolved.getParent(), PsiParameter.class);
+        assertEquals(6, resolved.getTextOffset());
+    }
+
+    @Test
+    public void testLetIn() {
+        PsiElement resolved = resolveLast("let x = 1\nlet f () = let x = 2 in x", "x");
+        PsiLet let = PsiTreeUtil.getParentOfType(resolved, PsiLet.class);
+        assertNotNull(let);
+        assertEquals("x = 2", let.getText().substring(4));
+    }
+
+    @Test
+    public void testShadowing() {
+        PsiElement resolved = resolveLast("let f x = let x = x + 1 in x", "x");
+        PsiLet let = PsiTreeUtil.getParentOfType(resolved, PsiLet.class);
+        assertNotNull(let);
+        assertEquals("let x = x + 1", let.getText());
+    }
+
+    @Test
+    public void testMatchPattern() {
+        PsiElement resolved = resolveLast("let x = 1\nlet f o = match o with | Some x -> x | None -> 0", "x");
+        assertInstanceOf(resolved, PsiLowerSymbol.class);
+        assertEquals(40, resolved.getTextOffset());
+    }
+
+    @Test
+    public void testQualifiedIsNotLocal() {
+        myFixture.addFileToProject("a.ml", "let x = 1");
+        PsiElement resolved = resolveLast("let f x = A.x", "x");
+        assertEquals("a.ml", resolved.getContainingFile().getName());
+    }
+
+    @Test
+    public void testPatternTypeAnnotation() {
+        PsiElement resolved = resolveLast("let t = 1\nlet f o = match o with | (x : t) -> t", "t");
+        PsiLet let = PsiTreeUtil.getParentOfType(resolved, PsiLet.class, false);
+        assertNotNull(let);
+        assertEquals("let t = 1", let.getText());
+    }
+
+    @Test
+    public void testLocalOpen() {
+        myFixture.addFileToProject("a.ml", "let x = 1");
+        PsiElement resolved = resolveLast("let x = 2\nlet f () = let open A in x", "x");
+        assertEquals("a.ml", resolved.getContainingFile().getName());
+    }
+
+    @Test
+    public void testLocalOpenAfterLetIn() {
+        myFixture.addFileToProject("a.ml", "let x = 1");
+        PsiElement resolved = resolveLast("let f () = let open A in let x = 2 in x", "x");
+        assertEquals("b.ml", resolved.getContainingFile().getName());
+    }
+
+    @Test
+    public void testLocalOpenExpression() {
+        myFixture.addFileToProject("a.ml", "let x = 1");
+        PsiElement resolved = resolveLastOrNull("let f x = A.(x + 1)", "x");
+        // the x of the expression is the one of the module A, not the parameter
+        assertTrue(resolved == null || !(resolved.getParent() instanceof PsiParameter));
+    }
+
+    private PsiElement resolveLast(String code, String name) {
+        PsiElement resolved = resolveLastOrNull(code, name);
+        assertNotNull(resolved);
+        return resolved;
+    }
+
+    private PsiElement resolveLastOrNull(String code, String name) {
+        PsiFile file = myFixture.configureByText("b.ml", code);
+        PsiLowerSymbol usage = null;
+        for (PsiLowerSymbol symbol : PsiTreeUtil.findChildrenOfType(file, PsiLowerSymbol.class)) {
+            if (name.equals(symbol.getText())) {
+                usage = symbol;
+            }
+        }
+        assertNotNull(usage);
+        PsiReference reference = usage.getReference();
+        assertNotNull(reference);
+        return reference.resolve();
+    }
+}
@@ -0,0 +1,111 @@
+package com.ocaml.lang.core.psi.reference;
+
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.ocaml.OCamlBaseTest;
+import com.or.ide.files.FileBase;
+import com.or.lang.core.psi.*;
+import com.or.lang.core.psi.reference.ORReferenceAnalyzer;
+import com.or.utils.Joiner;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+/**
+ * The instructions of a reference, extracted from the scope table of the file: from the file down to the element.
+ */
+@SuppressWarnings("JUnit4AnnotatedMethodInJUnit3TestCase")
+public class ORReferenceAnalyzerTest extends OCamlBaseTest {
+
+    @Test
+    public void testOpens() {
+        PsiFile file = myFixture.configureByText("a.ml", "open B\nlet x = 1\nopen C.D\nlet y = z\n");
+
+        assertEquals("file A, open B, let x, open C.D, let y", instructions(findLast(file, "z")));
+    }
+
+    @Test
+    public void testIncludes() {
+        PsiFile file = myFixture.configureByText("a.ml", "module B = struct let x = 1 end\ninclude B\nlet y = x\n");
+
+        // an include is not an instruction, the elements it includes are found by the resolution
+        assertEquals("file A, module B, let y", instructions(findLast(file, "x")));
+    }
+
+    @Test
+    public void testModuleAliases() {
+        PsiFile file = myFixture.configureByText("a.ml", "module B = struct module E = struct let x = 1 end end\nmodule C = B\nmodule D = C.E\nlet y = D.x\n");
+
+        // the aliases are resolved with the local aliases visible from the module
+        assertEquals("file A, module B, C =~ B, D =~ B.E, let y, path D", instructions(findLast(file, "x")));
+    }
+
+    @Test
+    public void testLocalOpens() {
+        PsiFile file = myFixture.configureByText("a.ml", "let y = B.C.(x + 1) + z\n");
+
+        // the path of a local open is only visible inside it
+        assertEquals("file A, let y, path B, path C", instructions(findLast(file, "x")));
+        assertEquals("file A, let y", instructions(findLast(file, "z")));
+    }
+
+    @Test
+    public void testPathBreaks() {
+        PsiFile file = myFixture.configureByText("a.ml", "let a = B.x |> y\nlet b = (C.x, z)\nlet c = fun _ -> D.w\n");
+
+        // the symbols before |> , -> are not in the path of the element
+        assertEquals("file A, let a", instructions(findLast(file, "y")));
+        assertEquals("file A, let a, let b", instructions(findLast(file, "z")));
+        assertEquals("file A, let a, let b, let c, path D", instructions(findLast(file, "w")));
+    }
+
+    @Test
+    public void testOffsetBoundaries() {
+        PsiFile file = myFixture.configureByText("a.ml", "let x = 1\nmodule M = struct\n  let a = 1\n  let b = a\nend\nlet y = x\nopen B\n");
+
+        // an element is not visible from itself, its parents are visible from their children
+        PsiLet let = PsiTreeUtil.findChildrenOfType(file, PsiLet.class).stream().filter(l -> "y".equals(l.getName())).findFirst().orElse(null);
+        assertNotNull(let);
+        assertEquals("file A, let x, module M", instructions(let));
+        assertEquals("file A, let x, module M, let a, let b", instructions(findLast(file, "a")));
+        // the elements that follow are not visible
+        assertEquals("file A, let x, module M, let y", instructions(findLast(file, "x")));
+    }
+
+    private static @NotNull String instructions(@NotNull PsiElement element) {
+        return Joiner.join(", ", ORReferenceAnalyzer.createInstructions(element), ORReferenceAnalyzerTest::describe);
+    }
+
+    private static @NotNull String describe(@NotNull PsiElement instruction) {
+        if (instruction instanceof FileBase) {
+            return "file " + ((FileBase) instruction).getModuleName();
+        }
+        if (instruction instanceof PsiOpen) {
+            return "open " + ((PsiOpen) instruction).getPath();
+        }
+        if (instruction instanceof PsiInnerModule) {
+            return "module " + ((PsiInnerModule) instruction).getModuleName();
+        }
+        if (instruction instanceof PsiLet) {
+            return "let " + ((PsiLet) instruction).getName();
+        }
+        // a symbol of a path is wrapped to be resolved with the local aliases
+        PsiElement original = instruction.getOriginalElement();
+        if (original instanceof PsiUpperSymbol || original instanceof PsiLowerSymbol) {
+            return "path " + original.getText();
+        }
+        // local alias
+        return instruction.toString();
+    }
+
+    private static @NotNull PsiElement findLast(@NotNull PsiFile file, @NotNull String name) {
+        PsiElement usage = null;
+        for (PsiElement symbol : PsiTreeUtil.findChildrenOfAnyType(file, PsiLowerSymbol.class, PsiUpperSymbol.class)) {
+            if (name.equals(symbol.getText())) {
+                usage = symbol;
+            }
+        }
+        assertNotNull(usage);
+        return usage;
+    }
+}
@@ -0,0 +1,92 @@
+package com.ocaml.lang.core.psi.reference;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
+import com.intellij.psi.PsiReference;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.ocaml.OCamlBaseTest;
+import com.or.lang.core.psi.PsiLowerSymbol;
+import com.or.lang.core.psi.PsiUpperSymbol;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replay the resolution of a workload: the symbols of a file using common names (x, map, List) declared
+ * in many modules, with aliases and includes. Most of the time is spent in the scoring of the candidates.
+ * The resolve caches are dropped between the rounds, the first rounds are used to warm up the JIT.
+ */
+@SuppressWarnings("JUnit4AnnotatedMethodInJUnit3TestCase")
+public class ResolutionScoringBenchmarkTest extends OCamlBaseTest {
+    private static final Logger LOG = Logger.getInstance("ocaml.tests");
+
+    private static final int FILES = 50;
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int ROUNDS = 10;
+
+    @Test
+    public void testReplayWorkload() {
+        for (int f = 0; f < FILES; f++) {
+            myFixture.addFileToProject("lib" + f + ".ml", "let x = " + f + "\n" +
+                    "let map f l = l\n" +
+                    "module List = struct let map f l = l let x = 0 end\n" +
+                    "module Inner = struct include List let y = x end\n" +
+                    "type t = Red | Green\n");
+        }
+
+        StringBuilder code = new StringBuilder();
+        for (int f = 0; f < FILES; f++) {
+            code.append("module L").append(f).append(" = Lib").append(f).append("\n");
+            code.append("let a").append(f).append(" = L").append(f).append(".List.map (fun v -> v) [Lib").append(f).append(".x]\n");
+            code.append("let b").append(f).append(" = Lib").append(f).append(".Inner.map (fun v -> v) [x; a").append(f).append("]\n");
+            code.append("let c").append(f).append(" = match Lib").append(f).append(".Red with | Lib").append(f).append(".Green -> 1 | _ -> 0\n");
+        }
+        PsiFile file = myFixture.configureByText("workload.ml", code.toString());
+
+        // The recorded workload
+        List<PsiReference> references = new ArrayList<>();
+        for (PsiElement symbol : PsiTreeUtil.findChildrenOfAnyType(file, PsiLowerSymbol.class, PsiUpperSymbol.class)) {
+            PsiReference reference = symbol.getReference();
+            if (reference != null) {
+                references.add(reference);
+            }
+        }
+
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            replay(references);
+        }
+
+        long total = 0;
+        long best = Long.MAX_VALUE;
+        int resolved = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            resolved = replay(references);
+            long duration = System.nanoTime() - start;
+            total += duration;
+            best = Math.min(best, duration);
+        }
+
+        LOG.info("Resolution scoring, " + references.size() + " references, " + FILES + " candidates per common name, resolved: " + resolved
+                + ", average round: " + total / ROUNDS / 1_000_000 + "ms, best round: " + best / 1_000_000 + "ms, "
+                + total / ROUNDS / references.size() / 1_000 + "µs per reference");
+
+        assertTrue(0 < resolved);
+    }
+
+    private int replay(List<PsiReference> references) {
+        // the resolve caches are invalidated by a PSI modification
+        PsiManager.getInstance(getProject()).dropPsiCaches();
+
+        int resolved = 0;
+        for (PsiReference reference : references) {
+            if (reference.resolve() != null) {
+                resolved++;
+            }
+        }
+        return resolved;
+    }
+}
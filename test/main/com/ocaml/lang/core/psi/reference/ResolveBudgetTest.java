@@ -0,0 +1,94 @@
+package com.ocaml.lang.core.psi.reference;
+
+import com.intellij.openapi.progress.EmptyProgressIndicator;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.ResolveResult;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.ocaml.OCamlBaseTest;
+import com.or.lang.core.psi.PsiLowerSymbol;
+import com.or.lang.core.psi.reference.PsiLowerSymbolReference;
+import com.or.lang.core.psi.reference.ResolveBudget;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+@SuppressWarnings("JUnit4AnnotatedMethodInJUnit3TestCase")
+public class ResolveBudgetTest extends OCamlBaseTest {
+
+    @Test
+    public void testCompleteResolution() {
+        // the time never passes
+        ResolveBudget.setClock(() -> 0L, getTestRootDisposable());
+        myFixture.addFileToProject("a.ml", "let x = 1");
+        PsiFile opened = myFixture.addFileToProject("b.ml", "open A\nlet y = x");
+        PsiFile notOpened = myFixture.addFileToProject("c.ml", "let z = x");
+
+        long misses = PsiLowerSymbolReference.CACHE_STATISTICS.getMissCount();
+        ResolveResult[] results = getReference(opened).multiResolve(false);
+        assertSize(1, results);
+        assertEquals("a.ml", results[0].getElement().getContainingFile().getName());
+
+        // A is not opened, the incomplete resolutions are removed
+        assertSize(0, getReference(notOpened).multiResolve(false));
+
+        // complete results are kept
+        getReference(opened).multiResolve(false);
+        getReference(notOpened).multiResolve(false);
+        assertEquals(2, PsiLowerSymbolReference.CACHE_STATISTICS.getMissCount() - misses);
+    }
+
+    @Test
+    public void testExhaustedBudget() {
+        // the budget is exhausted at the first checkpoint
+        AtomicLong now = new AtomicLong();
+        ResolveBudget.setClock(() -> now.addAndGet(1_000_000), getTestRootDisposable());
+        myFixture.addFileToProject("a.ml", "let x = 1");
+        PsiFile notOpened = myFixture.addFileToProject("c.ml", "let z = x");
+
+        long misses = PsiLowerSymbolReference.CACHE_STATISTICS.getMissCount();
+
+        // the best-effort result keeps the incomplete resolutions
+        ResolveResult[] results = getReference(notOpened).multiResolve(false);
+        assertSize(1, results);
+        assertEquals("a.ml", results[0].getElement().getContainingFile().getName());
+
+        // a partial result is not kept
+        getReference(notOpened).multiResolve(false);
+        assertEquals(2, PsiLowerSymbolReference.CACHE_STATISTICS.getMissCount() - misses);
+    }
+
+    @Test
+    public void testCancelled() {
+        ResolveBudget.setClock(() -> 0L, getTestRootDisposable());
+        myFixture.addFileToProject("a.ml", "let x = 1");
+        PsiFile file = myFixture.addFileToProject("b.ml", "open A\nlet y = x");
+
+        long misses = PsiLowerSymbolReference.CACHE_STATISTICS.getMissCount();
+        EmptyProgressIndicator indicator = new EmptyProgressIndicator();
+        indicator.cancel();
+        try {
+            ProgressManager.getInstance().runProcess(() -> getReference(file).multiResolve(false), indicator);
+            fail("Resolution must be cancelled");
+        } catch (ProcessCanceledException e) {
+            // expected
+        }
+        assertEquals(1, PsiLowerSymbolReference.CACHE_STATISTICS.getMissCount() - misses);
+
+        // nothing has been cached: the symbol is resolved again
+        assertSize(1, getReference(file).multiResolve(false));
+        assertEquals(2, PsiLowerSymbolReference.CACHE_STATISTICS.getMissCount() - misses);
+    }
+
+    private static PsiLowerSymbolReference getReference(PsiFile file) {
+        PsiLowerSymbol usage = null;
+        for (PsiLowerSymbol symbol : PsiTreeUtil.findChildrenOfType(file, PsiLowerSymbol.class)) {
+            if ("x".equals(symbol.getText())) {
+                usage = symbol;
+            }
+        }
+        assertNotNull(usage);
+        return (PsiLowerSymbolReference) usage.getReference();
+    }
+}
@@ -0,0 +1,46 @@
+package com.ocaml.lang.core.psi.reference;
+
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.psi.PsiDocumentManager;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.ocaml.OCamlBaseTest;
+import com.or.lang.core.psi.PsiLowerSymbol;
+import com.or.lang.core.psi.reference.PsiLowerSymbolReference;
+import com.or.lang.core.psi.reference.ResolveCacheStatistics;
+import org.junit.Test;
+
+@SuppressWarnings("JUnit4AnnotatedMethodInJUnit3TestCase")
+public class ResolveCacheTest extends OCamlBaseTest {
+
+    @Test
+    public void testCachedUntilModification() {
+        PsiFile file = myFixture.configureByText("a.ml", "let x = 1\nlet y = x\n");
+        ResolveCacheStatistics statistics = PsiLowerSymbolReference.CACHE_STATISTICS;
+
+        long hits = statistics.getHitCount();
+        long misses = statistics.getMissCount();
+        PsiLowerSymbol symbol = findUsage(file);
+        assertNotNull(symbol.getReference().resolve());
+        assertNotNull(symbol.getReference().resolve());
+        assertEquals(misses + 1, statistics.getMissCount());
+        assertEquals(hits + 1, statistics.getHitCount());
+
+        // Any modification of the PSI invalidates the results
+        WriteCommandAction.runWriteCommandAction(getProject(), () -> myFixture.getEditor().getDocument().insertString(0, "let z = 2\n"));
+        PsiDocumentManager.getInstance(getProject()).commitAllDocuments();
+        assertNotNull(findUsage(file).getReference().resolve());
+        assertEquals(misses + 2, statistics.getMissCount());
+    }
+
+    private static PsiLowerSymbol findUsage(PsiFile file) {
+        PsiLowerSymbol usage = null;
+        for (PsiLowerSymbol symbol : PsiTreeUtil.findChildrenOfType(file, PsiLowerSymbol.class)) {
+            if ("x".equals(symbol.getText())) {
+                usage = symbol;
+            }
+        }
+        assertNotNull(usage);
+        return usage;
+    }
+}
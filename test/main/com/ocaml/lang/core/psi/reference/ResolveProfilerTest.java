@@ -0,0 +1,60 @@
+package com.ocaml.lang.core.psi.reference;
+
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiReference;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.ocaml.OCamlBaseTest;
+import com.or.lang.core.psi.PsiLowerSymbol;
+import com.or.lang.core.psi.PsiUpperSymbol;
+import com.or.lang.core.psi.reference.ResolveProfiler;
+import org.junit.Test;
+
+import java.util.Collection;
+
+@SuppressWarnings("JUnit4AnnotatedMethodInJUnit3TestCase")
+public class ResolveProfilerTest extends OCamlBaseTest {
+
+    @Test
+    public void testHistograms() {
+        myFixture.addFileToProject("a.ml", "let x = 1");
+        PsiFile file = myFixture.configureByText("b.ml", "let f y = y + A.x\n");
+
+        long lowerCount = ResolveProfiler.LOWER.getCount();
+        long upperCount = ResolveProfiler.UPPER.getCount();
+
+        long instructionsCount = ResolveProfiler.LOWER.getHistograms().get(1).getCount();
+
+        Collection<PsiLowerSymbol> lowerSymbols = PsiTreeUtil.findChildrenOfType(file, PsiLowerSymbol.class);
+        for (PsiLowerSymbol symbol : lowerSymbols) {
+            PsiReference reference = symbol.getReference();
+            assertNotNull(reference);
+            reference.resolve();
+        }
+        for (PsiUpperSymbol symbol : PsiTreeUtil.findChildrenOfType(file, PsiUpperSymbol.class)) {
+            PsiReference reference = symbol.getReference();
+            assertNotNull(reference);
+            reference.resolve();
+        }
+
+        // y is a local resolution: only the first phase and the total are recorded
+        int count = lowerSymbols.size();
+        assertEquals(lowerCount + count, ResolveProfiler.LOWER.getCount());
+        long resolvedWithIndexes = ResolveProfiler.LOWER.getHistograms().get(1).getCount() - instructionsCount;
+        assertTrue(0 < resolvedWithIndexes && resolvedWithIndexes < count);
+        assertEquals(upperCount + 1, ResolveProfiler.UPPER.getCount());
+
+        String json = ResolveProfiler.toJson(ResolveProfiler.getAll());
+        assertTrue(json.contains("\"lower\""));
+        assertTrue(json.contains("\"upper\""));
+        assertTrue(json.contains("\"resolvedInstructions\""));
+    }
+
+    @Test
+    public void testReset() {
+        ResolveProfiler.UPPER.reset();
+        assertEquals(0, ResolveProfiler.UPPER.getCount());
+        for (ResolveProfiler.Histogram histogram : ResolveProfiler.UPPER.getHistograms()) {
+            assertEquals(0, histogram.getMax());
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.ocaml.lang.core.psi.reference;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiReference;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.ocaml.OCamlBaseTest;
+import com.or.lang.core.psi.PsiLowerSymbol;
+import com.or.lang.core.psi.PsiUpperSymbol;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The instructions of a reference are extracted from a scope table cached on the file.
+ * This test is resolving every symbol of a 5k lines file, the table is built once for all the references.
+ */
+@SuppressWarnings("JUnit4AnnotatedMethodInJUnit3TestCase")
+public class ScopeTableBenchmarkTest extends OCamlBaseTest {
+    private static final Logger LOG = Logger.getInstance("ocaml.tests");
+
+    private static final int MODULES = 50;
+    private static final int LETS_PER_MODULE = 95;
+
+    @Test
+    public void testResolveAllSymbols() {
+        StringBuilder code = new StringBuilder();
+        for (int m = 0; m < MODULES; m++) {
+            code.append("module M").append(m).append(" = struct\n");
+            if (0 < m) {
+                code.append("  open M").append(m - 1).append("\n");
+                code.append("  module P = M").append(m - 1).append("\n");
+            }
+            code.append("  let v0 = 0\n");
+            for (int l = 1; l < LETS_PER_MODULE; l++) {
+                code.append("  let v").append(l).append(" = ");
+                if (0 < m && l % 3 == 0) {
+                    code.append("P.v").append(l - 1);
+                } else if (0 < m && l % 3 == 1) {
+                    code.append("M").append(m - 1).append(".(v").append(l).append(")");
+                } else {
+                    code.append("v").append(l - 1);
+                }
+                code.append(" + 1\n");
+            }
+            code.append("end\n");
+        }
+        PsiFile file = myFixture.configureByText("big.ml", code.toString());
+        assertTrue(5_000 <= file.getText().split("\n").length);
+
+        List<PsiReference> references = new ArrayList<>();
+        for (PsiElement symbol : PsiTreeUtil.findChildrenOfAnyType(file, PsiLowerSymbol.class, PsiUpperSymbol.class)) {
+            PsiReference reference = symbol.getReference();
+            if (reference != null) {
+                references.add(reference);
+            }
+        }
+
+        long start = System.nanoTime();
+        int resolved = resolveAll(references);
+        long firstPass = System.nanoTime();
+        assertEquals(resolved, resolveAll(references));
+        long secondPass = System.nanoTime();
+
+        LOG.info("Scope table, " + references.size() + " references, resolved: " + resolved
+                + ", first pass (table built): " + (firstPass - start) / 1_000_000 + "ms"
+                + ", second pass (table cached): " + (secondPass - firstPass) / 1_000_000 + "ms, "
+                + (secondPass - firstPass) / references.size() / 1_000 + "µs per reference");
+
+        assertTrue(0 < resolved);
+    }
+
+    private static int resolveAll(List<PsiReference> references) {
+        int resolved = 0;
+        for (PsiReference reference : references) {
+            if (reference.resolve() != null) {
+                resolved++;
+            }
+        }
+        return resolved;
+    }
+}
@@ -0,0 +1,38 @@
+package com.ocaml.lang.core.signature;
+
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.impl.source.PsiFileImpl;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.ocaml.OCamlBaseTest;
+import com.or.ide.search.index.ExternalIndex;
+import com.or.ide.search.index.LetIndex;
+import com.or.ide.search.index.ValIndex;
+import com.or.lang.core.psi.PsiExternal;
+import com.or.lang.core.psi.PsiLet;
+import com.or.lang.core.psi.PsiVal;
+import com.or.lang.core.signature.PsiSignatureUtil;
+import com.or.lang.utils.ORLanguageProperties;
+import org.junit.Test;
+
+@SuppressWarnings("JUnit4AnnotatedMethodInJUnit3TestCase")
+public class PsiSignatureUtilTest extends OCamlBaseTest {
+
+    @Test
+    public void testSignaturesFromStubs() {
+        PsiFile implementation = myFixture.addFileToProject("a.ml", "let add : int -> int -> int = fun x y -> x + y\nexternal length : string -> int = \"%string_length\"");
+        PsiFile signatures = myFixture.addFileToProject("b.mli", "val sub : int -> int -> int");
+        GlobalSearchScope scope = GlobalSearchScope.allScope(getProject());
+
+        PsiLet let = LetIndex.getElements("add", getProject(), scope).iterator().next();
+        PsiExternal external = ExternalIndex.getElements("length", getProject(), scope).iterator().next();
+        PsiVal val = ValIndex.getElements("sub", getProject(), scope).iterator().next();
+
+        assertEquals("int -> int -> int", PsiSignatureUtil.getSignature(let, ORLanguageProperties.cast(let.getLanguage())));
+        assertEquals("string -> int", PsiSignatureUtil.getSignature(external, ORLanguageProperties.cast(external.getLanguage())));
+        assertEquals("int -> int -> int", PsiSignatureUtil.getSignature(val, ORLanguageProperties.cast(val.getLanguage())));
+
+        // the signatures come from the stubs, the AST is not loaded
+        assertNull(((PsiFileImpl) implementation).getTreeElement());
+        assertNull(((PsiFileImpl) signatures).getTreeElement());
+    }
+}
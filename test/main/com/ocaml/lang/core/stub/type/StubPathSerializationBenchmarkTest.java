@@ -0,0 +1,150 @@
+package com.ocaml.lang.core.stub.type;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.stubs.SerializationManagerEx;
+import com.intellij.psi.stubs.Stub;
+import com.intellij.psi.stubs.StubElement;
+import com.intellij.psi.stubs.StubOutputStream;
+import com.ocaml.OCamlBaseTest;
+import com.or.lang.core.stub.*;
+import com.or.lang.core.stub.type.OclFileStubElementType;
+import com.or.lang.core.stub.type.PathInterner;
+import com.or.lang.core.stub.type.SerializerUtil;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Size of the serialized stubs, and heap used by the paths of the deserialized stubs.
+ * Before, each name of a path was written in each stub, and each stub had its own path.
+ * Now, a path is written as an id of the names enumerator, and deserialized paths are interned.
+ * <p>
+ * The corpus is the stdlib if the system property "ocaml.stdlib" is the path to its sources, or it is generated.
+ * The interner statistics are reported with the system property "ocaml.stubs.statistics".
+ */
+@SuppressWarnings("JUnit4AnnotatedMethodInJUnit3TestCase")
+public class StubPathSerializationBenchmarkTest extends OCamlBaseTest {
+    private static final Logger LOG = Logger.getInstance("ocaml.tests");
+
+    private static final int FILES = 50;
+    private static final int LETS_PER_MODULE = 20;
+
+    @Test
+    public void testPathsSizeAndHeap() throws IOException {
+        List<PsiFile> files = new ArrayList<>();
+        String stdlib = System.getProperty("ocaml.stdlib");
+        if (stdlib == null) {
+            for (int f = 0; f < FILES; f++) {
+                StringBuilder code = new StringBuilder("module Std = struct\n  module List = struct\n");
+                for (int l = 0; l < LETS_PER_MODULE; l++) {
+                    code.append("    let fn").append(l).append(" x = x\n");
+                }
+                code.append("  end\nend\n");
+                files.add(myFixture.addFileToProject("core" + f + ".ml", code.toString()));
+            }
+        } else {
+            File[] sources = new File(stdlib).listFiles((dir, name) -> name.endsWith(".ml") || name.endsWith(".mli"));
+            for (File source : sources == null ? new File[0] : sources) {
+                files.add(myFixture.addFileToProject(source.getName(), FileUtil.loadFile(source, StandardCharsets.UTF_8)));
+            }
+        }
+
+        SerializationManagerEx serializationManager = SerializationManagerEx.getInstanceEx();
+        StubPathSerializationTest.NamesEnumerator names = new StubPathSerializationTest.NamesEnumerator();
+        ByteArrayOutputStream oldPathBytes = new ByteArrayOutputStream();
+        ByteArrayOutputStream newPathBytes = new ByteArrayOutputStream();
+        StubOutputStream oldPathStream = new StubOutputStream(oldPathBytes, names);
+        StubOutputStream newPathStream = new StubOutputStream(newPathBytes, names);
+
+        long serializedSize = 0;
+        List<String[]> deserializedPaths = new ArrayList<>();
+        for (PsiFile file : files) {
+            StubElement<?> stub = OclFileStubElementType.INSTANCE.getBuilder().buildStubTree(file);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            serializationManager.serialize(stub, out);
+            serializedSize += out.size();
+
+            List<String[]> paths = new ArrayList<>();
+            collectPaths(stub, paths);
+            for (String[] path : paths) {
+                StubPathSerializationTest.writeOldPath(oldPathStream, path);
+                SerializerUtil.writePath(newPathStream, path);
+            }
+
+            Stub deserialized = serializationManager.deserialize(new ByteArrayInputStream(out.toByteArray()));
+            collectPaths((StubElement<?>) deserialized, deserializedPaths);
+        }
+
+        // heap of the paths: arrays and names, with and without interning
+        long heapBefore = 0;
+        Set<String[]> arrays = Collections.newSetFromMap(new IdentityHashMap<>());
+        Set<String> distinctNames = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (String[] path : deserializedPaths) {
+            heapBefore += arraySize(path);
+            for (String name : path) {
+                heapBefore += stringSize(name);
+            }
+            arrays.add(path);
+            distinctNames.addAll(Arrays.asList(path));
+        }
+        long heapAfter = 0;
+        for (String[] array : arrays) {
+            heapAfter += arraySize(array);
+        }
+        for (String name : distinctNames) {
+            heapAfter += stringSize(name);
+        }
+
+        LOG.info("Stub paths, " + files.size() + " files, " + deserializedPaths.size() + " paths, " + names.getCount() + " distinct"
+                + ", serialized stubs: " + (serializedSize - newPathBytes.size() + oldPathBytes.size()) + " bytes before, " + serializedSize + " bytes after"
+                + ", paths in stubs: " + oldPathBytes.size() + " bytes before, " + newPathBytes.size() + " bytes after (+" + names.getSize() + " bytes of names)"
+                + ", paths heap: " + heapBefore + " bytes before, " + heapAfter + " bytes after (" + arrays.size() + " arrays)"
+                + ", interner: " + PathInterner.size() + " paths, " + PathInterner.getHits() + " hits, " + PathInterner.getMisses() + " misses");
+
+        assertTrue(newPathBytes.size() + names.getSize() < oldPathBytes.size());
+        assertTrue(heapAfter < heapBefore);
+    }
+
+    private static void collectPaths(StubElement<?> stub, List<String[]> paths) {
+        if (stub instanceof PsiQualifiedNameStub) {
+            addPath(((PsiQualifiedNameStub<?>) stub).getPath(), paths);
+        } else if (stub instanceof PsiLetStub) {
+            addPath(((PsiLetStub) stub).getPath(), paths);
+        } else if (stub instanceof PsiModuleStub) {
+            addPath(((PsiModuleStub) stub).getPath(), paths);
+            addPath(((PsiModuleStub) stub).getQualifiedNameAsPath(), paths);
+        } else if (stub instanceof PsiParameterStub) {
+            addPath(((PsiParameterStub) stub).getPath(), paths);
+        } else if (stub instanceof PsiIncludeStub) {
+            addPath(((PsiIncludeStub) stub).getQualifiedPath(), paths);
+            addPath(((PsiIncludeStub) stub).getResolvedPath(), paths);
+        }
+
+        for (StubElement<?> child : stub.getChildrenStubs()) {
+            collectPaths(child, paths);
+        }
+    }
+
+    private static void addPath(String[] path, List<String[]> paths) {
+        if (path != null && path.length > 0) {
+            paths.add(path);
+        }
+    }
+
+    // 16 bytes of header, 4 bytes per reference, aligned on 8 bytes
+    private static long arraySize(String[] array) {
+        return (16 + 4L * array.length + 7) / 8 * 8;
+    }
+
+    // String (24) + byte array (16 + length), aligned on 8 bytes
+    private static long stringSize(String name) {
+        return 24 + (16 + name.length() + 7) / 8 * 8;
+    }
+}
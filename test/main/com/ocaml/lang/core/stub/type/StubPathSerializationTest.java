@@ -0,0 +1,131 @@
+package com.ocaml.lang.core.stub.type;
+
+import com.intellij.psi.stubs.StubInputStream;
+import com.intellij.psi.stubs.StubOutputStream;
+import com.intellij.util.io.AbstractStringEnumerator;
+import com.ocaml.OCamlBaseTest;
+import com.or.lang.core.stub.type.SerializerUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A path is written in a stub as the id of a name, the names of the path were written in each stub before.
+ * The bytes are the ones written by a {@link StubOutputStream}, see {@link StubPathSerializationBenchmarkTest} for the stdlib.
+ */
+@SuppressWarnings("JUnit4AnnotatedMethodInJUnit3TestCase")
+public class StubPathSerializationTest extends OCamlBaseTest {
+
+    private static final String[] STD_LIST = new String[]{"Core", "Std", "List"};
+    private static final String[] STD_ARRAY = new String[]{"Core", "Std", "Array"};
+
+    @Test
+    public void testWrittenSize() throws IOException {
+        NamesEnumerator names = new NamesEnumerator();
+        ByteArrayOutputStream oldBytes = new ByteArrayOutputStream();
+        ByteArrayOutputStream newBytes = new ByteArrayOutputStream();
+        StubOutputStream oldStream = new StubOutputStream(oldBytes, names);
+        StubOutputStream newStream = new StubOutputStream(newBytes, names);
+
+        int count = 100;
+        for (int i = 0; i < count; i++) {
+            String[] path = i % 2 == 0 ? STD_LIST : STD_ARRAY;
+            writeOldPath(oldStream, path);
+            SerializerUtil.writePath(newStream, path);
+        }
+
+        // one byte per stub for the id, and the distinct paths are stored once in the names
+        assertEquals(count, newBytes.size());
+        assertEquals(2, names.getCount());
+        assertTrue(newBytes.size() + names.getSize() < oldBytes.size() / 4);
+    }
+
+    @Test
+    public void testReadPath() throws IOException {
+        NamesEnumerator names = new NamesEnumerator();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        StubOutputStream out = new StubOutputStream(bytes, names);
+        SerializerUtil.writePath(out, STD_LIST);
+        SerializerUtil.writePath(out, null);
+        SerializerUtil.writePath(out, new String[0]);
+        SerializerUtil.writePath(out, new String[]{"Core", "Std", "List"});
+        SerializerUtil.writePath(out, new String[]{"A", null});
+
+        StubInputStream in = new StubInputStream(new ByteArrayInputStream(bytes.toByteArray()), names);
+        String[] first = SerializerUtil.readPath(in);
+        assertOrderedEquals(first, STD_LIST);
+        assertNull(SerializerUtil.readPath(in));
+        assertNull(SerializerUtil.readPath(in));
+        // the same path is the same array
+        assertSame(first, SerializerUtil.readPath(in));
+        assertOrderedEquals(SerializerUtil.readPath(in), "A", "");
+    }
+
+    // the format before the names enumerator: the length of the path and each of its names
+    static void writeOldPath(@NotNull StubOutputStream dataStream, String @NotNull [] path) throws IOException {
+        dataStream.writeByte(path.length);
+        for (String name : path) {
+            dataStream.writeUTFFast(name == null ? "" : name);
+        }
+    }
+
+    /**
+     * In memory names storage of the stubs, its size is the bytes of the distinct names (and their length).
+     */
+    static final class NamesEnumerator implements AbstractStringEnumerator {
+        private final Map<String, Integer> myIds = new HashMap<>();
+        private final List<String> myNames = new ArrayList<>();
+        private long mySize = 0;
+
+        @Override
+        public int enumerate(@Nullable String value) {
+            if (value == null) {
+                return 0;
+            }
+            return myIds.computeIfAbsent(value, k -> {
+                myNames.add(k);
+                mySize += 1 + k.getBytes(StandardCharsets.UTF_8).length;
+                return myNames.size();
+            });
+        }
+
+        @Override
+        public @Nullable String valueOf(int idx) {
+            return idx == 0 ? null : myNames.get(idx - 1);
+        }
+
+        int getCount() {
+            return myNames.size();
+        }
+
+        long getSize() {
+            return mySize;
+        }
+
+        @Override
+        public void markCorrupted() {
+        }
+
+        @Override
+        public boolean isDirty() {
+            return false;
+        }
+
+        @Override
+        public void force() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.ocaml.lang.parser;
+
+import com.intellij.lang.ASTNode;
+import com.intellij.psi.PsiDocumentManager;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.tree.ICustomParsingType;
+import com.intellij.psi.tree.IReparseableElementTypeBase;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.testFramework.PsiTestUtil;
+import com.intellij.util.containers.ContainerUtil;
+import com.ocaml.OCamlBaseTest;
+import com.or.lang.OCamlTypes;
+import com.or.lang.core.psi.PsiLet;
+import com.or.lang.core.type.ORCompositeType;
+import com.or.lang.parser.OclReparser;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+@SuppressWarnings("JUnit4AnnotatedMethodInJUnit3TestCase")
+public class OclReparserTest extends OCamlBaseTest {
+
+    @Test
+    public void testLetDeclaration() {
+        PsiFile file = myFixture.configureByText("a.ml", "let x = 1\n\nlet f y = y + 2\n\nlet z = 3\n");
+        ASTNode node = findLet(file, "f");
+        assertInstanceOf(node.getElementType(), IReparseableElementTypeBase.class);
+        assertInstanceOf(node.getElementType(), ICustomParsingType.class);
+
+        String text = "let f y = y * (2 + y)";
+        assertTrue(OclReparser.isReparseable(node.getTreeParent(), text));
+        ASTNode newNode = OclReparser.parse(node.getElementType(), text);
+        assertNotNull(newNode);
+        assertEquals(OCamlTypes.C_LET_DECLARATION, newNode.getElementType());
+        assertEquals(text, newNode.getText());
+        assertTrue(OclReparser.isValidReparse(node, newNode));
+    }
+
+    @Test
+    public void testLetDeclarationNotAlone() {
+        PsiFile file = myFixture.configureByText("a.ml", "let x = 1\n\nlet f y = y + 2\n\nlet z = let w = 3 in w\n");
+        ASTNode node = findLet(file, "f");
+
+        // a second declaration, an opened parenthesis
+        assertNull(OclReparser.parse(node.getElementType(), "let f y = y + 2 let g = 3"));
+        assertNull(OclReparser.parse(node.getElementType(), "let f y = (y + 2"));
+        // ends in a comment or in a string
+        assertFalse(OclReparser.isReparseable(node.getTreeParent(), "let f y = y (* 2"));
+        assertFalse(OclReparser.isReparseable(node.getTreeParent(), "let f y = \"y"));
+        // not at the top of the file
+        ASTNode local = findLet(file, "w");
+        assertFalse(OclReparser.isReparseable(local.getTreeParent(), "let w = 4"));
+
+        // the next declaration would be parsed inside this one
+        ASTNode newNode = OclReparser.parse(node.getElementType(), "let f y = y =");
+        assertNotNull(newNode);
+        assertFalse(OclReparser.isValidReparse(node, newNode));
+    }
+
+    @Test
+    public void testModuleBody() {
+        PsiFile file = myFixture.configureByText("a.ml", "module M = struct\n  let x = 1\n  let y = x\nend\n\nlet z = M.y\n");
+        ASTNode node = findNode(file, OCamlTypes.C_SCOPED_EXPR);
+
+        String text = "struct\n  let x = 1\n  type t = int\n  let y = x + 1\nend";
+        assertTrue(OclReparser.isReparseable(node.getTreeParent(), text));
+        ASTNode newNode = OclReparser.parse(node.getElementType(), text);
+        assertNotNull(newNode);
+        assertEquals(OCamlTypes.C_SCOPED_EXPR, newNode.getElementType());
+        assertTrue(OclReparser.isValidReparse(node, newNode));
+
+        // the let inside the module is at the top of the module
+        ASTNode let = findLet(file, "y");
+        assertTrue(OclReparser.isReparseable(let.getTreeParent(), "let y = x + 1"));
+
+        assertNull(OclReparser.parse(node.getElementType(), "struct\n  let x = 1\n"));
+        assertNull(OclReparser.parse(node.getElementType(), "struct\n  let x = 1\nend\nlet y = 2"));
+    }
+
+    @Test
+    public void testModuleTypeBody() {
+        PsiFile file = myFixture.configureByText("a.mli", "module M : sig\n  val x : int\nend\n\nmodule type S = sig\n  val y : int\nend\n");
+
+        ASTNode node = findNode(file, OCamlTypes.C_MODULE_TYPE);
+        ASTNode newNode = OclReparser.parse(node.getElementType(), "sig\n  val x : string\n  val w : int\nend");
+        assertNotNull(newNode);
+        assertTrue(OclReparser.isValidReparse(node, newNode));
+
+        node = findNode(file, OCamlTypes.C_SCOPED_EXPR);
+        newNode = OclReparser.parse(node.getElementType(), "sig\n  val y : float\nend");
+        assertNotNull(newNode);
+        assertTrue(OclReparser.isValidReparse(node, newNode));
+    }
+
+    @Test
+    public void testIncrementalEdits() {
+        configureCodeWithCaret("let x = 1\n\nlet f y = y + (*caret*)2\n\nmodule M = struct\n  let a = x\nend\n\nlet z = M.a\n");
+        PsiFile file = myFixture.getFile();
+        PsiElement letX = findLet(file, "x").getPsi();
+        PsiElement letA = findLet(file, "a").getPsi();
+        PsiElement letZ = findLet(file, "z").getPsi();
+
+        // the elements outside the edited let are kept
+        type("40 + ");
+        assertEquals("let f y = y + 40 + 2", findLet(file, "f").getText());
+        assertSame(letX, findLet(file, "x").getPsi());
+        assertSame(letA, findLet(file, "a").getPsi());
+        assertSame(letZ, findLet(file, "z").getPsi());
+        PsiElement letF = findLet(file, "f").getPsi();
+
+        // the elements outside the edited module body are kept
+        myFixture.getEditor().getCaretModel().moveToOffset(file.getText().indexOf("a = x") + 5);
+        type(" + 1\n  let b = a");
+        assertNotNull(findLet(file, "b"));
+        assertSame(letX, findLet(file, "x").getPsi());
+        assertSame(letF, findLet(file, "f").getPsi());
+        assertSame(letZ, findLet(file, "z").getPsi());
+
+        // edits at the boundaries of the elements: the file is parsed again
+        myFixture.getEditor().getCaretModel().moveToOffset(file.getText().indexOf("let z") - 2);
+        type(" in");
+
+        myFixture.getEditor().getCaretModel().moveToOffset(file.getText().indexOf("let x = 1") + 9);
+        type(" (* one *)");
+    }
+
+    @Test
+    public void testIncrementalEditFallback() {
+        configureCodeWithCaret("let x = 1\n\nlet f y = y + 2(*caret*)\n\nmodule M = struct\n  let a = x\nend\n\nlet z = M.a\n");
+        PsiFile file = myFixture.getFile();
+        PsiElement letA = findLet(file, "a").getPsi();
+        PsiElement letZ = findLet(file, "z").getPsi();
+
+        // the let ends in a comment that includes the next elements: they are rebuilt
+        type(" (* two");
+        assertFalse(letA.isValid());
+        assertFalse(letZ.isValid());
+        assertNull(ContainerUtil.find(PsiTreeUtil.findChildrenOfType(file, PsiLet.class), let -> "z".equals(let.getName())));
+
+        myFixture.getEditor().getCaretModel().moveToOffset(file.getText().indexOf("two") + 3);
+        type(" *)");
+        assertNotSame(letZ, findLet(file, "z").getPsi());
+    }
+
+    private void type(@NotNull String text) {
+        PsiFile file = myFixture.getFile();
+        myFixture.type(text);
+        PsiDocumentManager.getInstance(getProject()).commitAllDocuments();
+
+        PsiTestUtil.checkFileStructure(file);
+        PsiTestUtil.checkStubsMatchText(file);
+    }
+
+    private static @NotNull ASTNode findLet(@NotNull PsiFile file, @NotNull String name) {
+        for (PsiLet let : PsiTreeUtil.findChildrenOfType(file, PsiLet.class)) {
+            if (name.equals(let.getName())) {
+                return let.getNode();
+            }
+        }
+        throw new AssertionError("let " + name + " not found");
+    }
+
+    private static @NotNull ASTNode findNode(@NotNull PsiFile file, @NotNull ORCompositeType type) {
+        PsiElement[] elements = PsiTreeUtil.collectElements(file, element -> element.getNode().getElementType() == type);
+        assertTrue(elements.length > 0);
+        return elements[0].getNode();
+    }
+}
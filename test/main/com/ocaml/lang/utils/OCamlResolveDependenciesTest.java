@@ -62,4 +62,20 @@ public class OCamlResolveDependenciesTest extends OCamlBaseTest {
         assertEquals("hello_world.mli", next.second.getName());
     }
 
+    @Test
+    public void testResolveDependenciesOfPath() {
+        myFixture.configureByText("tata.ml", "module Inner = struct\n  module Deep = struct let x = 1 end\nend");
+        PsiFile sourceFile = myFixture.configureByText("path.ml", "open Tata.Inner.Deep\nlet y = x");
+
+        Module module = ModuleUtil.findModuleForFile(sourceFile.getVirtualFile(), myFixture.getProject());
+        assertNotNull(module);
+
+        // open Tata.Inner.Deep -> the file module Tata
+        Set<Pair<String, PsiFile>> pairs = OCamlResolveDependencies.resolveForFile(sourceFile, ModuleRootManager.getInstance(module));
+        assertSize(1, pairs);
+        Pair<String, PsiFile> next = pairs.iterator().next();
+        assertEquals("tata.ml", next.first);
+        assertEquals("tata.ml", next.second.getName());
+    }
+
 }
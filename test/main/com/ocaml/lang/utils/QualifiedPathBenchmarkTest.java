@@ -0,0 +1,81 @@
+package com.ocaml.lang.utils;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.psi.PsiElement;
+import com.ocaml.OCamlBaseTest;
+import com.or.lang.utils.OclQNameFinder;
+import com.or.lang.utils.QualifiedPathHelper;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * The local module aliases were substituted in the potential paths with a regular expression compiled
+ * for each alias. They are now substituted segment by segment: this test is measuring both
+ * on a file with many nested aliased modules.
+ */
+@SuppressWarnings("JUnit4AnnotatedMethodInJUnit3TestCase")
+public class QualifiedPathBenchmarkTest extends OCamlBaseTest {
+    private static final Logger LOG = Logger.getInstance("ocaml.tests");
+
+    private static final int DEPTH = 60;
+    private static final int ROUNDS = 200;
+
+    @Test
+    public void testNestedAliases() {
+        StringBuilder code = new StringBuilder();
+        for (int i = 0; i < DEPTH; i++) {
+            code.append("module A").append(i).append(" = struct\n");
+            code.append("module B").append(i).append(" = Target").append(i).append(".Inner\n");
+            code.append("open C").append(i).append("\n");
+        }
+        code.append("let _ = B0.x(*caret*)\n");
+        for (int i = 0; i < DEPTH; i++) {
+            code.append("end\n");
+        }
+        PsiElement element = configureCodeWithCaret(code.toString());
+
+        // Previous implementation: a pattern compiled for each alias, applied to all the names
+        List<String> names = new ArrayList<>(OclQNameFinder.INSTANCE.extractPotentialPaths(element));
+        long start = System.nanoTime();
+        int regexCount = 0;
+        for (int r = 0; r < ROUNDS; r++) {
+            for (int i = 0; i < DEPTH; i++) {
+                Pattern compile = Pattern.compile("(\\.?)(B" + i + ")(\\.?)");
+                for (String name : names) {
+                    regexCount += compile.matcher(name).replaceAll("$1Target" + i + ".Inner$3").length();
+                }
+            }
+        }
+        long endRegex = System.nanoTime();
+
+        int segmentCount = 0;
+        for (int r = 0; r < ROUNDS; r++) {
+            for (int i = 0; i < DEPTH; i++) {
+                String name = "B" + i;
+                String alias = "Target" + i + ".Inner";
+                for (String qName : names) {
+                    segmentCount += QualifiedPathHelper.replaceAll(qName, name, alias).length();
+                }
+            }
+        }
+        long endSegments = System.nanoTime();
+
+        Set<String> paths = null;
+        for (int r = 0; r < ROUNDS; r++) {
+            paths = OclQNameFinder.INSTANCE.extractPotentialPaths(element);
+        }
+        long endPaths = System.nanoTime();
+
+        LOG.info("Alias rewriting, " + DEPTH + " nested aliases, " + names.size() + " names"
+                + ", regex: " + (endRegex - start) / ROUNDS / 1_000 + "µs per round"
+                + ", segments: " + (endSegments - endRegex) / ROUNDS / 1_000 + "µs per round"
+                + ", potential paths: " + (endPaths - endSegments) / ROUNDS / 1_000 + "µs per element");
+
+        assertEquals(regexCount, segmentCount);
+        assertContainsElements(paths, "Target0.Inner", "C59.Target0.Inner");
+    }
+}
@@ -0,0 +1,39 @@
+package com.ocaml.lang.utils;
+
+import com.intellij.psi.PsiElement;
+import com.ocaml.OCamlBaseTest;
+import com.or.lang.utils.OclQNameFinder;
+import com.or.lang.utils.QualifiedPathHelper;
+import org.junit.Test;
+
+import java.util.Set;
+
+@SuppressWarnings("JUnit4AnnotatedMethodInJUnit3TestCase")
+public class QualifiedPathHelperTest extends OCamlBaseTest {
+
+    @Test
+    public void testReplaceSegments() {
+        assertEquals("A.N.x", QualifiedPathHelper.replaceAll("A.M.x", "M", "N"));
+        assertEquals("N.N", QualifiedPathHelper.replaceAll("M.M", "M", "N"));
+        assertEquals("X.Y.c", QualifiedPathHelper.replaceAll("M.c", "M", "X.Y"));
+        // only whole segments are replaced
+        assertEquals("Map.MM.x", QualifiedPathHelper.replaceAll("Map.MM.x", "M", "N"));
+        String unchanged = "A.B";
+        assertSame(unchanged, QualifiedPathHelper.replaceAll(unchanged, "M", "N"));
+
+        String[] path = QualifiedPathHelper.split("M.c");
+        assertOrderedEquals(QualifiedPathHelper.replaceFirst(path, "M", QualifiedPathHelper.split("X.Y")), "X", "Y", "c");
+        assertSame(path, QualifiedPathHelper.replaceFirst(path, "Z", new String[]{"N"}));
+        assertEquals("Y.c", QualifiedPathHelper.join(new String[]{"X", "Y", "c"}, 1));
+        assertEmpty(QualifiedPathHelper.split(""));
+    }
+
+    @Test
+    public void testAliasInPotentialPaths() {
+        PsiElement element = configureCodeWithCaret("module F = Other\nopen Foo\nlet _ = F.x(*caret*)");
+
+        Set<String> paths = OclQNameFinder.INSTANCE.extractPotentialPaths(element);
+        assertContainsElements(paths, "Foo.Other", "File.Foo.Other");
+        assertDoesntContain(paths, "Otheroo.Other");
+    }
+}
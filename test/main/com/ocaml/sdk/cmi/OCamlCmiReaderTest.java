@@ -0,0 +1,259 @@
+package com.ocaml.sdk.cmi;
+
+import com.ocaml.OCamlBaseTest;
+import com.or.ide.search.ModuleExport;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The interface is marshalled by hand, with the layout of the types of OCaml 4.14:
+ * <pre>
+ * type color = Red | Green
+ * val add : int -> ?step:int -> int -> int
+ * val hidden : int (hidden)
+ * module Inner : sig val x : 'a list end
+ * module List = Stdlib__List
+ * </pre>
+ */
+@SuppressWarnings("JUnit4AnnotatedMethodInJUnit3TestCase")
+public class OCamlCmiReaderTest extends OCamlBaseTest {
+
+    @Test
+    public void testReadModuleName() throws IOException {
+        assertEquals("Foo", OCamlCmiReader.readModuleName(createInterface()));
+        assertNull(OCamlCmiReader.readModuleName("let x = 1".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void testReadExports() throws IOException {
+        OCamlCmiReader.CompiledInterface compiledInterface = OCamlCmiReader.read(createInterface());
+        assertNotNull(compiledInterface);
+        assertEquals("Foo", compiledInterface.getModuleName());
+
+        Map<String, List<ModuleExport>> exports = compiledInterface.getExports();
+        assertSameElements(exports.get("Foo"),
+                new ModuleExport("color", ModuleExport.Kind.TYPE, "", false),
+                new ModuleExport("Red", ModuleExport.Kind.VARIANT, "color", false),
+                new ModuleExport("Green", ModuleExport.Kind.VARIANT, "color", false),
+                new ModuleExport("add", ModuleExport.Kind.VAL, "int -> ?step:int -> int -> int", true),
+                new ModuleExport("Inner", ModuleExport.Kind.MODULE, "Foo.Inner", false),
+                new ModuleExport("List", ModuleExport.Kind.MODULE, "Foo.List", false));
+        assertSameElements(exports.get("Foo.Inner"), new ModuleExport("x", ModuleExport.Kind.VAL, "'a list", false));
+        assertSameElements(exports.get("Foo.List"), new ModuleExport("Stdlib__List", ModuleExport.Kind.ALIAS, "", false));
+    }
+
+    @Test
+    public void testReadTypeKindsOf52() throws IOException {
+        Marshaller m = new Marshaller();
+        m.block(0, 2).string("Bar");
+
+        // type point = { x : int }
+        m.cons().block(1, 4);
+        m.localIdent("point", 1);
+        m.block(0, 3).integer(0).integer(0);
+        m.block(1, 2); // Type_record, after Type_abstract of type_origin
+        m.cons().block(0, 1).localIdent("x", 2);
+        m.integer(0); // end of the labels
+        m.integer(0); // representation
+        m.integer(0).integer(0);
+
+        // type shape = Circle
+        m.cons().block(1, 4);
+        m.localIdent("shape", 3);
+        m.block(0, 3).integer(0).integer(0);
+        m.block(2, 2); // Type_variant
+        m.cons().block(0, 1).localIdent("Circle", 4);
+        m.integer(0);
+        m.integer(0);
+        m.integer(0).integer(0);
+
+        m.integer(0);
+
+        OCamlCmiReader.CompiledInterface compiledInterface = OCamlCmiReader.read(m.toInterface(34));
+        assertNotNull(compiledInterface);
+        assertSameElements(compiledInterface.getExports().get("Bar"),
+                new ModuleExport("point", ModuleExport.Kind.TYPE, "", false),
+                new ModuleExport("shape", ModuleExport.Kind.TYPE, "", false),
+                new ModuleExport("Circle", ModuleExport.Kind.VARIANT, "shape", false));
+    }
+
+    @Test
+    public void testReadLongList() throws IOException {
+        // each cell of a list is nested in the previous one
+        int length = 200_000;
+        Marshaller m = new Marshaller();
+        for (int i = 0; i < length; i++) {
+            m.cons().integer(i % 64);
+        }
+        m.integer(0);
+
+        OCamlMarshalReader reader = new OCamlMarshalReader(m.toInterface(31), 12);
+        reader.readHeader();
+        List<Object> values = OCamlCmiReader.toList(reader.readValue());
+        assertSize(length, values);
+        assertEquals(63L, values.get(63));
+    }
+
+    static byte[] createInterface() {
+        Marshaller m = new Marshaller();
+        // (name, signature)
+        m.block(0, 2).string("Foo");
+
+        // type color = Red | Green
+        m.cons().block(1, 4); // Sig_type
+        m.localIdent("color", 1);
+        m.block(0, 3).integer(0).integer(0); // type_params, type_arity
+        m.block(1, 2); // Type_variant
+        m.cons().block(0, 1).localIdent("Red", 2);
+        m.cons().block(0, 1).localIdent("Green", 3);
+        m.integer(0); // end of the constructors
+        m.integer(0); // representation
+        m.integer(0).integer(0); // rec_status, visibility
+
+        // val add : int -> ?step:int -> int -> int
+        m.cons().block(0, 3); // Sig_value
+        m.localIdent("add", 4);
+        m.block(0, 2); // value_description
+        m.arrow(null, m::intType, () -> m.arrow("step", () -> m.constr("option", m::intType), () -> m.arrow(null, m::intType, m::intType)));
+        m.integer(0); // Val_reg
+        m.integer(0); // Exported
+
+        // val hidden : int
+        m.cons().block(0, 3);
+        m.localIdent("hidden", 5);
+        m.block(0, 2);
+        m.intType();
+        m.integer(0);
+        m.integer(1); // Hidden
+
+        // module Inner : sig val x : 'a list end
+        m.cons().block(3, 5); // Sig_module
+        m.localIdent("Inner", 6);
+        m.integer(0); // presence
+        m.block(0, 1).block(1, 1); // module_declaration, Mty_signature
+        m.cons().block(0, 3);
+        m.localIdent("x", 7);
+        m.block(0, 2);
+        m.constr("list", () -> m.variable("a"));
+        m.integer(0);
+        m.integer(0);
+        m.integer(0); // end of the signature of Inner
+        m.integer(0).integer(0); // rec_status, visibility
+
+        // module List = Stdlib__List
+        m.cons().block(3, 5);
+        m.localIdent("List", 8);
+        m.integer(0);
+        m.block(0, 1).block(3, 1).block(0, 1).block(2, 1).string("Stdlib__List"); // Mty_alias(Pident(Global))
+        m.integer(0).integer(0);
+
+        m.integer(0); // end of the signature
+
+        return m.toInterface(31);
+    }
+
+    /**
+     * Write the codes of the marshal format, in prefix order: the fields of a block are written after it.
+     */
+    static final class Marshaller {
+        private final ByteArrayOutputStream myData = new ByteArrayOutputStream();
+        private int myObjects = 0;
+        private int myIntType = -1;
+
+        Marshaller block(int tag, int size) {
+            myData.write(0x80 | (size << 4) | tag);
+            myObjects++;
+            return this;
+        }
+
+        Marshaller cons() {
+            return block(0, 2);
+        }
+
+        Marshaller string(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            myData.write(0x20 | bytes.length);
+            myData.write(bytes, 0, bytes.length);
+            myObjects++;
+            return this;
+        }
+
+        Marshaller integer(int value) {
+            myData.write(0x40 | value);
+            return this;
+        }
+
+        Marshaller localIdent(String name, int stamp) {
+            return block(0, 2).string(name).integer(stamp);
+        }
+
+        // type_expr: desc, level, scope, id
+        void typeExpr(Runnable desc) {
+            block(0, 4);
+            desc.run();
+            integer(0).integer(0).integer(0);
+        }
+
+        // Tconstr(Pident(Predef), arguments, abbreviations)
+        void constr(String name, Runnable... arguments) {
+            typeExpr(() -> {
+                block(3, 3);
+                block(0, 1).block(3, 2).string(name).integer(0);
+                for (Runnable argument : arguments) {
+                    cons();
+                    argument.run();
+                }
+                integer(0);
+                block(0, 1).integer(0);
+            });
+        }
+
+        // the type int is shared
+        void intType() {
+            if (myIntType < 0) {
+                myIntType = myObjects;
+                constr("int");
+            } else {
+                myData.write(0x04);
+                myData.write(myObjects - myIntType);
+            }
+        }
+
+        // Tarrow(label, argument, result, commutable)
+        void arrow(String optionalLabel, Runnable argument, Runnable result) {
+            typeExpr(() -> {
+                block(1, 4);
+                if (optionalLabel == null) {
+                    integer(0);
+                } else {
+                    block(1, 1).string(optionalLabel);
+                }
+                argument.run();
+                result.run();
+                integer(0);
+            });
+        }
+
+        // Tvar(Some name)
+        void variable(String name) {
+            typeExpr(() -> block(0, 1).block(0, 1).string(name));
+        }
+
+        // the version of the magic number: 31 for 4.14, 34 for 5.2
+        byte[] toInterface(int version) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] magic = (OCamlCmiReader.CMI_MAGIC_PREFIX + String.format("%03d", version)).getBytes(StandardCharsets.US_ASCII);
+            out.write(magic, 0, magic.length);
+            byte[] header = {(byte) 0x84, (byte) 0x95, (byte) 0xA6, (byte) 0xBE, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0};
+            out.write(header, 0, header.length);
+            byte[] data = myData.toByteArray();
+            out.write(data, 0, data.length);
+            return out.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.ocaml.sdk.cmi;
+
+import com.intellij.openapi.application.WriteAction;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiReference;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.ocaml.OCamlBaseTest;
+import com.or.ide.search.PsiFinder;
+import com.or.lang.core.ORFileType;
+import com.or.lang.core.psi.*;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * The declarations of a compiled interface are resolved in its decompiled interface, see {@link OCamlCmiReaderTest} for the interface.
+ */
+@SuppressWarnings("JUnit4AnnotatedMethodInJUnit3TestCase")
+public class OCamlCmiServiceTest extends OCamlBaseTest {
+
+    @Test
+    public void testResolveDeclarations() throws IOException {
+        addCompiledInterface("foo.cmi");
+        PsiFile file = myFixture.configureByText("a.ml", "let _ = Foo.add 1 2\nlet _ = Foo.Inner.x\nlet _ = Foo.Red");
+
+        PsiElement add = resolve(file, "add");
+        assertInstanceOf(add, PsiVal.class);
+        assertEquals("Foo.add", ((PsiVal) add).getQualifiedName());
+        assertEquals("Foo.mli", add.getContainingFile().getName());
+
+        PsiElement x = resolve(file, "x");
+        assertEquals("Foo.Inner.x", ((PsiVal) x).getQualifiedName());
+
+        PsiElement red = resolve(file, "Red");
+        assertInstanceOf(red, PsiVariantDeclaration.class);
+
+        Set<PsiModule> modules = myFixture.getProject().getService(PsiFinder.class).findModulesbyName("Foo", ORFileType.both);
+        assertSize(1, modules);
+        assertTrue(modules.iterator().next().isInterface());
+    }
+
+    @Test
+    public void testSourcesFirst() throws IOException {
+        addCompiledInterface("foo.cmi");
+        myFixture.addFileToProject("foo.ml", "let add x y = x + y");
+
+        GlobalSearchScope scope = GlobalSearchScope.allScope(getProject());
+        assertEmpty(OCamlCmiService.getInstance().findElements(getProject(), "add", scope, PsiQualifiedPathElement.class));
+    }
+
+    @Test
+    public void testDecompiledFile() throws IOException {
+        VirtualFile compiledFile = addCompiledInterface("foo.cmi");
+
+        PsiFile decompiledFile = OCamlCmiService.getInstance().getDecompiledFile(getProject(), compiledFile);
+        assertNotNull(decompiledFile);
+        assertSame(decompiledFile, OCamlCmiService.getInstance().getDecompiledFile(getProject(), compiledFile));
+        assertFalse(decompiledFile.isWritable());
+        assertTrue(decompiledFile.getText().contains("type color = Red | Green\n"));
+        assertTrue(decompiledFile.getText().contains("module List = Stdlib__List\n"));
+    }
+
+    private @NotNull VirtualFile addCompiledInterface(@NotNull String name) throws IOException {
+        VirtualFile file = myFixture.getTempDirFixture().createFile(name);
+        byte[] content = OCamlCmiReaderTest.createInterface();
+        WriteAction.runAndWait(() -> file.setBinaryContent(content));
+        return file;
+    }
+
+    private static @NotNull PsiElement resolve(@NotNull PsiFile file, @NotNull String name) {
+        for (PsiElement symbol : PsiTreeUtil.findChildrenOfAnyType(file, PsiLowerSymbol.class, PsiUpperSymbol.class)) {
+            if (name.equals(symbol.getText())) {
+                PsiReference reference = symbol.getReference();
+                assertNotNull(reference);
+                PsiElement element = reference.resolve();
+                assertNotNull(element);
+                return element;
+            }
+        }
+        throw new AssertionError(name + " not found");
+    }
+}